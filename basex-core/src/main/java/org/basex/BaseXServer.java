@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.core.*;
@@ -39,6 +40,8 @@ public final class BaseXServer extends Main implements Runnable {
   private StringList commands;
   /** Server socket. */
   private ServerSocket socket;
+  /** Worker pool for client sessions ({@code null} if one thread is used per session). */
+  private ClientPool pool;
   /** Start as daemon. */
   private boolean service;
 
@@ -100,7 +103,15 @@ public final class BaseXServer extends Main implements Runnable {
       // execute command-line arguments
       for(final String c : commands) execute(c);
 
-      socket = new ServerSocket();
+      // multiplex sessions if the number of worker threads is limited
+      final int threads = gopts.get(GlobalOptions.SERVERTHREADS);
+      if(threads > 0) {
+        pool = new ClientPool(threads);
+        pool.start();
+        socket = ServerSocketChannel.open().socket();
+      } else {
+        socket = new ServerSocket();
+      }
       // reuse address (on non-Windows machines: !Prop.WIN);
       socket.setReuseAddress(true);
       socket.bind(new InetSocketAddress(addr, port));
@@ -155,7 +166,7 @@ public final class BaseXServer extends Main implements Runnable {
               if(ms - cs.last > ka) cs.quit();
             }
           }
-          final ClientListener cl = new ClientListener(s, context, this);
+          final ClientListener cl = new ClientListener(s, context, this, pool);
           // start authentication timeout
           final long to = context.globalopts.get(GlobalOptions.KEEPALIVE) * 1000L;
           if(to > 0) {
@@ -167,7 +178,8 @@ public final class BaseXServer extends Main implements Runnable {
             }, to);
             auth.add(cl);
           }
-          cl.start();
+          if(pool != null) pool.execute(cl);
+          else cl.start();
         }
       } catch(final SocketException ex) {
         break;
@@ -201,6 +213,7 @@ public final class BaseXServer extends Main implements Runnable {
     for(final ClientListener cs : context.sessions) {
       cs.quit();
     }
+    if(pool != null) pool.close();
     super.quit();
 
     try {
@@ -4,13 +4,17 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
 import org.basex.core.*;
 import org.basex.core.MainOptions.MainParser;
 import org.basex.core.cmd.*;
+import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.io.serial.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -18,12 +22,18 @@ import org.basex.util.list.*;
  * This class recursively scans files and directories and parses all
  * relevant files.
  *
+ * If {@link MainOptions#PARSETHREADS} is larger than 1, documents are parsed in
+ * parallel: worker threads build a main memory database instance for each document,
+ * and the resulting nodes are passed on to the builder in the original order.
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class DirParser extends Parser {
   /** Number of skipped files to log. */
   private static final int SKIPLOG = 10;
+  /** Maximum size of documents that are parsed in parallel. */
+  private static final long MAXSIZE = 1 << 22;
   /** Skipped files. */
   private final StringList skipped = new StringList();
   /** File pattern. */
@@ -43,6 +53,13 @@ public final class DirParser extends Parser {
   private final boolean rawParser;
   /** Database path for storing binary files. */
   private final IOFile rawPath;
+  /** Number of parsing threads. */
+  private final int threads;
+
+  /** Documents that are parsed in parallel (in the original order). */
+  private final ArrayDeque<Doc> docs = new ArrayDeque<Doc>();
+  /** Worker threads (if documents are parsed in parallel). */
+  private ExecutorService workers;
 
   /** Last source. */
   private IO lastSrc;
@@ -66,6 +83,7 @@ public final class DirParser extends Parser {
     addRaw = options.get(MainOptions.ADDRAW);
     dtd = options.get(MainOptions.DTD);
     rawParser = options.get(MainOptions.PARSER) == MainParser.RAW;
+    threads = options.get(MainOptions.PARSETHREADS);
 
     filter = !source.isDir() && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(opts.get(MainOptions.CREATEFILTER)));
@@ -78,7 +96,17 @@ public final class DirParser extends Parser {
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = src.path();
-    parse(build, src);
+    if(threads > 1) workers = Executors.newFixedThreadPool(threads);
+    try {
+      parse(build, src);
+      add(build, 0);
+    } finally {
+      if(workers != null) {
+        workers.shutdownNow();
+        workers = null;
+      }
+      docs.clear();
+    }
   }
 
   /**
@@ -157,6 +185,13 @@ public final class DirParser extends Parser {
         }
       } else {
         // store input as XML
+        if(workers != null && parallel()) {
+          submit(b, targ);
+          return;
+        }
+        // preserve document order: add all documents that are parsed in parallel
+        add(b, 0);
+
         boolean ok = true;
         IO in = src;
         if(skipCorrupt) {
@@ -188,6 +223,75 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Checks if the current source can be parsed in parallel.
+   * @return result of check
+   */
+  private boolean parallel() {
+    final long l = src.length();
+    return l != -1 && l <= MAXSIZE;
+  }
+
+  /**
+   * Parses the current source in a worker thread.
+   * @param b builder instance
+   * @param targ target path
+   * @throws IOException I/O exception
+   */
+  private void submit(final Builder b, final String targ) throws IOException {
+    // contents of streams (archive entries) are read before they are passed on
+    IO io = src;
+    if(io instanceof IOStream) {
+      io = new IOContent(src.read());
+      io.name(src.name());
+    }
+    final IO in = io;
+    final Future<MemData> future = workers.submit(new Callable<MemData>() {
+      @Override
+      public MemData call() throws IOException {
+        try {
+          return MemBuilder.build("", Parser.singleParser(in, options, targ));
+        } catch(final IOException ex) {
+          if(!skipCorrupt) throw ex;
+          Util.debug(ex);
+          return null;
+        }
+      }
+    });
+    docs.add(new Doc(future, src.path()));
+    // limit number of pending documents
+    add(b, threads << 1);
+  }
+
+  /**
+   * Adds documents that have been parsed in parallel to the builder.
+   * @param b builder instance
+   * @param max maximum number of pending documents
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder b, final int max) throws IOException {
+    while(docs.size() > max) {
+      final Doc doc = docs.poll();
+      final MemData data;
+      try {
+        data = doc.future.get();
+      } catch(final InterruptedException ex) {
+        throw new BaseXException(ex);
+      } catch(final ExecutionException ex) {
+        final Throwable th = ex.getCause();
+        if(th instanceof IOException) throw (IOException) th;
+        if(th instanceof Error) throw (Error) th;
+        throw (RuntimeException) th;
+      }
+      if(data == null) {
+        skipped.add(doc.path);
+      } else {
+        new BuilderSerializer(b).serialize(new DBNode(data, 0));
+        b.encoding(data.meta.encoding);
+      }
+    }
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -221,4 +325,22 @@ public final class DirParser extends Parser {
   public void close() throws IOException {
     if(parser != null) parser.close();
   }
+
+  /** Document that is parsed in a worker thread. */
+  private static final class Doc {
+    /** Resulting database instance ({@code null} if the document has been skipped). */
+    final Future<MemData> future;
+    /** Path to the original document. */
+    final String path;
+
+    /**
+     * Constructor.
+     * @param f future result
+     * @param p path to the original document
+     */
+    Doc(final Future<MemData> f, final String p) {
+      future = f;
+      path = p;
+    }
+  }
 }
@@ -24,14 +24,6 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public final class DiskBuilder extends Builder {
-  /** Text compressor. */
-  private static final ThreadLocal<Compress> COMP = new ThreadLocal<Compress>() {
-    @Override
-    protected Compress initialValue() {
-      return new Compress();
-    }
-  };
-
   /** Database table. */
   private DataOutput tout;
   /** Database texts. */
@@ -197,7 +189,7 @@ public final class DiskBuilder extends Builder {
     // store text
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
-    final byte[] val = COMP.get().pack(value);
+    final byte[] val = meta.compression.pack(value);
     store.writeToken(val);
     return val == value ? off : off | IO.OFFCOMP;
   }
@@ -307,6 +307,8 @@ public abstract class Command extends Proc {
    * @return closed flag
    */
   protected static boolean close(final Context ctx, final String db) {
+    // release databases that are kept opened by cached query plans
+    ctx.queries.close(db);
     final boolean close = ctx.data() != null &&
         db.equals(ctx.data().meta.name) && ctx.dbs.pins(db) == 1;
     return close && new Close().run(ctx);
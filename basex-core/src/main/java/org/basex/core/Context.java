@@ -2,8 +2,12 @@ package org.basex.core;
 
 import static org.basex.core.Text.*;
 
+import java.util.*;
+
+import org.basex.core.cmd.*;
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -40,6 +44,10 @@ public final class Context {
   public final Repo repo;
   /** Databases list. */
   public final Databases databases;
+  /** Cached query plans. */
+  public final QueryCache queries;
+  /** Process locking. */
+  public final Locking locks;
 
   /** User reference. */
   public User user;
@@ -56,8 +64,6 @@ public final class Context {
 
   /** Node context. Set if it does not contain all documents of the current database. */
   private Nodes current;
-  /** Process locking. */
-  private final Locking locks;
   /** Data reference. */
   private Data data;
 
@@ -86,6 +92,7 @@ public final class Context {
     listener = cl;
     globalopts = ctx.globalopts;
     dbs = ctx.dbs;
+    queries = ctx.queries;
     events = ctx.events;
     sessions = ctx.sessions;
     databases = ctx.databases;
@@ -103,6 +110,7 @@ public final class Context {
   private Context(final GlobalOptions gopts) {
     globalopts = gopts;
     dbs = new Datas();
+    queries = new QueryCache(gopts);
     events = new Events();
     sessions = new Sessions();
     blocker = new ClientBlocker();
@@ -121,6 +129,7 @@ public final class Context {
    */
   public synchronized void close() {
     while(!sessions.isEmpty()) sessions.get(0).quit();
+    queries.close();
     dbs.close();
     log.close();
   }
@@ -205,6 +214,8 @@ public final class Context {
    * @return result of check
    */
   public boolean pinned(final String db) {
+    // cached query plans must not prevent databases from being dropped or replaced
+    queries.close(db);
     return dbs.pinned(db) || TableDiskAccess.locked(db, this);
   }
 
@@ -236,6 +247,10 @@ public final class Context {
     pr.databases(lr);
     final StringList read = prepareLock(lr.read, lr.readAll);
     final StringList write = prepareLock(lr.write, lr.writeAll);
+    // read-only processes can access snapshots of disk databases without locking them
+    if(lr.snapshot && read != null && write != null && write.isEmpty() &&
+        globalopts.get(GlobalOptions.MVCC)) snapshots(read);
+    pr.writes = write;
     locks.acquire(pr, read, write);
   }
 
@@ -256,8 +271,23 @@ public final class Context {
   public void unregister(final Proc pr) {
     assert pr.registered() : "Not registered:" + pr;
     pr.registered(false);
+    // group commit: updates that remain to be committed by queued writers
+    final ArrayList<Data> datas = new ArrayList<Data>(0);
+    final ArrayList<Long> ids = new ArrayList<Long>(0);
+    for(final String db : pr.writes != null ? pr.writes : dbs.names()) {
+      final Data d = dbs.pin(db);
+      if(d == null) continue;
+      final long id = d.commit();
+      if(id != 0) {
+        datas.add(d);
+        ids.add(id);
+      }
+      Close.close(d, this);
+    }
     locks.release(pr);
     pr.stopTimeout();
+    // wait until all updates of the process have been committed
+    for(int d = 0; d < datas.size(); d++) datas.get(d).await(ids.get(d));
   }
 
   /**
@@ -278,4 +308,16 @@ public final class Context {
     }
     return sl;
   }
+
+  /**
+   * Removes all databases from the specified list that can be accessed via snapshots.
+   * Special lock identifiers and main-memory databases will be kept.
+   * @param sl string list
+   */
+  private void snapshots(final StringList sl) {
+    for(int d = sl.size() - 1; d >= 0; d--) {
+      final String db = sl.get(d);
+      if(Databases.validName(db) && !dbs.mainMem(db)) sl.deleteAt(d);
+    }
+  }
 }
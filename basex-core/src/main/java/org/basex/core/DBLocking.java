@@ -69,6 +69,9 @@ public final class DBLocking implements Locking {
   /** Stores lock usage counters for each object used for locking. */
   private final Map<String, Integer> lockUsage =
       new HashMap<String, Integer>();
+  /** Stores the number of transactions waiting for a write lock on each object. */
+  private final Map<String, Integer> writers =
+      new HashMap<String, Integer>();
   /**
    * Currently running transactions.
    * Used as monitor for atomizing access to {@link #queue}.
@@ -109,6 +112,9 @@ public final class DBLocking implements Locking {
     if(writeLocked.containsKey(thread) || readLocked.containsKey(thread))
       throw new IllegalMonitorStateException("Thread already holds one or more locks.");
 
+    // Announce writers before waiting in queue
+    if(write != null) for(final String object : write.sort(true).unique()) queue(object, 1);
+
     // Wait in queue if necessary
     synchronized(queue) { // Guard queue and transaction, monitor for waiting in queue
       queue.add(thread);
@@ -179,6 +185,7 @@ public final class DBLocking implements Locking {
         final String writeObject = writeObjects.get(w++);
         setLockUsed(writeObject);
         getOrCreateLock(writeObject).writeLock().lock();
+        queue(writeObject, -1);
       } else
       // Read lock only if not global write locking; otherwise no lock downgrading from
       // global write lock is possible
@@ -350,6 +357,27 @@ public final class DBLocking implements Locking {
     }
   }
 
+  @Override
+  public int writers(final String db) {
+    synchronized(writers) {
+      final Integer count = writers.get(db);
+      return count == null ? 0 : count;
+    }
+  }
+
+  /**
+   * Updates the number of transactions waiting for a write lock on an object.
+   * @param object object
+   * @param diff difference
+   */
+  private void queue(final String object, final int diff) {
+    synchronized(writers) {
+      final int count = writers(object) + diff;
+      if(count == 0) writers.remove(object);
+      else writers.put(object, count);
+    }
+  }
+
   /**
    * Present current locking status. Not to be seen as a programming API but only for
    * debugging purposes.
@@ -3,6 +3,7 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.data.*;
+import org.basex.util.list.*;
 
 /**
  * This class organizes all currently opened databases.
@@ -47,7 +48,8 @@ public final class Datas {
     for(int d = 0; d < list.size(); d++) {
       final Data dt = list.get(d);
       if(dt == data) {
-        final boolean close = --data.pins == 0;
+        // databases with uncommitted updates will be closed by the committing process
+        final boolean close = --data.pins == 0 && !data.pending();
         if(close) list.remove(d);
         return close;
       }
@@ -73,6 +75,26 @@ public final class Datas {
     return false;
   }
 
+  /**
+   * Checks if the specified database is opened in main memory.
+   * @param db name of the database
+   * @return result of check
+   */
+  synchronized boolean mainMem(final String db) {
+    for(final Data d : list) if(d.meta.name.equals(db)) return d.inMemory();
+    return false;
+  }
+
+  /**
+   * Returns the names of all opened databases.
+   * @return names
+   */
+  synchronized StringList names() {
+    final StringList sl = new StringList(list.size());
+    for(final Data d : list) sl.add(d.meta.name);
+    return sl;
+  }
+
   /**
    * Closes all data references.
    */
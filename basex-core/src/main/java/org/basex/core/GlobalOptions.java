@@ -5,6 +5,7 @@ import static org.basex.util.Prop.*;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.options.*;
 
@@ -36,6 +37,14 @@ public final class GlobalOptions extends Options {
   public static final BooleanOption LANGKEYS = new BooleanOption("LANGKEYS", false);
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final BooleanOption GLOBALLOCK = new BooleanOption("GLOBALLOCK", false);
+  /** Multi-version concurrency: read-only queries access database snapshots without locks. */
+  public static final BooleanOption MVCC = new BooleanOption("MVCC", false);
+  /** Group commit: updates are committed together if further writers are queued. */
+  public static final BooleanOption GROUPCOMMIT = new BooleanOption("GROUPCOMMIT", false);
+  /** Size of the shared page cache for database files (MB); deactivated if set to 0. */
+  public static final NumberOption CACHESIZE = new NumberOption("CACHESIZE", 32);
+  /** Maximum number of cached query plans; deactivated if set to 0. */
+  public static final NumberOption QUERYCACHE = new NumberOption("QUERYCACHE", 0);
 
   /** Comment: written to options file. */
   public static final Comment C_CLIENT = new Comment("Client/Server Architecture");
@@ -66,6 +75,8 @@ public final class GlobalOptions extends Options {
   public static final NumberOption TIMEOUT = new NumberOption("TIMEOUT", 30);
   /** Keep alive time of clients; deactivated if set to 0. */
   public static final NumberOption KEEPALIVE = new NumberOption("KEEPALIVE", 600);
+  /** Number of worker threads for client requests; one thread per client if set to 0. */
+  public static final NumberOption SERVERTHREADS = new NumberOption("SERVERTHREADS", 0);
   /** Defines the number of parallel readers. */
   public static final NumberOption PARALLEL = new NumberOption("PARALLEL", 8);
   /** Logging flag. */
@@ -98,6 +109,7 @@ public final class GlobalOptions extends Options {
     language = get(LANG);
     langkeys = get(LANGKEYS);
     debug = get(DEBUG);
+    PageCache.get().size(get(CACHESIZE));
     final String ph = get(PROXYHOST);
     final String pp = Integer.toString(get(PROXYPORT));
     setSystem("http.proxyHost", ph);
@@ -18,6 +18,8 @@ public class LockResult {
   public boolean readAll;
   /** Flag if global write lock is required. */
   public boolean writeAll;
+  /** Flag if read-only databases can be accessed via snapshots. */
+  public boolean snapshot;
 
   @Override
   public String toString() {
@@ -32,4 +32,12 @@ public interface Locking {
    * @param pr process
    */
   void release(final Proc pr);
+
+  /**
+   * Returns the number of transactions that are waiting for a write lock on the
+   * specified database.
+   * @param db name of database
+   * @return number of transactions
+   */
+  int writers(final String db);
 }
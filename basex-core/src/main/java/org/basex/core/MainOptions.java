@@ -4,6 +4,7 @@ import java.util.*;
 
 import org.basex.build.*;
 import org.basex.io.serial.*;
+import org.basex.util.*;
 import org.basex.util.options.*;
 
 /**
@@ -32,6 +33,11 @@ public final class MainOptions extends Options {
   public static final BooleanOption ADDRAW = new BooleanOption("ADDRAW", false);
   /** Cache new documents before adding them to a database. */
   public static final BooleanOption ADDCACHE = new BooleanOption("ADDCACHE", false);
+  /** Number of threads for parsing the documents of a directory (1: sequential parsing). */
+  public static final NumberOption PARSETHREADS = new NumberOption("PARSETHREADS", 1);
+  /** Codec for compressing texts and attribute values of new databases. */
+  public static final EnumOption<Compression> COMPRESSION =
+      new EnumOption<Compression>("COMPRESSION", Compression.HUFFMAN);
   /** Define CSV parser options. */
   public static final OptionsOption<CsvParserOptions> CSVPARSER =
       new OptionsOption<CsvParserOptions>("CSVPARSER", new CsvParserOptions());
@@ -75,6 +81,10 @@ public final class MainOptions extends Options {
   public static final NumberOption INDEXSPLITSIZE = new NumberOption("INDEXSPLITSIZE", 0);
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final NumberOption FTINDEXSPLITSIZE = new NumberOption("FTINDEXSPLITSIZE", 0);
+  /** Memory for temporary index structures during index creation (MB; 0: estimated). */
+  public static final NumberOption INDEXMEM = new NumberOption("INDEXMEM", 0);
+  /** Number of index structures that are built concurrently (1: sequential creation). */
+  public static final NumberOption INDEXTHREADS = new NumberOption("INDEXTHREADS", 1);
 
   /** Maximum length of index entries. */
   public static final NumberOption MAXLEN = new NumberOption("MAXLEN", 96);
@@ -82,6 +92,10 @@ public final class MainOptions extends Options {
   public static final NumberOption MAXCATS = new NumberOption("MAXCATS", 100);
   /** Flag for automatic index update. */
   public static final BooleanOption UPDINDEX = new BooleanOption("UPDINDEX", false);
+  /** Names of elements whose texts will be indexed (empty: all texts). */
+  public static final StringOption TEXTINCLUDE = new StringOption("TEXTINCLUDE", "");
+  /** Names of attributes whose values will be indexed (empty: all values). */
+  public static final StringOption ATTRINCLUDE = new StringOption("ATTRINCLUDE", "");
 
   // Full-Text
 
@@ -110,6 +124,8 @@ public final class MainOptions extends Options {
   public static final NumberOption INLINELIMIT = new NumberOption("INLINELIMIT", 100);
   /** Flag for tail-call optimization. */
   public static final NumberOption TAILCALLS = new NumberOption("TAILCALLS", 256);
+  /** Number of threads for evaluating iterations of a query (1: sequential evaluation). */
+  public static final NumberOption QUERYTHREADS = new NumberOption("QUERYTHREADS", 1);
   /** Favor global database when opening resources. */
   public static final BooleanOption DEFAULTDB = new BooleanOption("DEFAULTDB", false);
   /** Caches the query results. */
@@ -149,6 +165,10 @@ public final class MainOptions extends Options {
   public static final BooleanOption AUTOFLUSH = new BooleanOption("AUTOFLUSH", true);
   /** Writes original files back after updates. */
   public static final BooleanOption WRITEBACK = new BooleanOption("WRITEBACK", false);
+  /** Flag for accessing database files via memory mapping. */
+  public static final BooleanOption MMAP = new BooleanOption("MMAP", false);
+  /** Flag for committing updates via a write-ahead log. */
+  public static final BooleanOption WAL = new BooleanOption("WAL", false);
   /** Maximum number of index occurrences to print. */
   public static final NumberOption MAXSTAT = new NumberOption("MAXSTAT", 30);
 
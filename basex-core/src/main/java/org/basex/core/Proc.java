@@ -3,6 +3,7 @@ package org.basex.core;
 import static org.basex.core.Text.*;
 
 import org.basex.util.*;
+import org.basex.util.list.*;
 
 /**
  * This class is implemented by all kinds of processes.
@@ -20,8 +21,10 @@ public abstract class Proc {
 
   /** Indicates if a process is currently registered. */
   protected boolean registered;
+  /** Databases that have been locked for writing ({@code null}: all databases). */
+  StringList writes;
   /** Stopped flag. */
-  private boolean stopped;
+  private volatile boolean stopped;
   /** Timeout thread. */
   private Thread timeout;
   /** Sub process. */
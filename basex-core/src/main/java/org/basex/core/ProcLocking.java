@@ -92,4 +92,10 @@ final class ProcLocking implements Locking {
       mutex.notifyAll();
     }
   }
+
+  @Override
+  public int writers(final String db) {
+    // writers are not assigned to specific databases
+    return 0;
+  }
 }
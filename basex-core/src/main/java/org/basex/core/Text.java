@@ -189,6 +189,14 @@ public interface Text {
   String LI_SIZE = LI + "Size: ";
   /** Index info. */
   String LI_ENTRIES = LI + "Entries: ";
+  /** Page cache info. */
+  String LI_PAGES = LI + "Pages: ";
+  /** Page cache info. */
+  String LI_HITS = LI + "Hits: ";
+  /** Page cache info. */
+  String LI_MISSES = LI + "Misses: ";
+  /** Page cache info. */
+  String PAGE_CACHE = "Page Cache";
 
   /** Index info. */
   String HASH = "Hash";
@@ -270,6 +278,12 @@ public interface Text {
   String USERNAME = lang("username");
   /** Password. */
   String PASSWORD = lang("password");
+  /** Wrapped results cannot be fetched via cursors. */
+  String CURSOR_WRAPPED = "Wrapped results cannot be fetched in batches.";
+  /** No cursor has been opened. */
+  String CURSOR_MISSING = "No cursor has been opened.";
+  /** Database was updated while the cursor was open. */
+  String CURSOR_UPDATED = "Database was updated while the cursor was open.";
 
   /** Option flag. */
   String INFOON = lang("ON");
@@ -867,6 +881,8 @@ public interface Text {
   String GLOBAL_OPTIONS = lang("global_options");
   /** "Local Options". */
   String LOCAL_OPTIONS = lang("local_options");
+  /** "Query Cache". */
+  String QUERY_CACHE = lang("query_cache");
 
   /** "(chopped)". */
   String CHOPPED = '(' + lang("chopped") + ") ";
@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -85,17 +86,51 @@ public abstract class ACreate extends Command {
    * @throws IOException I/O exception
    */
   static void create(final IndexType index, final Data data, final ACreate cmd) throws IOException {
-    if(data.inMemory()) return;
+    create(data, cmd, index);
+  }
 
-    final IndexBuilder ib;
-    switch(index) {
-      case TEXT:      ib = new ValueIndexBuilder(data, true); break;
-      case ATTRIBUTE: ib = new ValueIndexBuilder(data, false); break;
-      case FULLTEXT:  ib = new FTBuilder(data); break;
-      default:        throw Util.notExpected();
+  /**
+   * Builds the specified indexes. Depending on the {@link MainOptions#INDEXTHREADS}
+   * option, the indexes will be built concurrently.
+   * @param data data reference
+   * @param cmd calling command
+   * @param indexes indexes to be built
+   * @throws IOException I/O exception
+   */
+  static void create(final Data data, final ACreate cmd, final IndexType... indexes)
+      throws IOException {
+    if(data.inMemory() || indexes.length == 0) return;
+
+    final int il = indexes.length;
+    final IndexBuilder[] ib = new IndexBuilder[il];
+    for(int i = 0; i < il; i++) {
+      switch(indexes[i]) {
+        case TEXT:      ib[i] = new ValueIndexBuilder(data, true); break;
+        case ATTRIBUTE: ib[i] = new ValueIndexBuilder(data, false); break;
+        case FULLTEXT:  ib[i] = new FTBuilder(data); break;
+        default:        throw Util.notExpected();
+      }
+      data.closeIndex(indexes[i]);
     }
-    data.closeIndex(index);
-    data.setIndex(index, (cmd == null ? ib : cmd.proc(ib)).build());
+    final IndexBuilders ibs = new IndexBuilders(
+        data.meta.options.get(MainOptions.INDEXTHREADS), ib);
+    final Index[] built = (cmd == null ? ibs : cmd.proc(ibs)).build();
+    for(int i = 0; i < il; i++) data.setIndex(indexes[i], built[i]);
+  }
+
+  /**
+   * Returns the indexes that are to be created.
+   * @param text create text index
+   * @param attr create attribute index
+   * @param ftxt create full-text index
+   * @return index types
+   */
+  static IndexType[] indexes(final boolean text, final boolean attr, final boolean ftxt) {
+    final ArrayList<IndexType> list = new ArrayList<IndexType>(3);
+    if(text) list.add(IndexType.TEXT);
+    if(attr) list.add(IndexType.ATTRIBUTE);
+    if(ftxt) list.add(IndexType.FULLTEXT);
+    return list.toArray(new IndexType[list.size()]);
   }
 
   /**
@@ -36,6 +36,8 @@ public abstract class AQuery extends Command {
   private QueryProcessor qp;
   /** Query info. */
   private QueryInfo info;
+  /** Indicates if the query will be evaluated on database snapshots. */
+  private boolean snapshot;
 
   /**
    * Protected constructor.
@@ -192,6 +194,7 @@ public abstract class AQuery extends Command {
   private QueryProcessor qp(final String query, final Context ctx) {
     if(qp == null) {
       qp = proc(new QueryProcessor(query, ctx));
+      if(snapshot) qp.snapshot();
       if(info == null) info = qp.ctx.info;
     }
     return qp;
@@ -313,6 +316,20 @@ public abstract class AQuery extends Command {
     }
   }
 
+  /**
+   * Evaluates read-only queries on snapshots of the accessed databases, which
+   * will not be locked. Snapshots are only used if {@link GlobalOptions#MVCC} is enabled,
+   * as cached query plans cannot be reused for snapshots.
+   * @param lr lock result
+   */
+  final void snapshot(final LockResult lr) {
+    if(qp == null || qp.updating || !qp.ctx.context.globalopts.get(GlobalOptions.MVCC))
+      return;
+    snapshot = true;
+    qp.snapshot();
+    lr.snapshot = true;
+  }
+
   @Override
   public void build(final CmdBuilder cb) {
     cb.init().xquery(0);
@@ -38,10 +38,12 @@ public final class CreateIndex extends ACreate {
     switch(ci) {
       case TEXT:
         data.meta.createtext = true;
+        data.meta.textinclude = options.get(MainOptions.TEXTINCLUDE);
         index = IndexType.TEXT;
         break;
       case ATTRIBUTE:
         data.meta.createattr = true;
+        data.meta.attrinclude = options.get(MainOptions.ATTRINCLUDE);
         index = IndexType.ATTRIBUTE;
         break;
       case FULLTEXT:
@@ -45,6 +45,7 @@ public final class Info extends AInfo {
     if(context.user.has(Perm.CREATE)) {
       Performance.gc(2);
       info(tb, USED_MEM, Performance.getMemory());
+      info(tb, QUERY_CACHE, context.queries);
     }
     if(context.user.has(Perm.ADMIN)) {
       final GlobalOptions gopts = context.globalopts;
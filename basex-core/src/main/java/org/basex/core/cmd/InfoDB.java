@@ -69,6 +69,7 @@ public final class InfoDB extends AInfo {
     info(tb, TIMESTAMP, DateTime.format(new Date(meta.time), DateTime.DATETIME));
     info(tb, ENCODING, meta.encoding);
     info(tb, WS_CHOPPING, Util.flag(meta.chop));
+    info(tb, MainOptions.COMPRESSION.name(), meta.compression);
 
     if(index) {
       tb.add(NL).addExt(header, INDEXES);
@@ -82,6 +83,8 @@ public final class InfoDB extends AInfo {
         info(tb, MainOptions.UPDINDEX.name(), Util.flag(meta.updindex));
         info(tb, MainOptions.MAXCATS.name(), meta.maxcats);
         info(tb, MainOptions.MAXLEN.name(), meta.maxlen);
+        info(tb, MainOptions.TEXTINCLUDE.name(), meta.textinclude);
+        info(tb, MainOptions.ATTRINCLUDE.name(), meta.attrinclude);
       }
     }
     return tb.toString();
@@ -10,12 +10,13 @@ import org.basex.core.*;
 import org.basex.core.parse.*;
 import org.basex.core.parse.Commands.*;
 import org.basex.data.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
  * Evaluates the 'info storage' command and returns the table representation
- * of the currently opened database.
+ * of the currently opened database, followed by statistics on the page cache.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -63,6 +64,8 @@ public final class InfoStorage extends AQuery {
       }
       out.print(table(data, ps, pe));
     }
+    out.print(NL + PAGE_CACHE + COL + NL);
+    out.print(PageCache.get().info());
     return true;
   }
 
@@ -121,30 +121,31 @@ public final class Optimize extends ACreate {
       md.uptodate = true;
     }
 
-    // rebuild value indexes
-    optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, rebuild, cmd);
-    optimize(IndexType.TEXT,      data, md.createtext, md.textindex, rebuild, cmd);
-    optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, rebuild, cmd);
+    // drop obsolete indexes, rebuild remaining ones
+    final boolean text = optimize(IndexType.TEXT,      data, md.createtext, md.textindex, rebuild);
+    final boolean attr = optimize(IndexType.ATTRIBUTE, data, md.createattr, md.attrindex, rebuild);
+    final boolean ftxt = optimize(IndexType.FULLTEXT,  data, md.createftxt, md.ftxtindex, rebuild);
+    create(data, cmd, indexes(text, attr, ftxt));
   }
 
   /**
-   * Optimizes the specified index.
+   * Drops the specified index if it is obsolete, and checks if it needs to be rebuilt.
    * @param type index type
    * @param d data reference
    * @param create create flag
    * @param old old flag
    * @param rebuild rebuild all index structures
-   * @param cmd calling command instance
-   * @throws IOException I/O exception
+   * @return {@code true} if the index needs to be created
    */
-  private static void optimize(final IndexType type, final Data d, final boolean create,
-      final boolean old, final boolean rebuild, final Optimize cmd) throws IOException {
+  private static boolean optimize(final IndexType type, final Data d, final boolean create,
+      final boolean old, final boolean rebuild) {
 
     // check if flags are nothing has changed
-    if(!rebuild && create == old) return;
+    if(!rebuild && create == old) return false;
 
     // create or drop index
-    if(create) create(type, d, cmd);
-    else drop(type, d);
+    if(create) return true;
+    drop(type, d);
+    return false;
   }
 }
@@ -21,4 +21,10 @@ public final class XQuery extends AQuery {
   protected boolean run() {
     return query(args[0]);
   }
+
+  @Override
+  public void databases(final LockResult lr) {
+    super.databases(lr);
+    snapshot(lr);
+  }
 }
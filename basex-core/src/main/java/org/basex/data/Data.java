@@ -137,6 +137,48 @@ public abstract class Data {
    */
   public abstract void finishUpdate();
 
+  /**
+   * Returns a snapshot of the last committed version of the database, which will not be
+   * affected by subsequent updates. The snapshot must be released via {@link #release}.
+   * @return snapshot (by default, the database instance itself)
+   */
+  public Data snapshot() {
+    return this;
+  }
+
+  /**
+   * Releases a snapshot and returns the database instance it was created from.
+   * @return database instance
+   */
+  public Data release() {
+    return this;
+  }
+
+  /**
+   * Checks if updates have been applied whose commit has been deferred to a queued writer
+   * (group commit).
+   * @return result of check
+   */
+  public boolean pending() {
+    return false;
+  }
+
+  /**
+   * Commits all pending updates, unless further writers are queued for this database.
+   * Must only be called by the process that holds the write lock.
+   * @return id of the last update that remains to be committed, or {@code 0}
+   */
+  public long commit() {
+    return 0;
+  }
+
+  /**
+   * Waits until the specified update has been committed.
+   * @param id update id, returned by {@link #commit}
+   */
+  @SuppressWarnings("unused")
+  public void await(final long id) { }
+
   /**
    * Returns the indexed pre references for the specified token.
    * @param token index token reference
@@ -327,6 +369,15 @@ public abstract class Data {
     return kind == ELEM || kind == DOC ? table.read4(pre, 8) : 1;
   }
 
+  /**
+   * Announces that the table entries of the specified node and its descendants
+   * will be read sequentially.
+   * @param pre pre value
+   */
+  public final void prefetch(final int pre) {
+    table.prefetch(pre, size(pre, kind(pre)));
+  }
+
   /**
    * Returns a number of attributes.
    * @param pre pre value
@@ -476,6 +527,8 @@ public abstract class Data {
       final int nuri = ne ? nspaces.add(npre, npre, prefix(name), uri, this) :
         ouri != 0 && eq(nspaces.uri(ouri), uri) ? ouri : 0;
 
+      // update indexes if only values of specific names are indexed
+      if(meta.updindex) indexRename(pre, kind, name);
       // write namespace uri reference
       table.write1(pre, kind == ELEM ? 3 : 11, nuri);
       // write name reference
@@ -574,7 +627,6 @@ public abstract class Data {
     }
 
     if(meta.updindex) {
-      indexEnd();
       // update ID -> PRE map:
       idmap.delete(tpre, id(tpre), -tsize);
       idmap.insert(tpre, meta.lastid - size + 1, size);
@@ -583,6 +635,8 @@ public abstract class Data {
     // update table:
     table.replace(tpre, buffer(), tsize);
     buffer(1);
+    // update index (names of inserted nodes can only be checked after the table update)
+    if(meta.updindex) indexEnd();
 
     // no distance/size update if the two subtrees are of equal size
     if(diff == 0) return;
@@ -1056,6 +1110,15 @@ public abstract class Data {
   /** Notify the index structures that an update operation is finished. */
   void indexEnd() { }
 
+  /**
+   * Notify the index structures that an element or attribute will be renamed.
+   * @param pre pre value
+   * @param kind node kind
+   * @param name new name
+   */
+  @SuppressWarnings("unused")
+  protected void indexRename(final int pre, final int kind, final byte[] name) { }
+
   /**
    * Delete a node and its descendants from the corresponding indexes.
    * @param pre pre value of the node to delete
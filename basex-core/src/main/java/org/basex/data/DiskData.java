@@ -4,6 +4,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -15,6 +16,7 @@ import org.basex.index.path.*;
 import org.basex.index.value.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -26,19 +28,20 @@ import org.basex.util.list.*;
  * for textual content in a compressed disk structure.
  * The table mapping is documented in {@link Data}.
  *
+ * If {@link GlobalOptions#MVCC} is enabled, read-only snapshots of the last committed
+ * version can be requested via {@link #snapshot}. Snapshots copy the main memory
+ * structures and share the database files, whose overwritten blocks are preserved for
+ * them. A snapshot is reused by all readers until the next update has been committed.
+ *
+ * If {@link GlobalOptions#GROUPCOMMIT} is enabled, the commit of an update is deferred
+ * as long as further writers are queued for the database. The last writer of a group
+ * commits all updates, and the preceding writers wait for this commit ({@link #await}).
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class DiskData extends Data {
-  /** Text compressor. */
-  private static final ThreadLocal<Compress> COMP = new ThreadLocal<Compress>() {
-    @Override
-    protected Compress initialValue() {
-      return new Compress();
-    }
-  };
-
   /** Texts access file. */
   private DataAccess texts;
   /** Values access file. */
@@ -47,9 +50,41 @@ public final class DiskData extends Data {
   private TokenObjMap<IntList> txts;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvs;
+  /** Values that will only be indexed if their names are included (pre values, ids). */
+  private IntList pres, ids;
+  /** Values that will only be indexed if their names are included. */
+  private TokenList vals;
+  /** Ids of texts buffered for subsequent full-text index updates. */
+  private IntList ftids;
+  /** Texts buffered for subsequent full-text index updates. */
+  private TokenList fttxts;
+  /** Write-ahead log ({@code null} if updates are not logged). */
+  private WriteAheadLog wal;
   /** Closed flag. */
   private boolean closed;
 
+  /** Indicates if snapshots can be created. */
+  private final boolean mvcc;
+  /** Snapshots that have not been closed yet (also used as monitor). */
+  private final ArrayList<DiskData> snapshots = new ArrayList<DiskData>();
+  /** Snapshot of the last committed version (can be {@code null}). */
+  private DiskData snapshot;
+  /** Original database (only assigned if this instance is a snapshot). */
+  private final DiskData origin;
+  /** Snapshot whose files are shared by this snapshot (can be {@code null}). */
+  private final DiskData base;
+  /** Number of readers of this snapshot. */
+  private int readers;
+  /** Number of snapshots that share the files of this snapshot. */
+  private int shares;
+
+  /** Locking, used to find queued writers ({@code null} if group commit is disabled). */
+  private final Locking locking;
+  /** Id of the last applied update. */
+  private long applied;
+  /** Id of the last committed update. */
+  private long committed;
+
   /**
    * Default constructor, called from {@link Open#open}.
    * @param db name of database
@@ -58,23 +93,19 @@ public final class DiskData extends Data {
    */
   public DiskData(final String db, final Context ctx) throws IOException {
     meta = new MetaData(db, ctx);
+    mvcc = ctx.globalopts.get(GlobalOptions.MVCC);
+    origin = null;
+    base = null;
+    locking = ctx.globalopts.get(GlobalOptions.GROUPCOMMIT) ? ctx.locks : null;
 
     // don't open databases marked as updating
     if(updateFile().exists()) throw new BaseXException(Text.DB_UPDATED_X, meta.name);
+    // replay committed transactions that have not been written to the database files
+    WriteAheadLog.recover(meta.dbfile(DATAWAL));
 
     final DataInput in = new DataInput(meta.dbfile(DATAINF));
     try {
-      // read meta data and indexes
-      meta.read(in);
-      while(true) {
-        final String k = string(in.readToken());
-        if(k.isEmpty()) break;
-        if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
-        else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
-        else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
-        else if(k.equals(DBNS))   nspaces = new Namespaces(in);
-        else if(k.equals(DBDOCS)) resources.read(in);
-      }
+      read(in);
     } finally {
       in.close();
     }
@@ -105,6 +136,10 @@ public final class DiskData extends Data {
       final Namespaces n) throws IOException {
 
     meta = md;
+    mvcc = false;
+    origin = null;
+    base = null;
+    locking = null;
     tagindex = nm;
     atnindex = at;
     paths = ps;
@@ -114,14 +149,82 @@ public final class DiskData extends Data {
     init();
   }
 
+  /**
+   * Constructor for snapshots, called from {@link #snapshot(DiskData, IndexType)}.
+   * @param dt database or snapshot to be copied
+   * @param type index to be omitted (can be {@code null})
+   * @throws IOException I/O Exception
+   */
+  private DiskData(final DiskData dt, final IndexType type) throws IOException {
+    mvcc = false;
+    origin = dt.origin != null ? dt.origin : dt;
+    base = dt.origin != null ? dt : null;
+    locking = null;
+
+    // copy meta data and main memory structures
+    meta = new MetaData(dt.meta);
+    final ArrayOutput ao = new ArrayOutput();
+    dt.write(new DataOutput(ao));
+    read(new DataInput(new IOContent(ao.toArray())));
+    meta.version = dt.meta.version;
+    meta.corrupt = dt.meta.corrupt;
+    if(dt.idmap != null) idmap = new IdPreMap(dt.idmap);
+
+    if(base == null) {
+      // create snapshots of the database files
+      table = ((TableDiskAccess) dt.table).snapshot(meta);
+      texts = dt.texts.snapshot();
+      values = dt.values.snapshot();
+      if(dt.txtindex != null) txtindex = ((DiskValues) dt.txtindex).snapshot(this);
+      if(dt.atvindex != null) atvindex = ((DiskValues) dt.atvindex).snapshot(this);
+      if(dt.ftxindex != null && type != IndexType.FULLTEXT) {
+        ftxindex = ((FTIndex) dt.ftxindex).snapshot(this);
+      }
+    } else {
+      // share the files of the specified snapshot
+      base.shares++;
+      table = dt.table;
+      texts = dt.texts;
+      values = dt.values;
+      txtindex = dt.txtindex;
+      atvindex = dt.atvindex;
+      ftxindex = dt.ftxindex;
+    }
+    if(type == IndexType.TEXT) txtindex = null;
+    else if(type == IndexType.ATTRIBUTE) atvindex = null;
+    else if(type == IndexType.FULLTEXT) ftxindex = null;
+    meta.textindex &= txtindex != null;
+    meta.attrindex &= atvindex != null;
+    meta.ftxtindex &= ftxindex != null;
+  }
+
+  /**
+   * Reads the meta data and the main memory structures.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  private void read(final DataInput in) throws IOException {
+    meta.read(in);
+    while(true) {
+      final String k = string(in.readToken());
+      if(k.isEmpty()) break;
+      if(k.equals(DBTAGS))      tagindex = new Names(in, meta);
+      else if(k.equals(DBATTS)) atnindex = new Names(in, meta);
+      else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
+      else if(k.equals(DBNS))   nspaces = new Namespaces(in);
+      else if(k.equals(DBDOCS)) resources.read(in);
+    }
+  }
+
   /**
    * Initializes the database.
    * @throws IOException I/O exception
    */
   void init() throws IOException {
     table = new TableDiskAccess(meta, false);
-    texts = new DataAccess(meta.dbfile(DATATXT));
-    values = new DataAccess(meta.dbfile(DATAATV));
+    final boolean mmap = meta.options.get(MainOptions.MMAP);
+    texts = new DataAccess(meta.dbfile(DATATXT), mmap);
+    values = new DataAccess(meta.dbfile(DATAATV), mmap);
   }
 
   /**
@@ -131,24 +234,38 @@ public final class DiskData extends Data {
   private void write() throws IOException {
     if(meta.dirty) {
       final DataOutput out = new DataOutput(meta.dbfile(DATAINF));
-      meta.write(out);
-      out.writeToken(token(DBTAGS));
-      tagindex.write(out);
-      out.writeToken(token(DBATTS));
-      atnindex.write(out);
-      out.writeToken(token(DBPATH));
-      paths.write(out);
-      out.writeToken(token(DBNS));
-      nspaces.write(out);
-      out.writeToken(token(DBDOCS));
-      resources.write(out);
-      out.write(0);
-      out.close();
+      try {
+        write(out);
+      } finally {
+        out.close();
+      }
       if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
+      final FTIndex ftx = ftxt();
+      if(ftx != null) ftx.flush();
       meta.dirty = false;
     }
-    // in all cases, remove updating file
-    updateFile().delete();
+    // in all cases, remove updating file (otherwise, it is managed by the log)
+    if(wal == null) updateFile().delete();
+  }
+
+  /**
+   * Writes the meta data and the main memory index structures.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final DataOutput out) throws IOException {
+    meta.write(out);
+    out.writeToken(token(DBTAGS));
+    tagindex.write(out);
+    out.writeToken(token(DBATTS));
+    atnindex.write(out);
+    out.writeToken(token(DBPATH));
+    paths.write(out);
+    out.writeToken(token(DBNS));
+    nspaces.write(out);
+    out.writeToken(token(DBDOCS));
+    resources.write(out);
+    out.write(0);
   }
 
   @Override
@@ -156,6 +273,11 @@ public final class DiskData extends Data {
     if(closed) return;
     closed = true;
     try {
+      if(origin != null) {
+        closeSnapshot();
+        return;
+      }
+      publish();
       write();
       table.close();
       texts.close();
@@ -163,9 +285,13 @@ public final class DiskData extends Data {
       closeIndex(IndexType.TEXT);
       closeIndex(IndexType.ATTRIBUTE);
       closeIndex(IndexType.FULLTEXT);
+      // all modifications have been written: synchronize files and remove log
+      if(wal != null) wal.close();
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    committed = applied;
+    notifyAll();
   }
 
   @Override
@@ -173,10 +299,14 @@ public final class DiskData extends Data {
     // close existing index
     final Index index = index(type);
     if(index == null) return;
+    drain(type);
     index.close();
+    // index files will be rewritten or deleted without being logged
+    if(wal != null) wal.bypass();
 
     // invalidate index reference
     meta.dirty = true;
+    meta.version++;
     switch(type) {
       case TEXT:      txtindex = null; break;
       case ATTRIBUTE: atvindex = null; break;
@@ -188,6 +318,7 @@ public final class DiskData extends Data {
   @Override
   public void setIndex(final IndexType type, final Index index) {
     meta.dirty = true;
+    meta.version++;
     switch(type) {
       case TEXT:      txtindex = index; break;
       case ATTRIBUTE: atvindex = index; break;
@@ -198,16 +329,86 @@ public final class DiskData extends Data {
 
   @Override
   public boolean startUpdate() {
+    // snapshots are read-only
+    if(origin != null) return false;
+    // readers will access a snapshot of the last committed version
+    if(mvcc) synchronized(snapshots) { current(); }
+
+    if(meta.options.get(MainOptions.WAL)) {
+      // updates are logged: database will only be marked as updating if required
+      if(!table.lock(true)) return false;
+      if(wal == null) {
+        wal = new WriteAheadLog(meta.dbfile(DATAWAL), updateFile());
+        ((TableDiskAccess) table).wal(wal);
+        texts.wal(wal);
+        values.wal(wal);
+      }
+      if(txtindex instanceof DiskValues) ((DiskValues) txtindex).wal(wal);
+      if(atvindex instanceof DiskValues) ((DiskValues) atvindex).wal(wal);
+      wal.begin();
+      return true;
+    }
     final IOFile uf = updateFile();
     return (uf.exists() || uf.touch()) && table.lock(true);
   }
 
   @Override
   public synchronized void finishUpdate() {
-    // skip all flush operations if auto flush is off, or file has already been closed
-    if(!meta.options.get(MainOptions.AUTOFLUSH) || closed) return;
+    if(origin == null) merge();
+    applied++;
+    // skip all flush operations if auto flush is off, or file has already been closed.
+    // snapshots read committed blocks from disk, so buffers will always be flushed.
+    // logged transactions must always be committed to release evicted pages
+    if(!(mvcc || wal != null || meta.options.get(MainOptions.AUTOFLUSH)) || closed) {
+      committed();
+      return;
+    }
+    // group commit: the updates will be flushed by a queued writer
+    if(!defer()) flush();
+  }
+
+  @Override
+  public synchronized boolean pending() {
+    return committed != applied;
+  }
+
+  @Override
+  public synchronized long commit() {
+    if(committed == applied) return 0;
+    if(defer()) return applied;
+    flush();
+    return 0;
+  }
+
+  @Override
+  public synchronized void await(final long id) {
+    while(committed < id) {
+      try {
+        wait();
+      } catch(final InterruptedException ex) {
+        Util.stack(ex);
+      }
+    }
+  }
 
+  /**
+   * Checks if the commit of the applied updates can be deferred, because other writers
+   * are waiting for this database.
+   * @return result of check
+   */
+  private boolean defer() {
+    return locking != null && !closed && locking.writers(meta.name) > 0;
+  }
+
+  /**
+   * Flushes all applied updates.
+   */
+  private void flush() {
     try {
+      if(wal != null) {
+        log();
+        return;
+      }
       write();
       table.flush();
       texts.flush();
@@ -218,9 +419,240 @@ public final class DiskData extends Data {
       Util.stack(ex);
     } finally {
       table.lock(false);
+      committed();
     }
   }
 
+  /**
+   * Merges the updates of the value and full-text indexes into new index files if their
+   * number exceeds the limit. The old files are accessed by snapshots until they are
+   * closed.
+   */
+  private void merge() {
+    merge(true);
+    merge(false);
+    final FTIndex ftx = ftxt();
+    if(ftx == null || !ftx.full()) return;
+    try {
+      ftx.merge();
+      closeIndex(IndexType.FULLTEXT);
+      setIndex(IndexType.FULLTEXT, FTIndex.merged(this));
+    } catch(final IOException ex) {
+      Util.stack(ex);
+      meta.ftxtindex = false;
+    }
+  }
+
+  /**
+   * Merges the updates of a value index into new index files if their number exceeds
+   * the limit.
+   * @param text text or attribute index
+   */
+  private void merge(final boolean text) {
+    final Index index = text ? txtindex : atvindex;
+    if(!(index instanceof UpdatableDiskValues)) return;
+    final UpdatableDiskValues udv = (UpdatableDiskValues) index;
+    if(!udv.full()) return;
+    final IndexType type = text ? IndexType.TEXT : IndexType.ATTRIBUTE;
+    try {
+      udv.merge();
+      closeIndex(type);
+      setIndex(type, UpdatableDiskValues.merged(this, text));
+    } catch(final IOException ex) {
+      Util.stack(ex);
+      closeIndex(type);
+      if(text) meta.textindex = false;
+      else meta.attrindex = false;
+    }
+  }
+
+  /**
+   * Marks all applied updates as committed, publishes the new version and notifies
+   * waiting writers.
+   */
+  private void committed() {
+    committed = applied;
+    publish();
+    notifyAll();
+  }
+
+  /**
+   * Commits an update via the write-ahead log. All modified pages and the meta data are
+   * logged, and the log is synchronized. The modified pages are then written to the
+   * database files, whereas the meta data files will be written by the next checkpoint.
+   * @throws IOException I/O exception
+   */
+  private void log() throws IOException {
+    final TableDiskAccess tbl = (TableDiskAccess) table;
+    final DiskValues txt = txtindex instanceof DiskValues ? (DiskValues) txtindex : null;
+    final DiskValues atv = atvindex instanceof DiskValues ? (DiskValues) atvindex : null;
+
+    tbl.log(wal);
+    texts.log(wal);
+    values.log(wal);
+    if(txt != null) txt.log(wal);
+    if(atv != null) atv.log(wal);
+    if(meta.dirty) {
+      final ArrayOutput ao = new ArrayOutput();
+      write(new DataOutput(ao));
+      wal.file(meta.dbfile(DATAINF).name(), ao.toArray());
+      if(idmap != null) {
+        ao.reset();
+        idmap.write(new DataOutput(ao));
+        wal.file(meta.dbfile(DATAIDP).name(), ao.toArray());
+      }
+      final FTIndex ftx = ftxt();
+      if(ftx != null) ftx.log(wal);
+    }
+    final boolean checkpoint = wal.commit();
+
+    tbl.flush(false);
+    texts.flush();
+    values.flush();
+    if(txt != null) txt.flush();
+    if(atv != null) atv.flush();
+
+    // checkpoint: write meta data, synchronize database files and truncate log
+    if(checkpoint) {
+      write();
+      tbl.flush();
+      wal.checkpoint();
+    }
+  }
+
+  // SNAPSHOTS ================================================================
+
+  @Override
+  public Data snapshot() {
+    if(!mvcc) return this;
+    synchronized(snapshots) {
+      final DiskData s = current();
+      s.readers++;
+      return s;
+    }
+  }
+
+  @Override
+  public Data release() {
+    if(origin == null) return this;
+    synchronized(origin.snapshots) {
+      readers--;
+      origin.discard(this);
+      origin.snapshots.notifyAll();
+    }
+    return origin;
+  }
+
+  /**
+   * Returns the snapshot of the last committed version, or creates a new one.
+   * Must only be called while holding the monitor of {@link #snapshots}.
+   * @return snapshot
+   */
+  private DiskData current() {
+    if(snapshot == null) snapshot = snapshot(this, null);
+    return snapshot;
+  }
+
+  /**
+   * Creates a snapshot of the specified database or snapshot.
+   * Must only be called while holding the monitor of {@link #snapshots}.
+   * @param dt database or snapshot
+   * @param type index to be omitted (can be {@code null})
+   * @return snapshot
+   */
+  private DiskData snapshot(final DiskData dt, final IndexType type) {
+    try {
+      final DiskData s = new DiskData(dt, type);
+      snapshots.add(s);
+      return s;
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
+    }
+  }
+
+  /**
+   * Publishes a new version: subsequent readers will access a new snapshot.
+   */
+  private void publish() {
+    if(!mvcc) return;
+    synchronized(snapshots) {
+      final DiskData s = snapshot;
+      snapshot = null;
+      if(s != null) discard(s);
+    }
+  }
+
+  /**
+   * Closes the specified snapshot if it is neither current nor accessed anymore.
+   * Must only be called while holding the monitor of {@link #snapshots}.
+   * @param s snapshot
+   */
+  private void discard(final DiskData s) {
+    if(s == snapshot || s.readers != 0 || s.shares != 0) return;
+    snapshots.remove(s);
+    s.close();
+    if(s.base != null) {
+      s.base.shares--;
+      discard(s.base);
+    }
+  }
+
+  /**
+   * Waits until the specified index is not accessed by any snapshots anymore, as its
+   * files will be rewritten or deleted. New readers will access a snapshot without
+   * this index until the next version has been published.
+   * @param type index type
+   */
+  private void drain(final IndexType type) {
+    if(!mvcc || closed) return;
+    synchronized(snapshots) {
+      final DiskData s = current();
+      if(s.index(type) != null) {
+        snapshot = snapshot(s, type);
+        discard(s);
+      }
+      // the files must not be rewritten before all readers are finished: keep waiting,
+      // and restore the interrupt flag afterwards
+      boolean interrupted = false;
+      while(accessed(type)) {
+        try {
+          snapshots.wait();
+        } catch(final InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+      if(interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Checks if the specified index is accessed by snapshots.
+   * @param type index type
+   * @return result of check
+   */
+  private boolean accessed(final IndexType type) {
+    for(final DiskData s : snapshots) {
+      if(s.readers != 0 && s.index(type) != null) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Closes the snapshots of the database files. Files of other snapshots and indexes that
+   * are shared with the original database (all indexes that are not updatable) will not
+   * be closed.
+   * @throws IOException I/O exception
+   */
+  private void closeSnapshot() throws IOException {
+    if(base != null) return;
+    table.close();
+    texts.close();
+    values.close();
+    if(txtindex instanceof UpdatableDiskValues) txtindex.close();
+    if(atvindex instanceof UpdatableDiskValues) atvindex.close();
+    if(ftxindex != null && ((FTIndex) ftxindex).updatable()) ftxindex.close();
+  }
+
   /**
    * Returns a file that indicates ongoing updates.
    * @return updating file
@@ -252,9 +684,10 @@ public final class DiskData extends Data {
     final long o = textOff(pre);
     if(num(o)) return numDigits((int) o);
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = da.fetchNum(p);
     // compressed: next number contains number of compressed bytes
-    return cpr(o) ? da.readNum() : l;
+    return cpr(o) ? da.fetchNum(p + Num.length(l)) : l;
   }
 
   /**
@@ -264,8 +697,8 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
-    return cpr(o) ? COMP.get().unpack(txt) : txt;
+    final byte[] txt = (text ? texts : values).fetchToken(o & IO.OFFCOMP - 1);
+    return cpr(o) ? meta.compression.unpack(txt) : txt;
   }
 
   /**
@@ -305,8 +738,14 @@ public final class DiskData extends Data {
       final int id = id(pre);
       final byte[] oldval = text(pre, text);
       final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
-      // don't index document names
-      if(index != null && kind != DOC) index.replace(oldval, value, id);
+      // don't index document names and values that are not included
+      if(index != null && kind != DOC && meta.names(text).contains(this, pre, text)) {
+        index.replace(oldval, value, id);
+      }
+      if(kind == TEXT) {
+        final FTIndex ftx = ftxtUpdate();
+        if(ftx != null) ftx.replace(id, oldval, value);
+      }
     }
 
     // reference to text store
@@ -319,7 +758,7 @@ public final class DiskData extends Data {
     // flag for inlining numeric value
     final boolean vn = v != Integer.MIN_VALUE;
     // text to be stored (null if value will be inlined)
-    final byte[] vl = vn ? null : COMP.get().pack(value);
+    final byte[] vl = vn ? null : meta.compression.pack(value);
 
     // old entry (offset or value)
     final long old = textOff(pre);
@@ -346,14 +785,34 @@ public final class DiskData extends Data {
 
   @Override
   protected void indexBegin() {
+    // inserted nodes shift the pre values referenced by older full-text indexes
+    ftxtUpdate();
     txts = new TokenObjMap<IntList>();
     atvs = new TokenObjMap<IntList>();
+    pres = new IntList();
+    ids = new IntList();
+    vals = new TokenList();
+    ftids = new IntList();
+    fttxts = new TokenList();
   }
 
   @Override
   protected void indexEnd() {
+    // names of the parents of inserted texts can only be checked after the insertion
+    final int ps = pres.size();
+    if(ps != 0) {
+      final IndexNames tn = meta.names(true), an = meta.names(false);
+      for(int p = 0; p < ps; p++) {
+        final int pre = pres.get(p);
+        final boolean text = kind(pre) != ATTR;
+        if((text ? tn : an).contains(this, pre, text)) {
+          add(text ? txts : atvs, vals.get(p), ids.get(p));
+        }
+      }
+    }
     if(!txts.isEmpty()) ((DiskValues) txtindex).index(txts);
     if(!atvs.isEmpty()) ((DiskValues) atvindex).index(atvs);
+    if(!ftids.isEmpty()) ftxt().insert(ftids, fttxts);
   }
 
   @Override
@@ -370,14 +829,21 @@ public final class DiskData extends Data {
       m = meta.textindex && kind != DOC ? txts : null;
     }
 
+    // add text to lists to index its tokens later
+    if(meta.updindex && kind == TEXT && ftxtUpdate() != null) {
+      ftids.add(id);
+      fttxts.add(value);
+    }
+
     // add text to map to index later
     if(meta.updindex && m != null && value.length <= meta.maxlen) {
-      IntList ids = m.get(value);
-      if(ids == null) {
-        ids = new IntList(1);
-        m.put(value, ids);
+      if(meta.names(kind != ATTR).all()) {
+        add(m, value, id);
+      } else {
+        pres.add(pre);
+        ids.add(id);
+        vals.add(value);
       }
-      ids.add(id);
     }
 
     // add text to text file
@@ -387,39 +853,105 @@ public final class DiskData extends Data {
 
     // store text
     final long off = store.length();
-    final byte[] val = COMP.get().pack(value);
+    final byte[] val = meta.compression.pack(value);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
   }
 
   @Override
   protected void indexDelete(final int pre, final int size) {
-    if(!(meta.textindex || meta.attrindex)) return;
+    final FTIndex ftx = ftxtUpdate();
+    if(!(meta.textindex || meta.attrindex || ftx != null)) return;
 
     // collect all keys and ids
     txts = new TokenObjMap<IntList>();
     atvs = new TokenObjMap<IntList>();
+    final IntList fi = new IntList();
+    final TokenList ft = new TokenList();
     final int l = pre + size;
     for(int p = pre; p < l; ++p) {
       final int k = kind(p);
+      if(ftx != null && k == TEXT) {
+        fi.add(id(p));
+        ft.add(text(p, true));
+      }
       final boolean isAttr = k == ATTR;
       // consider nodes which are attribute, text, comment, or proc. instruction
-      if(meta.attrindex && isAttr ||
-         meta.textindex && (k == TEXT || k == COMM || k == PI)) {
+      if((meta.attrindex && isAttr ||
+         meta.textindex && (k == TEXT || k == COMM || k == PI)) &&
+         meta.names(!isAttr).contains(this, p, !isAttr)) {
         final byte[] key = text(p, !isAttr);
-        if(key.length <= meta.maxlen) {
-          final TokenObjMap<IntList> m = isAttr ? atvs : txts;
-          IntList ids = m.get(key);
-          if(ids == null) {
-            ids = new IntList(1);
-            m.put(key, ids);
-          }
-          ids.add(id(p));
-        }
+        if(key.length <= meta.maxlen) add(isAttr ? atvs : txts, key, id(p));
       }
     }
     if(!txts.isEmpty()) ((DiskValues) txtindex).delete(txts);
     if(!atvs.isEmpty()) ((DiskValues) atvindex).delete(atvs);
+    if(!fi.isEmpty()) ftx.delete(fi, ft);
+  }
+
+  @Override
+  protected void indexRename(final int pre, final int kind, final byte[] name) {
+    // element names affect the indexing of child texts
+    final boolean text = kind == ELEM;
+    final DiskValues index = (DiskValues) (text ? txtindex : atvindex);
+    final IndexNames names = meta.names(text);
+    final boolean add = names.contains(local(name));
+    if(index == null || add == names.contains(local(name(pre, kind)))) return;
+
+    // collect values of all affected nodes
+    final TokenObjMap<IntList> m = new TokenObjMap<IntList>();
+    if(text) {
+      final int l = pre + size(pre, kind);
+      for(int p = pre + attSize(pre, kind); p < l; p += size(p, kind(p))) {
+        if(kind(p) == TEXT && textLen(p, true) <= meta.maxlen) add(m, text(p, true), id(p));
+      }
+    } else if(textLen(pre, false) <= meta.maxlen) {
+      add(m, text(pre, false), id(pre));
+    }
+    if(m.isEmpty()) return;
+
+    if(add) {
+      for(final byte[] key : m) {
+        for(final int id : m.get(key).toArray()) index.add(key, id);
+      }
+    } else {
+      index.delete(m);
+    }
+  }
+
+  /**
+   * Returns the full-text index if it can be updated.
+   * @return index or {@code null}
+   */
+  private FTIndex ftxt() {
+    return meta.ftxtindex && ftxindex != null && ((FTIndex) ftxindex).updatable() ?
+      (FTIndex) ftxindex : null;
+  }
+
+  /**
+   * Returns the full-text index before texts or nodes are updated. Indexes that
+   * reference pre values (created by older versions) are invalidated.
+   * @return index or {@code null}
+   */
+  private FTIndex ftxtUpdate() {
+    final FTIndex ftx = ftxt();
+    if(ftx == null) meta.ftxtindex = false;
+    return ftx;
+  }
+
+  /**
+   * Adds an id to the list of ids of the specified key.
+   * @param m map with keys and ids
+   * @param key key
+   * @param id id
+   */
+  private static void add(final TokenObjMap<IntList> m, final byte[] key, final int id) {
+    IntList il = m.get(key);
+    if(il == null) {
+      il = new IntList(1);
+      m.put(key, il);
+    }
+    il.add(id);
   }
 
   @Override
@@ -9,6 +9,7 @@ import java.io.*;
 import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
+import org.basex.index.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
@@ -59,6 +60,10 @@ public final class MetaData {
   public volatile boolean createattr;
   /** Indicates if full-text index is to be recreated. */
   public volatile boolean createftxt;
+  /** Names of elements whose texts are indexed (empty: all texts). */
+  public volatile String textinclude = "";
+  /** Names of attributes whose values are indexed (empty: all values). */
+  public volatile String attrinclude = "";
 
   /** Flag for full-text stemming. */
   public volatile boolean stemming;
@@ -73,6 +78,8 @@ public final class MetaData {
   public volatile int maxcats;
   /** Maximum token length. */
   public volatile int maxlen;
+  /** Codec for compressing texts and attribute values. */
+  public volatile Compression compression;
 
   /** Language of full-text search index. */
   public volatile Language language;
@@ -84,6 +91,8 @@ public final class MetaData {
   public volatile boolean corrupt;
   /** Dirty flag. */
   public volatile boolean dirty;
+  /** Modification counter (not persistent), incremented if contents or indexes change. */
+  public volatile int version;
 
   /** Table size. */
   public volatile int size;
@@ -96,6 +105,10 @@ public final class MetaData {
   private volatile boolean wcindex;
   /** Scoring mode (legacy, deprecated). */
   private volatile int scoring;
+  /** Parsed names of indexed elements (cached). */
+  private volatile IndexNames textnames;
+  /** Parsed names of indexed attributes (cached). */
+  private volatile IndexNames attrnames;
 
   /**
    * Constructor, specifying the database options.
@@ -132,13 +145,28 @@ public final class MetaData {
     stemming = options.get(MainOptions.STEMMING);
     casesens = options.get(MainOptions.CASESENS);
     updindex = options.get(MainOptions.UPDINDEX);
+    textinclude = options.get(MainOptions.TEXTINCLUDE);
+    attrinclude = options.get(MainOptions.ATTRINCLUDE);
     maxlen = options.get(MainOptions.MAXLEN);
     maxcats = options.get(MainOptions.MAXCATS);
+    compression = options.get(MainOptions.COMPRESSION);
     stopwords = options.get(MainOptions.STOPWORDS);
     language = Language.get(options);
     users = new Users(null);
   }
 
+  /**
+   * Constructor for database snapshots: adopts the path, options and name of the
+   * specified meta data. All other fields are assigned via {@link #read(DataInput)}.
+   * @param md meta data
+   */
+  MetaData(final MetaData md) {
+    path = md.path;
+    options = md.options;
+    name = md.name;
+    users = new Users(null);
+  }
+
   // STATIC METHODS ==========================================================
 
   /**
@@ -278,6 +306,8 @@ public final class MetaData {
    */
   public void read(final DataInput in) throws IOException {
     String storage = "", istorage = "";
+    // legacy: texts of older databases are compressed with the default codec
+    compression = Compression.HUFFMAN;
     while(true) {
       final String k = string(in.readToken());
       if(k.isEmpty()) break;
@@ -290,12 +320,15 @@ public final class MetaData {
         else if(k.equals(DBFNAME))    original   = v;
         else if(k.equals(DBENC))      encoding   = v;
         else if(k.equals(DBFTSW))     stopwords  = v;
+        else if(k.equals(DBTXTINC))   textinclude = v;
+        else if(k.equals(DBATVINC))   attrinclude = v;
         else if(k.equals(DBFTLN))     language   = Language.get(v);
         else if(k.equals(DBSIZE))     size       = toInt(v);
         else if(k.equals(DBNDOCS))    ndocs      = toInt(v);
         else if(k.equals(DBSCTYPE))   scoring    = toInt(v);
         else if(k.equals(DBMAXLEN))   maxlen     = toInt(v);
         else if(k.equals(DBMAXCATS))  maxcats    = toInt(v);
+        else if(k.equals(DBCOMPRESS)) compression = Compression.get(v);
         else if(k.equals(DBLASTID))   lastid     = toInt(v);
         else if(k.equals(DBTIME))     time       = toLong(v);
         else if(k.equals(DBFSIZE))    filesize   = toLong(v);
@@ -347,6 +380,8 @@ public final class MetaData {
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
     writeInfo(out, DBFTXIDX,   ftxtindex);
+    writeInfo(out, DBTXTINC,   textinclude);
+    writeInfo(out, DBATVINC,   attrinclude);
     writeInfo(out, DBCRTTXT,   createtext);
     writeInfo(out, DBCRTATV,   createattr);
     writeInfo(out, DBCRTFTX,   createftxt);
@@ -356,6 +391,7 @@ public final class MetaData {
     writeInfo(out, DBFTSW,     stopwords);
     writeInfo(out, DBMAXLEN,   maxlen);
     writeInfo(out, DBMAXCATS,  maxcats);
+    writeInfo(out, DBCOMPRESS, compression.toString());
     writeInfo(out, DBUPTODATE, uptodate);
     writeInfo(out, DBLASTID,   lastid);
     if(language != null) writeInfo(out, DBFTLN, language.toString());
@@ -364,6 +400,22 @@ public final class MetaData {
     out.write(0);
   }
 
+  /**
+   * Returns the names of the elements or attributes whose values are indexed.
+   * @param text text or attribute index
+   * @return index names
+   */
+  public IndexNames names(final boolean text) {
+    final String inc = text ? textinclude : attrinclude;
+    IndexNames names = text ? textnames : attrnames;
+    if(names == null || !names.include.equals(inc)) {
+      names = new IndexNames(inc);
+      if(text) textnames = names;
+      else attrnames = names;
+    }
+    return names;
+  }
+
   /**
    * Notifies the meta structures of an update and invalidates the indexes.
    */
@@ -372,11 +424,12 @@ public final class MetaData {
     time = System.currentTimeMillis();
     uptodate = false;
     dirty = true;
+    version++;
     if(!updindex) {
       textindex = false;
       attrindex = false;
+      ftxtindex = false;
     }
-    ftxtindex = false;
   }
 
   // PRIVATE METHODS ==========================================================
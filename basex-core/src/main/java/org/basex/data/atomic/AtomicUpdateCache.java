@@ -328,11 +328,14 @@ public final class AtomicUpdateCache {
        * on the ancestor-or-self axis. */
       while(newPreOfAffectedNode < data.meta.size) {
         if(alreadyUpdatedNodes.contains(newPreOfAffectedNode)) break;
-        data.dist(newPreOfAffectedNode, data.kind(newPreOfAffectedNode),
-            calculateNewDistance(newPreOfAffectedNode));
+        final int kind = data.kind(newPreOfAffectedNode);
+        // only write changed distances to keep the number of modified pages small
+        final int dist = calculateNewDistance(newPreOfAffectedNode);
+        if(dist != data.dist(newPreOfAffectedNode, kind)) {
+          data.dist(newPreOfAffectedNode, kind, dist);
+        }
         alreadyUpdatedNodes.add(newPreOfAffectedNode);
-        newPreOfAffectedNode +=
-            data.size(newPreOfAffectedNode, data.kind(newPreOfAffectedNode));
+        newPreOfAffectedNode += data.size(newPreOfAffectedNode, kind);
       }
     }
   }
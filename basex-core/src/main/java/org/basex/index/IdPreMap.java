@@ -47,6 +47,20 @@ public class IdPreMap {
     oids = new int[pres.length];
   }
 
+  /**
+   * Copy constructor.
+   * @param map map to be copied
+   */
+  public IdPreMap(final IdPreMap map) {
+    baseid = map.baseid;
+    rows = map.rows;
+    pres = map.pres.clone();
+    fids = map.fids.clone();
+    nids = map.nids.clone();
+    incs = map.incs.clone();
+    oids = map.oids.clone();
+  }
+
   /**
    * Construct a map by reading it from a file.
    * @param f file to read from
@@ -75,18 +89,27 @@ public class IdPreMap {
   public void write(final IOFile f) throws IOException {
     final DataOutput out = new DataOutput(f);
     try {
-      out.writeNum(baseid);
-      out.writeNum(rows);
-      out.writeNums(pres);
-      out.writeNums(fids);
-      out.writeNums(nids);
-      out.writeNums(incs);
-      out.writeNums(oids);
+      write(out);
     } finally {
       out.close();
     }
   }
 
+  /**
+   * Writes the ID -> PRE mapping to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  public void write(final DataOutput out) throws IOException {
+    out.writeNum(baseid);
+    out.writeNum(rows);
+    out.writeNums(pres);
+    out.writeNums(fids);
+    out.writeNums(nids);
+    out.writeNums(incs);
+    out.writeNums(oids);
+  }
+
   /**
    * Find the PRE value of a given ID.
    * @param id ID
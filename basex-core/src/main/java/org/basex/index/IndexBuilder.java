@@ -16,12 +16,17 @@ import org.basex.util.*;
  * @author Christian Gruen
  */
 public abstract class IndexBuilder extends Proc {
+  /** Number of successive degenerated splits tolerated if memory is shared. */
+  private static final int MAXDEGENERATED = 10;
+
   /** Data reference. */
   protected final Data data;
   /** Total parsing value. */
   protected final int size;
   /** Number of index operations to perform before writing a partial index to disk. */
   private final int splitSize;
+  /** Memory budget for temporary index structures (bytes; 0: estimate free memory). */
+  long budget;
 
   /** Runtime for memory consumption. */
   private final Runtime rt = Runtime.getRuntime();
@@ -34,8 +39,14 @@ public abstract class IndexBuilder extends Proc {
   protected long count;
   /** Number of partial index structures. */
   protected int splits;
+  /** Estimated memory consumption of the temporary index structures (bytes). */
+  protected long memory;
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
+  /** Number of successive degenerated splits. */
+  private int degenerated;
+  /** Indicates if other index structures are built at the same time. */
+  boolean concurrent;
 
   /**
    * Builds the index structure and returns an index instance.
@@ -63,13 +74,22 @@ public abstract class IndexBuilder extends Proc {
     final boolean split;
     if(splitSize > 0) {
       split = count >= (splits + 1L) * splitSize;
+    } else if(budget > 0) {
+      // check if the memory budget has been exhausted
+      split = memory >= budget;
     } else {
       // if not, estimate how much main memory is left
       split = rt.totalMemory() - rt.freeMemory() >= maxMem;
-      // stop operation if index splitting degenerates
+      // stop operation if index splitting degenerates. If memory is shared with
+      // other builders, which will release memory after splitting, some more
+      // successive splits are tolerated
       int gc = gcCount;
       if(split) {
-        if(gc >= 0) throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
+        if(gc < 0) {
+          degenerated = 0;
+        } else if(++degenerated > (concurrent ? MAXDEGENERATED : 0)) {
+          throw new BaseXException(OUT_OF_MEM + H_OUT_OF_MEM);
+        }
         gc = 30;
       } else {
         gc = Math.max(-1, gc - 1);
@@ -82,9 +102,13 @@ public abstract class IndexBuilder extends Proc {
 
   /**
    * Performs memory cleanup after writing partial memory, if necessary.
+   * If more than half of the memory budget is still occupied by structures that cannot
+   * be written to disk, the budget is increased to prevent degenerated index splitting.
    */
   protected final void finishSplit() {
-    if(splitSize <= 0) Performance.gc(1);
+    if(splitSize > 0) return;
+    if(budget <= 0) Performance.gc(1);
+    else if(memory > budget >> 1) budget = memory << 1;
   }
 
   /**
@@ -110,9 +134,13 @@ public abstract class IndexBuilder extends Proc {
     data = d;
     size = data.meta.size;
     splitSize = max;
-    if(rt.totalMemory() - rt.freeMemory() >= maxMem) Performance.gc(1);
+    budget = (long) d.meta.options.get(MainOptions.INDEXMEM) << 20;
+    if(budget <= 0 && rt.totalMemory() - rt.freeMemory() >= maxMem) Performance.gc(1);
   }
 
+  @Override
+  protected abstract void abort();
+
   @Override
   public final String tit() {
     return CREATING_INDEXES;
@@ -0,0 +1,125 @@
+package org.basex.index;
+
+import static org.basex.core.Text.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.util.*;
+
+/**
+ * This class builds several index structures of a database.
+ * If more than one thread is specified, the index builders are run concurrently,
+ * each of them scanning the database table on its own.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexBuilders extends Proc {
+  /** Interval for checking if the process has been stopped (ms). */
+  private static final int WAIT = 100;
+  /** Index builders. */
+  private final IndexBuilder[] builders;
+  /** Maximum number of concurrent threads. */
+  private final int threads;
+
+  /**
+   * Constructor.
+   * @param t maximum number of concurrent threads
+   * @param ib index builders
+   */
+  public IndexBuilders(final int t, final IndexBuilder... ib) {
+    builders = ib;
+    threads = Math.min(t, ib.length);
+  }
+
+  /**
+   * Builds all index structures and returns the index instances in the order of
+   * the builders.
+   * @return index instances
+   * @throws IOException I/O Exception
+   */
+  public Index[] build() throws IOException {
+    final int bl = builders.length;
+    final Index[] indexes = new Index[bl];
+    if(threads < 2) {
+      for(int b = 0; b < bl; b++) indexes[b] = proc(builders[b]).build();
+      return indexes;
+    }
+
+    final ExecutorService exec = Executors.newFixedThreadPool(threads);
+    try {
+      final ArrayList<Future<Index>> futures = new ArrayList<Future<Index>>(bl);
+      for(final IndexBuilder ib : builders) {
+        // memory budget is shared by all running builders
+        ib.concurrent = true;
+        ib.budget /= threads;
+        futures.add(exec.submit(new Callable<Index>() {
+          @Override
+          public Index call() throws IOException {
+            return ib.build();
+          }
+        }));
+      }
+
+      Throwable error = null;
+      for(int b = 0; b < bl; b++) {
+        final Future<Index> future = futures.get(b);
+        while(true) {
+          try {
+            // pass on stop requests, or cancel remaining builders after an error
+            if(error == null) checkStop();
+            indexes[b] = future.get(WAIT, TimeUnit.MILLISECONDS);
+            break;
+          } catch(final TimeoutException ex) {
+            continue;
+          } catch(final InterruptedException ex) {
+            error = ex;
+          } catch(final ExecutionException ex) {
+            if(error == null) error = ex.getCause();
+            break;
+          } catch(final ProcException ex) {
+            error = ex;
+          }
+          for(final IndexBuilder ib : builders) ib.stop();
+        }
+        if(error != null) for(final IndexBuilder ib : builders) ib.stop();
+      }
+      if(error == null) return indexes;
+
+      // close successfully built indexes and propagate first error
+      for(final Index index : indexes) if(index != null) index.close();
+      abort();
+      if(error instanceof IOException) throw (IOException) error;
+      if(error instanceof RuntimeException) throw (RuntimeException) error;
+      if(error instanceof Error) throw (Error) error;
+      throw new IOException(Util.message(error), error);
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  @Override
+  protected void abort() {
+    for(final IndexBuilder ib : builders) ib.abort();
+  }
+
+  @Override
+  public String tit() {
+    return CREATING_INDEXES;
+  }
+
+  @Override
+  protected String det() {
+    return CREATING_INDEXES;
+  }
+
+  @Override
+  public double prog() {
+    double p = 0;
+    for(final IndexBuilder ib : builders) p += ib.progress();
+    return p / builders.length;
+  }
+}
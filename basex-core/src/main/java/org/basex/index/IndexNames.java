@@ -0,0 +1,73 @@
+package org.basex.index;
+
+import static org.basex.util.Token.*;
+
+import org.basex.data.*;
+import org.basex.util.hash.*;
+
+/**
+ * This class contains the names of the elements and attributes whose values are
+ * included in a value index. If no names are specified, all values are included.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexNames {
+  /** Comma-separated list of names, as specified by the user. */
+  public final String include;
+  /** Local names ({@code null} if all values are included). */
+  private final TokenSet names;
+
+  /**
+   * Constructor.
+   * @param inc comma-separated list of element or attribute names
+   */
+  public IndexNames(final String inc) {
+    include = inc;
+    TokenSet set = null;
+    for(final byte[] name : split(token(inc), ',')) {
+      final byte[] nm = trim(name);
+      if(nm.length == 0) continue;
+      if(set == null) set = new TokenSet();
+      set.add(local(nm));
+    }
+    names = set;
+  }
+
+  /**
+   * Checks if all values are included.
+   * @return result of check
+   */
+  public boolean all() {
+    return names == null;
+  }
+
+  /**
+   * Checks if the values of elements or attributes with the specified local name
+   * are included.
+   * @param ln local name
+   * @return result of check
+   */
+  public boolean contains(final byte[] ln) {
+    return names == null || names.contains(ln);
+  }
+
+  /**
+   * Checks if the specified text node or attribute is included.
+   * @param data data reference
+   * @param pre pre value of a text node or attribute
+   * @param text text or attribute index
+   * @return result of check
+   */
+  public boolean contains(final Data data, final int pre, final boolean text) {
+    if(names == null) return true;
+    final int k = data.kind(pre);
+    if(text) {
+      if(k != Data.TEXT) return false;
+      final int par = data.parent(pre, k);
+      return par >= 0 && data.kind(par) == Data.ELEM &&
+          names.contains(local(data.name(par, Data.ELEM)));
+    }
+    return k == Data.ATTR && names.contains(local(data.name(pre, k)));
+  }
+}
@@ -15,6 +15,10 @@ import org.basex.util.list.*;
 public class IndexTree {
   /** Factor for resize. */
   protected static final double FACTOR = 1.2;
+  /** Estimated memory consumption of a tree node, excluding the key (bytes). */
+  public static final int NODE = 48;
+  /** Estimated memory consumption of an empty value array (bytes). */
+  public static final int VALUES = 32;
 
   /** Keys saved in the tree. */
   public final TokenList keys = new TokenList(FACTOR);
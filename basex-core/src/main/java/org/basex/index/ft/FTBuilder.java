@@ -63,6 +63,8 @@ public final class FTBuilder extends IndexBuilder {
 
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
+    // updatable indexes reference ids instead of pre values
+    final boolean ids = data.meta.updindex;
 
     for(pre = 0; pre < size; ++pre) {
       if((pre & 0xFFFF) == 0) check();
@@ -73,6 +75,7 @@ public final class FTBuilder extends IndexBuilder {
       /* Current lexer position. */
       final StopWords sw = lex.ftOpt().sw;
       lex.init(data.text(pre, true));
+      final int id = ids ? data.id(pre) : pre;
       int pos = -1;
       while(lex.hasNext()) {
         final byte[] tok = lex.nextToken();
@@ -82,9 +85,11 @@ public final class FTBuilder extends IndexBuilder {
           // check if main memory is exhausted
           if((ntok++ & 0x0FFF) == 0 && split()) {
             writeIndex(true);
+            memory = tree.memory();
             finishSplit();
           }
-          tree.index(tok, pre, pos, splits);
+          tree.index(tok, id, pos, splits);
+          memory = tree.memory();
           count++;
         }
       }
@@ -92,6 +97,7 @@ public final class FTBuilder extends IndexBuilder {
 
     // finalize partial or all index structures
     write(splits > 0);
+    if(ids) FTIndex.updatable(data);
 
     data.meta.ftxtindex = true;
     finishIndex(perf);
@@ -168,7 +174,7 @@ public final class FTBuilder extends IndexBuilder {
    * @param lp last offset
    * @throws IOException I/O exception
    */
-  private static void writeInd(final DataOutput outX, final IntList il,
+  static void writeInd(final DataOutput outX, final IntList il,
       final int ls, final int lp) throws IOException {
 
     final int is = il.size();
@@ -6,12 +6,17 @@ import static org.basex.util.Token.*;
 import static org.basex.util.ft.FTFlag.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.ArrayOutput;
+import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.query.ft.*;
 import org.basex.util.*;
@@ -43,12 +48,29 @@ import org.basex.util.list.*;
  *   {@code pre1/pos1, pre2/pos2, pre3/pos3, ...} [{@link Num}]</li>
  * </ul>
  *
+ * <p>If {@link MainOptions#UPDINDEX} is enabled, the index files reference ids instead
+ * of pre values, and updates are recorded by {@link FTUpdates}. The updates are merged
+ * into new index files if their number exceeds a limit, which depends on the size of
+ * the index.</p>
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class FTIndex implements Index {
   /** Entry size. */
   private static final int ENTRY = 9;
+  /** Minimum number of updates that will be merged into the index files. */
+  private static final int MINMERGE = 1 << 12;
+  /** Maximum number of updates that will be kept in main memory. */
+  private static final int MAXMERGE = 1 << 18;
+  /** Order of the tokens in the index files: by length, and by contents. */
+  private static final Comparator<byte[]> ORDER = new Comparator<byte[]>() {
+    @Override
+    public int compare(final byte[] t1, final byte[] t2) {
+      final int d = t1.length - t2.length;
+      return d != 0 ? d : diff(t1, t2);
+    }
+  };
 
   /** Cached texts. Increases used memory, but speeds up repeated queries. */
   private final IntObjMap<byte[]> ctext = new IntObjMap<byte[]>();
@@ -69,6 +91,10 @@ public final class FTIndex implements Index {
   private final IndexCache cache = new IndexCache();
   /** Token positions. */
   private final int[] tp;
+  /** Updates ({@code null} if the index references pre values). */
+  private final FTUpdates updates;
+  /** Indicates if the updates have been modified. */
+  private boolean modified;
 
   /**
    * Constructor, initializing the index structure.
@@ -76,12 +102,34 @@ public final class FTIndex implements Index {
    * @throws IOException I/O Exception
    */
   public FTIndex(final Data d) throws IOException {
+    this(d, updates(d));
+  }
+
+  /**
+   * Constructor for snapshots.
+   * @param d data snapshot
+   * @param index original index
+   * @throws IOException I/O Exception
+   */
+  private FTIndex(final Data d, final FTIndex index) throws IOException {
+    this(d, new FTUpdates(d, index.updates));
+  }
+
+  /**
+   * Constructor, initializing the index structure.
+   * @param d data reference
+   * @param up updates (can be {@code null})
+   * @throws IOException I/O Exception
+   */
+  private FTIndex(final Data d, final FTUpdates up) throws IOException {
     data = d;
+    updates = up;
 
     // cache token length index
-    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'));
-    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'));
-    inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'));
+    final boolean mmap = d.meta.options.get(MainOptions.MMAP);
+    inY = new DataAccess(d.meta.dbfile(DATAFTX + 'y'), mmap);
+    inZ = new DataAccess(d.meta.dbfile(DATAFTX + 'z'), mmap);
+    inX = new DataAccess(d.meta.dbfile(DATAFTX + 'x'), mmap);
     tp = new int[d.meta.maxlen + 3];
     for(int i = 0; i < tp.length; ++i) tp[i] = -1;
     int is = inX.readNum();
@@ -101,6 +149,232 @@ public final class FTIndex implements Index {
     tp[tp.length - 1] = (int) inY.length();
   }
 
+  /**
+   * Reads the updates of an index that references ids.
+   * @param d data reference
+   * @return updates, or {@code null} if the index references pre values
+   * @throws IOException I/O Exception
+   */
+  private static FTUpdates updates(final Data d) throws IOException {
+    final IOFile file = FTUpdates.file(d);
+    if(!d.meta.updindex || !file.exists()) return null;
+    final DataInput in = new DataInput(file);
+    try {
+      return new FTUpdates(d, in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Writes an empty list of updates, which indicates that the index references ids.
+   * Called by the {@link FTBuilder}.
+   * @param d data reference
+   * @throws IOException I/O Exception
+   */
+  static void updatable(final Data d) throws IOException {
+    final DataOutput out = new DataOutput(FTUpdates.file(d));
+    try {
+      new FTUpdates(d).write(out);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Returns a snapshot of this index, which will not be affected by subsequent updates.
+   * If the index is not updatable, the instance itself is returned.
+   * @param d data snapshot
+   * @return snapshot
+   */
+  public synchronized FTIndex snapshot(final Data d) {
+    if(updates == null) return this;
+    try {
+      return new FTIndex(d, this);
+    } catch(final IOException ex) {
+      throw Util.notExpected(ex);
+    }
+  }
+
+  /**
+   * Indicates if the index can be updated.
+   * @return result of check
+   */
+  public boolean updatable() {
+    return updates != null;
+  }
+
+  /**
+   * Indexes the tokens of inserted texts.
+   * @param ids ids of the texts
+   * @param texts texts
+   */
+  public synchronized void insert(final IntList ids, final TokenList texts) {
+    final int is = ids.size();
+    for(int i = 0; i < is; i++) updates.insert(ids.get(i), texts.get(i));
+    modified |= is != 0;
+  }
+
+  /**
+   * Removes the tokens of deleted texts.
+   * @param ids ids of the texts
+   * @param texts texts
+   */
+  public synchronized void delete(final IntList ids, final TokenList texts) {
+    final int is = ids.size();
+    for(int i = 0; i < is; i++) updates.delete(ids.get(i), texts.get(i));
+    modified |= is != 0;
+  }
+
+  /**
+   * Replaces the tokens of an updated text.
+   * @param id id of the text
+   * @param old old text
+   * @param text new text
+   */
+  public synchronized void replace(final int id, final byte[] old, final byte[] text) {
+    updates.delete(id, old);
+    updates.insert(id, text);
+    modified = true;
+  }
+
+  /**
+   * Checks if the updates need to be merged into the index files.
+   * @return result of check
+   */
+  public synchronized boolean full() {
+    final int s = updates == null ? 0 : updates.size();
+    return s > MINMERGE && (s > MAXMERGE || s > inZ.length() >> 4);
+  }
+
+  /**
+   * Writes the updates to disk if they have been modified.
+   * @throws IOException I/O Exception
+   */
+  public synchronized void flush() throws IOException {
+    if(!modified) return;
+    final DataOutput out = new DataOutput(FTUpdates.file(data));
+    try {
+      updates.write(out);
+    } finally {
+      out.close();
+    }
+    modified = false;
+  }
+
+  /**
+   * Logs the updates if they have been modified.
+   * @param log write-ahead log
+   * @throws IOException I/O Exception
+   */
+  public synchronized void log(final WriteAheadLog log) throws IOException {
+    if(!modified) return;
+    final ArrayOutput ao = new ArrayOutput();
+    updates.write(new DataOutput(ao));
+    log.file(FTUpdates.file(data).name(), ao.toArray());
+  }
+
+  /**
+   * Merges the updates into new index files, which will replace the current files
+   * in {@link #merged}. The current files remain accessible until then.
+   * @throws IOException I/O Exception
+   */
+  public synchronized void merge() throws IOException {
+    final String name = DATAFTX + 'm';
+    final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
+    final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
+    final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
+
+    // sort inserted tokens in the order of the index files
+    final TokenList list = new TokenList();
+    for(final byte[] token : updates.tokens()) if(updates.count(token) != 0) list.add(token);
+    final byte[][] ins = list.toArray();
+    Arrays.sort(ins, ORDER);
+
+    final IntList ind = new IntList();
+    final int end = tp[tp.length - 1];
+    int ti = next(-1), p = tp[ti], i = 0, j = 0;
+    while(p < end || i < ins.length) {
+      // choose next token of the index files and of the inserted tokens
+      final byte[] bt = p < end ? inY.readBytes(p, ti) : null;
+      final byte[] it = i < ins.length ? ins[i] : null;
+      final int c = bt == null ? 1 : it == null ? -1 :
+        bt.length != it.length ? bt.length - it.length : diff(bt, it);
+
+      final long off = outZ.size();
+      int s = 0;
+      if(c <= 0) {
+        // copy entries that have not been deleted
+        inZ.cursor(pointer(p, ti));
+        for(int n = size(p, ti); n > 0; n--) {
+          final int id = inZ.readNum(), pos = inZ.readNum();
+          if(updates.deleted(id)) continue;
+          outZ.writeNum(id);
+          outZ.writeNum(pos);
+          s++;
+        }
+        p += ti + ENTRY;
+        if(p == tp[next(ti)]) ti = next(ti);
+      }
+      if(c >= 0) {
+        // add inserted entries
+        final IntList il = updates.tokens().get(it);
+        final int is = il.size();
+        for(int n = 0; n < is; n += 2) {
+          outZ.writeNum(il.get(n));
+          outZ.writeNum(il.get(n + 1));
+          s++;
+        }
+        i++;
+      }
+      if(s == 0) continue;
+
+      final byte[] token = c <= 0 ? bt : it;
+      if(j < token.length) {
+        j = token.length;
+        ind.add(j);
+        ind.add((int) outY.size());
+      }
+      outY.writeBytes(token);
+      outY.write5(off);
+      outY.write4(s);
+    }
+    FTBuilder.writeInd(outX, ind, j + 1, (int) outY.size());
+
+    outX.close();
+    outY.close();
+    outZ.close();
+  }
+
+  /**
+   * Returns the next token length for which tokens exist.
+   * @param ti current token length
+   * @return next token length, or the last index of the token positions
+   */
+  private int next(final int ti) {
+    int n = ti + 1;
+    while(tp[n] == -1) n++;
+    return n;
+  }
+
+  /**
+   * Replaces the index files with the files that have been created by {@link #merge}.
+   * Must be called after the current index has been closed.
+   * @param d data reference
+   * @return new index
+   * @throws IOException I/O Exception
+   */
+  public static FTIndex merged(final Data d) throws IOException {
+    for(final char c : new char[] { 'x', 'y', 'z' }) {
+      final IOFile file = d.meta.dbfile(DATAFTX + c);
+      file.delete();
+      if(!d.meta.dbfile(DATAFTX + 'm' + c).rename(file))
+        throw new IOException("Could not rename " + file);
+    }
+    updatable(d);
+    return new FTIndex(d);
+  }
+
   @Override
   public synchronized void init() { }
 
@@ -113,7 +387,8 @@ public final class FTIndex implements Index {
     final FTOpt opt = ((FTLexer) it).ftOpt();
     if(opt.is(FZ) || opt.is(WC)) return Math.max(1, data.meta.size >> 4);
 
-    return entry(tok).size;
+    final int s = entry(tok).size;
+    return updates == null ? s : s + updates.count(tok);
   }
 
   @Override
@@ -132,7 +407,13 @@ public final class FTIndex implements Index {
 
     // return cached or new result
     final IndexEntry e = entry(tok);
-    return e.size > 0 ? iter(e.pointer, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    if(updates == null) {
+      return e.size > 0 ? iter(e.pointer, e.size, inZ, tok) : FTIndexIterator.FTEMPTY;
+    }
+    final IntList pr = new IntList(), ps = new IntList();
+    if(e.size > 0) read(e.pointer, e.size, pr, ps);
+    updates.add(tok, pr, ps);
+    return pr.isEmpty() ? FTIndexIterator.FTEMPTY : iter(new FTCache(pr, ps), tok);
   }
 
   /**
@@ -152,6 +433,17 @@ public final class FTIndex implements Index {
   @Override
   public EntryIterator entries(final IndexEntries entries) {
     final byte[] prefix = entries.get();
+    final EntryIterator ei = entries(prefix);
+    return updates == null || updates.size() == 0 ? ei : entries(ei, prefix);
+  }
+
+  /**
+   * Returns an iterator for all tokens of the index files that start with the specified
+   * prefix, and their number of occurrences.
+   * @param prefix prefix
+   * @return iterator
+   */
+  private EntryIterator entries(final byte[] prefix) {
     return new EntryIterator() {
       int ti = prefix.length - 1, i, e, nr;
       boolean inner;
@@ -192,6 +484,54 @@ public final class FTIndex implements Index {
     };
   }
 
+  /**
+   * Returns an iterator for all tokens that start with the specified prefix, including
+   * the updates of the index.
+   * @param ei iterator for the tokens of the index files
+   * @param prefix prefix
+   * @return iterator
+   */
+  private synchronized EntryIterator entries(final EntryIterator ei, final byte[] prefix) {
+    // collect the tokens and their current number of occurrences
+    final TokenIntMap map = new TokenIntMap();
+    final boolean del = updates.deletions();
+    final IntList pr = new IntList(), ps = new IntList();
+    for(byte[] t; (t = ei.next()) != null;) {
+      int c = ei.count();
+      if(del) {
+        final IndexEntry e = entry(t);
+        pr.reset();
+        ps.reset();
+        read(e.pointer, e.size, pr, ps);
+        c = pr.size();
+      }
+      map.put(t, c);
+    }
+    for(final byte[] t : updates.tokens()) {
+      if(startsWith(t, prefix)) map.put(t, Math.max(0, map.get(t)) + updates.count(t));
+    }
+
+    // return non-empty tokens in the order of the index files
+    final TokenList list = new TokenList();
+    for(final byte[] t : map) if(map.get(t) > 0) list.add(t);
+    final byte[][] toks = list.toArray();
+    Arrays.sort(toks, ORDER);
+    return new EntryIterator() {
+      int i, nr;
+
+      @Override
+      public byte[] next() {
+        if(i == toks.length) return null;
+        nr = map.get(toks[i]);
+        return toks[i++];
+      }
+      @Override
+      public int count() {
+        return nr;
+      }
+    };
+  }
+
   /**
    * Binary search.
    * @param token token to look for
@@ -342,6 +682,13 @@ public final class FTIndex implements Index {
         p += s + ENTRY;
       }
     }
+    if(updates != null) {
+      final IntList pr = new IntList(), ps = new IntList();
+      for(final byte[] t : updates.tokens()) {
+        if(ls.similar(t, token, k)) updates.add(t, pr, ps);
+      }
+      if(!pr.isEmpty()) it = FTIndexIterator.union(iter(new FTCache(pr, ps), token), it);
+    }
     return it;
   }
 
@@ -370,17 +717,15 @@ public final class FTIndex implements Index {
       while(i < e) {
         final byte[] t = inY.readBytes(i, ti);
         if(!startsWith(t, pref)) break;
-        if(wc.match(t)) {
-          inZ.cursor(pointer(i, ti));
-          final int s = size(i, ti);
-          for(int d = 0; d < s; d++) {
-            pr.add(inZ.readNum());
-            ps.add(inZ.readNum());
-          }
-        }
+        if(wc.match(t)) read(pointer(i, ti), size(i, ti), pr, ps);
         i += ti + ENTRY;
       }
     }
+    if(updates != null) {
+      for(final byte[] t : updates.tokens()) {
+        if(wc.match(t)) updates.add(t, pr, ps);
+      }
+    }
     return iter(new FTCache(pr, ps), token);
   }
 
@@ -394,16 +739,43 @@ public final class FTIndex implements Index {
    */
   private FTIndexIterator iter(final long off, final int size, final DataAccess da,
       final byte[] token) {
-    da.cursor(off);
     final IntList pr = new IntList(size);
     final IntList ps = new IntList(size);
-    for(int c = 0; c < size; c++) {
-      pr.add(da.readNum());
-      ps.add(da.readNum());
+    if(updates == null) {
+      da.cursor(off);
+      for(int c = 0; c < size; c++) {
+        pr.add(da.readNum());
+        ps.add(da.readNum());
+      }
+    } else {
+      read(off, size, pr, ps);
     }
     return iter(new FTCache(pr, ps), token);
   }
 
+  /**
+   * Reads the pre values and positions of an index entry. If the index references ids,
+   * the ids of deleted texts are skipped, and the remaining ids are mapped to pre values.
+   * @param off offset on entries
+   * @param size number of id/pos entries
+   * @param pr pre values
+   * @param ps positions
+   */
+  private void read(final long off, final int size, final IntList pr, final IntList ps) {
+    inZ.cursor(off);
+    for(int c = 0; c < size; c++) {
+      final int id = inZ.readNum(), pos = inZ.readNum();
+      if(updates == null) {
+        pr.add(id);
+      } else if(!updates.deleted(id)) {
+        pr.add(data.pre(id));
+      } else {
+        continue;
+      }
+      ps.add(pos);
+    }
+  }
+
   /**
    * Returns an iterator for an index entry.
    * @param ftc id cache
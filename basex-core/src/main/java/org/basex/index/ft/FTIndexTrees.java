@@ -1,5 +1,8 @@
 package org.basex.index.ft;
 
+import org.basex.index.*;
+import org.basex.util.*;
+
 /**
  * This class provides an array with several {@link FTIndexTree} instances,
  * one for each token length.
@@ -13,6 +16,10 @@ final class FTIndexTrees {
   private final FTIndexTree[] trees;
   /** Pointer on current tree. */
   private int ctree;
+  /** Estimated memory consumption of the indexed tokens (bytes). */
+  private long tokens;
+  /** Estimated memory consumption of the full-text data (bytes). */
+  private long ftdata;
 
   /**
    * Constructor.
@@ -32,7 +39,23 @@ final class FTIndexTrees {
   void index(final byte[] tok, final int pre, final int pos, final int cf) {
     final int tl = tok.length;
     if(trees[tl] == null) trees[tl] = new FTIndexTree();
-    trees[tl].index(tok, pre, pos, cf);
+    final FTIndexTree tree = trees[tl];
+    final int ks = tree.keys.size(), vs = tree.values.size();
+    tree.index(tok, pre, pos, cf);
+
+    // estimate memory consumption of new tokens and full-text data
+    if(tree.keys.size() != ks) tokens += tl + IndexTree.NODE;
+    if(tree.values.size() != vs) ftdata += IndexTree.VALUES * 3;
+    ftdata += Num.length(pre) + Num.length(pos);
+  }
+
+  /**
+   * Returns the estimated memory consumption of all trees.
+   * Tokens are kept in memory if the full-text data is written to disk.
+   * @return number of bytes
+   */
+  long memory() {
+    return tokens + ftdata;
   }
 
   /**
@@ -40,6 +63,7 @@ final class FTIndexTrees {
    */
   void initFT() {
     for(final FTIndexTree tree : trees) if(tree != null) tree.initFT();
+    ftdata = 0;
   }
 
   /**
@@ -0,0 +1,241 @@
+package org.basex.index.ft;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class contains the updates of a full-text index, which have not been merged
+ * into the index files yet. If a text node is deleted or replaced, its id is marked as
+ * deleted, and all entries of this id in the index files will be ignored. The tokens of
+ * inserted and replaced texts are stored in main memory, along with their ids and
+ * positions. The updates are stored in the file {@link DataText#DATAFTX}{@code d},
+ * which only exists if the index references ids instead of pre values:<br/>
+ * Structure: {@code [b, w0, ..., wb-1, n, [t, s, i0, p0, ..., is-1, ps-1]0, ...]}
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class FTUpdates {
+  /** Ids of deleted or replaced texts. */
+  private final BitArray deleted;
+  /** Inserted tokens, with the ids and positions of their occurrences. */
+  private final TokenObjMap<IntList> tokens;
+  /** Data reference. */
+  private final Data data;
+
+  /** Number of updates. */
+  private int size;
+  /** Lexer, used for tokenizing updated texts (created when first requested). */
+  private FTLexer lexer;
+
+  /**
+   * Constructor, creating an empty instance.
+   * @param d data reference
+   */
+  FTUpdates(final Data d) {
+    data = d;
+    deleted = new BitArray();
+    tokens = new TokenObjMap<IntList>();
+  }
+
+  /**
+   * Constructor, reading the updates from disk.
+   * @param d data reference
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  FTUpdates(final Data d, final DataInput in) throws IOException {
+    this(d);
+    final long[] words = in.readLongs(in.readNum());
+    deleted.init(words.length == 0 ? new long[1] : words, words.length << 6);
+    size = deleted.cardinality();
+    for(int n = in.readNum(); n > 0; n--) {
+      final byte[] token = in.readToken();
+      final IntList il = new IntList(in.readNums());
+      tokens.put(token, il);
+      size += il.size() >> 1;
+    }
+  }
+
+  /**
+   * Constructor for snapshots, copying the specified updates.
+   * @param d data snapshot
+   * @param updates updates to be copied
+   */
+  FTUpdates(final Data d, final FTUpdates updates) {
+    data = d;
+    final long[] words = updates.deleted.toArray();
+    deleted = new BitArray(words.length == 0 ? new long[1] : words, words.length << 6);
+    tokens = new TokenObjMap<IntList>();
+    for(final byte[] token : updates.tokens) {
+      tokens.put(token, new IntList(updates.tokens.get(token).toArray()));
+    }
+    size = updates.size;
+  }
+
+  /**
+   * Returns the file storing the updates.
+   * @param d data reference
+   * @return file
+   */
+  static IOFile file(final Data d) {
+    return d.meta.dbfile(DATAFTX + 'd');
+  }
+
+  /**
+   * Writes the updates to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out) throws IOException {
+    out.writeLongs(deleted.toArray());
+    int n = 0;
+    for(final byte[] token : tokens) if(count(token) != 0) n++;
+    out.writeNum(n);
+    for(final byte[] token : tokens) {
+      if(count(token) == 0) continue;
+      out.writeToken(token);
+      out.writeNums(tokens.get(token).toArray());
+    }
+  }
+
+  /**
+   * Returns the number of updates (deleted texts and inserted tokens).
+   * @return number of updates
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the entries of the specified id in the index files are obsolete.
+   * @param id id
+   * @return result of check
+   */
+  boolean deleted(final int id) {
+    return deleted.get(id);
+  }
+
+  /**
+   * Checks if texts have been deleted.
+   * @return result of check
+   */
+  boolean deletions() {
+    return deleted.cardinality() != 0;
+  }
+
+  /**
+   * Returns the inserted tokens. Tokens whose texts have been deleted are not removed,
+   * but their lists of ids and positions will be empty.
+   * @return tokens
+   */
+  TokenObjMap<IntList> tokens() {
+    return tokens;
+  }
+
+  /**
+   * Adds the pre values and positions of an inserted token to the specified lists.
+   * @param token token
+   * @param pr pre values
+   * @param ps positions
+   */
+  void add(final byte[] token, final IntList pr, final IntList ps) {
+    final IntList il = tokens.get(token);
+    if(il == null) return;
+    final int is = il.size();
+    for(int i = 0; i < is; i += 2) {
+      pr.add(data.pre(il.get(i)));
+      ps.add(il.get(i + 1));
+    }
+  }
+
+  /**
+   * Returns the number of occurrences of an inserted token.
+   * @param token token
+   * @return number of occurrences
+   */
+  int count(final byte[] token) {
+    final IntList il = tokens.get(token);
+    return il == null ? 0 : il.size() >> 1;
+  }
+
+  /**
+   * Indexes the tokens of an inserted text.
+   * @param id id of the text
+   * @param text text
+   */
+  void insert(final int id, final byte[] text) {
+    final FTLexer lex = lexer();
+    final StopWords sw = lex.ftOpt().sw;
+    lex.init(text);
+    int pos = -1;
+    while(lex.hasNext()) {
+      final byte[] token = lex.nextToken();
+      ++pos;
+      // skip too long and stopword tokens
+      if(token.length > data.meta.maxlen || !sw.isEmpty() && sw.contains(token)) continue;
+      IntList il = tokens.get(token);
+      if(il == null) {
+        il = new IntList(2);
+        tokens.put(token, il);
+      }
+      il.add(id);
+      il.add(pos);
+      size++;
+    }
+  }
+
+  /**
+   * Removes the tokens of a deleted text.
+   * @param id id of the text
+   * @param text text
+   */
+  void delete(final int id, final byte[] text) {
+    if(!deleted.get(id)) {
+      deleted.set(id);
+      size++;
+    }
+    final FTLexer lex = lexer();
+    lex.init(text);
+    while(lex.hasNext()) {
+      final byte[] token = lex.nextToken();
+      final IntList il = tokens.get(token);
+      if(il == null) continue;
+      // remove all occurrences of the id
+      final int is = il.size();
+      int s = 0;
+      for(int i = 0; i < is; i += 2) {
+        if(il.get(i) == id) continue;
+        il.set(s++, il.get(i));
+        il.set(s++, il.get(i + 1));
+      }
+      il.size(s);
+      size -= is - s >> 1;
+    }
+  }
+
+  /**
+   * Returns a lexer with the full-text options of the database.
+   * @return lexer
+   */
+  private FTLexer lexer() {
+    if(lexer == null) {
+      final FTOpt fto = new FTOpt().copy(data.meta);
+      if(fto.ln == null) fto.ln = Language.get(data.meta.options);
+      fto.sw = new StopWords();
+      fto.sw.comp(data);
+      lexer = new FTLexer(fto);
+    }
+    return lexer;
+  }
+}
@@ -4,29 +4,63 @@ import org.basex.index.*;
 import org.basex.util.*;
 
 /**
- * This class stores a numeric range for index access.
+ * This class stores a numeric range for index access. Dates are represented
+ * as seconds since January 1, 1970, 00:00:00 UTC.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class NumericRange implements IndexToken {
+  /** Types of the index keys. */
+  public enum Keys {
+    /** Numbers. */
+    NUMBER,
+    /** Dates ({@code xs:date}). */
+    DATE,
+    /** Dates with times ({@code xs:dateTime}). */
+    DATETIME
+  }
+
   /** Index type. */
   public final IndexType type;
+  /** Type of the index keys. */
+  public final Keys keys;
   /** Minimum value. */
   public final double min;
+  /** Include minimum value. */
+  public final boolean mni;
   /** Maximum value. */
   public final double max;
+  /** Include maximum value. */
+  public final boolean mxi;
 
   /**
-   * Constructor.
+   * Constructor for numeric ranges, including the minimum and maximum values.
    * @param it index type
    * @param mn minimum value
    * @param mx maximum value
    */
   public NumericRange(final IndexType it, final double mn, final double mx) {
+    this(it, Keys.NUMBER, mn, true, mx, true);
+  }
+
+  /**
+   * Constructor.
+   * @param it index type
+   * @param k type of the index keys
+   * @param mn minimum value
+   * @param in include minimum value
+   * @param mx maximum value
+   * @param ix include maximum value
+   */
+  public NumericRange(final IndexType it, final Keys k, final double mn, final boolean in,
+      final double mx, final boolean ix) {
     type = it;
+    keys = k;
     min = mn;
+    mni = in;
     max = mx;
+    mxi = ix;
   }
 
   @Override
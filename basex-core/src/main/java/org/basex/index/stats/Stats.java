@@ -7,6 +7,8 @@ import java.io.*;
 import org.basex.data.*;
 import org.basex.io.in.DataInput;
 import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
 import org.basex.util.hash.*;
 
 /**
@@ -29,6 +31,10 @@ public final class Stats {
   /** Leaf node flag. This flag indicates if a node has children other than
    * texts and attributes. */
   private boolean leaf;
+  /** Date flag. This flag indicates if all values are of type {@code xs:date}. */
+  public boolean date;
+  /** DateTime flag. This flag indicates if all values are of type {@code xs:dateTime}. */
+  public boolean dateTime;
 
   /**
    * Default constructor.
@@ -39,6 +45,8 @@ public final class Stats {
     min = Double.MAX_VALUE;
     max = Double.MIN_VALUE;
     leaf = true;
+    date = true;
+    dateTime = true;
   }
 
   /**
@@ -55,7 +63,11 @@ public final class Stats {
    */
   public void setLeaf(final boolean l) {
     leaf = l;
-    if(!l) type = StatsType.TEXT;
+    if(!l) {
+      type = StatsType.TEXT;
+      date = false;
+      dateTime = false;
+    }
   }
 
   /**
@@ -64,9 +76,12 @@ public final class Stats {
    * @throws IOException I/O exception
    */
   public Stats(final DataInput in) throws IOException {
-    // 0x10 indicates format introduced with Version 7.1
+    // 0x10 indicates format introduced with Version 7.1,
+    // 0x20 and 0x40 indicate date and dateTime values
     final int k = in.readNum();
     type = StatsType.values()[k & 0xF];
+    date = (k & 0x20) != 0;
+    dateTime = (k & 0x40) != 0;
 
     if(type == StatsType.INTEGER || type == StatsType.DOUBLE) {
       min = in.readDouble();
@@ -91,8 +106,9 @@ public final class Stats {
    * @throws IOException I/O exception
    */
   public void write(final DataOutput out) throws IOException {
-    // 0x10 indicates format introduced with Version 7.1
-    out.writeNum(type.ordinal() | 0x10);
+    // 0x10 indicates format introduced with Version 7.1,
+    // 0x20 and 0x40 indicate date and dateTime values
+    out.writeNum(type.ordinal() | 0x10 | (date ? 0x20 : 0) | (dateTime ? 0x40 : 0));
     if(type == StatsType.INTEGER || type == StatsType.DOUBLE) {
       out.writeDouble(min);
       out.writeDouble(max);
@@ -111,12 +127,16 @@ public final class Stats {
    * conversion fails again, it is handled as string category. Next, all values
    * are cached. As soon as their number exceeds a maximum, the cached
    * values are skipped, and contents are treated as arbitrary strings.
+   * Independently, it is checked if all values are dates or dates with times.
    * @param val value to be added
    * @param meta meta data
    */
   public void add(final byte[] val, final MetaData meta) {
     final int vl = val.length;
-    if(vl == 0 || type == StatsType.TEXT || ws(val)) return;
+    if(vl == 0 || ws(val)) return;
+    if(date) date = date(val, false);
+    if(dateTime) dateTime = date(val, true);
+    if(type == StatsType.TEXT) return;
 
     StatsType t = type;
     if(t == StatsType.NONE) t = StatsType.INTEGER;
@@ -155,6 +175,22 @@ public final class Stats {
     type = t;
   }
 
+  /**
+   * Checks if the specified value is a valid date or date with time.
+   * @param val value
+   * @param time date with time
+   * @return result of check
+   */
+  private static boolean date(final byte[] val, final boolean time) {
+    try {
+      if(time) new Dtm(val, null);
+      else new Dat(val, null);
+      return true;
+    } catch(final QueryException ex) {
+      return false;
+    }
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder(count + "x");
@@ -175,6 +211,8 @@ public final class Stats {
       default:
         break;
     }
+    if(date) sb.append(", dates");
+    if(dateTime) sb.append(", dateTimes");
     if(leaf) sb.append(", leaf");
     return sb.toString();
   }
@@ -5,12 +5,14 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.index.*;
 import org.basex.index.query.*;
+import org.basex.index.query.NumericRange.Keys;
 import org.basex.index.stats.*;
 import org.basex.io.random.*;
 import org.basex.util.*;
@@ -30,17 +32,23 @@ public class DiskValues implements Index {
   /** ID lists. */
   final DataAccess idxl;
   /** Value type (texts/attributes). */
-  private final boolean text;
+  final boolean text;
   /** Data reference. */
   final Data data;
   /** Cached tokens. */
   final IndexCache cache = new IndexCache();
-  /** Cached texts. Increases used memory, but speeds up repeated queries. */
-  final IntObjMap<byte[]> ctext = new IntObjMap<byte[]>();
+  /** Updates that have not been merged into the index files ({@code null} if the index
+   * is not updatable). */
+  ValueUpdates updates;
+
+  /** Typed keys for range queries, indexed by their type (created on demand). */
+  private final TypedKeys[] keys = new TypedKeys[Keys.values().length];
+  /** Keys that only exist in the updates (created on demand). */
+  private TokenList added;
 
   /** Synchronization object. */
-  private final Object monitor = new Object();
-  /** Number of current index entries. */
+  final Object monitor = new Object();
+  /** Number of index entries in the index files. */
   final AtomicInteger size = new AtomicInteger();
 
   /**
@@ -63,11 +71,36 @@ public class DiskValues implements Index {
   DiskValues(final Data d, final boolean txt, final String pref) throws IOException {
     data = d;
     text = txt;
-    idxl = new DataAccess(d.meta.dbfile(pref + 'l'));
-    idxr = new DataAccess(d.meta.dbfile(pref + 'r'));
+    final boolean mmap = d.meta.options.get(MainOptions.MMAP);
+    idxl = new DataAccess(d.meta.dbfile(pref + 'l'), mmap);
+    idxr = new DataAccess(d.meta.dbfile(pref + 'r'), mmap);
     size.set(idxl.read4());
   }
 
+  /**
+   * Constructor for snapshots.
+   * @param d data snapshot
+   * @param index original index
+   */
+  DiskValues(final Data d, final DiskValues index) {
+    data = d;
+    text = index.text;
+    idxl = index.idxl.snapshot();
+    idxr = index.idxr.snapshot();
+    size.set(index.size.get());
+  }
+
+  /**
+   * Returns a snapshot of the index for the specified database snapshot.
+   * This index is returned, as its files will not be changed by updates.
+   * @param d data snapshot
+   * @return snapshot
+   */
+  @SuppressWarnings("unused")
+  public DiskValues snapshot(final Data d) {
+    return this;
+  }
+
   @Override
   public void init() { }
 
@@ -82,9 +115,20 @@ public class DiskValues implements Index {
       tb.add(LI_SIZE + Performance.format(l, true) + NL);
       final int s = size.get();
       for(int m = 0; m < s; ++m) {
-        final long pos = idxr.read5(m * 5L);
-        final int oc = idxl.readNum(pos);
-        if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
+        if(updates == null) {
+          final long pos = idxr.read5(m * 5L);
+          final int oc = idxl.readNum(pos);
+          if(stats.adding(oc)) stats.add(data.text(pre(idxl.readNum()), text));
+        } else {
+          final IndexEntry entry = readKeyAt(m);
+          final int oc = count(entry);
+          if(oc != 0 && stats.adding(oc)) stats.add(entry.key);
+        }
+      }
+      if(updates != null) {
+        for(final byte[] key : added()) {
+          if(stats.adding(updates.count(key))) stats.add(key);
+        }
       }
     }
 
@@ -95,9 +139,14 @@ public class DiskValues implements Index {
   @Override
   public int costs(final IndexToken it) {
     if(it instanceof StringRange) return idRange((StringRange) it).size();
-    if(it instanceof NumericRange) return idRange((NumericRange) it).size();
+    if(it instanceof NumericRange) return size((NumericRange) it);
     final byte[] key = it.get();
-    return key.length <= data.meta.maxlen ? entry(key).size : Integer.MAX_VALUE;
+    if(key.length > data.meta.maxlen) return Integer.MAX_VALUE;
+    final IndexEntry e = entry(key);
+    if(updates == null) return e.size;
+    synchronized(monitor) {
+      return count(e);
+    }
   }
 
   @Override
@@ -105,7 +154,11 @@ public class DiskValues implements Index {
     if(it instanceof StringRange) return idRange((StringRange) it);
     if(it instanceof NumericRange) return idRange((NumericRange) it);
     final IndexEntry e = entry(it.get());
-    return iter(e.size, e.pointer);
+    final IntList ids = new IntList(e.size);
+    synchronized(monitor) {
+      ids(e, ids);
+    }
+    return iter(ids);
   }
 
   /**
@@ -138,9 +191,65 @@ public class DiskValues implements Index {
   @Override
   public EntryIterator entries(final IndexEntries input) {
     final byte[] key = input.get();
-    if(key.length == 0) return allKeys(input.descending);
-    if(input.prefix) return keysWithPrefix(key);
-    return keysFrom(key, input.descending);
+    final EntryIterator ei;
+    if(key.length == 0) ei = allKeys(input.descending);
+    else if(input.prefix) ei = keysWithPrefix(key);
+    else ei = keysFrom(key, input.descending);
+    return updates == null ? ei : merge(ei, input);
+  }
+
+  /**
+   * Merges the entries of the index files with the updates that have not been merged yet.
+   * The numbers of occurrences are adjusted, keys without occurrences are skipped, and the
+   * keys that only exist in the updates are added.
+   * @param ei entries of the index files
+   * @param input input
+   * @return entries
+   */
+  private EntryIterator merge(final EntryIterator ei, final IndexEntries input) {
+    final byte[] key = input.get();
+    final boolean desc = input.descending && (key.length == 0 || !input.prefix);
+    final TokenList list = new TokenList();
+    synchronized(monitor) {
+      for(final byte[] k : added()) {
+        if(key.length == 0 || (input.prefix ? startsWith(k, key) :
+          input.descending ? diff(k, key) < 0 : diff(k, key) >= 0)) list.add(k);
+      }
+    }
+    return new EntryIterator() {
+      final int s = list.size();
+      byte[] next = ei.next();
+      int i, count = -1;
+
+      @Override
+      public byte[] next() {
+        while(next != null || i < s) {
+          final byte[] upd = i < s ? list.get(desc ? s - 1 - i : i) : null;
+          final int d = next == null ? 1 : upd == null ? -1 :
+            desc ? diff(upd, next) : diff(next, upd);
+          final byte[] k;
+          synchronized(monitor) {
+            if(d < 0) {
+              k = next;
+              count = ei.count() + updates.count(k);
+              next = ei.next();
+            } else {
+              k = upd;
+              count = updates.count(k);
+              i++;
+            }
+          }
+          if(count > 0) return k;
+        }
+        count = -1;
+        return null;
+      }
+
+      @Override
+      public int count() {
+        return count;
+      }
+    };
   }
 
   /**
@@ -269,8 +378,8 @@ public class DiskValues implements Index {
    * @return key
    */
   IndexEntry readKeyAt(final int index) {
-    // try the cache first
-    byte[] key = ctext.get(index);
+    // try the cache first (keys of entries with deleted ids must be taken from the updates)
+    byte[] key = updates != null ? updates.key(index) : null;
     if(key != null) {
       final IndexEntry entry = cache.get(key);
       if(entry != null) return entry;
@@ -288,23 +397,52 @@ public class DiskValues implements Index {
   }
 
   /**
-   * Iterator method.
-   * <p><em>Important:</em> This method is thread-safe.</p>
-   * @param s number of values
-   * @param ps offset
-   * @return iterator
+   * Returns the number of ids of an index entry, including the updates that have not been
+   * merged yet.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param entry index entry
+   * @return number of ids
    */
-  private IndexIterator iter(final int s, final long ps) {
-    final IntList pres = new IntList(s);
-    long p = ps;
-    synchronized(monitor) {
-      for(int i = 0, id = 0; i < s; i++) {
-        id += idxl.readNum(p);
-        p = idxl.cursor();
-        pres.add(pre(id));
+  final int count(final IndexEntry entry) {
+    return updates == null ? entry.size : entry.size + updates.count(entry.key);
+  }
+
+  /**
+   * Adds the ids of an index entry to the specified list. Deleted ids are skipped, and
+   * ids that have not been merged yet are added.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param entry index entry
+   * @param ids list of ids
+   */
+  final void ids(final IndexEntry entry, final IntList ids) {
+    final IntList del = updates != null ? updates.deleted(entry.key) : null;
+    long p = entry.pointer;
+    for(int i = 0, id = 0; i < entry.size; i++) {
+      id += idxl.readNum(p);
+      p = idxl.cursor();
+      if(del == null || del.sortedIndexOf(id) < 0) ids.add(id);
+    }
+    final IntList ins = updates != null ? updates.inserted(entry.key) : null;
+    if(ins != null) {
+      final int is = ins.size();
+      for(int i = 0; i < is; i++) ids.add(ins.get(i));
+    }
+  }
+
+  /**
+   * Returns the keys that only exist in the updates, sorted in ascending order.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @return keys
+   */
+  final TokenList added() {
+    if(added == null) {
+      final TokenList list = new TokenList();
+      if(updates != null) {
+        for(final byte[] key : updates.keys()) if(get(key) < 0) list.add(key);
       }
+      added = list;
     }
-    return iter(pres.sort());
+    return added;
   }
 
   /**
@@ -315,75 +453,95 @@ public class DiskValues implements Index {
    */
   private IndexIterator idRange(final StringRange tok) {
     // check if min and max are positive integers with the same number of digits
-    final IntList pres = new IntList();
+    final IntList ids = new IntList();
     synchronized(monitor) {
       final int i = get(tok.min);
       final int s = size.get();
       for(int l = i < 0 ? -i - 1 : tok.mni ? i : i + 1; l < s; l++) {
-        final int ps = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
-
+        final IndexEntry entry = readKeyAt(l);
         // value is too large: skip traversal
-        final int d = diff(data.text(pre, text), tok.max);
+        final int d = diff(entry.key, tok.max);
         if(d > 0 || !tok.mxi && d == 0) break;
-        // add pre values
-        for(int p = 0; p < ps; ++p) {
-          pres.add(pre(id));
-          id += idxl.readNum();
+        ids(entry, ids);
+      }
+      // add keys that only exist in the updates
+      if(updates != null) {
+        for(final byte[] key : added()) {
+          final int mn = diff(key, tok.min), mx = diff(key, tok.max);
+          if((tok.mni ? mn >= 0 : mn > 0) && (tok.mxi ? mx <= 0 : mx < 0)) {
+            ids(new IndexEntry(key, 0, 0), ids);
+          }
         }
       }
     }
-    return iter(pres.sort());
+    return iter(ids);
   }
 
   /**
-   * Performs a range query. All index values must be numeric.
+   * Performs a numeric or date range query. All index keys that cannot be converted to
+   * the requested type will be ignored.
    * <p><em>Important:</em> This method is thread-safe.</p>
    * @param tok index term
    * @return results
    */
   final IndexIterator idRange(final NumericRange tok) {
-    final double min = tok.min;
-    final double max = tok.max;
+    final IntList ids = new IntList();
+    synchronized(monitor) {
+      final TypedKeys tk = keys(tok.keys);
+      for(int k = tk.first(tok), l = tk.last(tok); k < l; k++) ids(tk.entry(k), ids);
+    }
+    return iter(ids);
+  }
 
-    // check if min and max are positive integers with the same number of digits
-    final int len = max > 0 && (long) max == max ? token(max).length : 0;
-    final boolean simple = len != 0 && min > 0 && (long) min == min &&
-        token(min).length == len;
+  /**
+   * Returns the number of results of a numeric or date range query.
+   * <p><em>Important:</em> This method is thread-safe.</p>
+   * @param tok index term
+   * @return number of results
+   */
+  private int size(final NumericRange tok) {
+    synchronized(monitor) {
+      final TypedKeys tk = keys(tok.keys);
+      return tk.size(tk.first(tok), tk.last(tok));
+    }
+  }
 
-    final IntList pres = new IntList();
+  /**
+   * Returns the typed keys of the specified type.
+   * <p><em>Important:</em> This method is NOT thread-safe.</p>
+   * @param type type of the keys
+   * @return typed keys
+   */
+  private TypedKeys keys(final Keys type) {
+    final int t = type.ordinal();
+    TypedKeys tk = keys[t];
+    if(tk == null || !tk.valid(type)) {
+      tk = new TypedKeys(this, type);
+      keys[t] = tk;
+    }
+    return tk;
+  }
+
+  /**
+   * Discards the typed keys and the keys that only exist in the updates.
+   * Must be called after the index has been updated.
+   */
+  final void discardKeys() {
     synchronized(monitor) {
-      final int s = size.get();
-      for(int l = 0; l < s; ++l) {
-        final int ds = idxl.readNum(idxr.read5(l * 5L));
-        int id = idxl.readNum();
-        final int pre = pre(id);
-
-        final double v = data.textDbl(pre, text);
-        if(v >= min && v <= max) {
-          // value is in range
-          for(int d = 0; d < ds; ++d) {
-            pres.add(pre(id));
-            id += idxl.readNum();
-          }
-        } else if(simple && v > max && data.textLen(pre, text) == len) {
-          // if limits are integers, if min, max and current value have the same
-          // string length, and if current value is larger than max, test can be
-          // skipped, as all remaining values will be bigger
-          break;
-        }
-      }
+      Arrays.fill(keys, null);
+      added = null;
     }
-    return iter(pres.sort());
   }
 
   /**
-   * Returns an iterator for the specified id list.
-   * @param pres pre values
+   * Returns an iterator for the specified ids.
+   * @param ids ids (will be replaced with the sorted pre values)
    * @return iterator
    */
-  private static IndexIterator iter(final IntList pres) {
+  private IndexIterator iter(final IntList ids) {
+    final int is = ids.size();
+    for(int i = 0; i < is; i++) ids.set(i, pre(ids.get(i)));
+    final IntList pres = ids.sort();
     return new IndexIterator() {
       final int s = pres.size();
       int p = -1;
@@ -455,6 +613,25 @@ public class DiskValues implements Index {
     idxr.flush();
   }
 
+  /**
+   * Assigns a write-ahead log to the index files.
+   * @param log write-ahead log
+   */
+  public void wal(final WriteAheadLog log) {
+    idxl.wal(log);
+    idxr.wal(log);
+  }
+
+  /**
+   * Adds all pending modifications to the write-ahead log.
+   * @param log write-ahead log
+   * @throws IOException I/O exception
+   */
+  public void log(final WriteAheadLog log) throws IOException {
+    idxl.log(log);
+    idxr.log(log);
+  }
+
   @Override
   public void close() {
     synchronized(monitor) {
@@ -486,4 +663,12 @@ public class DiskValues implements Index {
    */
   @SuppressWarnings("unused")
   public void replace(final byte[] o, final byte[] n, final int id) { }
+
+  /**
+   * Add a single record to the index.
+   * @param key record key
+   * @param id record id
+   */
+  @SuppressWarnings("unused")
+  public void add(final byte[] key, final int id) { }
 }
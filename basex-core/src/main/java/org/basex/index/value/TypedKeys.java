@@ -0,0 +1,161 @@
+package org.basex.index.value;
+
+import java.util.*;
+
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.query.NumericRange.Keys;
+import org.basex.query.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.list.*;
+
+/**
+ * This class contains the typed keys of a value index, which are used for numeric
+ * and date range queries. All keys that can be converted to the requested type
+ * are stored in ascending order, along with the positions of their index entries.
+ * Keys that only exist in the updates of the index are referenced by positions after
+ * the last entry of the index files.
+ * The keys are created from the index when they are requested for the first time,
+ * and they are discarded when the index is updated.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class TypedKeys {
+  /** Type of the keys. */
+  final Keys type;
+  /** Implicit timezone, which has been applied to dates without timezone. */
+  final int zone;
+  /** Value index. */
+  private final DiskValues index;
+  /** Number of entries in the index files. */
+  private final int base;
+  /** Keys that only exist in the updates of the index. */
+  private final TokenList added;
+  /** Key values, sorted in ascending order. */
+  private final double[] values;
+  /** Positions of the index entries. */
+  private final int[] entries;
+  /** Accumulated number of ids (offset: 1). */
+  private final int[] counts;
+
+  /**
+   * Constructor, creating the typed keys of the specified index.
+   * Must be called by a thread that synchronizes the index access.
+   * @param index value index
+   * @param t type of the keys
+   */
+  TypedKeys(final DiskValues ix, final Keys t) {
+    type = t;
+    zone = ADate.implicitZone();
+    index = ix;
+    base = ix.size.get();
+    added = ix.added();
+
+    final int s = base + added.size();
+    final double[] vals = new double[s];
+    final IntList ents = new IntList(s);
+    final int[] sizes = new int[s];
+    for(int i = 0; i < s; i++) {
+      final IndexEntry entry = read(i);
+      final double v = value(entry.key, t);
+      if(Double.isNaN(v)) continue;
+      vals[ents.size()] = v;
+      ents.add(i);
+      sizes[i] = ix.count(entry);
+    }
+
+    final int n = ents.size();
+    values = Arrays.copyOf(vals, n);
+    ents.sort(values, true);
+    entries = ents.toArray();
+    counts = new int[n + 1];
+    for(int k = 0; k < n; k++) counts[k + 1] = counts[k] + sizes[entries[k]];
+  }
+
+  /**
+   * Checks if the keys are still valid for the specified type.
+   * @param t type of the keys
+   * @return result of check
+   */
+  boolean valid(final Keys t) {
+    return type == t && (t == Keys.NUMBER || zone == ADate.implicitZone());
+  }
+
+  /**
+   * Returns the position of the first key within the specified range.
+   * @param range range
+   * @return position
+   */
+  int first(final NumericRange range) {
+    int l = 0, h = values.length;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      final double v = values[m];
+      if(range.mni ? v < range.min : v <= range.min) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the position after the last key within the specified range.
+   * @param range range
+   * @return position
+   */
+  int last(final NumericRange range) {
+    int l = 0, h = values.length;
+    while(l < h) {
+      final int m = l + h >>> 1;
+      final double v = values[m];
+      if(range.mxi ? v <= range.max : v < range.max) l = m + 1;
+      else h = m;
+    }
+    return l;
+  }
+
+  /**
+   * Returns the index entry of the specified key.
+   * Must be called by a thread that synchronizes the index access.
+   * @param k position of the key
+   * @return index entry
+   */
+  IndexEntry entry(final int k) {
+    return read(entries[k]);
+  }
+
+  /**
+   * Returns the index entry at the specified position.
+   * @param e entry position
+   * @return index entry
+   */
+  private IndexEntry read(final int e) {
+    return e < base ? index.readKeyAt(e) : new IndexEntry(added.get(e - base), 0, 0);
+  }
+
+  /**
+   * Returns the number of ids that are referenced by the specified keys.
+   * @param first position of the first key
+   * @param last position after the last key
+   * @return number of ids
+   */
+  int size(final int first, final int last) {
+    return first < last ? counts[last] - counts[first] : 0;
+  }
+
+  /**
+   * Converts a key to the specified type.
+   * @param key key
+   * @param t type
+   * @return converted value, or {@link Double#NaN} if the key cannot be converted
+   */
+  static double value(final byte[] key, final Keys t) {
+    if(t == Keys.NUMBER) return Token.toDouble(key);
+    try {
+      return (t == Keys.DATE ? new Dat(key, null) : new Dtm(key, null)).epoch();
+    } catch(final QueryException ex) {
+      return Double.NaN;
+    }
+  }
+}
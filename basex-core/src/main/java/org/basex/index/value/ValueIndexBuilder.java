@@ -59,6 +59,7 @@ public final class ValueIndexBuilder extends IndexBuilder {
     Util.debug(det());
 
     final int k = text ? Data.TEXT : Data.ATTR;
+    final IndexNames names = data.meta.names(text);
 
     for(pre = 0; pre < size; ++pre) {
       if((pre & 0x0FFF) == 0) {
@@ -67,12 +68,19 @@ public final class ValueIndexBuilder extends IndexBuilder {
         if(split()) {
           writeIndex(true);
           index = new IndexTree();
+          memory = 0;
           finishSplit();
         }
       }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
+      // skip too long values and values that are not included
+      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen &&
+          names.contains(data, pre, text)) {
+        final byte[] key = data.text(pre, text);
+        final int id = data.meta.updindex ? data.id(pre) : pre, is = index.size();
+        index.index(key, id);
+        // estimate memory consumption of new entries and values
+        memory += Num.length(id);
+        if(index.size() != is) memory += key.length + IndexTree.NODE + IndexTree.VALUES;
         count++;
       }
     }
@@ -210,7 +218,7 @@ public final class ValueIndexBuilder extends IndexBuilder {
    * @param il values
    * @throws IOException I/O exception
    */
-  private static void write(final DataOutput outL, final DataOutput outR, final IntList il)
+  static void write(final DataOutput outL, final DataOutput outR, final IntList il)
       throws IOException {
 
     // sort values before writing
@@ -0,0 +1,248 @@
+package org.basex.index.value;
+
+import static org.basex.data.DataText.*;
+
+import java.io.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * This class contains the updates of a value index, which have not been merged into the
+ * index files yet. The ids of inserted values are stored in main memory. If a value is
+ * deleted, the id is either removed from the inserted ids, or it is stored as tombstone,
+ * and the entry of this id in the index files will be ignored. As the keys of the index
+ * files are retrieved via the first ids of their entries, the keys of all entries with
+ * tombstones are stored as well. The updates are stored in the file
+ * {@link DataText#DATATXT}/{@link DataText#DATAATV}{@code d}:<br/>
+ * Structure: {@code [n, [k, s, i0, ..., is-1]0, ..., m, [e, k, s, i0, ..., is-1]0, ...]}
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class ValueUpdates {
+  /** Inserted ids, sorted in ascending order. */
+  private final TokenObjMap<IntList> inserted;
+  /** Deleted ids of the index files (tombstones), sorted in ascending order. */
+  private final TokenObjMap<IntList> deleted;
+  /** Keys of the index entries with tombstones, indexed by the positions of the entries. */
+  private final IntObjMap<byte[]> entries;
+
+  /** Number of updates. */
+  private int size;
+  /** Sorted keys of the inserted ids (created when first requested). */
+  private TokenList keys;
+
+  /**
+   * Constructor, creating an empty instance.
+   */
+  ValueUpdates() {
+    inserted = new TokenObjMap<IntList>();
+    deleted = new TokenObjMap<IntList>();
+    entries = new IntObjMap<byte[]>();
+  }
+
+  /**
+   * Constructor, reading the updates from disk.
+   * @param in input stream
+   * @throws IOException I/O exception
+   */
+  ValueUpdates(final DataInput in) throws IOException {
+    this();
+    for(int n = in.readNum(); n > 0; n--) {
+      final byte[] key = in.readToken();
+      final IntList il = new IntList(in.readNums());
+      inserted.put(key, il);
+      size += il.size();
+    }
+    for(int n = in.readNum(); n > 0; n--) {
+      final int entry = in.readNum();
+      final byte[] key = in.readToken();
+      final IntList il = new IntList(in.readNums());
+      entries.put(entry, key);
+      deleted.put(key, il);
+      size += il.size();
+    }
+  }
+
+  /**
+   * Constructor for snapshots, copying the specified updates.
+   * @param updates updates to be copied
+   */
+  ValueUpdates(final ValueUpdates updates) {
+    this();
+    for(final byte[] key : updates.inserted) {
+      inserted.put(key, new IntList(updates.inserted.get(key).toArray()));
+    }
+    for(final byte[] key : updates.deleted) {
+      deleted.put(key, new IntList(updates.deleted.get(key).toArray()));
+    }
+    final IntObjMap<byte[]> map = updates.entries;
+    final int es = map.size();
+    for(int e = 1; e <= es; e++) entries.put(map.key(e), map.get(map.key(e)));
+    size = updates.size;
+  }
+
+  /**
+   * Returns the file storing the updates.
+   * @param d data reference
+   * @param text value type (texts/attributes)
+   * @return file
+   */
+  static IOFile file(final Data d, final boolean text) {
+    return d.meta.dbfile((text ? DATATXT : DATAATV) + 'd');
+  }
+
+  /**
+   * Writes the updates to the specified output.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  void write(final DataOutput out) throws IOException {
+    final TokenList list = keys();
+    out.writeNum(list.size());
+    for(final byte[] key : list) {
+      out.writeToken(key);
+      out.writeNums(inserted.get(key).toArray());
+    }
+    final int es = entries.size();
+    out.writeNum(es);
+    for(int e = 1; e <= es; e++) {
+      final int entry = entries.key(e);
+      final byte[] key = entries.get(entry);
+      out.writeNum(entry);
+      out.writeToken(key);
+      out.writeNums(deleted.get(key).toArray());
+    }
+  }
+
+  /**
+   * Returns the number of updates (inserted ids and tombstones).
+   * @return number of updates
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the keys of the inserted ids, sorted in ascending order.
+   * @return keys
+   */
+  TokenList keys() {
+    if(keys == null) {
+      final TokenList list = new TokenList();
+      for(final byte[] key : inserted) if(!inserted.get(key).isEmpty()) list.add(key);
+      keys = list.sort(true);
+    }
+    return keys;
+  }
+
+  /**
+   * Returns the key of an index entry with tombstones.
+   * @param entry position of the index entry
+   * @return key, or {@code null} if the entry has no tombstones
+   */
+  byte[] key(final int entry) {
+    return entries.get(entry);
+  }
+
+  /**
+   * Returns the inserted ids of the specified key.
+   * @param key key
+   * @return sorted ids, or {@code null}
+   */
+  IntList inserted(final byte[] key) {
+    return inserted.get(key);
+  }
+
+  /**
+   * Returns the tombstones of the specified key.
+   * @param key key
+   * @return sorted ids, or {@code null}
+   */
+  IntList deleted(final byte[] key) {
+    return deleted.get(key);
+  }
+
+  /**
+   * Returns the difference between the number of inserted and deleted ids of a key.
+   * @param key key
+   * @return difference
+   */
+  int count(final byte[] key) {
+    final IntList ins = inserted.get(key), del = deleted.get(key);
+    return (ins == null ? 0 : ins.size()) - (del == null ? 0 : del.size());
+  }
+
+  /**
+   * Inserts an id. If the id has been deleted from the index files, its tombstone
+   * is removed.
+   * @param key key
+   * @param id id
+   */
+  void insert(final byte[] key, final int id) {
+    if(remove(deleted.get(key), id)) return;
+    IntList il = inserted.get(key);
+    if(il == null) {
+      il = new IntList(1);
+      inserted.put(key, il);
+    }
+    if(add(il, id) && il.size() == 1) keys = null;
+  }
+
+  /**
+   * Deletes an id. If the id has not been inserted, a tombstone is added.
+   * @param key key
+   * @param id id
+   * @param entry position of the index entry of the key in the index files
+   * (negative if the key does not exist)
+   */
+  void delete(final byte[] key, final int id, final int entry) {
+    final IntList ins = inserted.get(key);
+    if(remove(ins, id)) {
+      if(ins.isEmpty()) keys = null;
+      return;
+    }
+    if(entry < 0) return;
+    IntList il = deleted.get(key);
+    if(il == null) {
+      il = new IntList(1);
+      deleted.put(key, il);
+      entries.put(entry, key);
+    }
+    add(il, id);
+  }
+
+  /**
+   * Adds an id to a sorted list.
+   * @param il list
+   * @param id id
+   * @return {@code true} if the id was added
+   */
+  private boolean add(final IntList il, final int id) {
+    final int i = il.sortedIndexOf(id);
+    if(i >= 0) return false;
+    il.insert(-i - 1, new int[] { id });
+    size++;
+    return true;
+  }
+
+  /**
+   * Removes an id from a sorted list.
+   * @param il list (can be {@code null})
+   * @param id id
+   * @return {@code true} if the id was removed
+   */
+  private boolean remove(final IntList il, final int id) {
+    if(il == null) return false;
+    final int i = il.sortedIndexOf(id);
+    if(i < 0) return false;
+    il.deleteAt(i);
+    size--;
+    return true;
+  }
+}
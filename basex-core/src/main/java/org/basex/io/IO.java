@@ -69,8 +69,10 @@ public abstract class IO {
   public static final String[] TXTSUFFIXES = {
     ".txt", ".text", ".ini", ".conf", ".md", ".log" };
 
+  /** Disk block/page size power (12). */
+  public static final int BLOCKPOWER = 12;
   /** Disk block/page size (4096). */
-  public static final int BLOCKSIZE = 1 << 12;
+  public static final int BLOCKSIZE = 1 << BLOCKPOWER;
   /** Table node size power (4). */
   public static final int NODEPOWER = 4;
   /** Table node size power (16). */
@@ -15,4 +15,9 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+  /** Version of the file contents (only assigned for pages of reading threads). */
+  int version = -1;
+  /** Last block that has been scheduled for read-ahead (only assigned for pages of
+   * reading threads). */
+  long ahead = -1;
 }
@@ -1,21 +1,50 @@
 package org.basex.io.random;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.io.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * This class allows positional read and write access to a database file.
  *
+ * Tokens and numbers can be concurrently read via {@link #fetchToken(long)} and
+ * {@link #fetchNum(long)}: as long as no modifications are pending, these methods
+ * do not access the shared file cursor. Instead, each thread reads its own copy of
+ * the currently requested page, and only cache misses are synchronized.
+ * If a thread reads subsequent blocks, the following blocks will be read ahead.
+ *
+ * If memory mapping is enabled, all read operations will be performed on the mapped
+ * file as long as no modifications are pending. After modifications have been flushed,
+ * the file will be mapped again.
+ *
+ * Read-only snapshots of the file can be created via {@link #snapshot}. The original
+ * contents of all blocks that are overwritten or truncated later on will be preserved
+ * for them.
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess {
+  /** Shared page cache. */
+  private static final PageCache CACHE = PageCache.get();
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
+  /** File id in the page cache. */
+  private final int id;
   /** Reference to the data input stream. */
   private final RandomAccessFile file;
+  /** Snapshots of the file. */
+  private final List<DataAccess> snapshots = new CopyOnWriteArrayList<DataAccess>();
+  /** Original file (only assigned if this instance is a snapshot). */
+  private final DataAccess origin;
+  /** Preserved contents of blocks that have been overwritten (only used by snapshots). */
+  private final IntObjMap<byte[]> images;
+  /** Name of the file. */
+  private final String name;
   /** File length. */
   private long len;
   /** Changed flag. */
@@ -23,12 +52,42 @@ public final class DataAccess {
   /** Offset. */
   private int off;
 
+  /** Pending modifications (if set, all read operations will be synchronized). */
+  private volatile boolean modified;
+  /** Version of the file contents; incremented whenever modifications have been flushed. */
+  private volatile int version;
+  /** Memory mapping flag. */
+  private final boolean mmap;
+  /** Memory-mapped file (can be {@code null}). */
+  private volatile Mapping map;
+  /** Write-ahead log (can be {@code null}). */
+  private WriteAheadLog wal;
+  /** Position of the cursor in the memory-mapped file. */
+  private long mpos;
+  /** Pages of concurrently reading threads. */
+  private final ThreadLocal<Buffer> pages = new ThreadLocal<Buffer>() {
+    @Override
+    protected Buffer initialValue() {
+      return new Buffer();
+    }
+  };
+
   /**
    * Constructor, initializing the file reader.
    * @param fl the file to be read
    * @throws IOException I/O Exception
    */
   public DataAccess(final IOFile fl) throws IOException {
+    this(fl, false);
+  }
+
+  /**
+   * Constructor, initializing the file reader.
+   * @param fl the file to be read
+   * @param mm map file into memory
+   * @throws IOException I/O Exception
+   */
+  public DataAccess(final IOFile fl, final boolean mm) throws IOException {
     RandomAccessFile f = null;
     try {
       f = new RandomAccessFile(fl.file(), "rw");
@@ -38,9 +97,50 @@ public final class DataAccess {
       throw ex;
     }
     file = f;
+    name = fl.name();
+    mmap = mm;
+    id = PageCache.register();
+    origin = null;
+    images = null;
+    cursor(0);
+    map();
+  }
+
+  /**
+   * Constructor for snapshots.
+   * @param da original file
+   */
+  private DataAccess(final DataAccess da) {
+    file = da.file;
+    name = da.name;
+    len = da.len;
+    mmap = false;
+    id = da.id;
+    origin = da;
+    images = new IntObjMap<byte[]>();
     cursor(0);
   }
 
+  /**
+   * Returns a read-only snapshot of the current file contents. The contents of all
+   * blocks that are subsequently overwritten will be preserved until the snapshot is
+   * closed. This method must only be called if no modifications are pending.
+   * @return snapshot
+   */
+  public synchronized DataAccess snapshot() {
+    final DataAccess da = new DataAccess(this);
+    snapshots.add(da);
+    return da;
+  }
+
+  /**
+   * Checks if this instance is a read-only snapshot.
+   * @return result of check
+   */
+  public boolean readOnly() {
+    return origin != null;
+  }
+
   /**
    * Flushes the buffered data.
    */
@@ -48,24 +148,70 @@ public final class DataAccess {
     try {
       for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
       if(changed) {
-        file.setLength(len);
+        // drop cached pages that are located after the end of the file
+        // release mapping before the file size is changed
+        map = null;
+        synchronized(file) {
+          final long fl = file.length();
+          for(long b = len >> IO.BLOCKPOWER; b <= fl - 1 >> IO.BLOCKPOWER; b++) preserve(b);
+          for(long b = len + IO.BLOCKSIZE - 1 >> IO.BLOCKPOWER;
+              b <= fl - 1 >> IO.BLOCKPOWER; b++) CACHE.remove(id, b);
+          file.setLength(len);
+        }
         changed = false;
       }
+      if(modified) {
+        version++;
+        if(mmap) {
+          mpos = cursor();
+          map();
+        }
+        modified = false;
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
   }
 
+  /**
+   * Assigns a write-ahead log, which will be notified if modified pages need to be
+   * written before the current transaction has been committed.
+   * @param log write-ahead log
+   */
+  public synchronized void wal(final WriteAheadLog log) {
+    wal = log;
+  }
+
+  /**
+   * Adds all pending modifications to the write-ahead log.
+   * @param log write-ahead log
+   * @throws IOException I/O exception
+   */
+  public synchronized void log(final WriteAheadLog log) throws IOException {
+    if(!modified) return;
+    for(final Buffer b : bm.all()) if(b.dirty) log.block(name, b.pos, b.data);
+    log.length(name, len);
+  }
+
   /**
    * Closes the data access.
    */
   public synchronized void close() {
+    // snapshots share the file of the original instance
+    if(origin != null) {
+      origin.snapshots.remove(this);
+      return;
+    }
     flush();
+    map = null;
     try {
-      file.close();
+      synchronized(file) {
+        file.close();
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    CACHE.remove(id);
   }
 
   /**
@@ -73,7 +219,7 @@ public final class DataAccess {
    * @return position in the file
    */
   public long cursor() {
-    return buffer(false).pos + off;
+    return mapped() ? mpos : buffer(false).pos + off;
   }
 
   /**
@@ -81,6 +227,7 @@ public final class DataAccess {
    * @param l file length
    */
   synchronized void length(final long l) {
+    modify();
     changed |= l != len;
     len = l;
   }
@@ -106,6 +253,7 @@ public final class DataAccess {
    * @return next byte
    */
   public int read() {
+    if(mapped()) return map.read1(mpos++);
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     return bf.data[off++] & 0xFF;
   }
@@ -194,6 +342,70 @@ public final class DataAccess {
     return readBytes(l);
   }
 
+  /**
+   * Reads a {@link Num} value from the specified position.
+   * In contrast to {@link #readNum(long)}, the file cursor will not be used if no
+   * modifications are pending, and the method can be called concurrently.
+   * @param p position
+   * @return read num
+   */
+  public int fetchNum(final long p) {
+    if(modified) {
+      synchronized(this) {
+        return readNum(p);
+      }
+    }
+    final Mapping m = map;
+    if(m != null) return m.readNum(p);
+    final Buffer bf = pages.get();
+    final int v = fetch(bf, p);
+    switch(v & 0xC0) {
+    case 0:
+      return v;
+    case 0x40:
+      return (v - 0x40 << 8) + fetch(bf, p + 1);
+    case 0x80:
+      return (v - 0x80 << 24) + (fetch(bf, p + 1) << 16) + (fetch(bf, p + 2) << 8) +
+          fetch(bf, p + 3);
+    default:
+      return (fetch(bf, p + 1) << 24) + (fetch(bf, p + 2) << 16) + (fetch(bf, p + 3) << 8) +
+          fetch(bf, p + 4);
+    }
+  }
+
+  /**
+   * Reads a token from the specified position.
+   * In contrast to {@link #readToken(long)}, the file cursor will not be used if no
+   * modifications are pending, and the method can be called concurrently.
+   * @param p text position
+   * @return text as byte array
+   */
+  public byte[] fetchToken(final long p) {
+    if(modified) {
+      synchronized(this) {
+        return readToken(p);
+      }
+    }
+    final int l = fetchNum(p);
+    final byte[] b = new byte[l];
+    final Mapping m = map;
+    if(m != null) {
+      m.read(p + Num.length(l), b, 0, l);
+      return b;
+    }
+    final Buffer bf = pages.get();
+    long q = p + Num.length(l);
+    for(int o = 0; o < l;) {
+      final int po = (int) (q & IO.BLOCKSIZE - 1);
+      page(bf, q - po);
+      final int n = Math.min(l - o, IO.BLOCKSIZE - po);
+      System.arraycopy(bf.data, po, b, o, n);
+      o += n;
+      q += n;
+    }
+    return b;
+  }
+
   /**
    * Reads a number of bytes from the specified offset.
    * @param p position
@@ -211,6 +423,12 @@ public final class DataAccess {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int n) {
+    if(mapped()) {
+      final byte[] b = new byte[n];
+      map.read(mpos, b, 0, n);
+      mpos += n;
+      return b;
+    }
     int l = n;
     int ll = IO.BLOCKSIZE - off;
     final byte[] b = new byte[l];
@@ -234,17 +452,22 @@ public final class DataAccess {
    * @param p read position
    */
   public void cursor(final long p) {
+    if(mapped()) {
+      mpos = p;
+      return;
+    }
     off = (int) (p & IO.BLOCKSIZE - 1);
     final long b = p - off;
     if(!bm.cursor(b)) return;
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
+      if(bf.dirty) {
+        if(wal != null) wal.evict(name, bf.pos, bf.data);
+        writeBlock(bf);
+      }
       bf.pos = b;
-      file.seek(bf.pos);
-      if(bf.pos < file.length())
-        file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+      if(bf.pos < (origin != null ? len : file.length())) readBlock(bf);
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -273,6 +496,7 @@ public final class DataAccess {
    * @param b byte to be written
    */
   public void write(final int b) {
+    modify();
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
     bf.dirty = true;
     bf.data[off++] = (byte) b;
@@ -364,6 +588,7 @@ public final class DataAccess {
    * @param length token length
    */
   void writeToken(final byte[] buf, final int offset, final int length) {
+    modify();
     writeNum(length);
 
     final int last = offset + length;
@@ -441,17 +666,158 @@ public final class DataAccess {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Indicates that modifications are pending. If the file is memory-mapped,
+   * the cursor position is adopted by the buffers.
+   */
+  private void modify() {
+    if(modified) return;
+    final boolean mapped = mapped();
+    final long p = mpos;
+    modified = true;
+    if(mapped) cursor(p);
+  }
+
+  /**
+   * Checks if read operations will be performed on the memory-mapped file.
+   * @return result of check
+   */
+  private boolean mapped() {
+    return map != null && !modified;
+  }
+
+  /**
+   * Maps the file into memory, if requested.
+   * The buffered operations will be used as fallback if the file cannot be mapped.
+   */
+  private void map() {
+    if(!mmap) return;
+    try {
+      map = new Mapping(file, len);
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      map = null;
+    }
+  }
+
   /**
    * Writes the specified block to disk.
    * @param bf buffer to write
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
+    synchronized(file) {
+      preserve(bf.pos >>> IO.BLOCKPOWER);
+      file.seek(bf.pos);
+      file.write(bf.data);
+      CACHE.update(id, bf.pos >>> IO.BLOCKPOWER, bf.data);
+    }
     bf.dirty = false;
   }
 
+  /**
+   * Reads the block at the position of the specified buffer,
+   * either from the page cache or from disk.
+   * @param bf buffer
+   * @throws IOException I/O exception
+   */
+  private void readBlock(final Buffer bf) throws IOException {
+    final long b = bf.pos >>> IO.BLOCKPOWER;
+    if(origin != null) {
+      // snapshot: block may be overwritten concurrently
+      synchronized(file) {
+        final byte[] image = images.get((int) b);
+        if(image != null) {
+          System.arraycopy(image, 0, bf.data, 0, IO.BLOCKSIZE);
+        } else if(!CACHE.read(id, b, bf.data)) {
+          file.seek(bf.pos);
+          file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+          CACHE.add(id, b, bf.data);
+        }
+      }
+      return;
+    }
+    if(CACHE.read(id, b, bf.data)) return;
+    // the block is read and cached in a single step (see ReadAhead)
+    synchronized(file) {
+      if(CACHE.reread(id, b, bf.data)) return;
+      file.seek(bf.pos);
+      file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
+      CACHE.add(id, b, bf.data);
+    }
+  }
+
+  /**
+   * Preserves the current contents of the specified block for all snapshots that
+   * reference it. Must be called before the block is overwritten or truncated.
+   * @param b block to be overwritten
+   * @throws IOException I/O exception
+   */
+  private void preserve(final long b) throws IOException {
+    byte[] data = null;
+    final long pos = b << IO.BLOCKPOWER;
+    for(final DataAccess da : snapshots) {
+      if(pos >= da.len || da.images.contains((int) b)) continue;
+      if(data == null) {
+        data = new byte[IO.BLOCKSIZE];
+        if(!CACHE.reread(id, b, data)) {
+          final long l = Math.min(file.length() - pos, IO.BLOCKSIZE);
+          if(l > 0) {
+            file.seek(pos);
+            file.readFully(data, 0, (int) l);
+          }
+        }
+      }
+      da.images.put((int) b, data);
+    }
+  }
+
+  /**
+   * Returns the byte at the specified position from the page of a reading thread.
+   * @param bf page of the current thread
+   * @param p position
+   * @return byte
+   */
+  private int fetch(final Buffer bf, final long p) {
+    final int po = (int) (p & IO.BLOCKSIZE - 1);
+    page(bf, p - po);
+    return bf.data[po] & 0xFF;
+  }
+
+  /**
+   * Assigns the specified block to the page of a reading thread.
+   * @param bf page of the current thread
+   * @param b block position
+   */
+  private void page(final Buffer bf, final long b) {
+    final int v = version;
+    if(bf.pos == b && bf.version == v) return;
+    final boolean seq = bf.pos + IO.BLOCKSIZE == b && bf.version == v;
+    if(bf.version != v) bf.ahead = -1;
+    bf.pos = b;
+    bf.version = v;
+    try {
+      if(b < len) {
+        readBlock(bf);
+        // sequential access: read subsequent blocks in the background
+        final long n = b >>> IO.BLOCKPOWER;
+        if(seq && n + ReadAhead.BLOCKS / 2 > bf.ahead) {
+          final long s = Math.max(n, bf.ahead) + 1;
+          bf.ahead = n + ReadAhead.BLOCKS;
+          final long e = Math.min(len + IO.BLOCKSIZE - 1 >>> IO.BLOCKPOWER, bf.ahead + 1);
+          if(s < e) {
+            final long[] bl = new long[(int) (e - s)];
+            for(int i = 0; i < bl.length; i++) bl[i] = s + i;
+            ReadAhead.schedule(file, id, len, bl);
+          }
+        }
+      }
+    } catch(final IOException ex) {
+      bf.pos = -1;
+      Util.stack(ex);
+    }
+  }
+
   /**
    * Returns the current or next buffer.
    * @param next next block
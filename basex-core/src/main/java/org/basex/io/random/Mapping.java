@@ -0,0 +1,136 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.*;
+
+/**
+ * This class provides read-only access to a memory-mapped file.
+ * Files larger than 2 GB are mapped in several segments.
+ * All methods are thread-safe, as they do not change the position of the mapped buffers.
+ * As with buffered file access, bytes beyond the end of the file are returned as zeros.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class Mapping {
+  /** Segment size power (1 GB). */
+  private static final int SEGPOWER = 30;
+  /** Segment size. */
+  private static final long SEGSIZE = 1L << SEGPOWER;
+  /** Mapped segments. */
+  private final MappedByteBuffer[] segments;
+  /** Number of mapped bytes. */
+  private final long len;
+
+  /**
+   * Constructor.
+   * @param file file to be mapped
+   * @param size number of bytes to be mapped
+   * @throws IOException I/O exception
+   */
+  Mapping(final RandomAccessFile file, final long size) throws IOException {
+    final int ns = (int) (size + SEGSIZE - 1 >>> SEGPOWER);
+    segments = new MappedByteBuffer[ns];
+    len = size;
+
+    // temporarily reset interrupted flag: otherwise, the channel would be closed
+    final boolean interrupted = Thread.interrupted();
+    try {
+      final FileChannel fc = file.getChannel();
+      for(int s = 0; s < ns; s++) {
+        final long p = (long) s << SEGPOWER;
+        segments[s] = fc.map(MapMode.READ_ONLY, p, Math.min(SEGSIZE, size - p));
+      }
+    } finally {
+      if(interrupted) Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Reads a byte value.
+   * @param p position
+   * @return value
+   */
+  int read1(final long p) {
+    if(p >= len) return 0;
+    return segments[(int) (p >>> SEGPOWER)].get((int) (p & SEGSIZE - 1)) & 0xFF;
+  }
+
+  /**
+   * Reads a short value.
+   * @param p position
+   * @return value
+   */
+  int read2(final long p) {
+    final int o = (int) (p & SEGSIZE - 1);
+    if(o <= SEGSIZE - 2 && p + 2 <= len)
+      return segments[(int) (p >>> SEGPOWER)].getShort(o) & 0xFFFF;
+    return (read1(p) << 8) + read1(p + 1);
+  }
+
+  /**
+   * Reads an integer value.
+   * @param p position
+   * @return value
+   */
+  int read4(final long p) {
+    final int o = (int) (p & SEGSIZE - 1);
+    if(o <= SEGSIZE - 4 && p + 4 <= len) return segments[(int) (p >>> SEGPOWER)].getInt(o);
+    return (read1(p) << 24) + (read1(p + 1) << 16) + (read1(p + 2) << 8) + read1(p + 3);
+  }
+
+  /**
+   * Reads a 5-byte value.
+   * @param p position
+   * @return value
+   */
+  long read5(final long p) {
+    return ((long) read1(p) << 32) + (read4(p + 1) & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Reads a compressed number.
+   * @param p position
+   * @return value
+   */
+  int readNum(final long p) {
+    final int v = read1(p);
+    switch(v & 0xC0) {
+    case 0:
+      return v;
+    case 0x40:
+      return (v - 0x40 << 8) + read1(p + 1);
+    case 0x80:
+      return (v - 0x80 << 24) + (read1(p + 1) << 16) + (read1(p + 2) << 8) + read1(p + 3);
+    default:
+      return read4(p + 1);
+    }
+  }
+
+  /**
+   * Copies bytes into the specified array.
+   * @param p position
+   * @param b target array
+   * @param o array offset
+   * @param l number of bytes
+   */
+  void read(final long p, final byte[] b, final int o, final int l) {
+    long q = p;
+    final int e = (int) Math.max(0, Math.min(l, len - p));
+    if(e < l) Arrays.fill(b, o + e, o + l, (byte) 0);
+    for(int bo = o, bl = e; bl > 0;) {
+      final int so = (int) (q & SEGSIZE - 1);
+      final int n = (int) Math.min(bl, SEGSIZE - so);
+      // duplicate buffer: positions of the shared buffer must not be changed
+      final ByteBuffer bb = segments[(int) (q >>> SEGPOWER)].duplicate();
+      bb.position(so);
+      bb.get(b, bo, n);
+      bo += n;
+      bl -= n;
+      q += n;
+    }
+  }
+}
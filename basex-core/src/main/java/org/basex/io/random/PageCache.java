@@ -0,0 +1,341 @@
+package org.basex.io.random;
+
+import static org.basex.core.Text.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides a page cache which is shared by all database files.
+ * It serves as second-level cache for the buffers of {@link TableDiskAccess} and
+ * {@link DataAccess} instances, which only keep a small number of pages in memory.
+ *
+ * Pages are evicted with the 2Q algorithm (Johnson and Shasha, VLDB 1994):
+ * pages that are accessed for the first time are stored in a FIFO queue.
+ * Only pages that are requested again after having been evicted from this queue
+ * are promoted to the main LRU queue. This way, single table scans will not
+ * replace the pages that are frequently accessed.
+ *
+ * The cache is divided into segments, which can be accessed concurrently.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCache {
+  /** Shared page cache instance. */
+  private static final PageCache CACHE = new PageCache();
+  /** Counter for assigning file ids. */
+  private static final AtomicInteger FILES = new AtomicInteger();
+  /** Number of bits reserved for the block number in a page key. */
+  private static final int BLOCKBITS = 40;
+  /** Number of segments (must be 1 << n). */
+  private static final int SEGMENTS = 1 << 4;
+
+  /** Cache segments, which are locked independently. */
+  private final Segment[] segments = new Segment[SEGMENTS];
+  /** Indicates if the cache is enabled. */
+  private volatile boolean enabled;
+
+  /**
+   * Private constructor.
+   */
+  private PageCache() {
+    for(int s = 0; s < SEGMENTS; s++) segments[s] = new Segment();
+  }
+
+  /**
+   * Returns the shared page cache.
+   * @return page cache
+   */
+  public static PageCache get() {
+    return CACHE;
+  }
+
+  /**
+   * Assigns a new id to a file that uses the cache.
+   * @return file id
+   */
+  static int register() {
+    return FILES.incrementAndGet();
+  }
+
+  /**
+   * Assigns the cache size. Existing pages will be dropped if the cache shrinks.
+   * @param mb size in megabytes ({@code 0} disables the cache)
+   */
+  public void size(final int mb) {
+    final long pages = Math.max(0, (long) mb << 20) / IO.BLOCKSIZE;
+    final int max = (int) Math.min(Integer.MAX_VALUE, (pages + SEGMENTS - 1) / SEGMENTS);
+    for(final Segment s : segments) s.size(max);
+    enabled = max != 0;
+  }
+
+  /**
+   * Indicates if the cache is enabled.
+   * @return result of check
+   */
+  boolean enabled() {
+    return enabled;
+  }
+
+  /**
+   * Checks if the specified page is cached. Other than {@link #read}, this method
+   * does not affect the statistics.
+   * @param file file id
+   * @param block block number
+   * @return result of check
+   */
+  boolean contains(final int file, final long block) {
+    return segment(file, block).contains(key(file, block));
+  }
+
+  /**
+   * Copies the contents of a cached page to the specified array.
+   * @param file file id
+   * @param block block number
+   * @param data target array
+   * @return {@code true} if the page was found in the cache
+   */
+  boolean read(final int file, final long block, final byte[] data) {
+    return segment(file, block).read(key(file, block), data, true);
+  }
+
+  /**
+   * Copies the contents of a cached page to the specified array.
+   * Other than {@link #read}, this method does not affect the statistics. It is called
+   * after a cache miss, as the page may have been read ahead in the meantime.
+   * @param file file id
+   * @param block block number
+   * @param data target array
+   * @return {@code true} if the page was found in the cache
+   */
+  boolean reread(final int file, final long block, final byte[] data) {
+    return segment(file, block).read(key(file, block), data, false);
+  }
+
+  /**
+   * Adds a page that has been read from disk.
+   * @param file file id
+   * @param block block number
+   * @param data page contents
+   */
+  void add(final int file, final long block, final byte[] data) {
+    segment(file, block).add(key(file, block), data);
+  }
+
+  /**
+   * Updates a page that has been written to disk. Pages that are not cached are ignored.
+   * @param file file id
+   * @param block block number
+   * @param data page contents
+   */
+  void update(final int file, final long block, final byte[] data) {
+    segment(file, block).update(key(file, block), data);
+  }
+
+  /**
+   * Removes a page from the cache.
+   * @param file file id
+   * @param block block number
+   */
+  void remove(final int file, final long block) {
+    segment(file, block).remove(key(file, block));
+  }
+
+  /**
+   * Removes all pages of the specified file.
+   * @param file file id
+   */
+  void remove(final int file) {
+    for(final Segment s : segments) s.remove(file);
+  }
+
+  /**
+   * Returns information on the cache.
+   * @return info string
+   */
+  public byte[] info() {
+    long max = 0, pages = 0, hits = 0, misses = 0;
+    for(final Segment s : segments) {
+      synchronized(s) {
+        max += s.max;
+        pages += s.in.size() + s.main.size();
+        hits += s.hits;
+        misses += s.misses;
+      }
+    }
+    final long acc = hits + misses;
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add(LI_SIZE + Performance.format(max * IO.BLOCKSIZE, true) + NL);
+    tb.add(LI_PAGES + pages + '/' + max + NL);
+    tb.add(LI_HITS + hits + (acc == 0 ? "" : " (" + hits * 100 / acc + "%)") + NL);
+    tb.add(LI_MISSES + misses + NL);
+    return tb.finish();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the segment responsible for the specified page.
+   * Consecutive pages are distributed evenly across all segments.
+   * @param file file id
+   * @param block block number
+   * @return segment
+   */
+  private Segment segment(final int file, final long block) {
+    return segments[(int) (block + file) & SEGMENTS - 1];
+  }
+
+  /**
+   * Returns a key for the specified page.
+   * @param file file id
+   * @param block block number
+   * @return key
+   */
+  private static Long key(final int file, final long block) {
+    return (long) file << BLOCKBITS | block;
+  }
+
+  /** Cache segment, managed by the 2Q algorithm. */
+  private static final class Segment {
+    /** Queue with pages that have been accessed once (FIFO order). */
+    final LinkedHashMap<Long, byte[]> in = new LinkedHashMap<Long, byte[]>();
+    /** Queue with frequently accessed pages (LRU order). */
+    final LinkedHashMap<Long, byte[]> main = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+    /** Keys of pages that have recently been evicted from the FIFO queue. */
+    final LinkedHashMap<Long, Boolean> out = new LinkedHashMap<Long, Boolean>();
+    /** Maximum number of cached pages. */
+    int max;
+    /** Number of cache hits. */
+    long hits;
+    /** Number of cache misses. */
+    long misses;
+
+    /**
+     * Assigns the maximum number of pages.
+     * @param m maximum number of pages
+     */
+    synchronized void size(final int m) {
+      max = m;
+      while(in.size() + main.size() > max) evict();
+      while(out.size() > max >>> 1) remove(out);
+    }
+
+    /**
+     * Copies the contents of a cached page to the specified array.
+     * @param key page key
+     * @param data target array
+     * @param stats update statistics
+     * @return {@code true} if the page was found in the cache
+     */
+    synchronized boolean read(final Long key, final byte[] data, final boolean stats) {
+      if(max == 0) return false;
+      byte[] page = main.get(key);
+      if(page == null) page = in.get(key);
+      if(page == null) {
+        if(stats) misses++;
+        return false;
+      }
+      System.arraycopy(page, 0, data, 0, IO.BLOCKSIZE);
+      if(stats) hits++;
+      return true;
+    }
+
+    /**
+     * Checks if a page is cached.
+     * @param key page key
+     * @return result of check
+     */
+    synchronized boolean contains(final Long key) {
+      return main.containsKey(key) || in.containsKey(key);
+    }
+
+    /**
+     * Adds a page.
+     * @param key page key
+     * @param data page contents
+     */
+    synchronized void add(final Long key, final byte[] data) {
+      if(max == 0 || main.containsKey(key) || in.containsKey(key)) return;
+      // reuse array of evicted page
+      final byte[] page = in.size() + main.size() >= max ? evict() : new byte[IO.BLOCKSIZE];
+      System.arraycopy(data, 0, page, 0, IO.BLOCKSIZE);
+      // pages that have been evicted before are promoted to the main queue
+      if(out.remove(key) != null) main.put(key, page);
+      else in.put(key, page);
+    }
+
+    /**
+     * Updates a cached page.
+     * @param key page key
+     * @param data page contents
+     */
+    synchronized void update(final Long key, final byte[] data) {
+      if(max == 0) return;
+      byte[] page = main.get(key);
+      if(page == null) page = in.get(key);
+      if(page != null) System.arraycopy(data, 0, page, 0, IO.BLOCKSIZE);
+    }
+
+    /**
+     * Removes a page.
+     * @param key page key
+     */
+    synchronized void remove(final Long key) {
+      if(main.remove(key) == null && in.remove(key) == null) out.remove(key);
+    }
+
+    /**
+     * Removes all pages of the specified file.
+     * @param file file id
+     */
+    synchronized void remove(final int file) {
+      remove(in.keySet(), file);
+      remove(main.keySet(), file);
+      remove(out.keySet(), file);
+    }
+
+    /**
+     * Evicts a page and returns its array.
+     * @return array of the evicted page
+     */
+    private byte[] evict() {
+      // evict from FIFO queue if it exceeds its share (25%), or if main queue is empty
+      final boolean fifo = in.size() > max >>> 2 || main.isEmpty();
+      final Map.Entry<Long, byte[]> e = (fifo ? in : main).entrySet().iterator().next();
+      final Long key = e.getKey();
+      (fifo ? in : main).remove(key);
+      if(fifo) {
+        // remember keys of evicted pages (up to 50% of the maximum number of pages)
+        out.put(key, Boolean.TRUE);
+        if(out.size() > max >>> 1) remove(out);
+      }
+      return e.getValue();
+    }
+
+    /**
+     * Removes the oldest entry from the specified map.
+     * @param map map
+     */
+    private static void remove(final LinkedHashMap<Long, ?> map) {
+      final Iterator<Long> it = map.keySet().iterator();
+      it.next();
+      it.remove();
+    }
+
+    /**
+     * Removes all keys of the specified file.
+     * @param keys keys
+     * @param file file id
+     */
+    private static void remove(final Set<Long> keys, final int file) {
+      final Iterator<Long> it = keys.iterator();
+      while(it.hasNext()) {
+        if(it.next() >>> BLOCKBITS == file) it.remove();
+      }
+    }
+  }
+}
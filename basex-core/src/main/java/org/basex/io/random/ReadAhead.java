@@ -0,0 +1,124 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.io.*;
+
+/**
+ * This class asynchronously reads blocks of database files into the shared page cache.
+ * It is used if sequential reads have been detected, or if a range scan has been
+ * announced. Consecutive blocks that are not cached yet are read in a single step.
+ *
+ * Read-ahead is a best-effort operation: requests are dropped if too many are pending,
+ * and I/O errors are ignored.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class ReadAhead {
+  /** Number of blocks that are read ahead if sequential reads have been detected. */
+  static final int BLOCKS = 16;
+  /** Maximum number of blocks that are read for an announced range scan. */
+  static final int MAXBLOCKS = 256;
+
+  /** Shared page cache. */
+  private static final PageCache CACHE = PageCache.get();
+  /** Maximum number of pending requests. */
+  private static final int PENDING = 64;
+  /** Maximum number of blocks that are read in a single step. */
+  private static final int CHUNK = 32;
+  /** Background thread for reading blocks (pending requests are discarded on overflow). */
+  private static final ExecutorService EXEC = new ThreadPoolExecutor(1, 1, 0,
+      TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(PENDING),
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r, "ReadAhead");
+          t.setDaemon(true);
+          return t;
+        }
+      }, new ThreadPoolExecutor.DiscardPolicy());
+
+  /** Private constructor. */
+  private ReadAhead() { }
+
+  /**
+   * Schedules the specified blocks to be read into the page cache.
+   * @param file file to be read
+   * @param id file id in the page cache
+   * @param len file length
+   * @param blocks blocks to be read
+   */
+  static void schedule(final RandomAccessFile file, final int id, final long len,
+      final long[] blocks) {
+    if(blocks.length == 0 || !CACHE.enabled()) return;
+    EXEC.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          read(file, id, len, blocks);
+        } catch(final IOException ex) {
+          // ignore errors (e.g. if the file has been closed in the meantime)
+        }
+      }
+    });
+  }
+
+  /**
+   * Reads the specified blocks, skipping the ones that have already been cached.
+   * @param file file to be read
+   * @param id file id in the page cache
+   * @param len file length
+   * @param blocks blocks to be read
+   * @throws IOException I/O exception
+   */
+  private static void read(final RandomAccessFile file, final int id, final long len,
+      final long[] blocks) throws IOException {
+
+    final byte[] data = new byte[CHUNK << IO.BLOCKPOWER];
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    final int bl = blocks.length;
+    for(int b = 0; b < bl;) {
+      // find next run of consecutive blocks
+      int e = b + 1;
+      while(e < bl && e - b < CHUNK && blocks[e] == blocks[e - 1] + 1) e++;
+
+      final long pos = blocks[b] << IO.BLOCKPOWER;
+      if(pos >= len) return;
+      final int l = (int) Math.min(len - pos, (long) (e - b) << IO.BLOCKPOWER);
+
+      // pages are read and added in a single step; otherwise, outdated contents
+      // might be cached after concurrent write operations
+      synchronized(file) {
+        if(!cached(id, blocks, b, e)) {
+          file.seek(pos);
+          file.readFully(data, 0, l);
+          for(int i = b; i < e; i++) {
+            final int o = i - b << IO.BLOCKPOWER;
+            if(o >= l) break;
+            System.arraycopy(data, o, page, 0, Math.min(IO.BLOCKSIZE, l - o));
+            if(l - o < IO.BLOCKSIZE) Arrays.fill(page, l - o, IO.BLOCKSIZE, (byte) 0);
+            CACHE.add(id, blocks[i], page);
+          }
+        }
+      }
+      b = e;
+    }
+  }
+
+  /**
+   * Checks if all blocks in the specified range have already been cached.
+   * @param id file id in the page cache
+   * @param blocks blocks
+   * @param s start index
+   * @param e end index
+   * @return result of check
+   */
+  private static boolean cached(final int id, final long[] blocks, final int s,
+      final int e) {
+    for(int i = s; i < e; i++) if(!CACHE.contains(id, blocks[i])) return false;
+    return true;
+  }
+}
@@ -45,6 +45,13 @@ public abstract class TableAccess {
    */
   public abstract boolean lock(final boolean excl);
 
+  /**
+   * Announces that the entries of the specified range will be read sequentially.
+   * @param pre first pre value
+   * @param size number of entries
+   */
+  public void prefetch(final int pre, final int size) { }
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
@@ -5,28 +5,54 @@ import static org.basex.data.DataText.*;
 import java.io.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
 import org.basex.io.*;
 import org.basex.io.in.DataInput;
+import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * This class stores the table on disk and reads it block-wise.
  *
- * NOTE: this class is not thread-safe.
+ * As long as no modifications are pending, read operations can be performed
+ * concurrently: each thread reads its own copy of the currently requested page,
+ * and only cache misses are synchronized. Otherwise, all operations will be
+ * performed on the shared buffers, and they are synchronized.
+ *
+ * If memory mapping is enabled, the lock-free read operations will be performed on the
+ * mapped file. Otherwise, subsequent blocks will be read ahead if a thread reads the
+ * table sequentially, or if a range scan has been announced via {@link #prefetch}.
+ *
+ * Read-only snapshots of the table can be created via {@link #snapshot}. They share the
+ * file with the original table, and the original contents of all blocks that are
+ * overwritten later on will be preserved for them (copy-on-write).
+ *
+ * NOTE: update operations are not thread-safe.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
+  /** Shared page cache. */
+  private static final PageCache CACHE = PageCache.get();
   /** Buffer manager. */
   private final Buffers bm = new Buffers();
+  /** File id in the page cache. */
+  private final int id;
   /** File storing all blocks. */
   private final RandomAccessFile file;
+  /** Snapshots of the table. */
+  private final List<TableDiskAccess> snapshots = new CopyOnWriteArrayList<TableDiskAccess>();
+  /** Original table (only assigned if this instance is a snapshot). */
+  private final TableDiskAccess origin;
+  /** Preserved contents of blocks that have been overwritten (only used by snapshots). */
+  private final IntObjMap<byte[]> images;
   /** Bitmap storing free (=0) and used (=1) pages. */
   private BitArray usedPages;
   /** File lock. */
@@ -49,6 +75,24 @@ public final class TableDiskAccess extends TableAccess {
   /** Number of used blocks. */
   private int used;
 
+  /** Pending modifications (if set, all read operations will be synchronized). */
+  private volatile boolean modified;
+  /** Version of the table; incremented whenever modifications have been flushed. */
+  private volatile int version;
+  /** Write-ahead log (can be {@code null}). */
+  private WriteAheadLog wal;
+  /** Memory mapping flag. */
+  private final boolean mmap;
+  /** Memory-mapped file (can be {@code null}). */
+  private volatile Mapping map;
+  /** Pages of concurrently reading threads. */
+  private final ThreadLocal<Page> readers = new ThreadLocal<Page>() {
+    @Override
+    protected Page initialValue() {
+      return new Page();
+    }
+  };
+
   /**
    * Constructor.
    * @param md meta data
@@ -57,6 +101,9 @@ public final class TableDiskAccess extends TableAccess {
    */
   public TableDiskAccess(final MetaData md, final boolean lock) throws IOException {
     super(md);
+    id = PageCache.register();
+    origin = null;
+    images = null;
 
     // read meta and index data
     final DataInput in = new DataInput(meta.dbfile(DATATBL + 'i'));
@@ -87,6 +134,41 @@ public final class TableDiskAccess extends TableAccess {
     if(lock) exclusiveLock();
     else sharedLock();
     if(fl == null) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    mmap = md.options.get(MainOptions.MMAP);
+    map();
+  }
+
+  /**
+   * Constructor for snapshots.
+   * @param md meta data of the snapshot
+   * @param table original table
+   */
+  private TableDiskAccess(final MetaData md, final TableDiskAccess table) {
+    super(md);
+    id = table.id;
+    file = table.file;
+    origin = table;
+    images = new IntObjMap<byte[]>();
+    mmap = false;
+    blocks = table.blocks;
+    used = table.used;
+    if(table.fpres != null) {
+      fpres = Arrays.copyOf(table.fpres, used);
+      pages = Arrays.copyOf(table.pages, used);
+    }
+  }
+
+  /**
+   * Returns a read-only snapshot of the current table contents. The contents of all
+   * blocks that are subsequently overwritten will be preserved until the snapshot is
+   * closed. This method must only be called if no modifications are pending.
+   * @param md meta data of the snapshot
+   * @return snapshot
+   */
+  public synchronized TableDiskAccess snapshot(final MetaData md) {
+    final TableDiskAccess tda = new TableDiskAccess(md, this);
+    snapshots.add(tda);
+    return tda;
   }
 
   /**
@@ -117,10 +199,64 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void flush() throws IOException {
+    flush(true);
+  }
+
+  /**
+   * Flushes the buffered data.
+   * @param all write page index (otherwise, only the modified blocks will be written)
+   * @throws IOException I/O exception
+   */
+  public synchronized void flush(final boolean all) throws IOException {
     for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-    if(!dirty) return;
+    if(modified) {
+      version++;
+      map();
+      modified = false;
+    }
+    if(!all || !dirty) return;
 
     final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'));
+    try {
+      writeIndex(out);
+    } finally {
+      out.close();
+    }
+    dirty = false;
+  }
+
+  /**
+   * Assigns a write-ahead log, which will be notified if modified blocks need to be
+   * written before the current transaction has been committed.
+   * @param log write-ahead log
+   */
+  public synchronized void wal(final WriteAheadLog log) {
+    wal = log;
+  }
+
+  /**
+   * Adds all pending modifications to the write-ahead log.
+   * @param log write-ahead log
+   * @throws IOException I/O exception
+   */
+  public synchronized void log(final WriteAheadLog log) throws IOException {
+    final String name = meta.dbfile(DATATBL).name();
+    for(final Buffer b : bm.all()) {
+      if(b.dirty) log.block(name, b.pos * IO.BLOCKSIZE, b.data);
+    }
+    if(dirty) {
+      final ArrayOutput ao = new ArrayOutput();
+      writeIndex(new DataOutput(ao));
+      log.file(meta.dbfile(DATATBL + 'i').name(), ao.toArray());
+    }
+  }
+
+  /**
+   * Writes the page index.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void writeIndex(final DataOutput out) throws IOException {
     out.writeNum(blocks);
     out.writeNum(used);
 
@@ -131,14 +267,21 @@ public final class TableDiskAccess extends TableAccess {
     for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
 
     out.writeLongs(usedPages.toArray());
-    out.close();
-    dirty = false;
   }
 
   @Override
   public synchronized void close() throws IOException {
+    // snapshots share the file of the original table
+    if(origin != null) {
+      origin.snapshots.remove(this);
+      return;
+    }
     flush();
-    file.close();
+    map = null;
+    synchronized(file) {
+      file.close();
+    }
+    CACHE.remove(id);
   }
 
   @Override
@@ -190,37 +333,71 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    if(modified) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return read1(bm.current().data, o);
+      }
+    }
+    final Mapping m = map;
+    final Page pg = local(pre, m == null);
+    return m != null ? m.read1(pg.position(pre) + off) : read1(pg.data, off + pg.offset(pre));
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    if(modified) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return read2(bm.current().data, o);
+      }
+    }
+    final Mapping m = map;
+    final Page pg = local(pre, m == null);
+    return m != null ? m.read2(pg.position(pre) + off) : read2(pg.data, off + pg.offset(pre));
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    if(modified) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return read4(bm.current().data, o);
+      }
+    }
+    final Mapping m = map;
+    final Page pg = local(pre, m == null);
+    return m != null ? m.read4(pg.position(pre) + off) : read4(pg.data, off + pg.offset(pre));
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    if(modified) {
+      synchronized(this) {
+        final int o = off + cursor(pre);
+        return read5(bm.current().data, o);
+      }
+    }
+    final Mapping m = map;
+    final Page pg = local(pre, m == null);
+    return m != null ? m.read5(pg.position(pre) + off) : read5(pg.data, off + pg.offset(pre));
+  }
+
+  @Override
+  public void prefetch(final int pre, final int size) {
+    if(modified || map != null) return;
+    final int s = index(pre);
+    if(s == -1) return;
+    final int last = pre + size;
+    int e = s + 1;
+    while(e < used && e - s <= ReadAhead.MAXBLOCKS && fpre(e) < last) e++;
+    readAhead(s + 1, e);
   }
 
   @Override
   public void write1(final int pre, final int off, final int v) {
+    modified = true;
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -230,6 +407,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write2(final int pre, final int off, final int v) {
+    modified = true;
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -240,6 +418,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write4(final int pre, final int off, final int v) {
+    modified = true;
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -252,6 +431,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public void write5(final int pre, final int off, final long v) {
+    modified = true;
     final int o = off + cursor(pre);
     final Buffer bf = bm.current();
     final byte[] b = bf.data;
@@ -265,6 +445,7 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   protected void copy(final byte[] entries, final int pre, final int last) {
+    modified = true;
     for(int o = 0, i = pre; i < last; ++i, o += IO.NODESIZE) {
       final int off = cursor(i);
       final Buffer bf = bm.current();
@@ -479,6 +660,7 @@ public final class TableDiskAccess extends TableAccess {
       usedPages = new BitArray(used, true);
     }
     dirty = true;
+    modified = true;
   }
 
   // PRIVATE METHODS ==========================================================
@@ -562,13 +744,17 @@ public final class TableDiskAccess extends TableAccess {
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
+      if(bf.dirty) {
+        if(wal != null) {
+          wal.evict(meta.dbfile(DATATBL).name(), bf.pos * IO.BLOCKSIZE, bf.data);
+        }
+        writeBlock(bf);
+      }
       bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
       } else {
-        file.seek(bf.pos * IO.BLOCKSIZE);
-        file.readFully(bf.data);
+        readBlock(b, bf.data);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -586,17 +772,199 @@ public final class TableDiskAccess extends TableAccess {
     ++page;
   }
 
+  /**
+   * Maps the file into memory, if requested.
+   * The buffered operations will be used as fallback if the file cannot be mapped.
+   */
+  private void map() {
+    if(!mmap) return;
+    try {
+      map = new Mapping(file, file.length());
+    } catch(final IOException ex) {
+      Util.debug(ex);
+      map = null;
+    }
+  }
+
   /**
    * Writes the specified block to disk and resets the dirty flag.
    * @param bf buffer to write
    * @throws IOException I/O exception
    */
   private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
+    synchronized(file) {
+      preserve(bf.pos);
+      file.seek(bf.pos * IO.BLOCKSIZE);
+      file.write(bf.data);
+      CACHE.update(id, bf.pos, bf.data);
+    }
     bf.dirty = false;
   }
 
+  /**
+   * Reads the specified block, either from the page cache or from disk.
+   * @param b block to fetch
+   * @param data target array
+   * @throws IOException I/O exception
+   */
+  private void readBlock(final int b, final byte[] data) throws IOException {
+    if(origin != null) {
+      // snapshot: block may be overwritten concurrently
+      synchronized(file) {
+        final byte[] image = images.get(b);
+        if(image != null) {
+          System.arraycopy(image, 0, data, 0, IO.BLOCKSIZE);
+        } else if(!CACHE.read(id, b, data)) {
+          file.seek((long) b * IO.BLOCKSIZE);
+          file.readFully(data);
+          CACHE.add(id, b, data);
+        }
+      }
+      return;
+    }
+    if(CACHE.read(id, b, data)) return;
+    // the block is read and cached in a single step (see ReadAhead)
+    synchronized(file) {
+      if(CACHE.reread(id, b, data)) return;
+      file.seek((long) b * IO.BLOCKSIZE);
+      file.readFully(data);
+      CACHE.add(id, b, data);
+    }
+  }
+
+  /**
+   * Preserves the current contents of the specified block for all snapshots that
+   * reference it. Must be called before the block is overwritten.
+   * @param b block to be overwritten
+   * @throws IOException I/O exception
+   */
+  private void preserve(final long b) throws IOException {
+    byte[] data = null;
+    for(final TableDiskAccess tda : snapshots) {
+      if(b >= tda.blocks || tda.images.contains((int) b)) continue;
+      if(data == null) {
+        data = new byte[IO.BLOCKSIZE];
+        if(!CACHE.reread(id, b, data)) {
+          file.seek(b * IO.BLOCKSIZE);
+          file.readFully(data);
+        }
+      }
+      tda.images.put((int) b, data);
+    }
+  }
+
+  /**
+   * Returns the page of the current thread, which contains the entry for the
+   * specified pre value. This method must only be called if no modifications are pending.
+   * @param pre pre value
+   * @param load load page contents (can be skipped if the file is memory-mapped)
+   * @return page
+   */
+  private Page local(final int pre, final boolean load) {
+    final Page pg = readers.get();
+    final int v = version;
+    if(pre >= pg.fpre && pre < pg.npre && pg.version == v && (pg.loaded || !load)) return pg;
+
+    final int m = index(pre);
+    if(m == -1) throw Util.notExpected("Data Access out of bounds:" +
+        "\n- pre value: " + pre + "\n- #used blocks: " + used);
+    final int b = page(m);
+    if(pg.version != v) pg.ahead = -1;
+    try {
+      if(load) {
+        readBlock(b, pg.data);
+        // sequential access: read subsequent blocks in the background
+        if(m == pg.index + 1 && m + ReadAhead.BLOCKS / 2 > pg.ahead) {
+          final int s = Math.max(m, pg.ahead) + 1;
+          pg.ahead = m + ReadAhead.BLOCKS;
+          readAhead(s, Math.min(used, pg.ahead + 1));
+        }
+      }
+      pg.index = m;
+      pg.block = b;
+      pg.loaded = load;
+      pg.fpre = fpre(m);
+      pg.npre = m == used - 1 ? meta.size : fpre(m + 1);
+      pg.version = v;
+    } catch(final IOException ex) {
+      pg.npre = -1;
+      Util.stack(ex);
+    }
+    return pg;
+  }
+
+  /**
+   * Returns the index of the page containing the entry for the specified pre value.
+   * This method must only be called if no modifications are pending.
+   * @param pre pre value
+   * @return page index, or {@code -1} if the pre value is out of bounds
+   */
+  private int index(final int pre) {
+    final int last = used - 1;
+    int l = 0, h = last;
+    while(l <= h) {
+      final int m = l + h >>> 1;
+      if(pre < fpre(m)) h = m - 1;
+      else if(pre >= (m == last ? meta.size : fpre(m + 1))) l = m + 1;
+      else return m;
+    }
+    return -1;
+  }
+
+  /**
+   * Reads the blocks of the specified pages in the background.
+   * @param s index of first page
+   * @param e index of last page (exclusive)
+   */
+  private void readAhead(final int s, final int e) {
+    if(s >= e) return;
+    final long[] bl = new long[e - s];
+    for(int p = s; p < e; p++) bl[p - s] = page(p);
+    ReadAhead.schedule(file, id, (long) blocks << IO.BLOCKPOWER, bl);
+  }
+
+  /**
+   * Returns a byte value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static int read1(final byte[] b, final int o) {
+    return b[o] & 0xFF;
+  }
+
+  /**
+   * Returns a short value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static int read2(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  }
+
+  /**
+   * Returns an integer value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static int read4(final byte[] b, final int o) {
+    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  }
+
+  /**
+   * Returns a 5-byte value from the specified array.
+   * @param b byte array
+   * @param o offset
+   * @return value
+   */
+  private static long read5(final byte[] b, final int o) {
+    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  }
+
   /**
    * Updates the firstPre index entries.
    * @param nr number of entries to move
@@ -644,4 +1012,42 @@ public final class TableDiskAccess extends TableAccess {
   private int occSpace(final int i) {
     return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
   }
+
+  /** Page of a reading thread. */
+  private static final class Page {
+    /** Page data. */
+    final byte[] data = new byte[IO.BLOCKSIZE];
+    /** First pre value of the page. */
+    int fpre = -1;
+    /** First pre value of the next page. */
+    int npre = -1;
+    /** Version of the table. */
+    int version = -1;
+    /** Index of the page. */
+    int index = -1;
+    /** Index of the last page that has been scheduled for read-ahead. */
+    int ahead = -1;
+    /** Block of the page. */
+    int block;
+    /** Indicates if the page contents have been loaded. */
+    boolean loaded;
+
+    /**
+     * Returns the offset of the specified pre value in the page.
+     * @param pre pre value
+     * @return offset
+     */
+    int offset(final int pre) {
+      return pre - fpre << IO.NODEPOWER;
+    }
+
+    /**
+     * Returns the position of the specified pre value in the file.
+     * @param pre pre value
+     * @return position
+     */
+    long position(final int pre) {
+      return ((long) block << IO.BLOCKPOWER) + offset(pre);
+    }
+  }
 }
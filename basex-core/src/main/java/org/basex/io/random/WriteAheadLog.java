@@ -0,0 +1,328 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.basex.io.*;
+import org.basex.io.out.*;
+import org.basex.util.*;
+
+/**
+ * This class logs the modifications of a database in a write-ahead log.
+ *
+ * When a transaction is committed, the images of all modified pages and the serialized
+ * meta data are appended to the log, and the log is synchronized with the storage
+ * device. The database files are written afterwards, but they are only synchronized by
+ * the next checkpoint, which also writes the meta data files and truncates the log.
+ * If a database is opened after a crash, the committed transactions of the log are
+ * replayed ({@link #recover(IOFile)}).
+ *
+ * The log contains no undo information: if dirty pages of an uncommitted transaction
+ * need to be written to the database files, they are added to the transaction, and the
+ * database is marked as updating until the transaction has been committed.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLog {
+  /** Size of the log after which a checkpoint will be performed. */
+  private static final long CHECKPOINT = 1 << 24;
+
+  /** Entry type: file contents at a specific position. */
+  private static final int BLOCK = 1;
+  /** Entry type: file length. */
+  private static final int LENGTH = 2;
+  /** Entry type: complete file. */
+  private static final int FILE = 3;
+
+  /** Log file. */
+  private final IOFile file;
+  /** File that indicates ongoing updates. */
+  private final IOFile marker;
+  /** Entries of the current transaction. */
+  private final ArrayOutput entries = new ArrayOutput();
+  /** Output stream for the entries of the current transaction. */
+  private final DataOutputStream out = new DataOutputStream(entries);
+  /** Names of the files that have been modified since the last checkpoint. */
+  private final HashSet<String> modified = new HashSet<String>();
+
+  /** Log output ({@code null} if the log has not been opened yet). */
+  private RandomAccessFile log;
+  /** Indicates if a transaction is running. */
+  private boolean active;
+  /** Indicates if uncommitted pages have been written to the database files. */
+  private boolean stolen;
+  /** Indicates if database files have been rewritten without being logged. */
+  private boolean bypassed;
+
+  /**
+   * Constructor.
+   * @param fl log file
+   * @param mark file that indicates ongoing updates
+   */
+  public WriteAheadLog(final IOFile fl, final IOFile mark) {
+    file = fl;
+    marker = mark;
+  }
+
+  /**
+   * Starts a transaction.
+   */
+  public synchronized void begin() {
+    active = true;
+  }
+
+  /**
+   * Called before a modified page of a running transaction is written to a database
+   * file. Logs the page and marks the database as updating.
+   * @param name name of the file
+   * @param pos file position
+   * @param data page contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void evict(final String name, final long pos, final byte[] data)
+      throws IOException {
+    if(!active) return;
+    block(name, pos, data);
+    if(!stolen) stolen = marker.exists() || marker.touch();
+  }
+
+  /**
+   * Called before database files of a running transaction are rewritten without being
+   * logged (e.g., if an index is rebuilt). Marks the database as updating until the next
+   * checkpoint has been performed.
+   */
+  public synchronized void bypass() {
+    if(!active || bypassed) return;
+    bypassed = true;
+    if(!stolen) stolen = marker.exists() || marker.touch();
+  }
+
+  /**
+   * Logs the contents of a file at the specified position.
+   * @param name name of the file
+   * @param pos file position
+   * @param data data to be written
+   * @throws IOException I/O exception
+   */
+  public synchronized void block(final String name, final long pos, final byte[] data)
+      throws IOException {
+    entry(BLOCK, name);
+    out.writeLong(pos);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * Logs the length of a file.
+   * @param name name of the file
+   * @param length file length
+   * @throws IOException I/O exception
+   */
+  public synchronized void length(final String name, final long length) throws IOException {
+    entry(LENGTH, name);
+    out.writeLong(length);
+  }
+
+  /**
+   * Logs the complete contents of a file.
+   * @param name name of the file
+   * @param data file contents
+   * @throws IOException I/O exception
+   */
+  public synchronized void file(final String name, final byte[] data) throws IOException {
+    entry(FILE, name);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * Commits the current transaction: appends the logged entries to the log and
+   * synchronizes the log with the storage device.
+   * @return {@code true} if a checkpoint needs to be performed
+   * @throws IOException I/O exception
+   */
+  public synchronized boolean commit() throws IOException {
+    final int size = (int) entries.size();
+    if(size != 0) {
+      final byte[] data = entries.buffer();
+      final CRC32 crc = new CRC32();
+      crc.update(data, 0, size);
+      if(log == null) {
+        log = new RandomAccessFile(file.file(), "rw");
+        log.seek(log.length());
+      }
+      final ArrayOutput ao = new ArrayOutput();
+      final DataOutputStream dos = new DataOutputStream(ao);
+      dos.writeInt(size);
+      dos.writeInt((int) crc.getValue());
+      dos.write(data, 0, size);
+      log.write(ao.buffer(), 0, (int) ao.size());
+      log.getChannel().force(false);
+      entries.reset();
+    }
+    active = false;
+    if(bypassed) return true;
+    // changes of the transaction are durable: remove update marker
+    if(stolen) {
+      marker.delete();
+      stolen = false;
+    }
+    return size() > CHECKPOINT;
+  }
+
+  /**
+   * Performs a checkpoint. Must be called after all modifications have been written to
+   * the database files: synchronizes all modified files and truncates the log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void checkpoint() throws IOException {
+    final IOFile dir = file.dir();
+    if(bypassed) {
+      // files may have been rewritten: synchronize all database files
+      for(final IOFile fl : dir.children()) {
+        if(!fl.isDir() && !fl.eq(file) && !fl.eq(marker)) sync(fl);
+      }
+    } else {
+      for(final String name : modified) sync(new IOFile(dir, name));
+    }
+    modified.clear();
+    if(log != null) {
+      log.setLength(0);
+      log.getChannel().force(false);
+    }
+    if(bypassed) {
+      marker.delete();
+      bypassed = false;
+      stolen = false;
+    }
+  }
+
+  /**
+   * Performs a checkpoint and closes the log.
+   * @throws IOException I/O exception
+   */
+  public synchronized void close() throws IOException {
+    checkpoint();
+    if(log != null) {
+      log.close();
+      log = null;
+    }
+    file.delete();
+  }
+
+  /**
+   * Replays all committed transactions of the specified log, if it exists,
+   * and deletes the log afterwards.
+   * @param fl log file
+   * @throws IOException I/O exception
+   */
+  public static void recover(final IOFile fl) throws IOException {
+    if(!fl.exists()) return;
+
+    final IOFile dir = fl.dir();
+    final HashMap<String, RandomAccessFile> files = new HashMap<String, RandomAccessFile>();
+    final DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(fl.file())));
+    try {
+      long rem = fl.length();
+      while(rem >= 8) {
+        // stop at the first incomplete or corrupt transaction
+        final int size = in.readInt(), crc = in.readInt();
+        if(size < 0 || size > rem - 8) break;
+        final byte[] data = new byte[size];
+        in.readFully(data);
+        final CRC32 c = new CRC32();
+        c.update(data);
+        if((int) c.getValue() != crc) break;
+        replay(data, dir, files);
+        rem -= size + 8;
+      }
+    } finally {
+      in.close();
+      for(final RandomAccessFile raf : files.values()) {
+        try {
+          raf.getChannel().force(true);
+        } finally {
+          raf.close();
+        }
+      }
+    }
+    fl.delete();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Returns the current size of the log.
+   * @return size
+   * @throws IOException I/O exception
+   */
+  private long size() throws IOException {
+    return log == null ? 0 : log.length();
+  }
+
+  /**
+   * Starts a new entry.
+   * @param type entry type
+   * @param name name of the file
+   * @throws IOException I/O exception
+   */
+  private void entry(final int type, final String name) throws IOException {
+    out.write(type);
+    out.writeUTF(name);
+    modified.add(name);
+  }
+
+  /**
+   * Replays the entries of a single transaction.
+   * @param data transaction entries
+   * @param dir database directory
+   * @param files opened files
+   * @throws IOException I/O exception
+   */
+  private static void replay(final byte[] data, final IOFile dir,
+      final HashMap<String, RandomAccessFile> files) throws IOException {
+
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    for(int type; (type = in.read()) != -1;) {
+      final String name = in.readUTF();
+      RandomAccessFile raf = files.get(name);
+      if(raf == null) {
+        raf = new RandomAccessFile(new IOFile(dir, name).file(), "rw");
+        files.put(name, raf);
+      }
+      if(type == BLOCK) {
+        raf.seek(in.readLong());
+        final byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        raf.write(b);
+      } else if(type == LENGTH) {
+        raf.setLength(in.readLong());
+      } else if(type == FILE) {
+        final byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        raf.setLength(0);
+        raf.write(b);
+      } else {
+        throw Util.notExpected("Unknown log entry: " + type);
+      }
+    }
+  }
+
+  /**
+   * Synchronizes the specified file with the storage device.
+   * @param fl file
+   * @throws IOException I/O exception
+   */
+  private static void sync(final IOFile fl) throws IOException {
+    if(!fl.exists()) return;
+    final RandomAccessFile raf = new RandomAccessFile(fl.file(), "rw");
+    try {
+      raf.getChannel().force(true);
+    } finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package org.basex.query;
+
+import java.util.*;
+
+import org.basex.core.*;
+
+/**
+ * This class caches compiled query plans, which can be reused by subsequent
+ * evaluations of the same query. Cached plans are removed in the order of their last
+ * access if the maximum number of plans (see {@link GlobalOptions#QUERYCACHE}) is
+ * exceeded. As cached queries keep their databases opened, plans referencing a database
+ * must be removed before the database can be dropped or replaced.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCache {
+  /** Cached plans, ordered by their last access. */
+  private final LinkedHashMap<String, ArrayList<QueryPlan>> plans =
+    new LinkedHashMap<String, ArrayList<QueryPlan>>(16, 0.75f, true);
+  /** Global options. */
+  private final GlobalOptions gopts;
+  /** Number of cached plans. */
+  private int size;
+  /** Number of reused plans. */
+  private long hits;
+  /** Number of compiled queries. */
+  private long misses;
+
+  /**
+   * Constructor.
+   * @param opts global options
+   */
+  public QueryCache(final GlobalOptions opts) {
+    gopts = opts;
+  }
+
+  /**
+   * Checks if the cache is enabled.
+   * @return result of check
+   */
+  boolean enabled() {
+    return gopts.get(GlobalOptions.QUERYCACHE) > 0;
+  }
+
+  /**
+   * Removes a plan with the specified key from the cache and returns it.
+   * @param key key
+   * @return plan or {@code null}
+   */
+  synchronized QueryPlan get(final String key) {
+    final ArrayList<QueryPlan> list = plans.get(key);
+    if(list == null) return null;
+    final QueryPlan plan = list.remove(list.size() - 1);
+    if(list.isEmpty()) plans.remove(key);
+    size--;
+    return plan;
+  }
+
+  /**
+   * Registers if a plan was reused or if the query was compiled.
+   * @param hit hit flag
+   */
+  synchronized void count(final boolean hit) {
+    if(hit) hits++;
+    else misses++;
+  }
+
+  /**
+   * Adds a plan to the cache, and closes the least recently used plans if the
+   * maximum number of plans is exceeded.
+   * @param plan plan
+   */
+  void add(final QueryPlan plan) {
+    final ArrayList<QueryPlan> closed = new ArrayList<QueryPlan>();
+    synchronized(this) {
+      ArrayList<QueryPlan> list = plans.get(plan.key);
+      if(list == null) {
+        list = new ArrayList<QueryPlan>(1);
+        plans.put(plan.key, list);
+      }
+      list.add(plan);
+      size++;
+
+      final int max = gopts.get(GlobalOptions.QUERYCACHE);
+      final Iterator<ArrayList<QueryPlan>> it = plans.values().iterator();
+      while(size > max) {
+        final ArrayList<QueryPlan> l = it.next();
+        size -= l.size();
+        closed.addAll(l);
+        it.remove();
+      }
+    }
+    for(final QueryPlan qp : closed) qp.ctx.close();
+  }
+
+  /**
+   * Closes all plans that have opened the specified database.
+   * @param db name of database
+   */
+  public void close(final String db) {
+    final ArrayList<QueryPlan> closed = new ArrayList<QueryPlan>();
+    synchronized(this) {
+      final Iterator<ArrayList<QueryPlan>> it = plans.values().iterator();
+      while(it.hasNext()) {
+        final ArrayList<QueryPlan> list = it.next();
+        for(int l = list.size() - 1; l >= 0; l--) {
+          if(list.get(l).opened(db)) closed.add(list.remove(l));
+        }
+        if(list.isEmpty()) it.remove();
+      }
+      size -= closed.size();
+    }
+    for(final QueryPlan qp : closed) qp.ctx.close();
+  }
+
+  /**
+   * Closes all plans.
+   */
+  public void close() {
+    final ArrayList<QueryPlan> closed = new ArrayList<QueryPlan>();
+    synchronized(this) {
+      for(final ArrayList<QueryPlan> list : plans.values()) closed.addAll(list);
+      plans.clear();
+      size = 0;
+    }
+    for(final QueryPlan qp : closed) qp.ctx.close();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return size + " plans, " + hits + " hits, " + misses + " misses";
+  }
+}
@@ -21,6 +21,7 @@ import org.basex.io.serial.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.Expr.Flag;
 import org.basex.query.func.*;
+import org.basex.query.gflwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.up.*;
 import org.basex.query.util.*;
@@ -54,12 +55,12 @@ public final class QueryContext extends Proc {
   /** Functions. */
   public final StaticFuncs funcs = new StaticFuncs();
   /** Externally bound variables. */
-  private final HashMap<QNm, Expr> bindings = new HashMap<QNm, Expr>();
+  final HashMap<QNm, Expr> bindings = new HashMap<QNm, Expr>();
 
   /** Query resources. */
-  public final QueryResources resource = new QueryResources(this);
-  /** Database context. */
-  public final Context context;
+  public final QueryResources resource;
+  /** Database context (reassigned if a cached query plan is reused). */
+  public Context context;
 
   /** HTTP context. */
   public Object http;
@@ -144,6 +145,10 @@ public final class QueryContext extends Proc {
 
   /** Parent query context. */
   private QueryContext parentCtx;
+  /** Indicates if this is a copy of a query context (see {@link #fork()}). */
+  private boolean forked;
+  /** Parallel evaluations whose results have not been completely requested. */
+  private final ArrayList<Parallel.Results> parallel = new ArrayList<Parallel.Results>(0);
   /** Query info. */
   public final QueryInfo info;
   /** Indicates if the query context has been closed. */
@@ -166,10 +171,44 @@ public final class QueryContext extends Proc {
   public QueryContext(final Context ctx) {
     context = ctx;
     nodes = ctx.current();
+    resource = new QueryResources(this);
     modules = new ModuleLoader(ctx);
     info = new QueryInfo(this);
   }
 
+  /**
+   * Constructor for a copy of a query context (see {@link #fork()}).
+   * @param ctx database context
+   * @param qc query context to be copied
+   */
+  private QueryContext(final Context ctx, final QueryContext qc) {
+    context = ctx;
+    nodes = qc.nodes;
+    resource = qc.resource;
+    modules = qc.modules;
+    info = qc.info;
+    listen = qc.listen;
+    parentCtx = qc.parentCtx;
+    forked = true;
+
+    stack.copy(qc.stack);
+    value = qc.value;
+    pos = qc.pos;
+    size = qc.size;
+    http = qc.http;
+    stop = qc.stop;
+    thes = qc.thes;
+    collations = qc.collations;
+    ftToken = qc.ftToken;
+    ftOpt = qc.ftOpt;
+    date = qc.date;
+    dtm = qc.dtm;
+    time = qc.time;
+    zone = qc.zone;
+    serialOpts = qc.serialOpts;
+    maxCalls = qc.maxCalls;
+  }
+
   /**
    * Parses the specified query.
    * @param qu input query
@@ -356,6 +395,19 @@ public final class QueryContext extends Proc {
     return e.iter(this);
   }
 
+  /**
+   * Evaluates the specified expression and returns an iterator, assuming that no more
+   * than the specified number of items will be requested.
+   * @param e expression to be evaluated
+   * @param limit maximum number of requested items
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  public Iter iter(final Expr e, final long limit) throws QueryException {
+    checkStop();
+    return e instanceof GFLWOR ? ((GFLWOR) e).iter(this, limit) : e.iter(this);
+  }
+
   /**
    * Evaluates the specified expression and returns an iterator.
    * @param expr expression to be evaluated
@@ -367,6 +419,27 @@ public final class QueryContext extends Proc {
     return expr.value(this);
   }
 
+  /**
+   * Creates a copy of this context, which can be used to evaluate a part of the query
+   * in another thread. The copy shares the resources of this context and starts with
+   * the current variable bindings and context value. It must not be closed.
+   * @return copy of the query context
+   * @throws QueryException query exception
+   */
+  public QueryContext fork() throws QueryException {
+    // the current date and time must be identical in all threads
+    initDateTime();
+    return new QueryContext(context, this);
+  }
+
+  /**
+   * Indicates if this context has been created by {@link #fork()}.
+   * @return result of check
+   */
+  public boolean forked() {
+    return forked;
+  }
+
   /**
    * Returns the current data reference of the context value, or {@code null}.
    * @return data reference
@@ -425,6 +498,42 @@ public final class QueryContext extends Proc {
     bind(name, cast(val, type));
   }
 
+  /**
+   * Binds the external variables that are specified via {@link MainOptions#BINDINGS}.
+   * @throws QueryException query exception
+   */
+  public void bindings() throws QueryException {
+    final String bind = context.options.get(MainOptions.BINDINGS).trim();
+    final StringBuilder key = new StringBuilder();
+    final StringBuilder val = new StringBuilder();
+    boolean first = true;
+    final int sl = bind.length();
+    for(int s = 0; s < sl; s++) {
+      final char ch = bind.charAt(s);
+      if(first) {
+        if(ch == '=') {
+          first = false;
+        } else {
+          key.append(ch);
+        }
+      } else {
+        if(ch == ',') {
+          if(s + 1 == sl || bind.charAt(s + 1) != ',') {
+            bind(key, val);
+            key.setLength(0);
+            val.setLength(0);
+            first = true;
+            continue;
+          }
+          // commas are escaped by a second comma
+          s++;
+        }
+        val.append(ch);
+      }
+    }
+    bind(key, val);
+  }
+
   /**
    * Adds some compilation info.
    * @param string evaluation info
@@ -502,6 +611,46 @@ public final class QueryContext extends Proc {
     updating = up;
   }
 
+  /**
+   * Prepares a compiled query for another evaluation.
+   * @param ctx database context
+   */
+  void reset(final Context ctx) {
+    context = ctx;
+    date = null;
+    dtm = null;
+    time = null;
+    zone = null;
+    pos = 1;
+    size = 1;
+    tailCalls = 0;
+    if(ftPosData != null) ftPosData = new FTPosData();
+  }
+
+  /**
+   * Registers or unregisters a parallel evaluation whose results have not been
+   * completely requested yet.
+   * @param results results of the parallel evaluation
+   * @param add add or remove entry
+   */
+  public synchronized void parallel(final Parallel.Results results, final boolean add) {
+    if(add) parallel.add(results);
+    else parallel.remove(results);
+  }
+
+  /**
+   * Cancels the remaining tasks of all parallel evaluations. Called when the query is
+   * closed, as the consumer of a parallel evaluation may have stopped early.
+   */
+  public void cancel() {
+    final Parallel.Results[] results;
+    synchronized(this) {
+      results = parallel.toArray(new Parallel.Results[parallel.size()]);
+      parallel.clear();
+    }
+    for(final Parallel.Results r : results) r.cancel();
+  }
+
   /**
    * Closes the query context.
    */
@@ -509,6 +658,7 @@ public final class QueryContext extends Proc {
     // close only once
     if(closed) return;
     closed = true;
+    cancel();
 
     // reassign original database options
     for(final Entry<Option<?>, Object> e : staticOpts.entrySet())
@@ -631,6 +781,17 @@ public final class QueryContext extends Proc {
     bindings.put(new QNm(ln, uri), e);
   }
 
+  /**
+   * Binds the specified variable.
+   * @param key key
+   * @param val value
+   * @throws QueryException query exception
+   */
+  private void bind(final StringBuilder key, final StringBuilder val) throws QueryException {
+    final String k = key.toString().trim();
+    if(!k.isEmpty()) bind(k, new Atm(val.toString()), null);
+  }
+
   /**
    * Casts a value to the specified type.
    * See {@link #bind(String, Object, String)} for more infos.
@@ -22,7 +22,7 @@ import org.basex.util.list.*;
  */
 public final class QueryInfo {
   /** Verbose info. */
-  private final boolean verbose;
+  final boolean verbose;
 
   /** Read locked databases. */
   public StringList readLocked;
@@ -74,7 +74,7 @@ public final class QueryInfo {
    * Adds some evaluation info.
    * @param string evaluation info
    */
-  public void evalInfo(final String string) {
+  public synchronized void evalInfo(final String string) {
     if(verbose) evaluate.add(token(string.replaceAll("\r?\n\\s*", " ")));
   }
 
@@ -132,47 +132,7 @@ public class QueryParser extends InputParser {
     if(!bi.isEmpty()) sc.baseURI(bi);
 
     // parse pre-defined external variables
-    final String bind = opts.get(MainOptions.BINDINGS).trim();
-    final StringBuilder key = new StringBuilder();
-    final StringBuilder val = new StringBuilder();
-    boolean first = true;
-    final int sl = bind.length();
-    for(int s = 0; s < sl; s++) {
-      final char ch = bind.charAt(s);
-      if(first) {
-        if(ch == '=') {
-          first = false;
-        } else {
-          key.append(ch);
-        }
-      } else {
-        if(ch == ',') {
-          if(s + 1 == sl || bind.charAt(s + 1) != ',') {
-            bind(key, val);
-            key.setLength(0);
-            val.setLength(0);
-            first = true;
-            continue;
-          }
-          // commas are escaped by a second comma
-          s++;
-        }
-        val.append(ch);
-      }
-    }
-    bind(key, val);
-  }
-
-  /**
-   * Binds the specified variable.
-   * If a URI is specified, the query is treated as a module.
-   * @param key key
-   * @param val value
-   * @throws QueryException query exception
-   */
-  private void bind(final StringBuilder key, final StringBuilder val) throws QueryException {
-    final String k = key.toString().trim();
-    if(!k.isEmpty()) ctx.bind(k, new Atm(val.toString()), null);
+    ctx.bindings();
   }
 
   /**
@@ -0,0 +1,206 @@
+package org.basex.query;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.query.expr.*;
+import org.basex.query.func.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.options.*;
+
+/**
+ * This class contains a compiled query, which can be reused by subsequent evaluations
+ * of the same query.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class QueryPlan {
+  /** Modules with functions that only depend on their arguments and on databases. */
+  private static final HashSet<Class<?>> MODULES = new HashSet<Class<?>>(Arrays.asList(
+    FNAcc.class, FNAggr.class, FNContext.class, FNConvert.class, FNDate.class,
+    FNFormat.class, FNFt.class, FNFunc.class, FNHash.class, FNHof.class, FNId.class,
+    FNIndex.class, FNInfo.class, FNJson.class, FNMap.class, FNMath.class, FNNode.class,
+    FNNum.class, FNPat.class, FNQName.class, FNSeq.class, FNSimple.class, FNStr.class));
+  /** Further functions that only depend on their arguments and on databases. */
+  private static final EnumSet<Function> INCLUDE = EnumSet.of(
+    Function.DATA, Function.DOC, Function.COLLECTION, Function.PARSE_XML,
+    Function.PARSE_XML_FRAGMENT, Function.SERIALIZE, Function._DB_OPEN,
+    Function._DB_OPEN_PRE, Function._DB_OPEN_ID, Function._DB_TEXT, Function._DB_TEXT_RANGE,
+    Function._DB_ATTRIBUTE, Function._DB_ATTRIBUTE_RANGE, Function._DB_NODE_ID,
+    Function._DB_NODE_PRE, Function._DB_NAME, Function._DB_PATH);
+  /** Functions of the listed modules that may be pre-evaluated to outdated results. */
+  private static final EnumSet<Function> EXCLUDE = EnumSet.of(
+    Function.CURRENT_DATE, Function.CURRENT_DATETIME, Function.CURRENT_TIME,
+    Function.IMPLICIT_TIMEZONE, Function.ENVIRONMENT_VARIABLE,
+    Function.AVAILABLE_ENVIRONMENT_VARIABLES, Function.FUNCTION_LOOKUP);
+  /** Options that affect the compilation of queries. */
+  private static final Option<?>[] OPTIONS = {
+    MainOptions.XQUERY3, MainOptions.QUERYPATH, MainOptions.INLINELIMIT,
+    MainOptions.TAILCALLS, MainOptions.DEFAULTDB, MainOptions.CHECKSTRINGS,
+    MainOptions.LSERROR, MainOptions.QUERYTHREADS, MainOptions.CHOP, MainOptions.INTPARSE,
+    MainOptions.STRIPNS, MainOptions.DTD, MainOptions.CATFILE
+  };
+
+  /** Cache key. */
+  final String key;
+  /** Compiled query context. */
+  final QueryContext ctx;
+  /** Databases opened at compile time. */
+  private final Data[] data;
+  /** Database versions at compile time. */
+  private final int[] versions;
+
+  /**
+   * Constructor.
+   * @param k cache key
+   * @param qc compiled query context
+   * @param dt databases opened at compile time
+   */
+  private QueryPlan(final String k, final QueryContext qc, final Data[] dt) {
+    key = k;
+    ctx = qc;
+    data = dt;
+    final int dl = dt.length;
+    versions = new int[dl];
+    for(int d = 0; d < dl; d++) versions[d] = dt[d].meta.version;
+  }
+
+  /**
+   * Returns a query plan for a compiled query, or {@code null} if the query
+   * cannot be cached.
+   * @param key cache key
+   * @param qc compiled query context
+   * @return query plan or {@code null}
+   */
+  static QueryPlan get(final String key, final QueryContext qc) {
+    final Data[] dt = qc.resource.datas();
+    return memory(dt) || qc.resource.snapshots() ? null : new QueryPlan(key, qc, dt);
+  }
+
+  /**
+   * Returns the cache key for a query that has not been parsed yet,
+   * or {@code null} if the query cannot be cached.
+   * @param query query string
+   * @param qc query context
+   * @param sc static context
+   * @return key or {@code null}
+   * @throws QueryException query exception
+   */
+  static String key(final String query, final QueryContext qc, final StaticContext sc)
+      throws QueryException {
+    if(qc.http != null || qc.ctxItem != null || !qc.modDeclared.isEmpty() ||
+       qc.info.verbose) return null;
+    final Nodes nodes = qc.nodes;
+    if(nodes != null && !nodes.root) return null;
+
+    // variable bindings are represented by their names and types; values of the
+    // BINDINGS option are assigned here, as they will not be parsed if a plan is reused
+    qc.bindings();
+    final TreeMap<String, String> types = new TreeMap<String, String>();
+    for(final Entry<QNm, Expr> e : qc.bindings.entrySet()) {
+      final Expr ex = e.getValue();
+      if(!(ex instanceof Value)) return null;
+      types.put(Token.string(e.getKey().id()), ex.type().toString());
+    }
+    final StringBuilder sb = new StringBuilder(query).append('\0');
+    sb.append(sc.baseURI()).append('\0').append(qc.context.user.name).append('\0');
+    final MainOptions opts = qc.context.options;
+    for(final Option<?> opt : OPTIONS) sb.append(opts.get(opt)).append('\0');
+    if(nodes != null) sb.append(nodes.data.meta.name);
+    return sb.append('\0').append(types).toString();
+  }
+
+  /**
+   * Checks if a parsed query can be cached. External variables will not be inlined
+   * if the query is cached.
+   * @param qc query context
+   * @return result of check
+   */
+  static boolean cacheable(final QueryContext qc) {
+    if(qc.updating || qc.root == null || !qc.tempOpts.isEmpty() ||
+       !qc.staticOpts.isEmpty() || qc.modules.java()) return false;
+
+    // reject functions that may yield different results if they are evaluated again
+    final ASTVisitor visitor = new ASTVisitor() {
+      @Override
+      public boolean funcCall(final StandardFunc func) {
+        if(!MODULES.contains(func.getClass())) {
+          for(final Function f : INCLUDE) if(func.isFunction(f)) return true;
+          return false;
+        }
+        for(final Function f : EXCLUDE) if(func.isFunction(f)) return false;
+        return true;
+      }
+    };
+    if(!qc.root.visit(visitor)) return false;
+    for(final StaticFunc sf : qc.funcs.funcs()) if(!sf.visit(visitor)) return false;
+    for(final StaticVar sv : qc.vars) if(!sv.visit(visitor)) return false;
+    return qc.bindings.isEmpty() || qc.vars.dynamic();
+  }
+
+  /**
+   * Prepares the compiled query for being evaluated again.
+   * @param qc new query context, containing the database context and variable bindings
+   * @return {@code false} if the query plan is outdated
+   * @throws QueryException query exception
+   */
+  boolean reuse(final QueryContext qc) throws QueryException {
+    // check if databases have been updated
+    final int dl = data.length;
+    for(int d = 0; d < dl; d++) if(data[d].meta.version != versions[d]) return false;
+    // check if initial node set refers to the same database instance
+    final Nodes nodes = qc.nodes;
+    if(nodes == null ? ctx.nodes != null : ctx.nodes == null || ctx.nodes.data != nodes.data)
+      return false;
+
+    ctx.reset(qc.context);
+    return ctx.vars.rebind(ctx, qc.bindings);
+  }
+
+  /**
+   * Checks if the evaluated query can be cached.
+   * @return result of check
+   */
+  boolean reusable() {
+    // reject plans of interrupted or incompletely evaluated queries
+    try {
+      ctx.checkStop();
+    } catch(final ProcException ex) {
+      return false;
+    }
+    // plans with database snapshots are rejected, as the snapshots would not be released
+    return ctx.stack.isEmpty() && !memory(ctx.resource.datas()) && !ctx.resource.snapshots();
+  }
+
+  /**
+   * Checks if the query has opened the specified database.
+   * @param db name of database
+   * @return result of check
+   */
+  boolean opened(final String db) {
+    for(final Data d : ctx.resource.datas()) {
+      final String n = d.meta.name;
+      if(Prop.CASE ? n.equals(db) : n.equalsIgnoreCase(db)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks if one of the specified databases is a main-memory instance.
+   * Such instances are created for documents and collections that are not stored in
+   * databases, and they may be outdated when the query is evaluated again.
+   * @param dt databases
+   * @return result of check
+   */
+  private static boolean memory(final Data[] dt) {
+    for(final Data d : dt) if(d.inMemory()) return true;
+    return false;
+  }
+}
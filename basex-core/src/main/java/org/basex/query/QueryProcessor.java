@@ -29,14 +29,26 @@ public final class QueryProcessor extends Proc {
 
   /** Static context. */
   public final StaticContext sc;
-  /** Expression context. */
-  public final QueryContext ctx;
+  /** Expression context (replaced if a cached query plan is reused). */
+  public QueryContext ctx;
   /** Query. */
   private final String query;
   /** Parsed flag. */
   private boolean parsed;
   /** Compilation flag. */
   private boolean compiled;
+  /** Closed flag. */
+  private boolean closed;
+  /** Indicates if namespaces have been declared. */
+  private boolean namespaces;
+  /** Cache key ({@code null} if the query plan will not be cached). */
+  private String key;
+  /** Cached query plan. */
+  private QueryPlan plan;
+  /** Initial query context, containing the bindings for a cached query plan. */
+  private QueryContext init;
+  /** Indicates if the query will be evaluated on database snapshots. */
+  private boolean snapshot;
 
   /**
    * Default constructor.
@@ -56,8 +68,21 @@ public final class QueryProcessor extends Proc {
   public void parse() throws QueryException {
     if(parsed) return;
     parsed = true;
-    ctx.parseMain(query, null, sc);
-    updating = ctx.updating;
+
+    // choose cached query plan (will be validated after the databases have been locked)
+    final QueryCache cache = ctx.context.queries;
+    if(cache.enabled() && !namespaces) {
+      key = QueryPlan.key(query, ctx, sc);
+      if(key != null) {
+        plan = cache.get(key);
+        if(plan != null) {
+          init = ctx;
+          ctx = proc(plan.ctx);
+          return;
+        }
+      }
+    }
+    parseMain();
   }
 
   /**
@@ -68,7 +93,36 @@ public final class QueryProcessor extends Proc {
     if(compiled) return;
     compiled = true;
     parse();
+
+    final QueryCache cache = ctx.context.queries;
+    if(plan != null) {
+      // cached plans refer to the original database instances
+      if(!snapshot && plan.reuse(init)) {
+        cache.count(true);
+        return;
+      }
+      // discard outdated plan
+      plan.ctx.close();
+      plan = null;
+      ctx = proc(init);
+      parseMain();
+    }
+    ctx.resource.snapshot = snapshot;
     ctx.compile();
+    if(key != null) {
+      cache.count(false);
+      plan = QueryPlan.get(key, ctx);
+    }
+  }
+
+  /**
+   * Parses the main module.
+   * @throws QueryException query exception
+   */
+  private void parseMain() throws QueryException {
+    ctx.parseMain(query, null, sc);
+    updating = ctx.updating;
+    if(key != null && !QueryPlan.cacheable(ctx)) key = null;
   }
 
   /**
@@ -184,6 +238,7 @@ public final class QueryProcessor extends Proc {
    */
   public QueryProcessor namespace(final String prefix, final String uri) throws QueryException {
     sc.namespace(prefix, uri);
+    namespaces = true;
     return this;
   }
 
@@ -240,7 +295,16 @@ public final class QueryProcessor extends Proc {
    * Closes the processor.
    */
   public void close() {
-    ctx.close();
+    // close only once, as the query context may have been passed on to the cache
+    if(closed) return;
+    closed = true;
+    // cancel parallel evaluations that have not been completed
+    ctx.cancel();
+    if(plan != null && plan.ctx == ctx && plan.reusable()) {
+      ctx.context.queries.add(plan);
+    } else {
+      ctx.close();
+    }
   }
 
   @Override
@@ -248,6 +312,14 @@ public final class QueryProcessor extends Proc {
     ctx.databases(lr);
   }
 
+  /**
+   * Evaluates the query on snapshots of the accessed databases.
+   * Must only be called for queries that perform no updates.
+   */
+  public void snapshot() {
+    snapshot = true;
+  }
+
   /**
    * Returns the number of performed updates after query execution, or {@code 0}.
    * @return number of updates
@@ -256,6 +328,19 @@ public final class QueryProcessor extends Proc {
     return updating ? ctx.updates.size() : 0;
   }
 
+  /**
+   * Returns the versions of all databases that have been opened by the query.
+   * The versions change whenever a database is updated.
+   * @return versions
+   */
+  public int[] versions() {
+    final Data[] dt = ctx.resource.datas();
+    final int dl = dt.length;
+    final int[] versions = new int[dl];
+    for(int d = 0; d < dl; d++) versions[d] = dt[d].meta.version;
+    return versions;
+  }
+
   /**
    * Returns query information.
    * @return query information
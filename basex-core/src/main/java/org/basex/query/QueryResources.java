@@ -27,6 +27,8 @@ public final class QueryResources {
   public final HashMap<String, String[]> resources = new HashMap<String, String[]>();
   /** Allow opening new databases. */
   public boolean openDB = true;
+  /** Access databases via snapshots (assigned if databases are not locked). */
+  boolean snapshot;
 
   /** Database context. */
   private final QueryContext ctx;
@@ -34,6 +36,8 @@ public final class QueryResources {
   private Data[] data = new Data[1];
   /** Number of databases. */
   private int datas;
+  /** Indicates if database snapshots have been opened. */
+  private boolean snapshots;
 
   /** Collections: single nodes and sequences. */
   private Value[] coll = new Value[1];
@@ -56,8 +60,16 @@ public final class QueryResources {
    * @throws QueryException query exception
    */
   void compile(final Nodes nodes) throws QueryException {
-    final Data d = nodes.data;
-    if(!ctx.context.perm(Perm.READ, d.meta)) throw BASX_PERM.get(null, Perm.READ);
+    if(!ctx.context.perm(Perm.READ, nodes.data.meta)) throw BASX_PERM.get(null, Perm.READ);
+    synchronized(ctx.context.dbs) { ctx.context.dbs.pin(nodes.data); }
+
+    // replace initial node set with the nodes of a database snapshot
+    final Data d = snapshot(nodes.data);
+    if(d != nodes.data) {
+      final Nodes n = new Nodes(nodes.pres, d, nodes.ftpos);
+      n.root = nodes.root;
+      ctx.nodes = n;
+    }
 
     // assign initial context value
     final boolean root = nodes.root;
@@ -68,17 +80,32 @@ public final class QueryResources {
     addCollection(root ? ctx.value : DBNodeSeq.get(d.resources.docs(), d, true, true), d.meta.name);
 
     addData(d);
-    synchronized(ctx.context.dbs) { ctx.context.dbs.pin(d); }
   }
 
   /**
    * Closes all opened data references that have not been added by the global context.
    */
   void close() {
-    for(int d = 0; d < datas; d++) Close.close(data[d], ctx.context);
+    for(int d = 0; d < datas; d++) Close.close(data[d].release(), ctx.context);
     datas = 0;
   }
 
+  /**
+   * Indicates if database snapshots have been opened.
+   * @return result of check
+   */
+  boolean snapshots() {
+    return snapshots;
+  }
+
+  /**
+   * Returns all opened databases.
+   * @return databases
+   */
+  Data[] datas() {
+    return Arrays.copyOf(data, datas);
+  }
+
   /**
    * Opens a new database or returns a reference to an already opened database.
    * @param name name of database
@@ -86,7 +113,8 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data database(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data database(final String name, final InputInfo info)
+      throws QueryException {
     // check if a database with the same name has already been opened
     for(int d = 0; d < datas; ++d) {
       final String n = data[d].meta.name;
@@ -96,7 +124,7 @@ public final class QueryResources {
 
     try {
       // open and add new data reference
-      final Data d = Open.open(name, ctx.context);
+      final Data d = snapshot(Open.open(name, ctx.context));
       addData(d);
       return d;
     } catch(final IOException ex) {
@@ -113,7 +141,7 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
+  public synchronized DBNode doc(final QueryInput qi, final IO baseIO, final InputInfo info)
       throws QueryException {
 
     // favor default database
@@ -148,7 +176,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final InputInfo info) throws QueryException {
+  public synchronized Value collection(final InputInfo info) throws QueryException {
     if(colls == 0) throw NODEFCOLL.get(info);
     return coll[0];
   }
@@ -162,8 +190,8 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final QueryInput qi, final IO baseIO, final InputInfo info)
-      throws QueryException {
+  public synchronized Value collection(final QueryInput qi, final IO baseIO,
+      final InputInfo info) throws QueryException {
 
     // favor default database
     if(ctx.context.options.get(MainOptions.DEFAULTDB) && ctx.nodes != null) {
@@ -259,7 +287,7 @@ public final class QueryResources {
     if(openDB && input.db != null) {
       try {
         // try to open database
-        final Data d = Open.open(input.db, ctx.context);
+        final Data d = snapshot(Open.open(input.db, ctx.context));
         addData(d);
         return d;
       } catch(final IOException ex) {
@@ -338,11 +366,23 @@ public final class QueryResources {
     throw (docs.isEmpty() ? BXDB_NODOC : BXDB_SINGLE).get(info, qi.original);
   }
 
+  /**
+   * Returns a snapshot of the specified database if databases are accessed via snapshots.
+   * @param d data reference
+   * @return snapshot or data reference
+   */
+  private Data snapshot(final Data d) {
+    if(!snapshot) return d;
+    final Data s = d.snapshot();
+    snapshots |= s != d;
+    return s;
+  }
+
   /**
    * Adds a data reference.
    * @param d data reference to be added
    */
-  public void addData(final Data d) {
+  public synchronized void addData(final Data d) {
     if(datas == data.length) data = Array.copy(data, new Data[Array.newSize(datas)]);
     data[datas++] = d;
   }
@@ -351,10 +391,10 @@ public final class QueryResources {
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
    */
-  public void removeData(final String name) {
+  public synchronized void removeData(final String name) {
     for(int d = ctx.nodes != null ? 1 : 0; d < datas; d++) {
       if(data[d].meta.name.equals(name)) {
-        Close.close(data[d], ctx.context);
+        Close.close(data[d].release(), ctx.context);
         Array.move(data, d + 1, -1, --datas - d);
         data[datas] = null;
         break;
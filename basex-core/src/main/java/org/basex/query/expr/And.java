@@ -43,6 +43,7 @@ public final class And extends Logical {
     Pos ps = null;
     CmpR cr = null;
     CmpSR cs = null;
+    CmpDR cd = null;
     for(final Expr e : expr) {
       Expr tmp = null;
       if(e instanceof Pos) {
@@ -60,6 +61,11 @@ public final class And extends Logical {
         tmp = cs == null ? e : cs.intersect((CmpSR) e);
         if(tmp instanceof CmpSR) cs = (CmpSR) tmp;
         else if(tmp != null) return tmp;
+      } else if(e instanceof CmpDR) {
+        // merge comparisons
+        tmp = cd == null ? e : cd.intersect((CmpDR) e);
+        if(tmp instanceof CmpDR) cd = (CmpDR) tmp;
+        else if(tmp != null) return tmp;
       }
       // no optimization found; add original expression
       if(tmp == null && e != Bln.TRUE) {
@@ -70,6 +76,7 @@ public final class And extends Logical {
     if(ps != null) el.add(ps);
     if(cr != null) el.add(cr);
     if(cs != null) el.add(cs);
+    if(cd != null) el.add(cd);
 
     // all arguments were true()
     if(el.size() == 0) return optPre(Bln.TRUE, ctx);
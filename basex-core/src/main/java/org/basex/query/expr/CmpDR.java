@@ -0,0 +1,202 @@
+package org.basex.query.expr;
+
+import static org.basex.query.QueryText.*;
+import static org.basex.query.util.Err.*;
+
+import org.basex.index.*;
+import org.basex.index.query.*;
+import org.basex.index.query.NumericRange.Keys;
+import org.basex.index.stats.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+
+/**
+ * Date range expression.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class CmpDR extends Single {
+  /** Minimum ({@code null}: no minimum). */
+  private final ADate min;
+  /** Include minimum value. */
+  private final boolean mni;
+  /** Maximum ({@code null}: no maximum). */
+  private final ADate max;
+  /** Include maximum value. */
+  private final boolean mxi;
+  /** Type of the dates. */
+  private final Type dtype;
+  /** Index container. */
+  private NumericRange rt;
+  /** Flag for atomic evaluation. */
+  private final boolean atomic;
+
+  /**
+   * Constructor.
+   * @param e (compiled) expression
+   * @param mn minimum value
+   * @param in include minimum value
+   * @param mx maximum value
+   * @param ix include maximum value
+   * @param ii input info
+   */
+  private CmpDR(final Expr e, final ADate mn, final boolean in, final ADate mx, final boolean ix,
+      final InputInfo ii) {
+
+    super(ii, e);
+    min = mn;
+    mni = in;
+    max = mx;
+    mxi = ix;
+    dtype = (mn != null ? mn : mx).type;
+    type = SeqType.BLN;
+    atomic = e.type().zeroOrOne();
+  }
+
+  /**
+   * Tries to convert the specified expression into a date range expression.
+   * @param ex expression to be converted
+   * @return new or original expression
+   */
+  static Expr get(final CmpG ex) {
+    final Expr e2 = ex.expr[1];
+    if(!(e2 instanceof ADate)) return ex;
+    final ADate d = (ADate) e2;
+    if(d.type != AtomType.DAT && d.type != AtomType.DTM) return ex;
+    final Expr e = ex.expr[0];
+    switch(ex.op.op) {
+      case GE: return new CmpDR(e, d, true, null, true, ex.info);
+      case GT: return new CmpDR(e, d, false, null, true, ex.info);
+      case LE: return new CmpDR(e, null, true, d, true, ex.info);
+      case LT: return new CmpDR(e, null, true, d, false, ex.info);
+      default: return ex;
+    }
+  }
+
+  @Override
+  public Bln item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+    // atomic evaluation of arguments (faster)
+    if(atomic) {
+      final Item it = expr.item(ctx, info);
+      return Bln.get(it != null && eval(it));
+    }
+
+    // iterative evaluation
+    final Iter ir = ctx.iter(expr);
+    for(Item it; (it = ir.next()) != null;) {
+      if(eval(it)) return Bln.TRUE;
+    }
+    return Bln.FALSE;
+  }
+
+  /**
+   * Evaluates the range for the specified item.
+   * @param it item to be evaluated
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean eval(final Item it) throws QueryException {
+    if(it.type != dtype && !it.type.isUntyped()) throw INVTYPECMP.get(info, it.type, dtype);
+    final int mn = min == null ? -1 : min.diff(it, null, info);
+    final int mx = max == null ?  1 : max.diff(it, null, info);
+    return (mni ? mn <= 0 : mn < 0) && (mxi ? mx >= 0 : mx > 0);
+  }
+
+  /**
+   * Creates an intersection of the existing and the specified expressions.
+   * @param c range comparison
+   * @return resulting expression or {@code null}
+   * @throws QueryException query exception
+   */
+  Expr intersect(final CmpDR c) throws QueryException {
+    // skip intersection if expressions to be compared are different
+    if(dtype != c.dtype || !c.expr.sameAs(expr)) return null;
+
+    // find common minimum and maximum value
+    ADate mn = min;
+    boolean in = mni;
+    if(mn == null || c.min != null && lower(mn, in, c.min, c.mni)) {
+      mn = c.min;
+      in = c.mni;
+    }
+    ADate mx = max;
+    boolean ix = mxi;
+    if(mx == null || c.max != null && lower(c.max, !c.mxi, mx, !ix)) {
+      mx = c.max;
+      ix = c.mxi;
+    }
+
+    // remove comparisons that will never yield results
+    if(mn != null && mx != null) {
+      final int d = mn.diff(mx, null, info);
+      if(d > 0 || d == 0 && !(in && ix)) return Bln.FALSE;
+    }
+    return new CmpDR(expr, mn, in, mx, ix, info);
+  }
+
+  /**
+   * Checks if the first bound is lower than the second one.
+   * @param d1 first date
+   * @param i1 first date is included
+   * @param d2 second date
+   * @param i2 second date is included
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  private boolean lower(final ADate d1, final boolean i1, final ADate d2, final boolean i2)
+      throws QueryException {
+    final int d = d1.diff(d2, null, info);
+    return d < 0 || d == 0 && i1 && !i2;
+  }
+
+  @Override
+  public boolean indexAccessible(final IndexCosts ic) {
+    final IndexType it = CmpR.indexType(ic, expr);
+    if(it == null) return false;
+
+    // only use index if all values of the addressed nodes are dates of the same type
+    final boolean dtm = dtype == AtomType.DTM;
+    final Stats key = CmpR.stats(ic, it == IndexType.TEXT, expr);
+    if(key == null || !(dtm ? key.dateTime : key.date)) return false;
+
+    rt = new NumericRange(it, dtm ? Keys.DATETIME : Keys.DATE,
+        min == null ? Double.NEGATIVE_INFINITY : min.epoch(), mni,
+        max == null ? Double.POSITIVE_INFINITY : max.epoch(), mxi);
+    ic.costs(ic.ictx.data.costs(rt));
+    return true;
+  }
+
+  @Override
+  public Expr indexEquivalent(final IndexCosts ic) {
+    final boolean text = rt.type() == IndexType.TEXT;
+    ic.ctx.compInfo(OPTRNGINDEX);
+    return ic.invert(expr, new RangeAccess(info, rt, ic.ictx), text);
+  }
+
+  @Override
+  public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
+    return new CmpDR(expr.copy(ctx, scp, vs), min, mni, max, mxi, info);
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    addPlan(plan, planElem(MIN, min, MAX, max), expr);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    if(min != null) sb.append(min).append(mni ? " <= " : " < ");
+    sb.append(expr);
+    if(max != null) sb.append(mxi ? " <= " : " < ").append(max);
+    return sb.toString();
+  }
+}
@@ -188,6 +188,7 @@ public final class CmpG extends Cmp {
       // rewrite path CMP number
       e = CmpR.get(this);
       if(e == this) e = CmpSR.get(this);
+      if(e == this) e = CmpDR.get(this);
       if(e != this) ctx.compInfo(OPTWRITE, this);
     }
     if(e != this) return e;
@@ -321,7 +322,7 @@ public final class CmpG extends Cmp {
     final Data data = ic.ictx.data;
     final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
     final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
-    if(!text && !attr) return false;
+    if(!text && !attr || !ic.covers(expr[0], text)) return false;
 
     // support expressions
     final IndexType ind = text ? IndexType.TEXT : IndexType.ATTRIBUTE;
@@ -123,29 +123,20 @@ public final class CmpR extends Single {
 
   @Override
   public boolean indexAccessible(final IndexCosts ic) {
-    // accept only location path, string and equality expressions
-    final Step s = CmpG.indexStep(expr);
-    // sequential main memory is assumed to be faster than range index access
     final Data data = ic.ictx.data;
-    if(s == null || data.inMemory()) return false;
-
-    // check which index applies
-    final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
-    final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
-    if(!text && !attr || !mni || !mxi) return false;
-
-    final Stats key = key(ic, text);
-    if(key == null) return false;
-
-    // estimate costs for range access; all values out of range: no results
-    rt = new NumericRange(text ? IndexType.TEXT : IndexType.ATTRIBUTE,
-        Math.max(min, key.min), Math.min(max, key.max));
-    ic.costs(rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
-      Math.max(1, data.meta.size / 5));
-
-    // use index if costs are zero, or if min/max is not infinite
-    return ic.costs() == 0 || min != Double.NEGATIVE_INFINITY &&
-        max != Double.POSITIVE_INFINITY;
+    final IndexType it = indexType(ic, expr);
+    if(it == null) return false;
+
+    final Stats key = stats(ic, it == IndexType.TEXT, expr);
+    if(key == null || key.type != StatsType.INTEGER && key.type != StatsType.DOUBLE)
+      return false;
+
+    // all values out of range: no results
+    final double mn = Math.max(min, key.min), mx = Math.min(max, key.max);
+    final boolean in = mni || mn > min, ix = mxi || mx < max;
+    rt = new NumericRange(it, NumericRange.Keys.NUMBER, mn, in, mx, ix);
+    ic.costs(mn > mx || mn == mx && !(in && ix) ? 0 : data.costs(rt));
+    return true;
   }
 
   @Override
@@ -156,12 +147,35 @@ public final class CmpR extends Single {
   }
 
   /**
-   * Retrieves the statistics key for the tag/attribute name.
+   * Returns the type of the index that can be used for a range query on the specified
+   * expression.
+   * @param ic index context
+   * @param expr expression to be compared
+   * @return index type, or {@code null} if no index can be used
+   */
+  static IndexType indexType(final IndexCosts ic, final Expr expr) {
+    // accept only location path, string and equality expressions
+    final Step s = CmpG.indexStep(expr);
+    // sequential main memory is assumed to be faster than range index access
+    final Data data = ic.ictx.data;
+    if(s == null || data.inMemory()) return null;
+
+    // check which index applies
+    final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
+    final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
+    if(!text && !attr || !ic.covers(expr, text)) return null;
+    return text ? IndexType.TEXT : IndexType.ATTRIBUTE;
+  }
+
+  /**
+   * Retrieves the statistics of the tag/attribute name that is addressed by the
+   * specified expression.
    * @param ic index context
    * @param text text flag
-   * @return key
+   * @param expr expression to be compared
+   * @return statistics, or {@code null} if no up-to-date statistics are available
    */
-  private Stats key(final IndexCosts ic, final boolean text) {
+  static Stats stats(final IndexCosts ic, final boolean text, final Expr expr) {
     // statistics are not up-to-date
     final Data data = ic.ictx.data;
     if(!data.meta.uptodate || data.nspaces.size() != 0) return null;
@@ -179,9 +193,7 @@ public final class CmpR extends Single {
     }
 
     final Names names = text ? data.tagindex : data.atnindex;
-    final Stats key = names.stat(names.id(((NameTest) step.test).ln));
-    return key == null || key.type == StatsType.INTEGER ||
-        key.type == StatsType.DOUBLE ? key : null;
+    return names.stat(names.id(((NameTest) step.test).ln));
   }
 
   @Override
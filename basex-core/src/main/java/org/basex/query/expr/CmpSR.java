@@ -150,7 +150,7 @@ public final class CmpSR extends Single {
     // check which index applies
     final boolean text = s.test.type == NodeType.TXT && data.meta.textindex;
     final boolean attr = s.test.type == NodeType.ATT && data.meta.attrindex;
-    if(!text && !attr || min == null || max == null) return false;
+    if(!text && !attr || min == null || max == null || !ic.covers(expr, text)) return false;
 
     // create range access
     rt = new StringRange(text ? IndexType.TEXT : IndexType.ATTRIBUTE, min, mni, max, mxi);
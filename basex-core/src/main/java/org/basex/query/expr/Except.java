@@ -5,7 +5,6 @@ import static org.basex.query.QueryText.*;
 import org.basex.query.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
-import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
@@ -58,17 +57,12 @@ public final class Except extends Set {
 
   @Override
   protected NodeSeqBuilder eval(final Iter[] iter) throws QueryException {
-    final NodeSeqBuilder nc = new NodeSeqBuilder().check();
-
-    for(Item it; (it = iter[0].next()) != null;) nc.add(checkNode(it));
-    final boolean db = nc.dbnodes();
-
+    NodeSeqBuilder nc = new NodeSeqBuilder().check();
+    add(nc, iter[0]);
     for(int e = 1; e != expr.length && nc.size() != 0; ++e) {
-      final Iter ir = iter[e];
-      for(Item it; (it = ir.next()) != null;) {
-        final int i = nc.indexOf(checkNode(it), db);
-        if(i != -1) nc.delete(i);
-      }
+      final NodeSeqBuilder nt = new NodeSeqBuilder().check();
+      add(nt, iter[e]);
+      nc = nc.except(nt);
     }
     return nc;
   }
@@ -34,6 +34,7 @@ public abstract class Expr extends ExprInfo {
     /** Performs updates. Example: insert expression. */     UPD,
     /** XQuery 3.0 function. Example: has-children(). */     X30,
     /** Invokes user-supplied functions. Example: fold. */   HOF,
+    /** Keeps evaluation state. Example: ft selection. */    STA,
   }
 
   /**
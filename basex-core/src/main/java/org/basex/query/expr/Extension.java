@@ -64,6 +64,12 @@ public final class Extension extends Single {
     }
   }
 
+  @Override
+  public boolean has(final Flag flag) {
+    // pragmas temporarily change global options
+    return flag == Flag.STA || super.has(flag);
+  }
+
   @Override
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
     final Pragma[] prag = pragmas.clone();
@@ -2,7 +2,6 @@ package org.basex.query.expr;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
-import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
@@ -32,20 +31,12 @@ public final class InterSect extends Set {
 
   @Override
   protected NodeSeqBuilder eval(final Iter[] iter) throws QueryException {
-    NodeSeqBuilder nc = new NodeSeqBuilder();
-
-    for(Item it; (it = iter[0].next()) != null;) nc.add(checkNode(it));
-    final boolean db = nc.dbnodes();
-
+    NodeSeqBuilder nc = new NodeSeqBuilder().check();
+    add(nc, iter[0]);
     for(int e = 1; e != expr.length && nc.size() != 0; ++e) {
       final NodeSeqBuilder nt = new NodeSeqBuilder().check();
-      final Iter ir = iter[e];
-      for(Item it; (it = ir.next()) != null;) {
-        final ANode n = checkNode(it);
-        final int i = nc.indexOf(n, db);
-        if(i != -1) nt.add(n);
-      }
-      nc = nt;
+      add(nt, iter[e]);
+      nc = nc.intersect(nt);
     }
     return nc;
   }
@@ -53,7 +53,8 @@ final class IterPosFilter extends Filter {
             pos = (Pos) e;
           }
 
-          iter = ctx.iter(root);
+          // only the first items will be requested from a single positional predicate
+          iter = pos != null && preds.length == 1 ? ctx.iter(root, pos.max) : ctx.iter(root);
           cpos = 1;
 
           if(pos != null || last) {
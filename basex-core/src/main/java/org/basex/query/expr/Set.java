@@ -6,8 +6,10 @@ import java.util.*;
 
 import org.basex.query.*;
 import org.basex.query.iter.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
@@ -58,6 +60,28 @@ abstract class Set extends Arr {
    */
   protected abstract NodeSeqBuilder eval(final Iter[] iter) throws QueryException;
 
+  /**
+   * Adds the nodes of the specified iterator to a node builder.
+   * The pre values of database node sequences are adopted without materializing the nodes.
+   * @param nc node builder
+   * @param ir iterator
+   * @throws QueryException query exception
+   */
+  final void add(final NodeSeqBuilder nc, final Iter ir) throws QueryException {
+    if(ir instanceof NodeSeqBuilder) {
+      nc.add((NodeSeqBuilder) ir);
+      return;
+    }
+    if(ir instanceof ValueIter) {
+      final Value v = ((ValueIter) ir).value();
+      if(v instanceof DBNodeSeq) {
+        nc.add((DBNodeSeq) v);
+        return;
+      }
+    }
+    for(Item it; (it = ir.next()) != null;) nc.add(checkNode(it));
+  }
+
   /**
    * Evaluates the specified iterators in an iterative manner.
    * @param iter iterators
@@ -5,7 +5,6 @@ import static org.basex.query.QueryText.*;
 import org.basex.query.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
-import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
 import org.basex.query.var.*;
@@ -61,9 +60,7 @@ public final class Union extends Set {
   @Override
   protected NodeSeqBuilder eval(final Iter[] iter) throws QueryException {
     final NodeSeqBuilder nc = new NodeSeqBuilder().check();
-    for(final Iter ir : iter) {
-      for(Item it; (it = ir.next()) != null;) nc.add(checkNode(it));
-    }
+    for(final Iter ir : iter) add(nc, ir);
     return nc;
   }
 
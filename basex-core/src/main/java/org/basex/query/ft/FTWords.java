@@ -393,6 +393,8 @@ public final class FTWords extends FTExpr {
 
   @Override
   public boolean has(final Flag flag) {
+    // the matches and tokens of the current evaluation are kept by the expression
+    if(flag == Flag.STA) return true;
     if(occ != null) for(final Expr o : occ) if(o.has(flag)) return true;
     return query.has(flag);
   }
@@ -8,6 +8,7 @@ import org.basex.query.expr.*;
 import org.basex.query.expr.CmpV.OpV;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
@@ -84,6 +85,40 @@ public final class FNAggr extends StandardFunc {
     return this;
   }
 
+  /**
+   * Returns the signature of this function if it can be used for incrementally
+   * aggregating the values of grouped variables.
+   * @return function, or {@code null}
+   */
+  public Function incremental() {
+    return sig == Function.COUNT || sig == Function.SUM ||
+        (sig == Function.MIN || sig == Function.MAX) && expr.length == 1 ? sig : null;
+  }
+
+  /**
+   * Combines a previously aggregated result with new values.
+   * The count function is not supported.
+   * @param agg aggregated result (may be {@code null})
+   * @param val new values
+   * @param ctx query context
+   * @return new result, or {@code null} if no values have been added
+   * @throws QueryException query exception
+   */
+  public Item aggregate(final Item agg, final Value val, final QueryContext ctx)
+      throws QueryException {
+
+    final ValueBuilder vb = new ValueBuilder();
+    if(agg != null) vb.add(agg);
+    vb.add(val);
+    switch(sig) {
+      case MIN: return minmax(vb, OpV.GT, ctx);
+      case MAX: return minmax(vb, OpV.LT, ctx);
+      default:
+        final Item it = vb.next();
+        return it == null ? null : sum(vb, it, false);
+    }
+  }
+
   /**
    * Sums up the specified item(s).
    * @param iter iterator
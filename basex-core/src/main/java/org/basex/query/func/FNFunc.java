@@ -122,6 +122,17 @@ public final class FNFunc extends StandardFunc {
   private Iter forEach(final QueryContext ctx) throws QueryException {
     final FItem f = withArity(1, 1, ctx);
     final Iter xs = expr[0].iter(ctx);
+    final int threads = f instanceof FuncItem ? Parallel.threads(ctx, f) : 1;
+    if(threads > 1) {
+      return new Parallel() {
+        @Override
+        protected void eval(final QueryContext qc, final Item it, final long pos,
+            final ValueBuilder vb) throws QueryException {
+          vb.add(f.invokeValue(qc, info, it));
+        }
+      }.iter(ctx, xs, threads);
+    }
+
     return new Iter() {
       /** Results. */
       Iter ys = Empty.ITER;
@@ -95,49 +95,42 @@ public final class FNSeq extends StandardFunc {
       // the first/last node is thus always included in the output
       final DBNode fst = (DBNode) nc.get(outer ? 0 : len - 1);
       final Data data = fst.data;
-      final ANode[] nodes = nc.nodes.clone();
+      final NodeSeqBuilder out = new NodeSeqBuilder().check();
 
       if(outer) {
         // skip the subtree of the last added node
-        nc.size(0);
-        final DBNode dummy = new DBNode(fst.data);
-        final NodeSeqBuilder src = new NodeSeqBuilder(nodes, len);
+        final DBNode dummy = new DBNode(data);
         for(int next = 0, p; next < len; next = p < 0 ? -p - 1 : p) {
-          final DBNode nd = (DBNode) nodes[next];
-          dummy.pre = nd.pre + data.size(nd.pre, data.kind(nd.pre));
-          p = src.binarySearch(dummy, next + 1, len - next - 1);
-          nc.add(nd);
+          final int pre = nc.pre(next);
+          dummy.pre = pre + data.size(pre, data.kind(pre));
+          p = nc.binarySearch(dummy, next + 1, len - next - 1);
+          out.add(nc.get(next));
         }
       } else {
-        // skip ancestors of the last added node
-        nc.nodes[0] = fst;
-        nc.size(1);
+        // skip ancestors of the last added node; nodes are added in reverse order,
+        // which will be corrected by the builder
+        out.add(fst);
         int before = fst.pre;
         for(int i = len - 1; i-- != 0;) {
-          final DBNode nd = (DBNode) nodes[i];
-          if(nd.pre + data.size(nd.pre, data.kind(nd.pre)) <= before) {
-            nc.add(nd);
-            before = nd.pre;
+          final int pre = nc.pre(i);
+          if(pre + data.size(pre, data.kind(pre)) <= before) {
+            out.add(nc.get(i));
+            before = pre;
           }
         }
-
-        // nodes were added in reverse order, correct that
-        Array.reverse(nc.nodes, 0, (int) nc.size());
       }
-
-      return nc;
+      return out;
     }
 
     // multiple documents and/or constructed fragments
     final NodeSeqBuilder out = new NodeSeqBuilder(new ANode[len], 0);
     OUTER: for(int i = 0; i < len; i++) {
-      final ANode nd = nc.nodes[i];
+      final ANode nd = nc.get(i);
       final AxisIter ax = outer ? nd.ancestor() : nd.descendant();
       for(ANode a; (a = ax.next()) != null;)
         if(nc.indexOf(a, false) != -1) continue OUTER;
-      out.add(nc.nodes[i]);
+      out.add(nd);
     }
-
     return out;
   }
 
@@ -208,7 +201,7 @@ public final class FNSeq extends StandardFunc {
    */
   private Item head(final QueryContext ctx) throws QueryException {
     final Expr e = expr[0];
-    return e.type().zeroOrOne() ? e.item(ctx, info) : e.iter(ctx).next();
+    return e.type().zeroOrOne() ? e.item(ctx, info) : ctx.iter(e, 1).next();
   }
 
   /**
@@ -359,7 +352,7 @@ public final class FNSeq extends StandardFunc {
     final boolean li = l == Long.MAX_VALUE;
     if(si) return li ? expr[0].iter(ctx) : Empty.ITER;
 
-    final Iter iter = ctx.iter(expr[0]);
+    final Iter iter = ctx.iter(expr[0], limit(s, l, li));
 
     // optimization: return subsequence
     if(iter instanceof ValueIter) {
@@ -411,6 +404,19 @@ public final class FNSeq extends StandardFunc {
     };
   }
 
+  /**
+   * Returns the number of items that will be requested from the input of the
+   * {@code subsequence} function.
+   * @param start start position
+   * @param length length
+   * @param inf infinite length
+   * @return maximum number of items
+   */
+  private static long limit(final long start, final long length, final boolean inf) {
+    final long e = start + length;
+    return inf || length > 0 && e < start ? Long.MAX_VALUE : Math.max(0, e - 1);
+  }
+
   /**
    * Evaluates the {@code subsequence} function strictly.
    * @param ctx query context
@@ -433,7 +439,7 @@ public final class FNSeq extends StandardFunc {
     final boolean linf = length == Long.MAX_VALUE;
     if(sinf) return linf ? expr[0].value(ctx) : Empty.SEQ;
 
-    final Iter iter = ctx.iter(expr[0]);
+    final Iter iter = ctx.iter(expr[0], limit(start, length, linf));
 
     // optimization: return subsequence
     if(iter instanceof ValueIter) {
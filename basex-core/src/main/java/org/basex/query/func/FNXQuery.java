@@ -15,6 +15,7 @@ import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
+import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 
@@ -39,22 +40,24 @@ public final class FNXQuery extends StandardFunc {
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
     switch(sig) {
-      case _XQUERY_EVAL:     return eval(ctx, true);
-      case _XQUERY_EVALUATE: return eval(ctx, false);
-      case _XQUERY_INVOKE:   return invoke(ctx);
-      case _XQUERY_TYPE:     return value(ctx).iter();
-      default:               return super.iter(ctx);
+      case _XQUERY_EVAL:      return eval(ctx, true);
+      case _XQUERY_EVALUATE:  return eval(ctx, false);
+      case _XQUERY_INVOKE:    return invoke(ctx);
+      case _XQUERY_TYPE:      return value(ctx).iter();
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx);
+      default:                return super.iter(ctx);
     }
   }
 
   @Override
   public Value value(final QueryContext ctx) throws QueryException {
     switch(sig) {
-      case _XQUERY_EVAL:     return eval(ctx, true).value();
-      case _XQUERY_EVALUATE: return eval(ctx, false).value();
-      case _XQUERY_INVOKE:   return invoke(ctx).value();
-      case _XQUERY_TYPE:     return type(ctx).value(ctx);
-      default:               return super.value(ctx);
+      case _XQUERY_EVAL:      return eval(ctx, true).value();
+      case _XQUERY_EVALUATE:  return eval(ctx, false).value();
+      case _XQUERY_INVOKE:    return invoke(ctx).value();
+      case _XQUERY_TYPE:      return type(ctx).value(ctx);
+      case _XQUERY_FORK_JOIN: return forkJoin(ctx).value();
+      default:                return super.value(ctx);
     }
   }
 
@@ -135,6 +138,47 @@ public final class FNXQuery extends StandardFunc {
     }
   }
 
+  /**
+   * Performs the fork-join function. The function items are evaluated concurrently, and
+   * their results are returned in the order of the functions. The number of threads is
+   * limited by the {@link MainOptions#QUERYTHREADS} option, or by the number of available
+   * processors if the option is not greater than {@code 1}. Nested calls, and calls
+   * within other parallel evaluations, are evaluated sequentially.
+   * @param ctx query context
+   * @return resulting value
+   * @throws QueryException query exception
+   */
+  private ValueBuilder forkJoin(final QueryContext ctx) throws QueryException {
+    final Value funcs = ctx.value(expr[0]);
+    final int fs = (int) funcs.size();
+    final Expr[] exprs = new Expr[fs];
+    int f = 0;
+    for(final Item it : funcs) {
+      if(!(it instanceof FItem) || ((FItem) it).arity() != 0)
+        throw Err.typeError(this, FuncType.arity(0), it);
+      if(((FItem) it).annotations().contains(Ann.Q_UPDATING)) throw BXXQ_UPDATING.get(info);
+      exprs[f++] = it;
+    }
+
+    final ValueBuilder vb = new ValueBuilder();
+    if(fs > 1 && !ctx.forked() && Parallel.prepare(ctx, false, exprs)) {
+      final int t = ctx.context.options.get(MainOptions.QUERYTHREADS);
+      final int threads = Math.min(fs, t > 1 ? t : Runtime.getRuntime().availableProcessors());
+      final Iter iter = new Parallel() {
+        @Override
+        protected void eval(final QueryContext qc, final Item it, final long pos,
+            final ValueBuilder results) throws QueryException {
+          results.add(((FItem) it).invokeValue(qc, info));
+        }
+      }.iter(ctx, funcs.iter(), threads);
+      for(Item it; (it = iter.next()) != null;) vb.add(it);
+    } else {
+      // forked contexts and functions that keep evaluation state are evaluated sequentially
+      for(final Expr e : exprs) vb.add(((FItem) e).invokeValue(ctx, info));
+    }
+    return vb;
+  }
+
   /**
    * Dumps the argument's type and size and returns it unchanged.
    * @param ctx query context
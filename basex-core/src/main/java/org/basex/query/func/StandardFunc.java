@@ -61,6 +61,11 @@ public abstract class StandardFunc extends Arr {
     return optimize(ctx, scp);
   }
 
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return visitor.funcCall(this) && super.accept(visitor);
+  }
+
   @Override
   public final Expr optimize(final QueryContext ctx, final VarScope scp) throws QueryException {
     // skip context-based or non-deterministic functions, and non-values
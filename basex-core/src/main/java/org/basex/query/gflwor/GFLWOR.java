@@ -44,19 +44,33 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public Iter iter(final QueryContext ctx) {
-    // Start evaluator, doing nothing, once.
-    Eval e = new Eval() {
-      /** First-evaluation flag. */
-      private boolean first = true;
-      @Override
-      public boolean next(final QueryContext c) {
-        if(!first) return false;
-        first = false;
-        return true;
-      }
-    };
+    return iter(ctx, Long.MAX_VALUE);
+  }
 
-    for(final Clause cls : clauses) e = cls.eval(e);
+  /**
+   * Returns an iterator, assuming that no more than the specified number of items will
+   * be requested. If the last clause is an order by clause, and if the number of items
+   * per tuple is known, only the relevant tuples will be sorted.
+   * @param ctx query context
+   * @param limit maximum number of requested items
+   * @return iterator
+   */
+  public Iter iter(final QueryContext ctx, final long limit) {
+    if(limit == Long.MAX_VALUE) {
+      final Iter iter = parallel(ctx);
+      if(iter != null) return iter;
+    }
+
+    // number of tuples that need to be returned
+    final long rs = ret.size();
+    final long tuples = limit == Long.MAX_VALUE || rs < 1 ? Long.MAX_VALUE :
+      limit / rs + (limit % rs == 0 ? 0 : 1);
+
+    Eval e = start();
+    final Clause last = clauses.peekLast();
+    for(final Clause cls : clauses) {
+      e = cls == last && cls instanceof OrderBy ? ((OrderBy) cls).eval(e, tuples) : cls.eval(e);
+    }
     final Eval ev = e;
 
     return new Iter() {
@@ -80,6 +94,68 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Returns a start evaluator, doing nothing, once.
+   * @return evaluator
+   */
+  private static Eval start() {
+    return new Eval() {
+      /** First-evaluation flag. */
+      private boolean first = true;
+      @Override
+      public boolean next(final QueryContext c) {
+        if(!first) return false;
+        first = false;
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Returns an iterator that evaluates the iterations of a leading {@code for} clause
+   * in parallel (see {@link Parallel}). Only {@code let} and {@code where} clauses may
+   * follow the {@code for} clause.
+   * @param ctx query context
+   * @return iterator, or {@code null} if the expression is evaluated sequentially
+   */
+  private Iter parallel(final QueryContext ctx) {
+    if(!(clauses.getFirst() instanceof For)) return null;
+    final For fr = (For) clauses.getFirst();
+    if(fr.score != null || fr.empty) return null;
+
+    final ArrayList<Clause> cls = new ArrayList<Clause>(clauses.subList(1, clauses.size()));
+    final ExprList exprs = new ExprList(cls.size() + 1);
+    for(final Clause c : cls) {
+      if(!(c instanceof Let || c instanceof Where)) return null;
+      exprs.add(c);
+    }
+    exprs.add(ret);
+    final int threads = Parallel.threads(ctx, exprs.finish());
+    if(threads < 2) return null;
+
+    return new Iter() {
+      /** Iterator over the results of all iterations. */
+      private Iter iter;
+      @Override
+      public Item next() throws QueryException {
+        if(iter == null) {
+          iter = new Parallel() {
+            @Override
+            protected void eval(final QueryContext qc, final Item it, final long pos,
+                final ValueBuilder vb) throws QueryException {
+              qc.set(fr.var, it, fr.info);
+              if(fr.pos != null) qc.set(fr.pos, Int.get(pos), fr.info);
+              Eval e = start();
+              for(final Clause c : cls) e = c.eval(e);
+              while(e.next(qc)) vb.add(qc.value(ret));
+            }
+          }.iter(ctx, ctx.iter(fr.expr), threads);
+        }
+        return iter.next();
+      }
+    };
+  }
+
   @Override
   public Expr compile(final QueryContext ctx, final VarScope scp) throws QueryException {
     int i = 0;
@@ -212,6 +288,7 @@ public final class GFLWOR extends ParseExpr {
     } while(changed);
 
     mergeWheres();
+    aggregates();
 
     size = calcSize();
     if(size == 0 && !(has(Flag.NDT) || has(Flag.UPD))) {
@@ -633,7 +710,22 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
     final LinkedList<Clause> cls = new LinkedList<Clause>();
     for(final Clause cl : clauses) cls.add(cl.copy(ctx, scp, vs));
-    return copyType(new GFLWOR(info, cls, ret.copy(ctx, scp, vs)));
+    final GFLWOR fl = new GFLWOR(info, cls, ret.copy(ctx, scp, vs));
+    fl.aggregates();
+    return copyType(fl);
+  }
+
+  /**
+   * Checks which grouped values can be aggregated. Must be called after the clauses
+   * have been optimized, as the analysis depends on the following clauses.
+   */
+  private void aggregates() {
+    final int cs = clauses.size();
+    int c = 0;
+    for(final Clause cls : clauses) {
+      if(cls instanceof GroupBy) ((GroupBy) cls).aggregates(clauses.subList(c + 1, cs), ret);
+      c++;
+    }
   }
 
   /**
@@ -3,6 +3,7 @@ package org.basex.query.gflwor;
 import static org.basex.query.QueryText.*;
 
 import java.util.*;
+import java.util.List;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -10,6 +11,7 @@ import org.basex.query.func.*;
 import org.basex.query.gflwor.GFLWOR.Eval;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -34,6 +36,8 @@ public final class GroupBy extends GFLWOR.Clause {
   private Var[] post;
   /** Number of non-occluded grouping variables. */
   private final int nonOcc;
+  /** Aggregate functions of the non-grouping variables ({@code null}: not analyzed). */
+  private FNAggr[] aggrs;
 
   /**
    * Constructor.
@@ -85,6 +89,8 @@ public final class GroupBy extends GFLWOR.Clause {
 
   @Override
   Eval eval(final Eval sub) {
+    // values are cached if the clause has not been analyzed (e.g., if it is not optimized)
+    final FNAggr[] fns = aggrs != null ? aggrs : new FNAggr[post.length];
     return new Eval() {
       /** Groups to iterate over. */
       private Group[] groups;
@@ -107,7 +113,19 @@ public final class GroupBy extends GFLWOR.Clause {
             ctx.set(spec.var, key == null ? Empty.SEQ : key, info);
           }
         }
-        for(int i = 0; i < post.length; i++) ctx.set(post[i], curr.ngv[i].value(), info);
+        for(int i = 0; i < post.length; i++) {
+          final FNAggr fn = fns[i];
+          final Value val;
+          if(fn == null) {
+            val = curr.ngv[i].value();
+          } else if(fn.incremental() == Function.COUNT) {
+            // counted values are represented by a lightweight sequence of the same size
+            val = RangeSeq.get(1, curr.counts[i], true);
+          } else {
+            val = curr.aggrs[i] == null ? Empty.SEQ : curr.aggrs[i];
+          }
+          ctx.set(post[i], val, info);
+        }
         return true;
       }
 
@@ -119,6 +137,8 @@ public final class GroupBy extends GFLWOR.Clause {
       private Group[] init(final QueryContext ctx) throws QueryException {
         final ArrayList<Group> grps = new ArrayList<Group>();
         final IntObjMap<Group> map = new IntObjMap<Group>();
+        boolean aggregated = false;
+        for(final FNAggr fn : fns) aggregated |= fn != null;
         final Collation[] colls = new Collation[nonOcc];
         for(int i = 0, p = 0; i < specs.length; i++)
           if(!specs[i].occluded) colls[p++] = specs[i].coll;
@@ -154,8 +174,10 @@ public final class GroupBy extends GFLWOR.Clause {
           if(grp == null) {
             // new group, add it to the list
             final ValueBuilder[] ngs = new ValueBuilder[preExpr.length];
-            for(int i = 0; i < ngs.length; i++) ngs[i] = new ValueBuilder();
-            grp = new Group(key, ngs);
+            for(int i = 0; i < ngs.length; i++) {
+              if(fns[i] == null) ngs[i] = new ValueBuilder();
+            }
+            grp = new Group(key, ngs, aggregated);
             grps.add(grp);
 
             // insert the group into the hash table
@@ -168,8 +190,18 @@ public final class GroupBy extends GFLWOR.Clause {
             }
           }
 
-          // add values of non-grouping variables to the group
-          for(int j = 0; j < preExpr.length; j++) grp.ngv[j].add(preExpr[j].value(ctx));
+          // add values of non-grouping variables to the group, or aggregate them
+          for(int j = 0; j < preExpr.length; j++) {
+            final Value val = preExpr[j].value(ctx);
+            final FNAggr fn = fns[j];
+            if(fn == null) {
+              grp.ngv[j].add(val);
+            } else if(fn.incremental() == Function.COUNT) {
+              grp.counts[j] += val.size();
+            } else if(val.size() != 0) {
+              grp.aggrs[j] = fn.aggregate(grp.aggrs[j], val, ctx);
+            }
+          }
         }
 
         // we're finished, copy the array so the list can be garbage-collected
@@ -178,6 +210,60 @@ public final class GroupBy extends GFLWOR.Clause {
     };
   }
 
+  /**
+   * Checks which non-grouping variables are only referenced as argument of the same
+   * aggregate function ({@code count}, {@code sum}, {@code min}, {@code max}). The values
+   * of these variables will be aggregated incrementally instead of being cached.
+   * The analysis is performed when the enclosing FLWOR expression is optimized.
+   * @param cls following clauses
+   * @param ret return expression
+   */
+  void aggregates(final List<GFLWOR.Clause> cls, final Expr ret) {
+    final int pl = post.length;
+    final FNAggr[] fns = new FNAggr[pl];
+    final int[] refs = new int[pl], calls = new int[pl];
+    final ASTVisitor visitor = new ASTVisitor() {
+      @Override
+      public boolean used(final VarRef ref) {
+        final int i = index(ref.var);
+        if(i != -1) refs[i]++;
+        return true;
+      }
+      @Override
+      public boolean funcCall(final StandardFunc func) {
+        if(func instanceof FNAggr && func.expr[0] instanceof VarRef) {
+          final FNAggr fn = (FNAggr) func;
+          final int i = index(((VarRef) func.expr[0]).var);
+          final Function f = fn.incremental();
+          if(i != -1 && f != null) {
+            // different functions: values need to be cached
+            if(fns[i] == null || fns[i].incremental() == f) fns[i] = fn;
+            else calls[i] = -1;
+            if(calls[i] != -1) calls[i]++;
+          }
+        }
+        return true;
+      }
+    };
+    for(final GFLWOR.Clause cl : cls) cl.accept(visitor);
+    ret.accept(visitor);
+
+    for(int i = 0; i < pl; i++) {
+      if(refs[i] != calls[i] || post[i].checksType()) fns[i] = null;
+    }
+    aggrs = fns;
+  }
+
+  /**
+   * Returns the index of the specified non-grouping variable.
+   * @param v variable
+   * @return index, or {@code -1}
+   */
+  private int index(final Var v) {
+    for(int i = 0; i < post.length; i++) if(post[i].is(v)) return i;
+    return -1;
+  }
+
   /**
    * Checks two keys for equality.
    * @param as first key
@@ -291,6 +377,7 @@ public final class GroupBy extends GFLWOR.Clause {
         post = Array.delete(post, i--);
       }
     }
+    aggrs = null;
     return preExpr.length < len;
   }
 
@@ -399,6 +486,10 @@ public final class GroupBy extends GFLWOR.Clause {
     final Item[] key;
     /** Non-grouping variables. */
     final ValueBuilder[] ngv;
+    /** Aggregated values of non-grouping variables. */
+    final Item[] aggrs;
+    /** Number of values of counted non-grouping variables. */
+    final long[] counts;
     /** Overflow list. */
     Group next;
 
@@ -406,10 +497,13 @@ public final class GroupBy extends GFLWOR.Clause {
      * Constructor.
      * @param k grouping key
      * @param ng non-grouping variables
+     * @param agg indicates if values are aggregated
      */
-    Group(final Item[] k, final ValueBuilder[] ng) {
+    Group(final Item[] k, final ValueBuilder[] ng, final boolean agg) {
       key = k;
       ngv = ng;
+      aggrs = agg ? new Item[ng.length] : null;
+      counts = agg ? new long[ng.length] : null;
     }
   }
 }
@@ -3,7 +3,6 @@ package org.basex.query.gflwor;
 import static org.basex.query.QueryText.*;
 
 import java.util.*;
-import java.util.List;
 
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -24,6 +23,9 @@ import org.basex.util.hash.*;
  * @author Leo Woerteler
  */
 public final class OrderBy extends GFLWOR.Clause {
+  /** Maximum number of tuples that will be sorted in a bounded heap. */
+  private static final int MAXTOP = 1 << 16;
+
   /** References to the variables to be sorted. */
   private VarRef[] refs;
   /** Sort keys. */
@@ -43,17 +45,28 @@ public final class OrderBy extends GFLWOR.Clause {
 
   @Override
   Eval eval(final Eval sub) {
+    return eval(sub, Long.MAX_VALUE);
+  }
+
+  /**
+   * Evaluates the clause. If a limit is specified, only the smallest tuples are kept
+   * in a bounded heap.
+   * @param sub wrapped evaluator
+   * @param limit maximum number of tuples that will be requested
+   * @return evaluator
+   */
+  Eval eval(final Eval sub, final long limit) {
     return new Eval() {
       /** Sorted output tuples. */
       private Value[][] tpls;
       /** Permutation of the values. */
-      private Integer[] perm;
+      private int[] perm;
       /** Current position. */
       int pos;
       @Override
       public boolean next(final QueryContext ctx) throws QueryException {
         if(tpls == null) sort(ctx);
-        if(pos == tpls.length) return false;
+        if(pos == perm.length) return false;
         final int p = perm[pos++];
         final Value[] tuple = tpls[p];
         // free the space occupied by the tuple
@@ -68,62 +81,189 @@ public final class OrderBy extends GFLWOR.Clause {
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext ctx) throws QueryException {
-        // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<Value[]>();
-        while(sub.next(ctx)) {
-          final Item[] key = new Item[keys.length];
-          for(int i = 0; i < keys.length; i++)
-            key[i] = keys[i].expr.item(ctx, keys[i].info);
-          tuples.add(key);
-
-          final Value[] vals = new Value[refs.length];
-          for(int i = 0; i < refs.length; i++) vals[i] = refs[i].value(ctx);
-          tuples.add(vals);
+        final Item[][] ks;
+        if(limit < MAXTOP) {
+          ks = top(ctx, (int) limit);
+        } else {
+          final ArrayList<Item[]> kl = new ArrayList<Item[]>();
+          final ArrayList<Value[]> vl = new ArrayList<Value[]>();
+          while(sub.next(ctx)) {
+            kl.add(keys(ctx));
+            vl.add(values(ctx));
+          }
+          ks = kl.toArray(new Item[kl.size()][]);
+          tpls = vl.toArray(new Value[vl.size()][]);
         }
 
-        final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
-        perm = new Integer[len];
-        tpls = new Value[len][];
-        for(int i = 0; i < len; i++) {
-          perm[i] = i;
-          tpls[i] = tuples.get(i << 1 | 1);
-          ks[i] = (Item[]) tuples.get(i << 1);
-        }
-        // be nice to the garbage collector
-        tuples = null;
-        try {
-          Arrays.sort(perm, new Comparator<Integer>() {
-            @Override
-            public int compare(final Integer x, final Integer y) {
-              try {
-                final Item[] a = ks[x], b = ks[y];
-                for(int k = 0; k < keys.length; k++) {
-                  final Key or = keys[k];
-                  Item m = a[k], n = b[k];
-                  if(m == Dbl.NAN || m == Flt.NAN) m = null;
-                  if(n == Dbl.NAN || n == Flt.NAN) n = null;
-                  if(m != null && n != null && !m.comparable(n))
-                    throw Err.castError(or.info, m.type, n);
-
-                  final int c = m == null
-                      ? n == null ? 0                 : or.least ? -1 : 1
-                      : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
-                  if(c != 0) return or.desc ? -c : c;
-                }
-                return 0;
-              } catch(final QueryException ex) {
-                throw new QueryRTException(ex);
-              }
+        final int len = ks.length;
+        perm = new int[len];
+        for(int i = 0; i < len; i++) perm[i] = i;
+        mergeSort(perm.clone(), perm, 0, len, ks);
+      }
+
+      /**
+       * Caches the specified number of smallest tuples in their original order.
+       * @param ctx query context
+       * @param k maximum number of tuples
+       * @return sort keys
+       * @throws QueryException evaluation exception
+       */
+      private Item[][] top(final QueryContext ctx, final int k) throws QueryException {
+        // max-heap with the largest key (and, for equal keys, the last tuple) on top
+        final Item[][] ks = new Item[k][];
+        final Value[][] vs = new Value[k][];
+        final int[] heap = new int[k], ords = new int[k];
+        int size = 0;
+        for(int ord = 0; sub.next(ctx); ord++) {
+          final Item[] key = keys(ctx);
+          final int slot;
+          int h;
+          if(size < k) {
+            // add new tuple and move it up
+            slot = size;
+            h = size++;
+            while(h > 0) {
+              final int par = h - 1 >>> 1;
+              if(diff(ks[heap[par]], key) > 0) break;
+              heap[h] = heap[par];
+              h = par;
+            }
+          } else {
+            // skip tuple if it is not smaller than the largest tuple
+            if(k == 0 || diff(key, ks[heap[0]]) >= 0) continue;
+            // replace largest tuple and move it down
+            slot = heap[0];
+            h = 0;
+            while(true) {
+              int c = (h << 1) + 1;
+              if(c >= size) break;
+              if(c + 1 < size && greater(ks, ords, heap[c + 1], heap[c])) c++;
+              if(diff(ks[heap[c]], key) <= 0) break;
+              heap[h] = heap[c];
+              h = c;
             }
-          });
-        } catch(final QueryRTException ex) {
-          throw ex.getCause();
+          }
+          heap[h] = slot;
+          ks[slot] = key;
+          vs[slot] = values(ctx);
+          ords[slot] = ord;
         }
+
+        // restore original order of tuples
+        final int[] order = Array.createOrder(Arrays.copyOf(ords, size), true);
+        final Item[][] keys = new Item[size][];
+        tpls = new Value[size][];
+        for(int i = 0; i < size; i++) {
+          keys[i] = ks[order[i]];
+          tpls[i] = vs[order[i]];
+        }
+        return keys;
       }
     };
   }
 
+  /**
+   * Evaluates the sort keys.
+   * @param ctx query context
+   * @return keys
+   * @throws QueryException evaluation exception
+   */
+  private Item[] keys(final QueryContext ctx) throws QueryException {
+    final Item[] key = new Item[keys.length];
+    for(int i = 0; i < keys.length; i++) key[i] = keys[i].expr.item(ctx, keys[i].info);
+    return key;
+  }
+
+  /**
+   * Caches the values of the variables.
+   * @param ctx query context
+   * @return values
+   * @throws QueryException evaluation exception
+   */
+  private Value[] values(final QueryContext ctx) throws QueryException {
+    final Value[] vals = new Value[refs.length];
+    for(int i = 0; i < refs.length; i++) vals[i] = refs[i].value(ctx);
+    return vals;
+  }
+
+  /**
+   * Checks if the first tuple is greater than the second one.
+   * For equal keys, the tuple that has been added later is considered greater.
+   * @param ks keys
+   * @param ords original positions
+   * @param a first tuple
+   * @param b second tuple
+   * @return result of check
+   * @throws QueryException evaluation exception
+   */
+  private boolean greater(final Item[][] ks, final int[] ords, final int a, final int b)
+      throws QueryException {
+    final int d = diff(ks[a], ks[b]);
+    return d > 0 || d == 0 && ords[a] > ords[b];
+  }
+
+  /**
+   * Stable merge sort on the permutation of the tuples.
+   * Both arrays must contain the same entries in the specified range.
+   * @param src source array
+   * @param dst destination array
+   * @param s start position
+   * @param e end position (exclusive)
+   * @param ks keys
+   * @throws QueryException evaluation exception
+   */
+  private void mergeSort(final int[] src, final int[] dst, final int s, final int e,
+      final Item[][] ks) throws QueryException {
+
+    // insertion sort on small ranges
+    if(e - s < 7) {
+      for(int i = s + 1; i < e; i++) {
+        for(int j = i; j > s && diff(ks[dst[j - 1]], ks[dst[j]]) > 0; j--) {
+          final int t = dst[j];
+          dst[j] = dst[j - 1];
+          dst[j - 1] = t;
+        }
+      }
+      return;
+    }
+
+    // sort both halves into the source array, merge them into the destination array
+    final int m = s + e >>> 1;
+    mergeSort(dst, src, s, m, ks);
+    mergeSort(dst, src, m, e, ks);
+    if(diff(ks[src[m - 1]], ks[src[m]]) <= 0) {
+      System.arraycopy(src, s, dst, s, e - s);
+      return;
+    }
+    for(int i = s, p = s, q = m; i < e; i++) {
+      dst[i] = q >= e || p < m && diff(ks[src[p]], ks[src[q]]) <= 0 ? src[p++] : src[q++];
+    }
+  }
+
+  /**
+   * Compares two sort keys.
+   * @param a first key
+   * @param b second key
+   * @return difference
+   * @throws QueryException evaluation exception
+   */
+  private int diff(final Item[] a, final Item[] b) throws QueryException {
+    for(int k = 0; k < keys.length; k++) {
+      final Key or = keys[k];
+      Item m = a[k], n = b[k];
+      if(m == Dbl.NAN || m == Flt.NAN) m = null;
+      if(n == Dbl.NAN || n == Flt.NAN) n = null;
+      if(m != null && n != null && !m.comparable(n))
+        throw Err.castError(or.info, m.type, n);
+
+      final int c = m == null
+          ? n == null ? 0                 : or.least ? -1 : 1
+          : n == null ? or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
+      if(c != 0) return or.desc ? -c : c;
+    }
+    return 0;
+  }
+
   @Override
   public void plan(final FElem plan) {
     final FElem e = planElem();
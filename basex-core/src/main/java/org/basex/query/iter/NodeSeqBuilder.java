@@ -13,12 +13,22 @@ import org.basex.util.*;
  * This class can be used to build new node sequences.
  * At the same time, it serves as an iterator.
  *
+ * If all incoming nodes are checked (see {@link #check()}), database nodes of a single
+ * database instance will be stored as pre values. The nodes are only materialized if
+ * they are requested, or if a node is added that cannot be represented by its pre value.
+ * Unsorted pre values, and dense pre values that are combined, are processed via
+ * compressed bitmaps (see {@link Bitmap}).
+ *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
  */
 public final class NodeSeqBuilder extends AxisIter {
-  /** Node container. */
+  /** Node container ({@code null} if pre values are stored). */
   public ANode[] nodes;
+  /** Pre values ({@code null} if nodes are stored). */
+  private int[] pres;
+  /** Data reference of the pre values. */
+  private Data data;
   /** Number of nodes. */
   private int size;
   /** Current iterator position. */
@@ -47,10 +57,15 @@ public final class NodeSeqBuilder extends AxisIter {
 
   /**
    * Checks all nodes for potential duplicates and their orderedness.
+   * If no nodes have been added yet, database nodes will be stored as pre values.
    * @return self reference
    */
   public NodeSeqBuilder check() {
     check = true;
+    if(size == 0) {
+      pres = new int[1];
+      nodes = null;
+    }
     return this;
   }
 
@@ -60,7 +75,17 @@ public final class NodeSeqBuilder extends AxisIter {
    * @return node
    */
   public ANode get(final int i) {
-    return nodes[i];
+    return pres != null ? new DBNode(data, pres[i]) : nodes[i];
+  }
+
+  /**
+   * Returns the pre value of the specified node. Must only be called if all nodes are
+   * {@link DBNode} references (see {@link #dbnodes()}).
+   * @param i node offset
+   * @return pre value
+   */
+  public int pre(final int i) {
+    return pres != null ? pres[i] : ((DBNode) nodes[i]).pre;
   }
 
   /**
@@ -68,7 +93,7 @@ public final class NodeSeqBuilder extends AxisIter {
    * @param p deletion position
    */
   public void delete(final int p) {
-    Array.move(nodes, p + 1, -1, --size - p);
+    Array.move(pres != null ? pres : nodes, p + 1, -1, --size - p);
   }
 
   /**
@@ -76,11 +101,80 @@ public final class NodeSeqBuilder extends AxisIter {
    * @param n node to be added
    */
   public void add(final ANode n) {
+    if(pres != null) {
+      if(n instanceof DBNode && (size == 0 || data == n.data()) && ((DBNode) n).plain()) {
+        add(((DBNode) n).pre, n.data());
+        return;
+      }
+      materialize();
+    }
     if(size == nodes.length) nodes = Array.copy(nodes, new ANode[Array.newSize(size)]);
     if(check && !sort && size != 0) sort = nodes[size - 1].diff(n) > 0;
     nodes[size++] = n;
   }
 
+  /**
+   * Adds all nodes of the specified builder.
+   * Pre values will be adopted without materializing the nodes.
+   * @param nb node builder
+   */
+  public void add(final NodeSeqBuilder nb) {
+    nb.sort();
+    if(nb.pres != null) add(nb.pres, nb.size, nb.data);
+    else for(int i = 0; i < nb.size; i++) add(nb.nodes[i]);
+  }
+
+  /**
+   * Adds all nodes of the specified sequence.
+   * Pre values will be adopted without materializing the nodes.
+   * @param seq database node sequence
+   */
+  public void add(final DBNodeSeq seq) {
+    add(seq.pres, seq.pres.length, seq.data());
+  }
+
+  /**
+   * Adds the specified sorted pre values.
+   * @param p pre values
+   * @param s number of pre values
+   * @param d data reference
+   */
+  private void add(final int[] p, final int s, final Data d) {
+    if(s == 0) return;
+    if(pres != null && (size == 0 || data == d)) {
+      final int ns = size + s;
+      if(ns > pres.length) pres = Arrays.copyOf(pres, Math.max(ns, Array.newSize(size)));
+      if(!sort && size != 0) sort = pres[size - 1] > p[0];
+      System.arraycopy(p, 0, pres, size, s);
+      size = ns;
+      data = d;
+    } else {
+      for(int i = 0; i < s; i++) add(new DBNode(d, p[i]));
+    }
+  }
+
+  /**
+   * Adds a single pre value.
+   * @param p pre value
+   * @param d data reference
+   */
+  private void add(final int p, final Data d) {
+    if(size == pres.length) pres = Arrays.copyOf(pres, Array.newSize(size));
+    if(!sort && size != 0) sort = pres[size - 1] > p;
+    pres[size++] = p;
+    data = d;
+  }
+
+  /**
+   * Converts the pre values to nodes.
+   */
+  private void materialize() {
+    nodes = new ANode[Math.max(1, pres.length)];
+    for(int i = 0; i < size; i++) nodes[i] = new DBNode(data, pres[i]);
+    pres = null;
+    data = null;
+  }
+
   @Override
   public boolean reset() {
     pos = -1;
@@ -90,12 +184,12 @@ public final class NodeSeqBuilder extends AxisIter {
   @Override
   public ANode next() {
     if(check) sort(sort);
-    return ++pos < size ? nodes[pos] : null;
+    return ++pos < size ? get(pos) : null;
   }
 
   @Override
   public ANode get(final long i) {
-    return i < size ? nodes[(int) i] : null;
+    return i < size ? get((int) i) : null;
   }
 
   @Override
@@ -114,7 +208,7 @@ public final class NodeSeqBuilder extends AxisIter {
   @Override
   public Value value() {
     if(check) sort(sort);
-    return Seq.get(nodes, size, NodeType.NOD);
+    return pres != null ? DBNodeSeq.get(pres, size, data) : Seq.get(nodes, size, NodeType.NOD);
   }
 
   /**
@@ -124,10 +218,11 @@ public final class NodeSeqBuilder extends AxisIter {
    */
   public boolean dbnodes() {
     if(check) sort(sort);
+    if(pres != null) return size > 0;
 
-    final Data data = size > 0 ? nodes[0].data() : null;
-    if(data == null) return false;
-    for(int s = 1; s < size; ++s) if(data != nodes[s].data()) return false;
+    final Data d = size > 0 ? nodes[0].data() : null;
+    if(d == null) return false;
+    for(int s = 1; s < size; ++s) if(d != nodes[s].data()) return false;
     return true;
   }
 
@@ -140,7 +235,7 @@ public final class NodeSeqBuilder extends AxisIter {
   public int indexOf(final ANode n, final boolean db) {
     if(db) return n instanceof DBNode ?
         Math.max(binarySearch((DBNode) n, 0, size), -1) : -1;
-    for(int s = 0; s < size(); ++s) if(nodes[s].is(n)) return s;
+    for(int s = 0; s < size; ++s) if(get(s).is(n)) return s;
     return -1;
   }
 
@@ -154,11 +249,11 @@ public final class NodeSeqBuilder extends AxisIter {
    * @return position of the item or {@code -insertPosition - 1} if not found
    */
   public int binarySearch(final DBNode n, final int start, final int length) {
-    if(size == 0 || n.data != nodes[0].data()) return -start - 1;
+    if(size == 0 || n.data != (pres != null ? data : nodes[0].data())) return -start - 1;
     int l = start, r = start + length - 1;
     while(l <= r) {
       final int m = l + r >>> 1;
-      final int npre = ((DBNode) nodes[m]).pre;
+      final int npre = pre(m);
       if(npre == n.pre) return m;
       if(npre < n.pre) l = m + 1;
       else r = m - 1;
@@ -166,6 +261,60 @@ public final class NodeSeqBuilder extends AxisIter {
     return -(l + 1);
   }
 
+  /**
+   * Returns the nodes of this builder that are also contained in the specified builder.
+   * @param nb node builder
+   * @return new builder
+   */
+  public NodeSeqBuilder intersect(final NodeSeqBuilder nb) {
+    return merge(nb, true);
+  }
+
+  /**
+   * Returns the nodes of this builder that are not contained in the specified builder.
+   * @param nb node builder
+   * @return new builder
+   */
+  public NodeSeqBuilder except(final NodeSeqBuilder nb) {
+    return merge(nb, false);
+  }
+
+  /**
+   * Merges the nodes of this and the specified builder.
+   * @param nb node builder
+   * @param in intersect or except nodes
+   * @return new builder
+   */
+  private NodeSeqBuilder merge(final NodeSeqBuilder nb, final boolean in) {
+    sort();
+    nb.sort();
+    final NodeSeqBuilder res = new NodeSeqBuilder().check();
+    if(pres != null && nb.pres != null && data == nb.data) {
+      // both sequences are sorted pre values of the same database
+      final int[] p1 = pres, p2 = nb.pres;
+      final int s1 = size, s2 = nb.size;
+      if(Bitmap.dense(p1, s1) && Bitmap.dense(p2, s2)) {
+        // combine bitmaps
+        final Bitmap bm1 = new Bitmap(p1, s1), bm2 = new Bitmap(p2, s2);
+        final int[] p = (in ? bm1.and(bm2) : bm1.andNot(bm2)).toArray();
+        res.add(p, p.length, data);
+      } else {
+        for(int i1 = 0, i2 = 0; i1 < s1; i1++) {
+          final int p = p1[i1];
+          while(i2 < s2 && p2[i2] < p) i2++;
+          if(in == (i2 < s2 && p2[i2] == p)) res.add(p, data);
+        }
+      }
+    } else {
+      final boolean db = nb.dbnodes();
+      for(int i = 0; i < size; i++) {
+        final ANode n = get(i);
+        if(in == (nb.indexOf(n, db) != -1)) res.add(n);
+      }
+    }
+    return res;
+  }
+
   /**
    * Sorts the nodes, if necessary.
    * @return self reference
@@ -181,7 +330,22 @@ public final class NodeSeqBuilder extends AxisIter {
    */
   private void sort(final boolean force) {
     check = false;
-    if(size > 1) {
+    if(pres != null) {
+      if(size > 1) {
+        if(force) {
+          // sort pre values and remove duplicates via bitmap
+          pres = new Bitmap(pres, size).toArray();
+          size = pres.length;
+        } else {
+          // remove duplicates
+          int i = 1;
+          for(int j = 1; j < size; ++j) {
+            if(pres[i - 1] != pres[j]) pres[i++] = pres[j];
+          }
+          size = i;
+        }
+      }
+    } else if(size > 1) {
       // sort arrays and remove duplicates
       if(force) sort(0, size);
 
@@ -289,7 +453,9 @@ public final class NodeSeqBuilder extends AxisIter {
 
   @Override
   public String toString() {
-    return Util.className(this) + Arrays.toString(Arrays.copyOf(nodes, size));
+    final ArrayList<ANode> list = new ArrayList<ANode>(size);
+    for(int i = 0; i < size; i++) list.add(get(i));
+    return Util.className(this) + list;
   }
 
   /**
@@ -297,7 +463,11 @@ public final class NodeSeqBuilder extends AxisIter {
    * @return copy
    */
   public NodeSeqBuilder copy() {
-    final NodeSeqBuilder b = new NodeSeqBuilder(nodes.clone(), size);
+    final NodeSeqBuilder b = new NodeSeqBuilder(nodes == null ? null : nodes.clone(), size);
+    if(pres != null) {
+      b.pres = pres.clone();
+      b.data = data;
+    }
     b.pos = pos;
     b.sort = sort;
     b.check = check;
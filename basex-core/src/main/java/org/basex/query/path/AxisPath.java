@@ -309,6 +309,20 @@ public abstract class AxisPath extends Path {
     return (Step) steps[i];
   }
 
+  /**
+   * Returns the step that addresses the parent elements of the texts, or the attributes,
+   * that are returned by this path.
+   * @param ctx step that is evaluated before this path (only relevant for single steps)
+   * @param text text or attribute step
+   * @return step, or {@code null} if it cannot be determined
+   */
+  public final Step nameStep(final Step ctx, final boolean text) {
+    final int st = steps.length;
+    final Step last = step(st - 1);
+    if(!text) return last;
+    return last.axis != Axis.CHILD ? null : st == 1 ? ctx : step(st - 2);
+  }
+
   /**
    * Returns the path nodes that will result from this path.
    * @param ctx query context
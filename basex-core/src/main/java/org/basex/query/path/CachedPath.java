@@ -8,6 +8,7 @@ import org.basex.query.iter.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
 import org.basex.util.hash.*;
@@ -21,8 +22,6 @@ import org.basex.util.hash.*;
 final class CachedPath extends AxisPath {
   /** Flag for result caching. */
   private boolean cache;
-  /** Cached result. */
-  private NodeSeqBuilder citer;
   /** Last visited item. */
   private Value lvalue;
 
@@ -51,7 +50,7 @@ final class CachedPath extends AxisPath {
     final Value cv = ctx.value;
     final long cs = ctx.size;
     final long cp = ctx.pos;
-    final Value r = root != null ? ctx.value(root) : cv;
+    Value r = root != null ? ctx.value(root) : cv;
 
     try {
       /* cache values if:
@@ -59,18 +58,44 @@ final class CachedPath extends AxisPath {
        * - the code is called for the first time
        * - the value has changed and the underlying node is not the same
        */
-      citer = new NodeSeqBuilder().check();
-      if(r != null) {
-        final Iter ir = ctx.iter(r);
-        for(Item it; (it = ir.next()) != null;) {
-          // ensure that root only returns nodes
-          if(root != null && !(it instanceof ANode)) throw PATHNODE.get(info, it.type);
-          ctx.value = it;
-          iter(0, citer, ctx);
+      final NodeSeqBuilder citer = new NodeSeqBuilder().check();
+      final int sl = steps.length;
+      for(int s = 0; s < sl;) {
+        // evaluate steps for sorted database nodes at once
+        Value db = Staircase.supports(step(s)) ? Staircase.dbnodes(r) : null;
+        if(db != null) {
+          for(Value res; s < sl && Staircase.supports(step(s)) &&
+              (res = Staircase.eval(ctx, step(s), db)) != null; s++) {
+            ctx.checkStop();
+            db = res;
+          }
+          if(s == sl) {
+            if(db instanceof DBNodeSeq) citer.add((DBNodeSeq) db);
+            else for(final Item it : db) citer.add((ANode) it);
+            break;
+          }
+          r = db;
         }
-      } else {
-        ctx.value = null;
-        iter(0, citer, ctx);
+
+        // evaluate all steps up to the next staircase join node by node
+        int e = s + 1;
+        while(e < sl && !Staircase.supports(step(e))) e++;
+        final NodeSeqBuilder nc = e == sl ? citer : new NodeSeqBuilder().check();
+        if(r != null) {
+          final Iter ir = ctx.iter(r);
+          for(Item it; (it = ir.next()) != null;) {
+            // ensure that root only returns nodes
+            if(root != null && !(it instanceof ANode)) throw PATHNODE.get(info, it.type);
+            ctx.value = it;
+            iter(s, e, nc, ctx);
+          }
+        } else {
+          ctx.value = null;
+          iter(s, e, nc, ctx);
+        }
+        if(e == sl) break;
+        r = nc.value();
+        s = e;
       }
       citer.sort();
       return citer;
@@ -84,20 +109,21 @@ final class CachedPath extends AxisPath {
   /**
    * Recursive step iterator.
    * @param l current step
+   * @param e step after the last step to be evaluated
    * @param nc node cache
    * @param ctx query context
    * @throws QueryException query exception
    */
-  private void iter(final int l, final NodeSeqBuilder nc, final QueryContext ctx)
-      throws QueryException {
+  private void iter(final int l, final int e, final NodeSeqBuilder nc,
+      final QueryContext ctx) throws QueryException {
 
     // cast is safe (steps will always return a {@link NodeIter} instance
     final NodeIter ni = (NodeIter) ctx.iter(steps[l]);
-    final boolean more = l + 1 != steps.length;
+    final boolean more = l + 1 != e;
     for(ANode node; (node = ni.next()) != null;) {
       if(more) {
         ctx.value = node;
-        iter(l + 1, nc, ctx);
+        iter(l + 1, e, nc, ctx);
       } else {
         ctx.checkStop();
         nc.add(node);
@@ -113,7 +139,6 @@ final class CachedPath extends AxisPath {
     final CachedPath ap = copyType(
         new CachedPath(info, root == null ? null : root.copy(ctx, scp, vs), stps));
     ap.cache = cache;
-    if(citer != null) ap.citer = citer.copy();
     if(lvalue != null) ap.lvalue = lvalue;
     return ap;
   }
@@ -33,7 +33,7 @@ final class IterStep extends Step {
 
       @Override
       public ANode next() throws QueryException {
-        if(ai == null) ai = axis.iter(checkNode(ctx));
+        if(ai == null) ai = axisIter(checkNode(ctx));
         while(true) {
           ctx.checkStop();
           final ANode node = ai.next();
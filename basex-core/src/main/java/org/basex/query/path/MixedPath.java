@@ -6,6 +6,7 @@ import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.iter.*;
+import org.basex.query.util.*;
 import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -59,7 +60,7 @@ public final class MixedPath extends Path {
   public Iter iter(final QueryContext ctx) throws QueryException {
     // creates an iterator from the root value
     final Value v = root != null ? ctx.value(root) : checkCtx(ctx);
-    Iter res = v.iter();
+    ValueIter res = v.iter();
 
     final Value cv = ctx.value;
     final long cs = ctx.size;
@@ -69,6 +70,17 @@ public final class MixedPath extends Path {
       final int sl = steps.length;
       for(int s = 0; s < sl; s++) {
         final Expr e = steps[s];
+
+        // evaluate location steps for sorted database nodes at once
+        if(e instanceof Step && Staircase.supports((Step) e)) {
+          final Value db = Staircase.dbnodes(res.value());
+          final Value val = db != null ? Staircase.eval(ctx, (Step) e, db) : null;
+          if(val != null) {
+            res = val.iter();
+            continue;
+          }
+        }
+
         final ValueBuilder vb = new ValueBuilder();
 
         // map operator: don't remove duplicates and check for nodes
@@ -78,17 +90,37 @@ public final class MixedPath extends Path {
 
         // loop through all input items
         int nodes = 0;
-        for(Item it; (it = res.next()) != null;) {
-          if(path && !(it instanceof ANode)) throw PATHNODE.get(info, it.type);
-          ctx.value = it;
-
-          // loop through all resulting items
-          final Iter ir = ctx.iter(e);
+        final int threads = path ? 1 : Parallel.threads(ctx, e);
+        if(threads > 1) {
+          // evaluate map operator in parallel
+          final long sz = ctx.size;
+          final Iter ir = new Parallel() {
+            @Override
+            protected void eval(final QueryContext qc, final Item it, final long pos,
+                final ValueBuilder values) throws QueryException {
+              qc.value = it;
+              qc.pos = pos;
+              qc.size = sz;
+              values.add(qc.value(e));
+            }
+          }.iter(ctx, res, threads);
           for(Item i; (i = ir.next()) != null;) {
             if(i instanceof ANode) nodes++;
             vb.add(i);
           }
-          ctx.pos++;
+        } else {
+          for(Item it; (it = res.next()) != null;) {
+            if(path && !(it instanceof ANode)) throw PATHNODE.get(info, it.type);
+            ctx.value = it;
+
+            // loop through all resulting items
+            final Iter ir = ctx.iter(e);
+            for(Item i; (i = ir.next()) != null;) {
+              if(i instanceof ANode) nodes++;
+              vb.add(i);
+            }
+            ctx.pos++;
+          }
         }
 
         final long vs = vb.size();
@@ -104,7 +136,7 @@ public final class MixedPath extends Path {
           // remove potential duplicates from node sets
           final NodeSeqBuilder nc = new NodeSeqBuilder().check();
           for(Item it; (it = vb.next()) != null;) nc.add((ANode) it);
-          res = nc.value().cache();
+          res = nc.value().iter();
         } else {
           res = vb;
         }
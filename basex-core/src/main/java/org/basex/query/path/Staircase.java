@@ -0,0 +1,238 @@
+package org.basex.query.path;
+
+import org.basex.data.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.util.list.*;
+
+/**
+ * Staircase join: evaluates a location step for a sorted and duplicate-free set of
+ * database nodes at once. The pre/size encoding of the database is exploited to
+ * prune context nodes whose results are covered by other context nodes, and to skip
+ * nodes that will not contribute to the result. The results are sorted and
+ * duplicate-free.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+final class Staircase {
+  /** Number of scanned nodes after which the query is checked for interruption. */
+  private static final int CHECK = 1 << 16;
+
+  /** Query context. */
+  private final QueryContext ctx;
+  /** Data reference. */
+  private final Data data;
+  /** Node test. */
+  private final Test test;
+  /** Node instance, which is reused for testing nodes. */
+  private final DBNode node;
+  /** Resulting pre values. */
+  private final IntList list = new IntList();
+  /** Number of scanned nodes. */
+  private int scanned;
+
+  /**
+   * Constructor.
+   * @param qc query context
+   * @param d data reference
+   * @param t node test
+   */
+  private Staircase(final QueryContext qc, final Data d, final Test t) {
+    ctx = qc;
+    data = d;
+    test = t;
+    node = new DBNode(d);
+  }
+
+  /**
+   * Checks if the specified step can be evaluated via the staircase join.
+   * @param step step
+   * @return result of check
+   */
+  static boolean supports(final Step step) {
+    if(step.preds.length != 0) return false;
+    switch(step.axis) {
+      case DESC: case DESCORSELF: case ANC: case ANCORSELF: case FOLL: case PREC:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns a single database node or a sorted and duplicate-free database node sequence
+   * with the nodes of the specified value. {@code null} is returned if the value contains
+   * other items, or nodes of different databases.
+   * @param v value (can be {@code null})
+   * @return database node(s) or {@code null}
+   */
+  static Value dbnodes(final Value v) {
+    if(v instanceof DBNode) return ((DBNode) v).plain() ? v : null;
+    if(v instanceof DBNodeSeq) {
+      final int[] pres = ((DBNodeSeq) v).pres;
+      int p = 0;
+      while(++p < pres.length && pres[p - 1] < pres[p]);
+      if(p == pres.length) return v;
+    } else if(v == null || v.size() < 2) {
+      return null;
+    }
+    // sort nodes and remove duplicates
+    final NodeSeqBuilder nb = new NodeSeqBuilder().check();
+    for(final Item it : v) {
+      if(!(it instanceof DBNode) || !((DBNode) it).plain()) return null;
+      nb.add((DBNode) it);
+    }
+    final Value nv = nb.value();
+    return nv instanceof DBNode || nv instanceof DBNodeSeq ? nv : null;
+  }
+
+  /**
+   * Evaluates a location step for the specified database nodes.
+   * @param qc query context
+   * @param step step (see {@link #supports})
+   * @param nodes database nodes (see {@link #dbnodes}), or an empty sequence
+   * @return sorted database nodes, or {@code null} if the step cannot be evaluated via the
+   * staircase join
+   */
+  static Value eval(final QueryContext qc, final Step step, final Value nodes) {
+    if(nodes.isEmpty()) return nodes;
+    final Data data = nodes.data();
+    final int[] pres = nodes instanceof DBNodeSeq ? ((DBNodeSeq) nodes).pres :
+      new int[] { ((DBNode) nodes).pre };
+    final Axis axis = step.axis;
+
+    // attributes have specific semantics for most axes: evaluate them node by node
+    if(axis != Axis.ANC && axis != Axis.ANCORSELF) {
+      for(final int pre : pres) if(data.kind(pre) == Data.ATTR) return null;
+    }
+    final Staircase sc = new Staircase(qc, data, step.test);
+    switch(axis) {
+      case DESC:       sc.descendant(pres, false); break;
+      case DESCORSELF: sc.descendant(pres, true); break;
+      case ANC:        sc.ancestor(pres, false); break;
+      case ANCORSELF:  sc.ancestor(pres, true); break;
+      case FOLL:       sc.following(pres); break;
+      default:         sc.preceding(pres); break;
+    }
+    return DBNodeSeq.get(sc.list, data, false, false);
+  }
+
+  /**
+   * Evaluates the descendant axes. Context nodes that are descendants of a
+   * previous context node are pruned, as their descendants have already been added.
+   * @param pres pre values
+   * @param self include context nodes
+   */
+  private void descendant(final int[] pres, final boolean self) {
+    int end = 0;
+    for(final int pre : pres) {
+      ctx.checkStop();
+      // skip context nodes in the subtree of the previous context node
+      if(pre < end) continue;
+      final int k = data.kind(pre);
+      end = pre + data.size(pre, k);
+      for(int p = self ? pre : pre + data.attSize(pre, k); p < end;) {
+        final int kp = data.kind(p);
+        add(p, kp);
+        p += data.attSize(p, kp);
+      }
+    }
+  }
+
+  /**
+   * Evaluates the ancestor axes. The ancestors of the current context node are
+   * stored on a stack. The ancestors of the next context node are only traversed
+   * until an ancestor on the stack is found.
+   * @param pres pre values
+   * @param self include context nodes
+   */
+  private void ancestor(final int[] pres, final boolean self) {
+    // stack with pre values and subtree ends of the current ancestors
+    final IntList stack = new IntList(), ends = new IntList();
+    final IntList anc = new IntList();
+    for(final int pre : pres) {
+      ctx.checkStop();
+      // discard nodes that are no ancestors of the current node
+      while(!ends.isEmpty() && ends.peek() <= pre) {
+        ends.pop();
+        stack.pop();
+      }
+      final int top = stack.isEmpty() ? -1 : stack.peek();
+      // collect ancestors that have not been added before
+      anc.reset();
+      if(self) anc.add(pre);
+      for(int p = data.parent(pre, data.kind(pre)); p > top; p = data.parent(p, data.kind(p))) {
+        anc.add(p);
+      }
+      // add new ancestors in document order
+      for(int a = anc.size() - 1; a >= 0; a--) {
+        final int p = anc.get(a), k = data.kind(p);
+        stack.push(p);
+        ends.push(p + data.size(p, k));
+        add(p, k);
+      }
+    }
+  }
+
+  /**
+   * Evaluates the following axis. All results are contained in the following nodes
+   * of the context node with the smallest subtree end.
+   * @param pres pre values
+   */
+  private void following(final int[] pres) {
+    int start = Integer.MAX_VALUE;
+    for(final int pre : pres) start = Math.min(start, pre + data.size(pre, data.kind(pre)));
+    for(int p = start, s = data.meta.size; p < s;) {
+      final int k = data.kind(p);
+      add(p, k);
+      p += data.attSize(p, k);
+    }
+  }
+
+  /**
+   * Evaluates the preceding axis. Nodes are preceding if they belong to the same
+   * root node, and if they are located before a context node and are no ancestors.
+   * All results of a root node are contained in the preceding nodes of the last
+   * context node with this root.
+   * @param pres pre values
+   */
+  private void preceding(final int[] pres) {
+    final int pl = pres.length;
+    for(int i = 0; i < pl;) {
+      ctx.checkStop();
+      // find root of the current context node and last context node with this root
+      int root = pres[i];
+      for(int p = root; p != -1; p = data.parent(p, data.kind(p))) root = p;
+      final int end = root + data.size(root, data.kind(root));
+      while(i + 1 < pl && pres[i + 1] < end) i++;
+      final int pre = pres[i++];
+
+      // skip ancestors (and their attributes)
+      for(int p = root; p < pre;) {
+        final int k = data.kind(p);
+        if(p + data.size(p, k) <= pre) add(p, k);
+        p += data.attSize(p, k);
+      }
+    }
+  }
+
+  /**
+   * Adds a node if it matches the node test. As a single context node may lead to a
+   * scan of the whole table, the query is regularly checked for interruption.
+   * @param pre pre value
+   * @param kind node kind
+   */
+  private void add(final int pre, final int kind) {
+    if(++scanned == CHECK) {
+      ctx.checkStop();
+      scanned = 0;
+    }
+    node.set(pre, kind);
+    if(test.eq(node)) list.add(pre);
+  }
+}
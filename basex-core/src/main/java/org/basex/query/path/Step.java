@@ -10,6 +10,7 @@ import org.basex.index.path.*;
 import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
+import org.basex.query.iter.*;
 import org.basex.query.path.Test.Mode;
 import org.basex.query.util.*;
 import org.basex.query.value.node.*;
@@ -96,6 +97,20 @@ public abstract class Step extends Preds {
     return this instanceof IterPosStep || !useIterator() ? this : new IterPosStep(this);
   }
 
+  /**
+   * Returns an iterator for the axis of this step. If the descendants of a database
+   * node will be traversed, the table entries are read ahead.
+   * @param node context node
+   * @return iterator
+   */
+  final AxisIter axisIter(final ANode node) {
+    if((axis == Axis.DESC || axis == Axis.DESCORSELF) && node instanceof DBNode) {
+      final DBNode n = (DBNode) node;
+      n.data.prefetch(n.pre);
+    }
+    return axis.iter(node);
+  }
+
   @Override
   public abstract Step copy(QueryContext ctx, VarScope scp, IntObjMap<Var> vs);
 
@@ -25,13 +25,14 @@ import org.basex.util.options.*;
 abstract class DBNew extends BasicOperation {
   /** Numeric index options. */
   private static final NumberOption[] N_OPT = { MainOptions.MAXCATS, MainOptions.MAXLEN,
-    MainOptions.INDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE };
+    MainOptions.INDEXSPLITSIZE, MainOptions.FTINDEXSPLITSIZE, MainOptions.INDEXMEM };
   /** Boolean index options. */
   private static final BooleanOption[] B_OPT = { MainOptions.TEXTINDEX, MainOptions.ATTRINDEX,
     MainOptions.FTINDEX, MainOptions.STEMMING, MainOptions.CASESENS, MainOptions.DIACRITICS,
     MainOptions.UPDINDEX };
   /** String index options. */
-  private static final StringOption[] S_OPT = { MainOptions.LANGUAGE, MainOptions.STOPWORDS };
+  private static final StringOption[] S_OPT = { MainOptions.LANGUAGE, MainOptions.STOPWORDS,
+    MainOptions.TEXTINCLUDE, MainOptions.ATTRINCLUDE };
   /** Names of numeric index options. */
   private static final String[] K_N_OPT = new String[N_OPT.length];
   /** Names of boolean index options. */
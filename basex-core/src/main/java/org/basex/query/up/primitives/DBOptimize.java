@@ -55,13 +55,19 @@ public final class DBOptimize extends DBNew {
     nprops.put(MainOptions.TEXTINDEX, meta.createtext);
     nprops.put(MainOptions.ATTRINDEX, meta.createattr);
     nprops.put(MainOptions.FTINDEX,   meta.createftxt);
+    nprops.put(MainOptions.TEXTINCLUDE, meta.textinclude);
+    nprops.put(MainOptions.ATTRINCLUDE, meta.attrinclude);
     initOptions();
     assignOptions();
 
     final boolean rebuild = opts.get(MainOptions.MAXCATS) != meta.maxcats ||
-        opts.get(MainOptions.MAXLEN) != meta.maxlen;
+        opts.get(MainOptions.MAXLEN) != meta.maxlen ||
+        !opts.get(MainOptions.TEXTINCLUDE).equals(meta.textinclude) ||
+        !opts.get(MainOptions.ATTRINCLUDE).equals(meta.attrinclude);
     meta.maxcats = opts.get(MainOptions.MAXCATS);
     meta.maxlen  = opts.get(MainOptions.MAXLEN);
+    meta.textinclude = opts.get(MainOptions.TEXTINCLUDE);
+    meta.attrinclude = opts.get(MainOptions.ATTRINCLUDE);
     meta.createtext = opts.get(MainOptions.TEXTINDEX);
     meta.createattr = opts.get(MainOptions.ATTRINDEX);
     meta.createftxt = opts.get(MainOptions.FTINDEX);
@@ -68,6 +68,15 @@ public abstract class ASTVisitor {
     return true;
   }
 
+  /**
+   * Notifies the visitor of a built-in function call.
+   * @param func function
+   * @return if more expressions should be visited
+   */
+  public boolean funcCall(final StandardFunc func) {
+    return true;
+  }
+
   /**
    * Notifies the visitor of a function item.
    * @param func the function item
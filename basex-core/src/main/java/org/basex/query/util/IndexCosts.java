@@ -1,8 +1,10 @@
 package org.basex.query.util;
 
+import org.basex.index.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.path.*;
+import org.basex.query.path.Test.Mode;
 import org.basex.util.*;
 
 /**
@@ -38,6 +40,26 @@ public final class IndexCosts {
     step = s;
   }
 
+  /**
+   * Checks if the values of the specified expression are covered by the text or
+   * attribute index. If the index is restricted to specific names, the name of the
+   * parent element or the attribute must be known statically.
+   * @param ex expression to be compared (path or context item)
+   * @param text text or attribute index
+   * @return result of check
+   */
+  public boolean covers(final Expr ex, final boolean text) {
+    final IndexNames names = ictx.data.meta.names(text);
+    if(names.all()) return true;
+
+    // find step with the name of the parent element or attribute
+    final Step s = ex instanceof AxisPath ? ((AxisPath) ex).nameStep(step, text) :
+      text ? null : step;
+    return s != null && s.test instanceof NameTest &&
+        (s.test.mode == Mode.LN || s.test.mode == Mode.STD) &&
+        names.contains(((NameTest) s.test).ln);
+  }
+
   /**
    * Rewrites the specified expression for index access.
    * @param ex expression to be rewritten
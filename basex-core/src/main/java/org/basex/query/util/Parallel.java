@@ -0,0 +1,345 @@
+package org.basex.query.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.core.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.Expr.Flag;
+import org.basex.query.func.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.var.*;
+import org.basex.util.*;
+
+/**
+ * This class evaluates an expression for all items of an input sequence.
+ * The input is split into chunks, which are evaluated concurrently in copies of the
+ * query context (see {@link QueryContext#fork()}). The results are returned in the
+ * order of the input.
+ *
+ * Parallel evaluation is enabled via the {@link MainOptions#QUERYTHREADS} option.
+ * It will only be chosen if the evaluated expressions are free of side effects and do
+ * not keep evaluation state (see {@link #threads}).
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public abstract class Parallel {
+  /** Maximum number of items that are evaluated by a single task. */
+  private static final int CHUNK = 1 << 8;
+  /** Interval for checking if the query has been stopped (ms). */
+  private static final int WAIT = 100;
+  /** Properties of expressions that must be evaluated sequentially. */
+  private static final Flag[] FLAGS = { Flag.NDT, Flag.UPD, Flag.HOF, Flag.STA };
+  /** Thread pool (created when first requested). */
+  private static ExecutorService pool;
+
+  /**
+   * Evaluates the expression for a single item.
+   * @param ctx query context (copy of the original context)
+   * @param it item
+   * @param pos position of the item in the input sequence, starting with {@code 1}
+   * @param vb value builder, to which the results are added
+   * @throws QueryException query exception
+   */
+  protected abstract void eval(final QueryContext ctx, final Item it, final long pos,
+      final ValueBuilder vb) throws QueryException;
+
+  /**
+   * Returns the number of threads that can be used to evaluate the specified expressions.
+   * {@code 1} is returned if the expressions must be evaluated sequentially, because
+   * <ul>
+   * <li> parallel evaluation has not been enabled,</li>
+   * <li> the context is already evaluated in parallel (nested evaluation),</li>
+   * <li> full-text positions are collected, or</li>
+   * <li> the expressions may have side effects, invoke function items or keep evaluation
+   *      state.</li>
+   * </ul>
+   * @param ctx query context
+   * @param exprs expressions to be evaluated
+   * @return number of threads
+   */
+  public static int threads(final QueryContext ctx, final Expr... exprs) {
+    final int threads = ctx.context.options.get(MainOptions.QUERYTHREADS);
+    return threads < 2 || ctx.forked() || ctx.ftPosData != null ||
+        !prepare(ctx, true, exprs) ? 1 : threads;
+  }
+
+  /**
+   * Prepares the parallel evaluation of the specified expressions. Static variables
+   * that are referenced by the expressions are evaluated in advance, as they must not be
+   * lazily evaluated by several threads.
+   * @param ctx query context
+   * @param check check if the expressions are free of side effects
+   * @param exprs expressions to be evaluated
+   * @return {@code false} if the expressions must be evaluated sequentially
+   */
+  public static boolean prepare(final QueryContext ctx, final boolean check,
+      final Expr... exprs) {
+
+    // expressions that keep evaluation state must never be evaluated in parallel
+    final Flag[] flags = check ? FLAGS : new Flag[] { Flag.STA };
+    final ArrayList<StaticVar> vars = new ArrayList<StaticVar>();
+    final ArrayList<StaticFunc> funcs = new ArrayList<StaticFunc>();
+    final ASTVisitor visitor = new ASTVisitor() {
+      @Override
+      public boolean staticVar(final StaticVar var) {
+        if(!vars.contains(var)) vars.add(var);
+        return true;
+      }
+      @Override
+      public boolean staticFuncCall(final StaticFuncCall call) {
+        final StaticFunc func = call.func();
+        if(func == null || funcs.contains(func)) return true;
+        funcs.add(func);
+        return func.visit(this);
+      }
+      @Override
+      public boolean dynFuncCall(final DynFuncCall call) {
+        return !check;
+      }
+      @Override
+      public boolean inlineFunc(final Scope scope) {
+        return scope.visit(this);
+      }
+      @Override
+      public boolean funcItem(final FuncItem func) {
+        for(final Flag flag : flags) if(func.bodyHas(flag)) return false;
+        return func.visit(this);
+      }
+    };
+    for(final Expr expr : exprs) {
+      for(final Flag flag : flags) if(expr.has(flag)) return false;
+      if(!expr.accept(visitor)) return false;
+    }
+
+    try {
+      for(final StaticVar var : vars) var.value(ctx);
+    } catch(final QueryException ex) {
+      // error will be raised by sequential evaluation, if the variable is ever evaluated
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns an iterator for the results of all input items. The input is consumed in
+   * chunks. No more than the specified number of chunks is evaluated at the same time.
+   * If not all results are requested, the remaining tasks will be cancelled when the
+   * query is closed (see {@link QueryContext#cancel()}).
+   * @param ctx query context
+   * @param input input items
+   * @param threads number of threads
+   * @return iterator
+   * @throws QueryException query exception
+   */
+  public final Iter iter(final QueryContext ctx, final Iter input, final int threads)
+      throws QueryException {
+    final Results results = new Results(ctx, input, threads);
+    ctx.parallel(results, true);
+    return results;
+  }
+
+  /** Iterator for the results of a parallel evaluation. */
+  public final class Results extends Iter {
+    /** Query context. */
+    private final QueryContext ctx;
+    /** Context of the current evaluation, which is copied by all tasks. */
+    private final QueryContext base;
+    /** Input items. */
+    private final Iter input;
+    /** Number of threads. */
+    private final int threads;
+    /** Submitted tasks. */
+    private final LinkedList<Task> tasks = new LinkedList<Task>();
+    /** Results of the current task. */
+    private Iter current = Empty.ITER;
+    /** Number of items per task (0: not assigned yet). */
+    private int chunk;
+    /** Position of the next input item. */
+    private long pos = 1;
+    /** Indicates if the input has been completely consumed. */
+    private boolean consumed;
+
+    /**
+     * Constructor.
+     * @param qc query context
+     * @param in input items
+     * @param th number of threads
+     * @throws QueryException query exception
+     */
+    Results(final QueryContext qc, final Iter in, final int th) throws QueryException {
+      ctx = qc;
+      // tasks will start with the context and variable bindings of the current evaluation
+      base = qc.fork();
+      input = in;
+      threads = th;
+    }
+
+    @Override
+    public Item next() throws QueryException {
+      while(true) {
+        final Item it = current.next();
+        if(it != null) return it;
+        submit();
+        final Task task = tasks.poll();
+        if(task == null) {
+          ctx.parallel(this, false);
+          return null;
+        }
+        current = result(task);
+      }
+    }
+
+    /**
+     * Submits new tasks until the maximum number of tasks is reached.
+     * @throws QueryException query exception
+     */
+    private void submit() throws QueryException {
+      if(chunk == 0) {
+        // distribute the first items evenly across all threads
+        final ValueBuilder vb = new ValueBuilder();
+        for(Item it; vb.size() < (long) CHUNK * threads && (it = input.next()) != null;) {
+          vb.add(it);
+        }
+        final int s = (int) vb.size();
+        chunk = Math.max(1, (s + threads - 1) / threads);
+        for(int i = 0; i < s; i += chunk) {
+          final int n = Math.min(chunk, s - i);
+          final Item[] items = new Item[n];
+          for(int c = 0; c < n; c++) items[c] = vb.get(i + c);
+          add(items);
+        }
+        chunk = CHUNK;
+        consumed = s < CHUNK * threads;
+      }
+      while(!consumed && tasks.size() < threads) {
+        final Item[] items = new Item[chunk];
+        int n = 0;
+        for(Item it; n < chunk && (it = input.next()) != null;) items[n++] = it;
+        consumed = n < chunk;
+        if(n != 0) add(n < chunk ? Arrays.copyOf(items, n) : items);
+      }
+    }
+
+    /**
+     * Submits a task for the specified items.
+     * @param items items
+     * @throws QueryException query exception
+     */
+    private void add(final Item[] items) throws QueryException {
+      final Task task = new Task(ctx, base.fork(), items, pos);
+      task.future = pool().submit(task);
+      tasks.add(task);
+      pos += items.length;
+    }
+
+    /**
+     * Waits for the results of the specified task.
+     * Cancels all remaining tasks if an error occurs, or if the query is stopped.
+     * @param task task
+     * @return results
+     * @throws QueryException query exception
+     */
+    private Iter result(final Task task) throws QueryException {
+      try {
+        while(true) {
+          try {
+            ctx.checkStop();
+            return task.future.get(WAIT, TimeUnit.MILLISECONDS);
+          } catch(final TimeoutException ex) {
+            continue;
+          }
+        }
+      } catch(final ExecutionException ex) {
+        cancel();
+        final Throwable th = ex.getCause();
+        if(th instanceof QueryException) throw (QueryException) th;
+        if(th instanceof RuntimeException) throw (RuntimeException) th;
+        if(th instanceof Error) throw (Error) th;
+        throw Util.notExpected(th);
+      } catch(final InterruptedException ex) {
+        cancel();
+        throw new ProcException();
+      } catch(final ProcException ex) {
+        cancel();
+        throw ex;
+      }
+    }
+
+    /**
+     * Cancels all remaining tasks. No further input items will be evaluated.
+     */
+    public void cancel() {
+      consumed = true;
+      for(final Task task : tasks) {
+        task.ctx.stop();
+        task.future.cancel(false);
+      }
+      tasks.clear();
+      ctx.parallel(this, false);
+    }
+  }
+
+  /**
+   * Returns the thread pool.
+   * @return thread pool
+   */
+  private static synchronized ExecutorService pool() {
+    if(pool == null) {
+      pool = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          final Thread t = new Thread(r);
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return pool;
+  }
+
+  /** Evaluation of a chunk of input items. */
+  private final class Task implements Callable<ValueBuilder> {
+    /** Query context of the original evaluation. */
+    private final QueryContext parent;
+    /** Query context of this task. */
+    private final QueryContext ctx;
+    /** Items to be evaluated. */
+    private final Item[] items;
+    /** Position of the first item. */
+    private final long pos;
+    /** Future result. */
+    private Future<ValueBuilder> future;
+
+    /**
+     * Constructor.
+     * @param pc query context of the original evaluation
+     * @param qc query context of this task
+     * @param it items to be evaluated
+     * @param ps position of the first item
+     */
+    Task(final QueryContext pc, final QueryContext qc, final Item[] it, final long ps) {
+      parent = pc;
+      ctx = qc;
+      items = it;
+      pos = ps;
+    }
+
+    @Override
+    public ValueBuilder call() throws QueryException {
+      final ValueBuilder vb = new ValueBuilder();
+      final int il = items.length;
+      for(int i = 0; i < il; i++) {
+        // stop evaluation if the query or this task has been stopped
+        parent.checkStop();
+        ctx.checkStop();
+        eval(ctx, items[i], pos + i, vb);
+      }
+      return vb;
+    }
+  }
+}
@@ -50,6 +50,14 @@ public final class ModuleLoader {
     if(loader instanceof JarLoader) ((JarLoader) loader).close();
   }
 
+  /**
+   * Checks if Java modules or archives have been loaded.
+   * @return result of check
+   */
+  public boolean java() {
+    return javaModules != null || !urls.isEmpty();
+  }
+
   /**
    * Adds a package from the repository or a Java class.
    * @param uri module uri
@@ -26,6 +26,8 @@ public abstract class ADate extends ADateDur {
   static final long MIN_YEAR = -MAX_YEAR;
   /** Constant for counting negative years (divisible by 400). */
   private static final long ADD_NEG = (MAX_YEAR / 400 + 1) * 400;
+  /** Day count of January 1, 1970. */
+  private static final BigDecimal EPOCH = days(1970 + ADD_NEG, 0, 0);
 
   /** Pattern for two digits. */
   static final String DD = "(\\d{2})";
@@ -399,16 +401,30 @@ public abstract class ADate extends ADateDur {
    * @return seconds
    */
   final BigDecimal seconds() {
-    int z = zon;
-    if(z == Short.MAX_VALUE) {
-      // [CG] XQuery, DateTime: may be removed
-      final long n = System.currentTimeMillis();
-      z = Calendar.getInstance().getTimeZone().getOffset(n) / 60000;
-    }
+    // [CG] XQuery, DateTime: may be removed
+    final int z = zon == Short.MAX_VALUE ? implicitZone() : zon;
     return (sec == null ? BigDecimal.ZERO : sec).add(
         BigDecimal.valueOf(Math.max(0, hou) * 3600 + Math.max(0, min) * 60 - z * 60));
   }
 
+  /**
+   * Returns the implicit timezone, which is applied to dates without timezone.
+   * @return timezone offset in minutes
+   */
+  public static int implicitZone() {
+    final long n = System.currentTimeMillis();
+    return Calendar.getInstance().getTimeZone().getOffset(n) / 60000;
+  }
+
+  /**
+   * Returns the number of seconds since January 1, 1970, 00:00:00 UTC.
+   * Fractional seconds are rounded to the precision of a double value.
+   * @return seconds
+   */
+  public final double epoch() {
+    return seconds().add(days().subtract(EPOCH).multiply(DAYSECONDS)).doubleValue();
+  }
+
   /**
    * Returns a day count.
    * @return days
@@ -199,6 +199,17 @@ public final class FuncItem extends FItem implements Scope {
     return expr.accept(visitor);
   }
 
+  /**
+   * Checks if the function body has the specified compilation property.
+   * In contrast to other expressions, the properties of function items are not
+   * passed on to the surrounding expressions.
+   * @param flag flag to be checked
+   * @return result of check
+   */
+  public boolean bodyHas(final Flag flag) {
+    return expr.has(flag);
+  }
+
   @Override
   public void compile(final QueryContext ctx) {
     // nothing to do here
@@ -98,11 +98,11 @@ public class DBNode extends ANode {
   }
 
   /**
-   * Sets the node type.
+   * Assigns a new pre value and node kind. Can be called to reuse the node instance.
    * @param p pre value
    * @param k node kind
    */
-  final void set(final int p, final int k) {
+  public final void set(final int p, final int k) {
     type = type(k);
     par = null;
     val = null;
@@ -110,6 +110,15 @@ public class DBNode extends ANode {
     pre = p;
   }
 
+  /**
+   * Checks if this node is fully described by its data reference and pre value,
+   * i.e., if it has no explicit parent reference, score value or additional properties.
+   * @return result of check
+   */
+  public final boolean plain() {
+    return par == null && score == null && getClass() == DBNode.class;
+  }
+
   @Override
   public final Data data() {
     return data;
@@ -1,5 +1,7 @@
 package org.basex.query.value.seq;
 
+import java.util.*;
+
 import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
@@ -88,6 +90,17 @@ public final class DBNodeSeq extends NativeSeq {
     return get(v.toArray(), d, docs ? NodeType.DOC : NodeType.NOD, c);
   }
 
+  /**
+   * Creates a node sequence with the given data reference and sorted pre values.
+   * @param v pre values
+   * @param s number of pre values
+   * @param d data reference
+   * @return resulting item or sequence
+   */
+  public static Value get(final int[] v, final int s, final Data d) {
+    return get(s == v.length ? v : Arrays.copyOf(v, s), d, NodeType.NOD, false);
+  }
+
   /**
    * Creates a node sequence with the given data reference and pre values.
    * @param v pre values
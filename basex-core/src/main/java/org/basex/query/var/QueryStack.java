@@ -58,6 +58,24 @@ public final class QueryStack {
     }
   }
 
+  /**
+   * Assigns copies of the stack frames of the specified stack.
+   * @param qs stack to be copied
+   */
+  public void copy(final QueryStack qs) {
+    stack = qs.stack.clone();
+    fp = qs.fp;
+    sl = qs.sl;
+  }
+
+  /**
+   * Checks if all stack frames have been exited.
+   * @return result of check
+   */
+  public boolean isEmpty() {
+    return sl == 0;
+  }
+
   /**
    * Calculates the position of the given variable on the stack.
    * @param v variable
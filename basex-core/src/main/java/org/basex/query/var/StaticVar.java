@@ -25,9 +25,11 @@ public final class StaticVar extends StaticDecl {
   private static final QNm LAZY = new QNm(QueryText.LAZY, BASEXURI);
 
   /** If this variable can be bound from outside the query. */
-  private final boolean external;
+  final boolean external;
   /** Bound value. */
   Value value;
+  /** Indicates if the value may be rebound after compilation (prevents inlining). */
+  boolean dynamic;
   /** Flag for lazy evaluation. */
   private final boolean lazy;
 
@@ -158,6 +160,25 @@ public final class StaticVar extends StaticDecl {
     return true;
   }
 
+  /**
+   * Rebinds a value to this variable after compilation.
+   * @param v value to bind
+   * @param ctx query context
+   * @return {@code false} if the type of the value differs from the compiled one
+   * @throws QueryException query exception
+   */
+  boolean rebind(final Value v, final QueryContext ctx) throws QueryException {
+    if(!dynamic) return false;
+    Value val = v;
+    if(declType != null) {
+      if(!declType.instance(val)) val = declType.cast(val, ctx, sc, info, v);
+    } else if(!val.type().eq(value.type())) {
+      return false;
+    }
+    bind(val);
+    return true;
+  }
+
   /**
    * Checks if the given expression can be bound to this variable.
    * @param e expression
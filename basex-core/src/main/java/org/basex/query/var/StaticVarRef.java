@@ -45,7 +45,7 @@ public final class StaticVarRef extends ParseExpr {
   public Expr compile(final QueryContext ctx, final VarScope o) throws QueryException {
     var.compile(ctx);
     type = var.type();
-    return var.value != null ? var.value : this;
+    return var.value != null && !var.dynamic ? var.value : this;
   }
 
   @Override
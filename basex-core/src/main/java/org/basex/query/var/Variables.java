@@ -9,6 +9,7 @@ import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.type.*;
@@ -120,6 +121,37 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return ref;
   }
 
+  /**
+   * Prevents the values of external variables from being inlined, so that they can
+   * be rebound after compilation. This is only possible if all static variables are
+   * external, as the values of other variables might depend on the bound values.
+   * @return success flag
+   */
+  public boolean dynamic() {
+    for(final VarEntry ve : vars.values()) {
+      if(ve.var == null || !ve.var.external) return false;
+    }
+    for(final VarEntry ve : vars.values()) ve.var.dynamic = true;
+    return true;
+  }
+
+  /**
+   * Rebinds the external variables of a compiled query.
+   * @param ctx query context
+   * @param bindings variable bindings
+   * @return {@code false} if a value could not be rebound
+   * @throws QueryException query exception
+   */
+  public boolean rebind(final QueryContext ctx, final HashMap<QNm, Expr> bindings)
+      throws QueryException {
+
+    for(final Entry<QNm, Expr> e : bindings.entrySet()) {
+      final VarEntry ve = vars.get(e.getKey());
+      if(ve != null && !ve.var.rebind((Value) e.getValue(), ctx)) return false;
+    }
+    return true;
+  }
+
   /**
    * Binds all external variables.
    * @param ctx query context
@@ -5,6 +5,7 @@ import static org.basex.util.Token.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
 
 import org.basex.*;
@@ -41,6 +42,8 @@ public final class ClientListener extends Thread {
   private final BaseXServer server;
   /** Socket reference. */
   private final Socket socket;
+  /** Worker pool ({@code null} if the session is run in its own thread). */
+  private final ClientPool pool;
 
   /** Socket for events. */
   private Socket esocket;
@@ -48,6 +51,8 @@ public final class ClientListener extends Thread {
   private PrintOutput eout;
   /** Flag for active events. */
   private boolean events;
+  /** Timestamp for authentication ({@code null} if the session was authenticated). */
+  private String ts;
   /** Input stream. */
   private BufferInput in;
   /** Output stream. */
@@ -66,20 +71,78 @@ public final class ClientListener extends Thread {
    * @param srv server reference
    */
   public ClientListener(final Socket s, final Context c, final BaseXServer srv) {
+    this(s, c, srv, null);
+  }
+
+  /**
+   * Constructor for sessions that are multiplexed by a worker pool.
+   * The socket must have been created by a {@link SocketChannel}.
+   * @param s socket
+   * @param c database context
+   * @param srv server reference
+   * @param p worker pool (may be {@code null})
+   */
+  public ClientListener(final Socket s, final Context c, final BaseXServer srv,
+      final ClientPool p) {
     context = new Context(c, this);
     socket = s;
     server = srv;
+    pool = p;
     last = System.currentTimeMillis();
     setDaemon(true);
   }
 
   @Override
   public void run() {
-    if(!authenticate()) return;
+    try {
+      process();
+    } catch(final Throwable ex) {
+      // unexpected error: close the session, as the client would otherwise wait forever
+      Util.stack(ex);
+      log(ex, false);
+      command = null;
+      if(running) {
+        quit();
+      } else {
+        server.remove(this);
+        try {
+          close();
+        } catch(final IOException e) {
+          Util.debug(e);
+        }
+      }
+    }
+  }
 
+  /**
+   * Processes incoming requests. If the session is multiplexed by a worker pool, the
+   * method returns as soon as no more input is available, and the next request of the
+   * session may be processed by another worker thread.
+   */
+  private void process() {
+    // new session: send timestamp; pooled sessions wait for the login data
+    if(out == null) {
+      if(!challenge()) return;
+      if(pool != null) {
+        pool.select(this);
+        return;
+      }
+    }
+    final boolean login = ts != null;
+    if(login && !authenticate()) return;
+
+    // pooled sessions: input is available, unless thread was assigned for login
+    boolean ready = !login;
     try {
       while(running) {
         command = null;
+        // pooled sessions: release thread until the next request arrives
+        if(pool != null && !ready && in.buffered() == 0) {
+          pool.select(this);
+          return;
+        }
+        ready = false;
+
         String cmd;
         final ServerCmd sc;
         try {
@@ -170,22 +233,33 @@ public final class ClientListener extends Thread {
   }
 
   /**
-   * Initializes a session via cram-md5.
+   * Initializes a session via cram-md5 and sends the timestamp.
    * @return success flag
    */
-  private boolean authenticate() {
+  private boolean challenge() {
     try {
-      final String ts = Long.toString(System.nanoTime());
-      final byte[] address = socket.getInetAddress().getAddress();
-
+      ts = Long.toString(System.nanoTime());
       // send {TIMESTAMP}0
       out = PrintOutput.get(socket.getOutputStream());
       out.print(ts);
       send(true);
-
-      // evaluate login data
       in = new BufferInput(socket.getInputStream());
-      // receive {USER}0{PASSWORD}0
+      return true;
+    } catch(final IOException ex) {
+      server.remove(this);
+      return false;
+    }
+  }
+
+  /**
+   * Authenticates the session.
+   * @return success flag
+   */
+  private boolean authenticate() {
+    try {
+      final byte[] address = socket.getInetAddress().getAddress();
+
+      // evaluate login data: receive {USER}0{PASSWORD}0
       final String us = in.readString();
       final String pw = in.readString();
       context.user = context.users.get(us);
@@ -202,6 +276,7 @@ public final class ClientListener extends Thread {
         // delay users with wrong passwords
         for(int d = context.blocker.delay(address); d > 0; d--) Performance.sleep(1000);
         send(false);
+        if(pool != null) close();
       }
     } catch(final IOException ex) {
       if(running) {
@@ -211,6 +286,7 @@ public final class ClientListener extends Thread {
       }
     }
 
+    ts = null;
     server.remove(this);
     return running;
   }
@@ -220,7 +296,7 @@ public final class ClientListener extends Thread {
    */
   public synchronized void quitAuth() {
     try {
-      socket.close();
+      close();
       log(TIMEOUT_EXCEEDED, false);
     } catch(final Throwable ex) {
       log(ex, false);
@@ -242,8 +318,11 @@ public final class ClientListener extends Thread {
     context.sessions.remove(this);
 
     try {
+      // release locks of opened cursors
+      for(final QueryListener ql : queries.values()) ql.close();
+      queries.clear();
       new Close().run(context);
-      socket.close();
+      close();
       if(events) {
         esocket.close();
         // remove this session from all events in pool
@@ -255,6 +334,14 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Returns the channel of the socket.
+   * @return channel
+   */
+  SocketChannel channel() {
+    return socket.getChannel();
+  }
+
   /**
    * Returns the context of this session.
    * @return user reference
@@ -307,6 +394,16 @@ public final class ClientListener extends Thread {
 
   // PRIVATE METHODS ==========================================================
 
+  /**
+   * Closes the socket.
+   * @throws IOException I/O exception
+   */
+  private void close() throws IOException {
+    socket.close();
+    // release sockets that are registered with the selector
+    if(pool != null) pool.wakeup();
+  }
+
   /**
    * Returns error feedback.
    * @param info error string
@@ -483,6 +580,12 @@ public final class ClientListener extends Thread {
           if(!typ.isEmpty()) info.append(" as ").append(typ);
         } else if(sc == ServerCmd.RESULTS) {
           qp.execute(true, out, true, false);
+        } else if(sc == ServerCmd.OPEN) {
+          qp.open();
+        } else if(sc == ServerCmd.FETCH) {
+          final String max = in.readString();
+          qp.fetch(Integer.parseInt(max), out);
+          info.append(max);
         } else if(sc == ServerCmd.EXEC) {
           qp.execute(false, out, true, false);
         } else if(sc == ServerCmd.FULL) {
@@ -494,7 +597,7 @@ public final class ClientListener extends Thread {
         } else if(sc == ServerCmd.UPDATING) {
           out.print(Boolean.toString(qp.updating()));
         } else if(sc == ServerCmd.CLOSE) {
-          queries.remove(arg);
+          queries.remove(arg).close();
         } else if(sc == ServerCmd.NEXT) {
           throw new Exception("Protocol for query iteration is out-of-date.");
         }
@@ -512,7 +615,8 @@ public final class ClientListener extends Thread {
       err = Util.message(ex);
       log(sc + "[" + arg + ']', null);
       log(err, false);
-      queries.remove(arg);
+      final QueryListener qp = queries.remove(arg);
+      if(qp != null) qp.close();
     }
     if(err != null) {
       // send 0 as end marker, 1 as error flag, and {MSG}0
@@ -0,0 +1,135 @@
+package org.basex.server;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.basex.util.*;
+
+/**
+ * Multiplexes client sessions in the client-server architecture.
+ * Idle connections are watched by a single selector, and a thread of a bounded
+ * worker pool is only assigned to a session while a request is being processed.
+ * Consecutive requests of a session may thus be processed by different worker threads:
+ * state of a session must not be bound to the current thread.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientPool extends Thread {
+  /** Selector for idle sessions. */
+  private final Selector selector;
+  /** Worker threads. */
+  private final ExecutorService workers;
+  /** Sessions to be registered with the selector. */
+  private final ConcurrentLinkedQueue<ClientListener> idle =
+    new ConcurrentLinkedQueue<ClientListener>();
+  /** Indicates if the selector is running. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructor.
+   * @param threads number of worker threads
+   * @throws IOException I/O exception
+   */
+  public ClientPool(final int threads) throws IOException {
+    selector = Selector.open();
+    workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r);
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    setDaemon(true);
+  }
+
+  /**
+   * Assigns a worker thread to the specified session.
+   * @param client client session
+   */
+  public void execute(final ClientListener client) {
+    workers.execute(client);
+  }
+
+  /**
+   * Waits for the next request of the specified session.
+   * @param client client session
+   */
+  void select(final ClientListener client) {
+    idle.add(client);
+    selector.wakeup();
+  }
+
+  /**
+   * Wakes up the selector. Must be called if a session has been closed, as the
+   * sockets of registered channels are only released by the next selection.
+   */
+  void wakeup() {
+    selector.wakeup();
+  }
+
+  @Override
+  public void run() {
+    final ArrayList<ClientListener> ready = new ArrayList<ClientListener>();
+    while(running) {
+      try {
+        selector.select();
+
+        // register idle sessions
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            final SocketChannel ch = cl.channel();
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_READ, cl);
+          } catch(final IOException ex) {
+            // session has been closed in the meantime
+            cl.quit();
+          }
+        }
+
+        // cancel registrations of sessions with incoming requests
+        final Set<SelectionKey> keys = selector.selectedKeys();
+        if(keys.isEmpty()) continue;
+        for(final SelectionKey key : keys) {
+          key.cancel();
+          ready.add((ClientListener) key.attachment());
+        }
+        keys.clear();
+        // deregister cancelled keys before the channels are switched to blocking mode
+        selector.selectNow();
+
+        // process requests
+        for(final ClientListener cl : ready) {
+          try {
+            cl.channel().configureBlocking(true);
+            workers.execute(cl);
+          } catch(final IOException ex) {
+            cl.quit();
+          }
+        }
+        ready.clear();
+      } catch(final ClosedSelectorException ex) {
+        break;
+      } catch(final IOException ex) {
+        Util.errln(ex);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Stops the selector and the worker threads.
+   */
+  public void close() {
+    running = false;
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      Util.debug(ex);
+    }
+    workers.shutdown();
+  }
+}
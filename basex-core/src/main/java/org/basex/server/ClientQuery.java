@@ -73,8 +73,16 @@ public class ClientQuery extends Query {
 
   @Override
   protected void cache() throws IOException {
-    cs.sout.write(ServerCmd.RESULTS.code);
-    cs.send(id);
+    if(fetch > 0) {
+      // open cursor before fetching the first results
+      if(cache == null) cs.exec(ServerCmd.OPEN, id, null);
+      cs.sout.write(ServerCmd.FETCH.code);
+      cs.send(id);
+      cs.send(Integer.toString(fetch));
+    } else {
+      cs.sout.write(ServerCmd.RESULTS.code);
+      cs.send(id);
+    }
     cs.sout.flush();
     final BufferInput bi = new BufferInput(cs.sin);
     cache(bi);
@@ -44,7 +44,13 @@ public class LocalQuery extends Query {
   @Override
   protected void cache() throws IOException {
     final ArrayOutput ao = new ArrayOutput();
-    ql.execute(true, ao, true, false);
+    if(fetch > 0) {
+      // open cursor before fetching the first results
+      if(cache == null) ql.open();
+      ql.fetch(fetch, ao);
+    } else {
+      ql.execute(true, ao, true, false);
+    }
     cache(new ArrayInput(ao.toArray()));
   }
 
@@ -72,5 +78,6 @@ public class LocalQuery extends Query {
 
   @Override
   public void close() {
+    ql.close();
   }
 }
@@ -27,6 +27,10 @@ public abstract class Query {
   private ByteList types;
   /** Cache pointer. */
   private int pos;
+  /** Number of items to be fetched at a time (0: fetch all items at once). */
+  int fetch;
+  /** Indicates if the results of an opened cursor have been completely fetched. */
+  boolean fetched;
 
   /**
    * Binds a value to an external variable.
@@ -65,13 +69,29 @@ public abstract class Query {
    */
   public abstract void context(final Object v, final String t) throws IOException;
 
+  /**
+   * Specifies the number of items that will be fetched at a time by {@link #more()}.
+   * If a positive value is assigned, a server-side cursor will be opened, and the
+   * results will be retrieved in batches with bounded memory consumption.
+   * @param size number of items (0: fetch all items at once)
+   */
+  public final void fetch(final int size) {
+    fetch = Math.max(0, size);
+    cache = null;
+  }
+
   /**
    * Returns {@code true} if more items are available.
    * @return result of check
    * @throws IOException I/O exception
    */
   public boolean more() throws IOException {
-    if(cache == null) cache();
+    if(cache == null) {
+      fetched = false;
+      cache();
+    }
+    // fetch next results of an opened cursor
+    while(pos == cache.size() && fetch > 0 && !fetched) cache();
     if(pos < cache.size()) return true;
     cache = null;
     types = null;
@@ -79,7 +99,8 @@ public abstract class Query {
   }
 
   /**
-   * Caches the query result.
+   * Caches the query result, or the next results of a cursor if a fetch size has been
+   * specified.
    * @throws IOException I/O exception
    */
   protected abstract void cache() throws IOException;
@@ -123,6 +144,7 @@ public abstract class Query {
       bl.reset();
     }
     pos = 0;
+    if(fetch > 0 && cache.size() < fetch) fetched = true;
   }
 
   /**
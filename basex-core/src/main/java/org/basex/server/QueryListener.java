@@ -5,6 +5,7 @@ import static org.basex.io.serial.SerializerOptions.*;
 import static org.basex.query.util.Err.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.io.out.*;
@@ -38,6 +39,17 @@ final class QueryListener extends Proc {
   /** Query info. */
   private String info = "";
 
+  /** Cursor flag (set if a cursor has been opened and not closed yet). */
+  private boolean cursor;
+  /** Iterator of an opened cursor ({@code null} if all results have been returned). */
+  private Iter iter;
+  /** Number of bytes returned by the opened cursor. */
+  private long printed;
+  /** Number of items returned by the opened cursor. */
+  private int hits;
+  /** Versions of the databases opened by the cursor, recorded after the last batch. */
+  private int[] versions;
+
   /**
    * Constructor.
    * @param qu query string
@@ -56,6 +68,7 @@ final class QueryListener extends Proc {
    * @throws IOException query exception
    */
   void bind(final String n, final Object v, final String t) throws IOException {
+    close();
     try {
       init().bind(n, v, t);
     } catch(final QueryException ex) {
@@ -70,6 +83,7 @@ final class QueryListener extends Proc {
    * @throws IOException query exception
    */
   void context(final Object v, final String t) throws IOException {
+    close();
     try {
       init().context(v, t);
     } catch(final QueryException ex) {
@@ -115,18 +129,11 @@ final class QueryListener extends Proc {
   void execute(final boolean iter, final OutputStream out, final boolean enc, final boolean full)
       throws IOException {
 
+    close();
     try {
       try {
-        // parses the query and registers the process
-        ctx.register(parse());
-
-        // create serializer
-        qp.compile();
+        final Iter ir = iter();
         final QueryInfo qi = qp.ctx.info;
-        qi.compiling = perf.time();
-        final Iter ir = qp.iter();
-        qi.evaluating = perf.time();
-        parameters();
         final boolean wrap = !parameters.get(WRAP_PREFIX).isEmpty();
 
         // iterate through results
@@ -167,15 +174,146 @@ final class QueryListener extends Proc {
         throw new BaseXException(TIMEOUT_EXCEEDED);
       }
     } finally {
-      // close processor and unregisters the process
-      if(qp != null) {
-        qp.close();
-        if(parsed) {
-          ctx.unregister(qp);
-          parsed = false;
+      finish();
+    }
+  }
+
+  /**
+   * Opens a cursor on the query results, which can be retrieved in batches via
+   * {@link #fetch}. The databases referenced by the query are only locked while the
+   * cursor is opened and while a batch is fetched, as subsequent requests of a session
+   * may be processed by different threads. The cursor is invalidated if one of the
+   * databases is updated in the meantime.
+   * @throws IOException I/O Exception
+   */
+  void open() throws IOException {
+    close();
+    try {
+      try {
+        iter = iter();
+        if(!parameters.get(WRAP_PREFIX).isEmpty()) throw new BaseXException(CURSOR_WRAPPED);
+        cursor = true;
+        printed = 0;
+        hits = 0;
+      } catch(final QueryException ex) {
+        throw new BaseXException(ex);
+      } catch(final StackOverflowError ex) {
+        Util.debug(ex);
+        throw new BaseXException(BASX_STACKOVERFLOW.desc);
+      } catch(final ProcException ex) {
+        throw new BaseXException(TIMEOUT_EXCEEDED);
+      }
+    } finally {
+      if(cursor) release();
+      else finish();
+    }
+  }
+
+  /**
+   * Serializes the next results of an opened cursor. Each item is preceded by its type
+   * and terminated by a {@code 0} byte. If less than the requested number of items are
+   * returned, all results have been fetched and the query is closed.
+   * @param max maximum number of items to be returned
+   * @param out output stream
+   * @throws IOException I/O Exception
+   */
+  void fetch(final int max, final OutputStream out) throws IOException {
+    if(!cursor) throw new BaseXException(CURSOR_MISSING);
+    // all results have been returned
+    if(iter == null) return;
+
+    boolean ok = false;
+    try {
+      try {
+        ctx.register(qp);
+        if(!Arrays.equals(versions, qp.versions())) throw new BaseXException(CURSOR_UPDATED);
+        perf.time();
+        final PrintOutput po = PrintOutput.get(new EncodingOutput(out));
+        final Serializer ser = Serializer.get(po, parameters);
+        int c = 0;
+        for(Item it; c < max && (it = iter.next()) != null; c++) {
+          po.write(it.typeId().asByte());
+          ser.reset();
+          ser.serialize(it);
+          po.flush();
+          out.write(0);
         }
-        qp = null;
+        ser.close();
+        final QueryInfo qi = qp.ctx.info;
+        qi.serializing += perf.time();
+        printed += po.size();
+        hits += c;
+
+        ok = true;
+        if(c < max) {
+          // generate query info and release resources
+          info = qi.toString(qp, printed, hits, ctx.options.get(MainOptions.QUERYINFO));
+          iter = null;
+          finish();
+        } else {
+          release();
+        }
+      } catch(final QueryException ex) {
+        throw new BaseXException(ex);
+      } catch(final StackOverflowError ex) {
+        Util.debug(ex);
+        throw new BaseXException(BASX_STACKOVERFLOW.desc);
+      } catch(final ProcException ex) {
+        throw new BaseXException(TIMEOUT_EXCEEDED);
       }
+    } finally {
+      if(!ok) close();
+    }
+  }
+
+  /**
+   * Closes an opened cursor and releases its resources.
+   */
+  void close() {
+    if(!cursor) return;
+    cursor = false;
+    iter = null;
+    finish();
+  }
+
+  /**
+   * Parses and compiles the query and returns a result iterator.
+   * @return iterator
+   * @throws IOException I/O Exception
+   * @throws QueryException query exception
+   */
+  private Iter iter() throws IOException, QueryException {
+    // parses the query and registers the process
+    ctx.register(parse());
+
+    // create serializer
+    qp.compile();
+    final QueryInfo qi = qp.ctx.info;
+    qi.compiling = perf.time();
+    final Iter ir = qp.iter();
+    qi.evaluating = perf.time();
+    parameters();
+    return ir;
+  }
+
+  /**
+   * Unregisters the process of an opened cursor and records the versions of the
+   * opened databases.
+   */
+  private void release() {
+    versions = qp.versions();
+    ctx.unregister(qp);
+  }
+
+  /**
+   * Closes the query processor and unregisters the process.
+   */
+  private void finish() {
+    if(qp != null) {
+      qp.close();
+      if(qp.registered()) ctx.unregister(qp);
+      parsed = false;
+      qp = null;
     }
   }
 
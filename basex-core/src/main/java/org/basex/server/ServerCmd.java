@@ -37,6 +37,10 @@ public enum ServerCmd {
   STORE(13),
   /** Code for binding a context item: {id}0{val}0{type}0. */
   CONTEXT(14),
+  /** Code for opening a cursor on the query results: {id}0. */
+  OPEN(15),
+  /** Code for fetching the next results of an opened cursor: {id}0{max}0. */
+  FETCH(16),
   /** Code for returning the update flag: {id}0. */
   UPDATING(30),
   /** Code for executing a query and returning all information relevant for XQJ: {id}0. */
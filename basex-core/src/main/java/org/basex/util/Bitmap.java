@@ -0,0 +1,378 @@
+package org.basex.util;
+
+import static java.lang.Long.*;
+
+import java.util.*;
+
+/**
+ * Compressed bitmap for non-negative integers, following the layout of Roaring bitmaps.
+ * The value range is divided into chunks of 2<sup>16</sup> values, which are addressed by
+ * the upper 16 bits of a value. Depending on the number of its values, a chunk stores the
+ * lower 16 bits of the values in a sorted array, or in a bit array with 2<sup>16</sup>
+ * bits. Set operations are performed chunk by chunk; bit arrays are combined word by word.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class Bitmap {
+  /** Number of bits addressing a value within a chunk. */
+  private static final int BITS = 16;
+  /** Bit mask for values within a chunk. */
+  private static final int MASK = (1 << BITS) - 1;
+  /** Number of words of a bit array. */
+  private static final int WORDS = 1 << BITS - 6;
+  /** Maximum number of values stored in an array. */
+  private static final int MAX = 1 << 12;
+
+  /** Arrays with the sorted lower bits of the values ({@code null} if not used). */
+  private char[][] arrays;
+  /** Bit arrays ({@code null} if not used). */
+  private long[][] words;
+  /** Number of values per chunk. */
+  private int[] sizes;
+
+  /**
+   * Constructor, assigning the specified values.
+   * @param values non-negative values (may be unsorted and contain duplicates)
+   * @param size number of values
+   */
+  public Bitmap(final int[] values, final int size) {
+    int max = 0;
+    for(int i = 0; i < size; i++) max = Math.max(max, values[i]);
+    init(size == 0 ? 0 : (max >>> BITS) + 1);
+
+    // count values per chunk, choose representation
+    final int[] counts = new int[sizes.length];
+    for(int i = 0; i < size; i++) counts[values[i] >>> BITS]++;
+    final int cs = counts.length;
+    for(int c = 0; c < cs; c++) {
+      if(counts[c] > MAX) words[c] = new long[WORDS];
+      else if(counts[c] != 0) arrays[c] = new char[counts[c]];
+    }
+
+    // assign values
+    for(int i = 0; i < size; i++) {
+      final int v = values[i], c = v >>> BITS;
+      if(words[c] != null) words[c][(v & MASK) >>> 6] |= 1L << v;
+      else arrays[c][sizes[c]++] = (char) v;
+    }
+
+    // sort arrays and remove duplicates, count bits
+    for(int c = 0; c < cs; c++) {
+      final char[] a = arrays[c];
+      if(a != null) {
+        int s = 1;
+        final int al = a.length;
+        for(; s < al && a[s - 1] < a[s]; s++);
+        if(s < al) {
+          Arrays.sort(a);
+          s = 1;
+          for(int i = 1; i < al; i++) if(a[s - 1] != a[i]) a[s++] = a[i];
+          arrays[c] = Arrays.copyOf(a, s);
+        }
+        sizes[c] = s;
+      } else if(words[c] != null) {
+        optimize(c, count(words[c]));
+      }
+    }
+  }
+
+  /**
+   * Initializes the chunk arrays.
+   * @param cs number of chunks
+   */
+  private void init(final int cs) {
+    arrays = new char[cs][];
+    words = new long[cs][];
+    sizes = new int[cs];
+  }
+
+  /**
+   * Checks if the specified sorted values are dense, i.e., if a chunk will contain more
+   * values than can be stored in an array on average. Set operations on bitmaps are
+   * faster than a linear merge of such values.
+   * @param values sorted values
+   * @param size number of values
+   * @return result of check
+   */
+  public static boolean dense(final int[] values, final int size) {
+    return size > MAX && (long) size * (MASK + 1) / MAX > values[size - 1] - values[0];
+  }
+
+  /**
+   * Checks if the specified value is contained in the bitmap.
+   * @param v value
+   * @return result of check
+   */
+  public boolean contains(final int v) {
+    final int c = v >>> BITS;
+    if(c >= sizes.length || sizes[c] == 0) return false;
+    final long[] w = words[c];
+    return w != null ? (w[(v & MASK) >>> 6] & 1L << v) != 0 :
+      Arrays.binarySearch(arrays[c], (char) v) >= 0;
+  }
+
+  /**
+   * Returns the number of values.
+   * @return number of values
+   */
+  public int cardinality() {
+    int s = 0;
+    for(final int sz : sizes) s += sz;
+    return s;
+  }
+
+  /**
+   * Adds the values of the specified bitmap to this bitmap.
+   * @param bm bitmap
+   * @return self reference
+   */
+  public Bitmap or(final Bitmap bm) {
+    final int cs = bm.sizes.length;
+    if(cs > sizes.length) {
+      arrays = Arrays.copyOf(arrays, cs);
+      words = Arrays.copyOf(words, cs);
+      sizes = Arrays.copyOf(sizes, cs);
+    }
+    for(int c = 0; c < cs; c++) {
+      if(bm.sizes[c] == 0) continue;
+      final long[] w1 = words[c], w2 = bm.words[c];
+      if(sizes[c] == 0) {
+        // adopt copy of other chunk
+        clear(c);
+        if(w2 != null) words[c] = w2.clone();
+        else arrays[c] = bm.arrays[c].clone();
+        sizes[c] = bm.sizes[c];
+      } else if(w1 == null && w2 == null) {
+        arrays[c] = union(arrays[c], bm.arrays[c]);
+        optimize(c, arrays[c].length);
+      } else {
+        final long[] w = w1 != null ? w1 : words(arrays[c]);
+        if(w2 != null) {
+          for(int i = 0; i < WORDS; i++) w[i] |= w2[i];
+        } else {
+          for(final char v : bm.arrays[c]) w[v >>> 6] |= 1L << v;
+        }
+        arrays[c] = null;
+        words[c] = w;
+        optimize(c, count(w));
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Removes all values that are not contained in the specified bitmap.
+   * @param bm bitmap
+   * @return self reference
+   */
+  public Bitmap and(final Bitmap bm) {
+    final int cs = sizes.length;
+    for(int c = 0; c < cs; c++) {
+      if(sizes[c] == 0) continue;
+      if(c >= bm.sizes.length || bm.sizes[c] == 0) {
+        clear(c);
+        continue;
+      }
+      final long[] w1 = words[c], w2 = bm.words[c];
+      if(w1 != null && w2 != null) {
+        for(int i = 0; i < WORDS; i++) w1[i] &= w2[i];
+        optimize(c, count(w1));
+      } else if(w1 != null) {
+        // filter array of other chunk
+        arrays[c] = filter(bm.arrays[c], w1, true);
+        words[c] = null;
+        sizes[c] = arrays[c].length;
+      } else {
+        arrays[c] = w2 != null ? filter(arrays[c], w2, true) :
+          intersect(arrays[c], bm.arrays[c]);
+        sizes[c] = arrays[c].length;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Removes all values that are contained in the specified bitmap.
+   * @param bm bitmap
+   * @return self reference
+   */
+  public Bitmap andNot(final Bitmap bm) {
+    final int cs = Math.min(sizes.length, bm.sizes.length);
+    for(int c = 0; c < cs; c++) {
+      if(sizes[c] == 0 || bm.sizes[c] == 0) continue;
+      final long[] w1 = words[c], w2 = bm.words[c];
+      if(w1 != null) {
+        if(w2 != null) {
+          for(int i = 0; i < WORDS; i++) w1[i] &= ~w2[i];
+        } else {
+          for(final char v : bm.arrays[c]) w1[v >>> 6] &= ~(1L << v);
+        }
+        optimize(c, count(w1));
+      } else {
+        arrays[c] = w2 != null ? filter(arrays[c], w2, false) :
+          except(arrays[c], bm.arrays[c]);
+        sizes[c] = arrays[c].length;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Returns all values in ascending order.
+   * @return values
+   */
+  public int[] toArray() {
+    final int[] values = new int[cardinality()];
+    int s = 0;
+    final int cs = sizes.length;
+    for(int c = 0; c < cs; c++) {
+      if(sizes[c] == 0) continue;
+      final int high = c << BITS;
+      final long[] w = words[c];
+      if(w != null) {
+        for(int i = 0; i < WORDS; i++) {
+          for(long word = w[i]; word != 0; word &= word - 1) {
+            values[s++] = high | i << 6 | numberOfTrailingZeros(word);
+          }
+        }
+      } else {
+        for(final char v : arrays[c]) values[s++] = high | v;
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Assigns the number of values of a bit array chunk, and converts it to an array if
+   * it contains only few values, or converts an array chunk to a bit array if it
+   * contains many values.
+   * @param c chunk
+   * @param s number of values
+   */
+  private void optimize(final int c, final int s) {
+    sizes[c] = s;
+    if(s == 0) {
+      clear(c);
+    } else if(words[c] != null && s <= MAX) {
+      final long[] w = words[c];
+      final char[] a = new char[s];
+      int i = 0;
+      for(int wi = 0; wi < WORDS; wi++) {
+        for(long word = w[wi]; word != 0; word &= word - 1) {
+          a[i++] = (char) (wi << 6 | numberOfTrailingZeros(word));
+        }
+      }
+      arrays[c] = a;
+      words[c] = null;
+    } else if(arrays[c] != null && s > MAX) {
+      words[c] = words(arrays[c]);
+      arrays[c] = null;
+    }
+  }
+
+  /**
+   * Removes all values of a chunk.
+   * @param c chunk
+   */
+  private void clear(final int c) {
+    arrays[c] = null;
+    words[c] = null;
+    sizes[c] = 0;
+  }
+
+  /**
+   * Returns the number of set bits.
+   * @param w bit array
+   * @return number of set bits
+   */
+  private static int count(final long[] w) {
+    int s = 0;
+    for(final long word : w) s += bitCount(word);
+    return s;
+  }
+
+  /**
+   * Converts an array to a bit array.
+   * @param a array
+   * @return bit array
+   */
+  private static long[] words(final char[] a) {
+    final long[] w = new long[WORDS];
+    for(final char v : a) w[v >>> 6] |= 1L << v;
+    return w;
+  }
+
+  /**
+   * Returns all array values that are (or are not) contained in the specified bit array.
+   * @param a array
+   * @param w bit array
+   * @param in return values that are contained in the bit array
+   * @return resulting array
+   */
+  private static char[] filter(final char[] a, final long[] w, final boolean in) {
+    final char[] r = new char[a.length];
+    int s = 0;
+    for(final char v : a) if(in == ((w[v >>> 6] & 1L << v) != 0)) r[s++] = v;
+    return Arrays.copyOf(r, s);
+  }
+
+  /**
+   * Merges two sorted arrays.
+   * @param a1 first array
+   * @param a2 second array
+   * @return resulting array
+   */
+  private static char[] union(final char[] a1, final char[] a2) {
+    final int l1 = a1.length, l2 = a2.length;
+    final char[] r = new char[l1 + l2];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < l1 && i2 < l2) {
+      final char v1 = a1[i1], v2 = a2[i2];
+      if(v1 <= v2) i1++;
+      if(v2 <= v1) i2++;
+      r[s++] = v1 < v2 ? v1 : v2;
+    }
+    while(i1 < l1) r[s++] = a1[i1++];
+    while(i2 < l2) r[s++] = a2[i2++];
+    return Arrays.copyOf(r, s);
+  }
+
+  /**
+   * Returns the values of the first sorted array that also occur in the second array.
+   * @param a1 first array
+   * @param a2 second array
+   * @return resulting array
+   */
+  private static char[] intersect(final char[] a1, final char[] a2) {
+    final int l1 = a1.length, l2 = a2.length;
+    final char[] r = new char[Math.min(l1, l2)];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < l1 && i2 < l2) {
+      final char v1 = a1[i1], v2 = a2[i2];
+      if(v1 <= v2) i1++;
+      if(v2 <= v1) i2++;
+      if(v1 == v2) r[s++] = v1;
+    }
+    return Arrays.copyOf(r, s);
+  }
+
+  /**
+   * Returns the values of the first sorted array that do not occur in the second array.
+   * @param a1 first array
+   * @param a2 second array
+   * @return resulting array
+   */
+  private static char[] except(final char[] a1, final char[] a2) {
+    final int l1 = a1.length, l2 = a2.length;
+    final char[] r = new char[l1];
+    int i1 = 0, i2 = 0, s = 0;
+    while(i1 < l1) {
+      final char v1 = a1[i1];
+      while(i2 < l2 && a2[i2] < v1) i2++;
+      if(i2 == l2 || a2[i2] != v1) r[s++] = v1;
+      i1++;
+    }
+    return Arrays.copyOf(r, s);
+  }
+}
@@ -12,7 +12,7 @@ import org.basex.util.list.*;
  * @author Christian Gruen
  * @author Wolfgang Kronberg
  */
-public final class Compress {
+public final class Compress implements TextCodec {
   /** A ByteList instance serving as a buffer. */
   private final MyByteList bl = new MyByteList();
   /** Temporary value. */
@@ -24,11 +24,7 @@ public final class Compress {
   /** Unpack offset. */
   private int uo;
 
-  /**
-   * Compresses the specified text.
-   * @param txt text to be packed
-   * @return packed text
-   */
+  @Override
   public byte[] pack(final byte[] txt) {
     // initialize compression
     final int tl = txt.length;
@@ -87,11 +83,7 @@ public final class Compress {
     pc = cc;
   }
 
-  /**
-   * Decompresses the specified text.
-   * @param txt text to be unpacked
-   * @return unpacked text
-   */
+  @Override
   public byte[] unpack(final byte[] txt) {
     // initialize decompression
     final byte[] tmp = bl.get();
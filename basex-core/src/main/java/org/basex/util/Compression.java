@@ -0,0 +1,58 @@
+package org.basex.util;
+
+import java.util.*;
+
+/**
+ * Codecs for compressing texts and attribute values of databases.
+ * The codec is chosen when a database is created (see
+ * {@link org.basex.core.MainOptions#COMPRESSION}) and stored in its meta data.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public enum Compression {
+  /** Bit-wise, Huffman-like compression (default). */ HUFFMAN,
+  /** Byte-oriented LZ4 block compression. */          LZ4,
+  /** No compression. */                               NONE;
+
+  /** Thread-local codec instances. */
+  private final ThreadLocal<TextCodec> codecs = new ThreadLocal<TextCodec>() {
+    @Override
+    protected TextCodec initialValue() {
+      return Compression.this == LZ4 ? new LZ4Compress() : new Compress();
+    }
+  };
+
+  /**
+   * Compresses the specified text.
+   * @param txt text to be packed
+   * @return packed text, or the original text if it could not be compressed
+   */
+  public byte[] pack(final byte[] txt) {
+    return this == NONE ? txt : codecs.get().pack(txt);
+  }
+
+  /**
+   * Decompresses the specified text.
+   * @param txt text to be unpacked
+   * @return unpacked text
+   */
+  public byte[] unpack(final byte[] txt) {
+    return codecs.get().unpack(txt);
+  }
+
+  /**
+   * Returns the codec with the specified name, or the default codec.
+   * @param name name of codec
+   * @return codec
+   */
+  public static Compression get(final String name) {
+    for(final Compression c : values()) if(c.toString().equals(name)) return c;
+    return HUFFMAN;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString().toLowerCase(Locale.ENGLISH);
+  }
+}
@@ -0,0 +1,176 @@
+package org.basex.util;
+
+import java.util.*;
+
+/**
+ * This class compresses and decompresses tokens with the LZ4 block format.
+ * Repeated byte sequences are replaced with back references; no entropy coding
+ * is applied, which makes the codec much faster than {@link Compress} if longer
+ * texts are decompressed.
+ *
+ * NOTE: this class is not thread-safe.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class LZ4Compress implements TextCodec {
+  /** Minimum match length. */
+  private static final int MIN_MATCH = 4;
+  /** Number of trailing bytes that are always stored as literals. */
+  private static final int LAST_LITERALS = 5;
+  /** Minimum distance between the last match and the end of the text. */
+  private static final int MF_LIMIT = 12;
+  /** Maximum offset of a back reference. */
+  private static final int MAX_OFFSET = 0xFFFF;
+  /** Maximum number of hash bits. */
+  private static final int HASH_LOG = 12;
+
+  /** Hash table, containing the last positions of 4-byte sequences. */
+  private final int[] table = new int[1 << HASH_LOG];
+  /** Output buffer. */
+  private byte[] buffer = new byte[256];
+
+  @Override
+  public byte[] pack(final byte[] txt) {
+    // skip texts that are too short to contain matches
+    final int tl = txt.length;
+    if(tl <= MF_LIMIT) return txt;
+
+    final int nl = Num.length(tl), max = nl + tl + tl / 255 + 16;
+    if(buffer.length < max) buffer = new byte[max];
+    final byte[] out = buffer;
+    Num.set(out, tl, 0);
+    int op = nl;
+
+    // choose size of hash table
+    int hl = 8;
+    while(hl < HASH_LOG && 1 << hl < tl) hl++;
+    final int shift = 32 - hl;
+    final int[] tbl = table;
+    Arrays.fill(tbl, 0, 1 << hl, -1);
+
+    final int limit = tl - MF_LIMIT, mlimit = tl - LAST_LITERALS;
+    int ip = 0, anchor = 0;
+    while(ip < limit) {
+      final int h = hash(txt, ip, shift), ref = tbl[h];
+      tbl[h] = ip;
+      if(ref < 0 || ip - ref > MAX_OFFSET || int4(txt, ref) != int4(txt, ip)) {
+        ip++;
+        continue;
+      }
+      // extend match backwards and forwards
+      int s = ip, r = ref;
+      while(s > anchor && r > 0 && txt[s - 1] == txt[r - 1]) {
+        s--;
+        r--;
+      }
+      int e = ip + MIN_MATCH;
+      while(e < mlimit && txt[e] == txt[ref + e - ip]) e++;
+
+      op = sequence(out, op, txt, anchor, s - anchor, s - r, e - s);
+      ip = e;
+      anchor = e;
+    }
+    op = sequence(out, op, txt, anchor, tl - anchor, 0, 0);
+    return op < tl ? Arrays.copyOf(out, op) : txt;
+  }
+
+  @Override
+  public byte[] unpack(final byte[] txt) {
+    final int tl = Num.get(txt, 0);
+    final byte[] res = new byte[tl];
+    int ip = Num.length(txt, 0), op = 0;
+    while(true) {
+      final int token = txt[ip++] & 0xFF;
+      // copy literals
+      int ll = token >>> 4;
+      if(ll == 0x0F) {
+        for(int b; (b = txt[ip++] & 0xFF) == 0xFF;) ll += b;
+        ll += txt[ip - 1] & 0xFF;
+      }
+      System.arraycopy(txt, ip, res, op, ll);
+      ip += ll;
+      op += ll;
+      if(op == tl) return res;
+
+      // copy match (source and target may overlap)
+      final int off = txt[ip++] & 0xFF | (txt[ip++] & 0xFF) << 8;
+      int ml = token & 0x0F;
+      if(ml == 0x0F) {
+        for(int b; (b = txt[ip++] & 0xFF) == 0xFF;) ml += b;
+        ml += txt[ip - 1] & 0xFF;
+      }
+      ml += MIN_MATCH;
+      int r = op - off;
+      if(off >= ml) {
+        System.arraycopy(res, r, res, op, ml);
+        op += ml;
+      } else {
+        for(final int e = op + ml; op < e;) res[op++] = res[r++];
+      }
+    }
+  }
+
+  /**
+   * Writes a sequence of literals, optionally followed by a back reference.
+   * @param out output buffer
+   * @param o output position
+   * @param txt input text
+   * @param lp position of literals
+   * @param ll number of literals
+   * @param off offset of back reference
+   * @param ml length of match ({@code 0}: no back reference)
+   * @return new output position
+   */
+  private static int sequence(final byte[] out, final int o, final byte[] txt, final int lp,
+      final int ll, final int off, final int ml) {
+
+    final int m = ml == 0 ? 0 : ml - MIN_MATCH;
+    int op = o;
+    out[op++] = (byte) (Math.min(ll, 0x0F) << 4 | Math.min(m, 0x0F));
+    op = length(out, op, ll);
+    System.arraycopy(txt, lp, out, op, ll);
+    op += ll;
+    if(ml == 0) return op;
+    out[op++] = (byte) off;
+    out[op++] = (byte) (off >>> 8);
+    return length(out, op, m);
+  }
+
+  /**
+   * Writes the remaining bytes of a literal or match length.
+   * @param out output buffer
+   * @param o output position
+   * @param l length
+   * @return new output position
+   */
+  private static int length(final byte[] out, final int o, final int l) {
+    if(l < 0x0F) return o;
+    int op = o, r = l - 0x0F;
+    for(; r >= 0xFF; r -= 0xFF) out[op++] = (byte) 0xFF;
+    out[op++] = (byte) r;
+    return op;
+  }
+
+  /**
+   * Returns the hash value of the four bytes at the specified position.
+   * @param txt text
+   * @param p position
+   * @param shift number of bits to be shifted
+   * @return hash value
+   */
+  private static int hash(final byte[] txt, final int p, final int shift) {
+    return int4(txt, p) * -1640531535 >>> shift;
+  }
+
+  /**
+   * Returns the four bytes at the specified position as integer.
+   * @param txt text
+   * @param p position
+   * @return integer
+   */
+  private static int int4(final byte[] txt, final int p) {
+    return txt[p] & 0xFF | (txt[p + 1] & 0xFF) << 8 | (txt[p + 2] & 0xFF) << 16 |
+      txt[p + 3] << 24;
+  }
+}
@@ -0,0 +1,25 @@
+package org.basex.util;
+
+/**
+ * This interface is implemented by codecs that compress and decompress single texts.
+ * Compressed texts start with the length of the uncompressed text, encoded via
+ * {@link Num#num(int)}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public interface TextCodec {
+  /**
+   * Compresses the specified text.
+   * @param txt text to be packed
+   * @return packed text, or the original text if it could not be compressed
+   */
+  byte[] pack(final byte[] txt);
+
+  /**
+   * Decompresses the specified text.
+   * @param txt text to be unpacked
+   * @return unpacked text
+   */
+  byte[] unpack(final byte[] txt);
+}
@@ -0,0 +1,109 @@
+package org.basex.build;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Compares databases that have been created from directories with a single and
+ * multiple parsing threads.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelParseTest extends SandboxTest {
+  /** Test directory. */
+  private static final String DIR = "src/test/resources/";
+  /** Query for serializing all documents, their paths and the path summary. */
+  private static final String QUERY = "for $d in db:open('" + NAME + "') " +
+      "return (document-uri($d), $d), count(index:facets('" + NAME + "')//*)";
+
+  /** Resets the options. */
+  @After
+  public void reset() {
+    context.options.set(MainOptions.PARSETHREADS, 1);
+    context.options.set(MainOptions.SKIPCORRUPT, false);
+    context.options.set(MainOptions.INTPARSE, false);
+  }
+
+  /**
+   * Parses the test resources.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void resources() throws BaseXException {
+    context.options.set(MainOptions.SKIPCORRUPT, true);
+    compare(DIR);
+  }
+
+  /**
+   * Parses documents with namespaces, comments, processing instructions and
+   * many attributes.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void nodes() throws IOException {
+    final IOFile dir = new IOFile(sandbox(), "docs");
+    dir.md();
+    final StringBuilder atts = new StringBuilder();
+    for(int a = 0; a < 40; a++) atts.append(" a").append(a).append("='").append(a).append('\'');
+    for(int d = 0; d < 50; d++) {
+      new IOFile(dir, "doc" + d + IO.XMLSUFFIX).write(token(
+          "<?pi " + d + "?><!--c--><x:a xmlns:x='x' xmlns='y'" + atts + "><b x:c='" + d +
+          "'>" + d + "</b><c/><!--" + d + "--><d><?e f?>text</d></x:a>"));
+    }
+    compare(dir.path());
+    context.options.set(MainOptions.INTPARSE, true);
+    compare(dir.path());
+  }
+
+  /**
+   * Checks that errors are reported if corrupt files are not skipped.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void corrupt() throws BaseXException {
+    context.options.set(MainOptions.PARSETHREADS, 4);
+    try {
+      new CreateDB(NAME, DIR).execute(context);
+      fail("Corrupt file was not rejected.");
+    } catch(final BaseXException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Creates a database from the specified path with a single and multiple threads
+   * and compares the results.
+   * @param path path to directory
+   * @throws BaseXException database exception
+   */
+  private static void compare(final String path) throws BaseXException {
+    context.options.set(MainOptions.PARSETHREADS, 1);
+    new CreateDB(NAME, path).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final String info = info();
+
+    context.options.set(MainOptions.PARSETHREADS, 4);
+    new CreateDB(NAME, path).execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    assertEquals(info, info());
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Returns database information without timestamps.
+   * @return info string
+   * @throws BaseXException database exception
+   */
+  private static String info() throws BaseXException {
+    return new InfoDB().execute(context).replaceAll("Timestamp.*", "");
+  }
+}
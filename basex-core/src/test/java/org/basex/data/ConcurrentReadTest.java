@@ -0,0 +1,112 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Concurrently reads the table and the texts of a disk database.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ConcurrentReadTest extends SandboxTest {
+  /** Number of reading threads. */
+  private static final int THREADS = 8;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 0; i < 20000; i++) sb.append("<b c='").append(i).append("'>text ").
+      append(i).append("</b>");
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Reads all nodes in parallel, before and after an update.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    final Data data = context.data();
+    check(data);
+    final int pre = Integer.parseInt(new XQuery("db:node-pre(//b[@c = 100]/text())").
+        execute(context));
+    assertEquals("text 100", Token.string(data.text(pre, true)));
+    new XQuery("for $t in //b[@c mod 100 = 0]/text() return replace value of node $t " +
+      "with 'new'").execute(context);
+    assertEquals("new", Token.string(data.text(pre, true)));
+    check(data);
+  }
+
+  /**
+   * Reads all nodes of a memory-mapped database in parallel, before and after an update.
+   * @throws Exception exception
+   */
+  @Test
+  public void mmap() throws Exception {
+    new Close().execute(context);
+    context.options.set(MainOptions.MMAP, true);
+    try {
+      new Open(NAME).execute(context);
+      read();
+    } finally {
+      context.options.set(MainOptions.MMAP, false);
+    }
+  }
+
+  /**
+   * Compares the results of concurrent and sequential reads.
+   * @param data data reference
+   * @throws Exception exception
+   */
+  private static void check(final Data data) throws Exception {
+    final int size = data.meta.size;
+    final byte[][] texts = new byte[size][];
+    final int[] sizes = new int[size];
+    for(int p = 0; p < size; p++) {
+      final int k = data.kind(p);
+      sizes[p] = data.size(p, k);
+      if(k != Data.ELEM) texts[p] = data.text(p, k != Data.ATTR);
+    }
+
+    final Thread[] threads = new Thread[THREADS];
+    final String[] errors = new String[THREADS];
+    for(int t = 0; t < THREADS; t++) {
+      final int tt = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          // threads start at different positions and read backwards
+          for(int i = 0; i < size && errors[tt] == null; i++) {
+            final int p = (tt * size / THREADS + size - i) % size;
+            final int k = data.kind(p);
+            if(data.size(p, k) != sizes[p]) errors[tt] = "Wrong size: " + p;
+            if(k != Data.ELEM && !Token.eq(texts[p], data.text(p, k != Data.ATTR)))
+              errors[tt] = "Wrong text: " + p;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    for(final String error : errors) assertNull(error);
+  }
+}
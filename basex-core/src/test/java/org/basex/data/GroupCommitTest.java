@@ -0,0 +1,145 @@
+package org.basex.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the group commit of updates on disk databases.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupCommitTest extends SandboxTest {
+  /** Number of concurrent writers. */
+  private static final int WRITERS = 10;
+  /** Updating query. */
+  private static final String UPDATE = "insert node <b/> into db:open('" + NAME + "')/a";
+  /** Counting query. */
+  private static final String COUNT = "count(db:open('" + NAME + "')//b)";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    context.globalopts.set(GlobalOptions.GROUPCOMMIT, true);
+    new CreateDB(NAME, "<a/>").execute(context);
+    new Close().execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.options.set(MainOptions.WAL, false);
+    context.globalopts.set(GlobalOptions.GROUPCOMMIT, false);
+  }
+
+  /**
+   * Checks that the commit of an update is deferred to a queued writer.
+   * @throws Exception exception
+   */
+  @Test
+  public void defer() throws Exception {
+    final Writer first = new Writer(UPDATE + ", prof:sleep(500)");
+    final Writer second = new Writer(UPDATE + ", prof:sleep(1000)");
+    first.start();
+    Performance.sleep(200);
+    second.start();
+    first.join();
+    second.join();
+
+    // the first writer returns after the updates of the second writer have been committed
+    assertTrue(first.time >= 1200);
+    assertNull(first.error);
+    assertNull(second.error);
+    check(2);
+  }
+
+  /**
+   * Runs concurrent writers.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    run();
+  }
+
+  /**
+   * Runs concurrent writers with a write-ahead log.
+   * @throws Exception exception
+   */
+  @Test
+  public void wal() throws Exception {
+    context.options.set(MainOptions.WAL, true);
+    run();
+  }
+
+  /**
+   * Runs concurrent writers and checks the committed result.
+   * @throws Exception exception
+   */
+  private static void run() throws Exception {
+    final Writer[] writers = new Writer[WRITERS];
+    for(int w = 0; w < WRITERS; w++) writers[w] = new Writer(UPDATE);
+    for(final Writer w : writers) w.start();
+    for(final Writer w : writers) {
+      w.join();
+      assertNull(w.error);
+    }
+    check(WRITERS);
+  }
+
+  /**
+   * Checks that all updates have been committed and the database has been closed.
+   * @param count expected number of inserted elements
+   * @throws Exception exception
+   */
+  private static void check(final int count) throws Exception {
+    assertEquals(0, context.dbs.pins(NAME));
+    assertFalse(new IOFile(context.globalopts.dbpath(NAME), DATAUPD + IO.BASEXSUFFIX).exists());
+    assertEquals(Integer.toString(count), new XQuery(COUNT).execute(context));
+  }
+
+  /** Writer thread, using its own client context. */
+  private static final class Writer extends Thread {
+    /** Query. */
+    private final String query;
+    /** Execution time (ms). */
+    long time;
+    /** Error. */
+    Exception error;
+
+    /**
+     * Constructor.
+     * @param qu query
+     */
+    Writer(final String qu) {
+      query = qu;
+    }
+
+    @Override
+    public void run() {
+      final Context ctx = new Context(context, null);
+      ctx.user = context.user;
+      final long start = System.nanoTime();
+      try {
+        new XQuery(query).execute(ctx);
+      } catch(final Exception ex) {
+        error = ex;
+      }
+      time = (System.nanoTime() - start) / 1000000;
+    }
+  }
+}
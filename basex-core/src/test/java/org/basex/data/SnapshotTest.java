@@ -0,0 +1,110 @@
+package org.basex.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the snapshots of disk databases, which are accessed by read-only queries
+ * if multi-version concurrency is enabled.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class SnapshotTest extends SandboxTest {
+  /** Number of elements. */
+  private static final int SIZE = 1000;
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 0; i < SIZE; i++) sb.append("<b>x</b>");
+    context.globalopts.set(GlobalOptions.MVCC, true);
+    context.options.set(MainOptions.UPDINDEX, true);
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    context.options.set(MainOptions.UPDINDEX, false);
+    context.globalopts.set(GlobalOptions.MVCC, false);
+  }
+
+  /**
+   * Checks that snapshots are not affected by subsequent updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void isolation() throws Exception {
+    final Data data = context.data();
+    final Data snap = data.snapshot();
+    assertTrue(data != snap);
+    final int size = snap.meta.size;
+
+    for(int i = 1; i <= 100; i++) {
+      new XQuery("replace value of node (//b)[" + i * 7 + "] with 'v" + i + '\'').
+        execute(context);
+    }
+    new XQuery("insert node <b>new</b> into /a").execute(context);
+    new XQuery("delete node (//b)[1]").execute(context);
+
+    assertEquals(size, snap.meta.size);
+    for(int pre = 3; pre < size; pre += 2) {
+      assertEquals("x", Token.string(snap.text(pre, true)));
+    }
+    snap.release();
+
+    final Data next = data.snapshot();
+    try {
+      assertEquals(data.meta.size, next.meta.size);
+      assertEquals("v1", Token.string(next.text(13, true)));
+      assertEquals("new", Token.string(next.text(next.meta.size - 1, true)));
+    } finally {
+      next.release();
+    }
+  }
+
+  /**
+   * Checks that read-only queries are not blocked by a running update.
+   * @throws Exception exception
+   */
+  @Test
+  public void nonBlocking() throws Exception {
+    final Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          new XQuery("insert node <b>y</b> into /a, prof:sleep(2000)").execute(context);
+        } catch(final BaseXException ex) {
+          Util.stack(ex);
+        }
+      }
+    };
+    writer.start();
+    Performance.sleep(500);
+
+    final Context ctx = new Context(context, null);
+    ctx.user = context.user;
+    final long time = System.nanoTime();
+    final String count = new XQuery("count(db:open('" + NAME + "')//b)").execute(ctx);
+    assertTrue((System.nanoTime() - time) / 1000000 < 1000);
+    assertEquals(Integer.toString(SIZE), count);
+
+    writer.join();
+    assertEquals(Integer.toString(SIZE + 1),
+        new XQuery("count(db:open('" + NAME + "')//b)").execute(ctx));
+  }
+}
@@ -0,0 +1,162 @@
+package org.basex.data;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.CmdIndex;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests the write-ahead log of disk databases.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class WriteAheadLogTest extends SandboxTest {
+  /** Name of the database that simulates a crashed database. */
+  private static final String CRASH = NAME + "crash";
+  /** Query for comparing the database contents. */
+  private static final String QUERY = "string-join(//text(), ','), count(//b), " +
+      "count(db:text('" + NAME + "', 'x'))";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public void setUp() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<a>");
+    for(int i = 0; i < 1000; i++) sb.append("<b>x</b>");
+    context.options.set(MainOptions.UPDINDEX, true);
+    new CreateDB(NAME, sb.append("</a>").toString()).execute(context);
+    new Close().execute(context);
+    context.options.set(MainOptions.WAL, true);
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Drops the test databases.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void cleanUp() throws BaseXException {
+    context.options.set(MainOptions.WAL, false);
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+    new DropDB(CRASH).execute(context);
+  }
+
+  /**
+   * Replays all committed updates of a crashed database.
+   * @throws Exception exception
+   */
+  @Test
+  public void recover() throws Exception {
+    for(int i = 1; i <= 100; i++) {
+      new XQuery("replace value of node (//b)[" + i * 7 + "] with 'v" + i + '\'').
+        execute(context);
+    }
+    new XQuery("insert node <b>new</b> into /a").execute(context);
+    new XQuery("delete node (//b)[5]").execute(context);
+    assertTrue(log(NAME).exists());
+
+    crash();
+    final String expected = new XQuery(QUERY).execute(context);
+    new Close().execute(context);
+    assertFalse(log(NAME).exists());
+
+    new Open(CRASH).execute(context);
+    assertFalse(log(CRASH).exists());
+    assertEquals(expected, new XQuery(QUERY.replace(NAME, CRASH)).execute(context));
+  }
+
+  /**
+   * Recovers a database after an index has been rebuilt.
+   * @throws Exception exception
+   */
+  @Test
+  public void index() throws Exception {
+    new XQuery("replace value of node (//b)[1] with 'a'").execute(context);
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    new XQuery("replace value of node (//b)[2] with 'b'").execute(context);
+    crash();
+    final String expected = new XQuery(QUERY).execute(context);
+
+    new Open(CRASH).execute(context);
+    assertEquals(expected, new XQuery(QUERY.replace(NAME, CRASH)).execute(context));
+    assertEquals("1", new XQuery("count(db:text('" + CRASH + "', 'b'))").execute(context));
+  }
+
+  /**
+   * Ignores an incompletely written transaction.
+   * @throws Exception exception
+   */
+  @Test
+  public void incomplete() throws Exception {
+    new XQuery("replace value of node (//b)[1] with 'a'").execute(context);
+    new XQuery("replace value of node (//b)[2] with 'b'").execute(context);
+    crash();
+
+    // cut off the last transaction
+    final RandomAccessFile raf = new RandomAccessFile(log(CRASH).file(), "rw");
+    try {
+      raf.setLength(raf.length() - 1);
+    } finally {
+      raf.close();
+    }
+    new Open(CRASH).execute(context);
+    assertEquals("a x", new XQuery("(//b)[position() < 3]/string()").execute(context));
+  }
+
+  /**
+   * Commits updates via the log if auto flush is turned off.
+   * @throws Exception exception
+   */
+  @Test
+  public void autoflush() throws Exception {
+    // no index files will be rewritten when the database is closed
+    context.options.set(MainOptions.TEXTINDEX, false);
+    context.options.set(MainOptions.ATTRINDEX, false);
+    context.options.set(MainOptions.AUTOFLUSH, false);
+    try {
+      new CreateDB(NAME, "<a><b>x</b></a>").execute(context);
+      new XQuery("for $i in 1 to 20000 return insert node <b>{ $i }</b> into /a").
+        execute(context);
+      new Close().execute(context);
+      assertFalse(log(NAME).exists());
+      new Open(NAME).execute(context);
+      assertEquals("20001", new XQuery("count(//b)").execute(context));
+    } finally {
+      context.options.set(MainOptions.TEXTINDEX, true);
+      context.options.set(MainOptions.ATTRINDEX, true);
+      context.options.set(MainOptions.AUTOFLUSH, true);
+    }
+  }
+
+  /**
+   * Simulates a crash by copying the files of the opened database.
+   * @throws IOException I/O exception
+   */
+  private static void crash() throws IOException {
+    final IOFile dir = context.globalopts.dbpath(CRASH);
+    dir.md();
+    for(final IOFile f : context.globalopts.dbpath(NAME).children()) {
+      f.copyTo(new IOFile(dir, f.name()));
+    }
+  }
+
+  /**
+   * Returns the write-ahead log of the specified database.
+   * @param db name of database
+   * @return log file
+   */
+  private static IOFile log(final String db) {
+    return new IOFile(context.globalopts.dbpath(db), DATAWAL + IO.BASEXSUFFIX);
+  }
+}
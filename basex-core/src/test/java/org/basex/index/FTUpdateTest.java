@@ -0,0 +1,176 @@
+package org.basex.index;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.ft.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.basex.util.ft.*;
+import org.junit.*;
+
+/**
+ * Tests the incremental updates of the full-text index.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class FTUpdateTest extends IndexUpdateTest {
+  /** Test document. */
+  private static final String DOC = "<xml><a>red apple</a><b>green apple</b><c>pear</c></xml>";
+
+  /** Constructor. */
+  public FTUpdateTest() {
+    super(DOC, MainOptions.FTINDEX);
+  }
+
+  /**
+   * Checks the index results after updates.
+   * @throws Exception exception
+   */
+  @Test
+  @Override
+  public void update() throws Exception {
+    assertEquals("a b", search("'apple'"));
+
+    query("insert node <d>apple pie</d> into /xml");
+    assertEquals("a b d", search("'apple'"));
+    assertEquals("d", search("'pie'"));
+    query("delete node //a");
+    assertEquals("b d", search("'apple'"));
+    query("replace value of node //b with 'green pear'");
+    assertEquals("d", search("'apple'"));
+    assertEquals("b c", search("'pear'"));
+    query("replace node //c with <c>apple tree</c>");
+    assertEquals("c d", search("'apple'"));
+    assertEquals("b", search("'pear'"));
+    query("insert node <e>apple crumble</e> before //b");
+    assertEquals("e c d", search("'apple'"));
+    query("replace value of node //e with 'pie'");
+    assertEquals("c d", search("'apple'"));
+    assertEquals("e d", search("'pie'"));
+
+    // the index remains up-to-date after reopening the database
+    reopen();
+    assertEquals("c d", search("'apple'"));
+    assertEquals("e d", search("'pie'"));
+    assertEquals("b", search("'green pear'"));
+    assertEquals("", search("'apple pear'"));
+
+    // wildcards, fuzzy search, index entries
+    assertEquals("e b d", search("'p.*' using wildcards"));
+    assertEquals("c", search("'treee' using fuzzy"));
+    assertEquals("pie:2 pear:1 apple:2", query("string-join(ft:tokens('" + NAME +
+        "') ! (. || ':' || @count)[starts-with(., 'p') or starts-with(., 'a')], ' ')"));
+  }
+
+  /**
+   * Checks that snapshots of the index are not affected by subsequent updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void snapshot() throws Exception {
+    context.globalopts.set(GlobalOptions.MVCC, true);
+    try {
+      reopen();
+
+      final Data snap = context.data().snapshot();
+      try {
+        query("delete node //a");
+        query("insert node <d>apple</d> into /xml");
+        assertEquals(2, count(snap, "apple"));
+        assertEquals(0, count(snap, "pie"));
+      } finally {
+        snap.release();
+      }
+      assertEquals("b d", search("'apple'"));
+    } finally {
+      context.globalopts.set(GlobalOptions.MVCC, false);
+    }
+  }
+
+  /**
+   * Checks if updates are merged into the index files.
+   * @throws Exception exception
+   */
+  @Test
+  @Override
+  public void merge() throws Exception {
+    final TokenBuilder tb = new TokenBuilder();
+    for(int i = 0; i < 5000; i++) tb.add(" apple").addExt(i % 1000);
+    query("insert node <d>" + tb + "</d> into /xml");
+    // the updates have been merged into the index files
+    assertTrue(new IOFile(context.globalopts.dbpath(NAME), DATAFTX + 'd' + IO.BASEXSUFFIX).
+        length() < 10);
+    query("delete node //a");
+    assertEquals("b", search("'apple'"));
+    assertEquals("d", search("'apple999'"));
+    assertEquals("apple:1 apple0:5", query("string-join(subsequence(ft:tokens('" + NAME +
+        "', 'apple') ! (. || ':' || @count), 1, 2), ' ')"));
+
+    query("insert node <a>red apple</a> into /xml");
+    assertEquals("b a", search("'apple'"));
+    reopen();
+    assertEquals("b a", search("'apple'"));
+  }
+
+  /**
+   * Checks that indexes referencing pre values (created by older versions) are
+   * invalidated by structural updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void preValues() throws Exception {
+    // indexes without list of updates reference pre values
+    new Close().execute(context);
+    assertTrue(new IOFile(context.globalopts.dbpath(NAME), DATAFTX + 'd' + IO.BASEXSUFFIX).
+        delete());
+    new Open(NAME).execute(context);
+    assertTrue(context.data().meta.ftxtindex);
+
+    query("insert node <x y='1'/> as first into /xml");
+    assertFalse(context.data().meta.ftxtindex);
+    assertEquals("a b", query("string-join(//*[text() contains text 'apple']/name(), ' ')"));
+  }
+
+  /**
+   * Returns the names of the elements whose texts contain the specified words.
+   * Checks that the query is evaluated via the full-text index.
+   * @param words words (as full-text selection)
+   * @return names, separated by spaces
+   * @throws Exception exception
+   */
+  private static String search(final String words) throws Exception {
+    final String query = "//*[text() contains text " + words + ']';
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      assertEquals(Bln.TRUE, new QueryProcessor("exists(//" +
+          Util.className(FTIndexAccess.class) + ')', context).context(qp.plan()).value());
+    } finally {
+      qp.close();
+    }
+    return query("string-join(" + query + "/name(), ' ')");
+  }
+
+  /**
+   * Returns the number of texts that contain the specified token.
+   * @param data data reference
+   * @param token token
+   * @return number of texts
+   */
+  private static int count(final Data data, final String token) {
+    final FTLexer lexer = new FTLexer(new FTOpt().copy(data.meta)).init(Token.token(token));
+    lexer.next();
+    final IndexIterator ii = data.iter(lexer);
+    int c = 0;
+    while(ii.more()) c++;
+    return c;
+  }
+}
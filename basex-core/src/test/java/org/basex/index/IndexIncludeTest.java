@@ -0,0 +1,136 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests value indexes that are restricted to specific element and attribute names.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexIncludeTest extends SandboxTest {
+  /** Test document. */
+  private static final String DOC =
+      "<xml><id>1</id><name>1</name><a key='k' val='k'/><b><id>2</id></b></xml>";
+
+  /** Initializes the test. */
+  @Before
+  public void init() {
+    context.options.set(MainOptions.TEXTINCLUDE, "id");
+    context.options.set(MainOptions.ATTRINCLUDE, "key");
+  }
+
+  /**
+   * Resets the options and drops the database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public void reset() throws BaseXException {
+    context.options.set(MainOptions.TEXTINCLUDE, "");
+    context.options.set(MainOptions.ATTRINCLUDE, "");
+    context.options.set(MainOptions.UPDINDEX, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks the index entries and the query rewritings.
+   * @throws Exception exception
+   */
+  @Test
+  public void create() throws Exception {
+    new CreateDB(NAME, DOC).execute(context);
+    assertEquals("1 2", entries("texts"));
+    assertEquals("k", entries("attributes"));
+
+    // only covered names will be rewritten for index access
+    assertEquals("1", query("count(//id[text() = '1'])"));
+    assertTrue(indexed("//id[text() = '1']"));
+    assertEquals("1", query("count(//name[text() = '1'])"));
+    assertFalse(indexed("//name[text() = '1']"));
+    assertFalse(indexed("//text()[. = '1']"));
+    assertTrue(indexed("//a[@key = 'k']"));
+    assertFalse(indexed("//a[@val = 'k']"));
+    assertFalse(indexed("//a[@* = 'k']"));
+
+    // indexing all values
+    context.options.set(MainOptions.TEXTINCLUDE, "");
+    new CreateIndex("text").execute(context);
+    assertEquals("1 2", entries("texts"));
+    assertTrue(indexed("//name[text() = '1']"));
+  }
+
+  /**
+   * Checks incremental index updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    context.options.set(MainOptions.UPDINDEX, true);
+    new CreateDB(NAME, DOC).execute(context);
+    query("insert node (<id>3</id>, <name>4</name>) into /xml");
+    assertEquals("1 2 3", entries("texts"));
+    query("rename node //name[. = '4'] as 'id'");
+    assertEquals("1 2 3 4", entries("texts"));
+    query("rename node //id[. = '1'] as 'name'");
+    assertEquals("2 3 4", entries("texts"));
+    query("replace value of node //id[. = '4'] with '5'");
+    assertEquals("2 3 5", entries("texts"));
+    query("replace node //b/id with <id>6</id>");
+    assertEquals("3 5 6", entries("texts"));
+    query("delete node //id");
+    assertEquals("", entries("texts"));
+
+    query("rename node //a/@key as 'key2'");
+    assertEquals("", entries("attributes"));
+    query("rename node //a/@val as 'key'");
+    assertEquals("k", entries("attributes"));
+    query("insert node (attribute key { 'l' }, attribute val { 'm' }) into //b");
+    assertEquals("k l", entries("attributes"));
+  }
+
+  /**
+   * Checks if the specified query is rewritten for index access.
+   * @param query query
+   * @return result of check
+   * @throws Exception exception
+   */
+  private static boolean indexed(final String query) throws Exception {
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      return new QueryProcessor("exists(//" + Util.className(ValueAccess.class) + ')',
+          context).context(qp.plan()).value() == Bln.TRUE;
+    } finally {
+      qp.close();
+    }
+  }
+
+  /**
+   * Returns the entries of the specified index.
+   * @param index index function ({@code texts}, {@code attributes})
+   * @return entries, separated by spaces
+   * @throws BaseXException database exception
+   */
+  private static String entries(final String index) throws BaseXException {
+    return query("string-join(index:" + index + "('" + NAME + "'), ' ')");
+  }
+
+  /**
+   * Runs the specified query.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  private static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context).trim().replaceAll("\\s+", " ");
+  }
+}
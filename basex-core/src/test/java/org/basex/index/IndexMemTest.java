@@ -0,0 +1,66 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * Compares index structures that have been built with and without memory budget.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class IndexMemTest extends SandboxTest {
+  /** Test document (exceeds a budget of 1 MB). */
+  private static final String DOC;
+  /** Query for returning index entries and index results. */
+  private static final String QUERY = "(" +
+      "count(index:texts('" + NAME + "')), index:texts('" + NAME + "', 'text12'), " +
+      "index:attributes('" + NAME + "'), count(ft:tokens('" + NAME + "')), " +
+      "ft:tokens('" + NAME + "', 'word1'), count(//a[text() = 'text123 word1 word123']), " +
+      "count(//a[@b = '5']), count(//a[text() contains text 'word3']))";
+
+  static {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 40000; i++) {
+      sb.append("<a b='").append(i % 97).append("'>text").append(i % 20011);
+      sb.append(" word").append(i % 7).append(" word").append(i).append("</a>");
+    }
+    DOC = sb.append("</xml>").toString();
+  }
+
+  /** Initializes the test. */
+  @Before
+  public void init() {
+    context.options.set(MainOptions.FTINDEX, true);
+  }
+
+  /** Resets the options. */
+  @After
+  public void reset() {
+    context.options.set(MainOptions.INDEXMEM, 0);
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    context.options.set(MainOptions.FTINDEX, false);
+  }
+
+  /**
+   * Creates a database with a small memory budget.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void create() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+
+    context.options.set(MainOptions.INDEXMEM, 1);
+    new CreateDB(NAME, DOC).execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+
+    context.options.set(MainOptions.INDEXTHREADS, 3);
+    new OptimizeAll().execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+  }
+}
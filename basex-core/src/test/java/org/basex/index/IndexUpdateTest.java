@@ -0,0 +1,107 @@
+package org.basex.index;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.options.*;
+import org.junit.*;
+
+/**
+ * Base class for testing incremental updates of index structures.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public abstract class IndexUpdateTest extends SandboxTest {
+  /** Test document. */
+  private final String doc;
+  /** Additional index options to be enabled. */
+  private final BooleanOption[] indexes;
+
+  /**
+   * Constructor.
+   * @param d test document
+   * @param opts additional index options to be enabled
+   */
+  IndexUpdateTest(final String d, final BooleanOption... opts) {
+    doc = d;
+    indexes = opts;
+  }
+
+  /**
+   * Enables incremental index updates and creates the test database.
+   * @throws BaseXException database exception
+   */
+  @Before
+  public final void init() throws BaseXException {
+    context.options.set(MainOptions.UPDINDEX, true);
+    for(final BooleanOption opt : indexes) context.options.set(opt, true);
+    create();
+  }
+
+  /**
+   * Resets the index options and drops the test database.
+   * @throws BaseXException database exception
+   */
+  @After
+  public final void reset() throws BaseXException {
+    context.options.set(MainOptions.UPDINDEX, false);
+    for(final BooleanOption opt : indexes) context.options.set(opt, false);
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Checks the index results after updates.
+   * @throws Exception exception
+   */
+  public abstract void update() throws Exception;
+
+  /**
+   * Checks if updates are merged into the index files.
+   * @throws Exception exception
+   */
+  public abstract void merge() throws Exception;
+
+  /**
+   * Checks the index results after updates that are logged.
+   * @throws Exception exception
+   */
+  @Test
+  public final void wal() throws Exception {
+    context.options.set(MainOptions.WAL, true);
+    try {
+      update();
+      create();
+      merge();
+    } finally {
+      context.options.set(MainOptions.WAL, false);
+    }
+  }
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  final void create() throws BaseXException {
+    new CreateDB(NAME, doc).execute(context);
+  }
+
+  /**
+   * Closes and reopens the test database.
+   * @throws BaseXException database exception
+   */
+  static void reopen() throws BaseXException {
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+  }
+
+  /**
+   * Runs the specified query and normalizes whitespaces.
+   * @param query query
+   * @return result
+   * @throws BaseXException database exception
+   */
+  static String query(final String query) throws BaseXException {
+    return new XQuery(query).execute(context).trim().replaceAll("\\s+", " ");
+  }
+}
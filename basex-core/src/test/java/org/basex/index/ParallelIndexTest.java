@@ -0,0 +1,107 @@
+package org.basex.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * Compares index structures that have been built sequentially and concurrently.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelIndexTest extends SandboxTest {
+  /** Test document. */
+  private static final String DOC;
+
+  static {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 2000; i++) {
+      sb.append("<a b='").append(i % 97).append("'>text").append(i % 113);
+      sb.append(" word").append(i % 7).append("</a>");
+    }
+    DOC = sb.append("</xml>").toString();
+  }
+
+  /** Query for returning index entries and index results. */
+  private static final String QUERY = "(" +
+      "index:texts('" + NAME + "'), index:attributes('" + NAME + "'), " +
+      "ft:tokens('" + NAME + "'), count(//a[text() = 'text1 word1']), " +
+      "count(//a[@b = '5']), count(//a[text() contains text 'word3']))";
+
+  /** Initializes the test. */
+  @Before
+  public void init() {
+    context.options.set(MainOptions.FTINDEX, true);
+  }
+
+  /** Resets the options. */
+  @After
+  public void reset() {
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    context.options.set(MainOptions.FTINDEX, false);
+    context.options.set(MainOptions.INDEXSPLITSIZE, 0);
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 0);
+  }
+
+  /**
+   * Creates a database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void create() throws BaseXException {
+    compare(new CreateDB(NAME, DOC));
+  }
+
+  /**
+   * Creates a database with partial index structures.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void split() throws BaseXException {
+    context.options.set(MainOptions.INDEXSPLITSIZE, 100);
+    context.options.set(MainOptions.FTINDEXSPLITSIZE, 100);
+    compare(new CreateDB(NAME, DOC));
+  }
+
+  /**
+   * Optimizes a database.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void optimize() throws BaseXException {
+    new CreateDB(NAME, DOC).execute(context);
+    compare(new OptimizeAll());
+    compare(new Optimize());
+  }
+
+  /**
+   * Runs the specified command with a single and multiple threads and compares
+   * the resulting indexes.
+   * @param cmd command to be run
+   * @throws BaseXException database exception
+   */
+  private static void compare(final Command cmd) throws BaseXException {
+    context.options.set(MainOptions.INDEXTHREADS, 1);
+    cmd.execute(context);
+    final String expected = query();
+    context.options.set(MainOptions.INDEXTHREADS, 3);
+    cmd.execute(context);
+    assertEquals(expected, query());
+  }
+
+  /**
+   * Returns the query result and index information.
+   * @return result string
+   * @throws BaseXException database exception
+   */
+  private static String query() throws BaseXException {
+    final String info = new InfoDB().execute(context).replaceAll("Timestamp.*", "");
+    assertTrue(info.matches("(?s).*Text Index: ON.*Attribute Index: ON.*" +
+        "Full-Text Index: ON.*"));
+    return new XQuery(QUERY).execute(context) + info;
+  }
+}
@@ -0,0 +1,143 @@
+package org.basex.index;
+
+import static org.basex.data.DataText.*;
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.data.*;
+import org.basex.index.query.*;
+import org.basex.io.*;
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the incremental updates of the text and attribute indexes.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ValueUpdateTest extends IndexUpdateTest {
+  /** Test document. */
+  private static final String DOC = "<xml><a x='1'>A</a><b x='2'>B</b><c x='1'>A</c></xml>";
+
+  /** Constructor. */
+  public ValueUpdateTest() {
+    super(DOC);
+  }
+
+  /**
+   * Checks the index results after updates.
+   * @throws Exception exception
+   */
+  @Test
+  @Override
+  public void update() throws Exception {
+    assertEquals("a c", search("text() = 'A'"));
+    assertEquals("a c", search("@x = '1'"));
+
+    query("insert node <d x='1'>A</d> into /xml");
+    assertEquals("a c d", search("text() = 'A'"));
+    query("delete node //a");
+    assertEquals("c d", search("text() = 'A'"));
+    assertEquals("c d", search("@x = '1'"));
+    query("replace value of node //c/text() with 'B'");
+    query("replace value of node //c/@x with '2'");
+    assertEquals("b c", search("text() = 'B'"));
+    assertEquals("d", search("text() = 'A'"));
+    assertEquals("b c", search("@x = '2'"));
+    query("replace value of node //d/text() with 'C'");
+    assertEquals("", query("//*[text() = 'A']"));
+    query("insert node <a x='3'>A</a> before //b");
+    assertEquals("a", search("text() = 'A'"));
+    assertEquals("a", search("@x = '3'"));
+
+    // the index remains up-to-date after reopening the database
+    reopen();
+    assertEquals("a", search("text() = 'A'"));
+    assertEquals("b c", search("text() = 'B'"));
+    assertEquals("d", search("text() = 'C'"));
+    assertEquals("d", search("@x = '1'"));
+
+    // index entries and ranges
+    assertEquals("A:1 B:2 C:1", query("string-join(index:texts('" + NAME +
+        "') ! (. || ':' || @count), ' ')"));
+    assertEquals("C:1 B:2 A:1", query("string-join(index:texts('" + NAME +
+        "', '', false()) ! (. || ':' || @count), ' ')"));
+    assertEquals("1:1 2:2 3:1", query("string-join(index:attributes('" + NAME +
+        "') ! (. || ':' || @count), ' ')"));
+    assertEquals("a b c", query("string-join(db:text-range('" + NAME +
+        "', 'A', 'B')/../name(), ' ')"));
+    assertEquals("d", query("string-join(db:text-range('" + NAME +
+        "', 'C', 'Z')/../name(), ' ')"));
+  }
+
+  /**
+   * Checks that snapshots of the index are not affected by subsequent updates.
+   * @throws Exception exception
+   */
+  @Test
+  public void snapshot() throws Exception {
+    context.globalopts.set(GlobalOptions.MVCC, true);
+    try {
+      reopen();
+
+      final Data snap = context.data().snapshot();
+      try {
+        query("delete node //a");
+        query("insert node <d>A</d> into /xml");
+        assertEquals(2, snap.costs(new StringToken(IndexType.TEXT, Token.token("A"))));
+      } finally {
+        snap.release();
+      }
+      assertEquals("c d", search("text() = 'A'"));
+    } finally {
+      context.globalopts.set(GlobalOptions.MVCC, false);
+    }
+  }
+
+  /**
+   * Checks if updates are merged into the index files.
+   * @throws Exception exception
+   */
+  @Test
+  @Override
+  public void merge() throws Exception {
+    query("insert node (1 to 5000) ! <d x='{ . }'>{ . mod 1000 }</d> into /xml");
+    // the updates have been merged into the index files
+    assertFalse(new IOFile(context.globalopts.dbpath(NAME), DATATXT + 'd' + IO.BASEXSUFFIX).
+        exists());
+    query("delete node //a");
+    assertEquals("c", search("text() = 'A'"));
+    assertEquals(5, Integer.parseInt(query("count(//d[text() = '999'])")));
+    assertEquals("d", search("@x = '4999'"));
+
+    query("insert node <a x='1'>A</a> into /xml");
+    assertEquals("c a", search("text() = 'A'"));
+    reopen();
+    assertEquals("c a", search("text() = 'A'"));
+    assertEquals("c d a", search("@x = '1'"));
+  }
+
+  /**
+   * Returns the names of the elements that match the specified predicate.
+   * Checks that the query is evaluated via the value index.
+   * @param pred predicate
+   * @return names, separated by spaces
+   * @throws Exception exception
+   */
+  private static String search(final String pred) throws Exception {
+    final String query = "//*[" + pred + ']';
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      assertEquals(Bln.TRUE, new QueryProcessor("exists(//" +
+          Util.className(ValueAccess.class) + ')', context).context(qp.plan()).value());
+    } finally {
+      qp.close();
+    }
+    return query("string-join(" + query + "/name(), ' ')");
+  }
+}
@@ -84,7 +84,17 @@ public class DataAccessTest {
     } finally {
       f.close();
     }
-    da = new DataAccess(file);
+    da = open(file);
+  }
+
+  /**
+   * Opens the data access.
+   * @param f file
+   * @return data access
+   * @throws IOException I/O exception
+   */
+  protected DataAccess open(final IOFile f) throws IOException {
+    return new DataAccess(f);
   }
 
   /**
@@ -0,0 +1,18 @@
+package org.basex.io.random;
+
+import java.io.*;
+
+import org.basex.io.*;
+
+/**
+ * Tests for class {@link DataAccess}, using a memory-mapped file.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class MappedDataAccessTest extends DataAccessTest {
+  @Override
+  protected DataAccess open(final IOFile f) throws IOException {
+    return new DataAccess(f, true);
+  }
+}
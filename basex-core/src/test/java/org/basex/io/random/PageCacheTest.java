@@ -0,0 +1,85 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link PageCache}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class PageCacheTest {
+  /** Page cache. */
+  private static final PageCache CACHE = PageCache.get();
+  /** Page contents. */
+  private final byte[] page = new byte[IO.BLOCKSIZE];
+  /** File id. */
+  private int file;
+
+  /** Initializes the cache. */
+  @Before
+  public void init() {
+    CACHE.size(1);
+    file = PageCache.register();
+  }
+
+  /** Resets the cache. */
+  @After
+  public void reset() {
+    CACHE.remove(file);
+    CACHE.size(GlobalOptions.CACHESIZE.value());
+  }
+
+  /** Reads and updates pages. */
+  @Test
+  public void readUpdate() {
+    assertFalse(CACHE.read(file, 0, page));
+    page[0] = 1;
+    CACHE.add(file, 0, page);
+    page[0] = 0;
+    assertTrue(CACHE.read(file, 0, page));
+    assertEquals(1, page[0]);
+
+    page[0] = 2;
+    CACHE.update(file, 0, page);
+    page[0] = 0;
+    assertTrue(CACHE.read(file, 0, page));
+    assertEquals(2, page[0]);
+
+    // pages that are not cached are not added by updates
+    CACHE.update(file, 1, page);
+    assertFalse(CACHE.read(file, 1, page));
+
+    CACHE.remove(file, 0);
+    assertFalse(CACHE.read(file, 0, page));
+  }
+
+  /** Checks that frequently accessed pages survive a table scan. */
+  @Test
+  public void scan() {
+    final int pages = (1 << 20) / IO.BLOCKSIZE;
+    // load hot pages, and let them be evicted by a first scan
+    for(int b = 0; b < 8; b++) CACHE.add(file, b, page);
+    for(int b = 0; b < pages; b++) CACHE.add(file, 1000 + b, page);
+    // reload hot pages: they will be promoted to the main queue
+    for(int b = 0; b < 8; b++) {
+      assertFalse(CACHE.read(file, b, page));
+      CACHE.add(file, b, page);
+    }
+    // second scan: hot pages will not be evicted
+    for(int b = 0; b < pages << 2; b++) CACHE.add(file, 10000 + b, page);
+    for(int b = 0; b < 8; b++) assertTrue(CACHE.read(file, b, page));
+  }
+
+  /** Disables the cache. */
+  @Test
+  public void disable() {
+    CACHE.size(0);
+    CACHE.add(file, 0, page);
+    assertFalse(CACHE.read(file, 0, page));
+  }
+}
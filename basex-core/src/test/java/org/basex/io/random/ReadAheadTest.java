@@ -0,0 +1,87 @@
+package org.basex.io.random;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link ReadAhead}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ReadAheadTest {
+  /** Page cache. */
+  private static final PageCache CACHE = PageCache.get();
+  /** Number of blocks. */
+  private static final int BLOCKS = 40;
+  /** Temporary file. */
+  private IOFile file;
+  /** File id. */
+  private int id;
+
+  /**
+   * Creates a file with a distinct value in each block.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void init() throws IOException {
+    CACHE.size(1);
+    id = PageCache.register();
+    file = new IOFile(File.createTempFile("readahead", IO.BASEXSUFFIX));
+    final RandomAccessFile raf = new RandomAccessFile(file.file(), "rw");
+    try {
+      final byte[] block = new byte[IO.BLOCKSIZE];
+      // last block is incomplete
+      for(int b = 0; b < BLOCKS; b++) {
+        block[0] = (byte) b;
+        raf.write(block, 0, b == BLOCKS - 1 ? 10 : IO.BLOCKSIZE);
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Deletes the file and resets the cache. */
+  @After
+  public void reset() {
+    CACHE.remove(id);
+    CACHE.size(GlobalOptions.CACHESIZE.value());
+    file.delete();
+  }
+
+  /**
+   * Reads blocks in the background.
+   * @throws Exception exception
+   */
+  @Test
+  public void read() throws Exception {
+    // block 5 is already cached, and will not be overwritten
+    final byte[] page = new byte[IO.BLOCKSIZE];
+    page[0] = -1;
+    CACHE.add(id, 5, page);
+
+    final long[] blocks = new long[BLOCKS - 2];
+    for(int b = 0; b < blocks.length; b++) blocks[b] = b + 2;
+    final RandomAccessFile raf = new RandomAccessFile(file.file(), "r");
+    try {
+      ReadAhead.schedule(raf, id, raf.length(), blocks);
+      for(int i = 0; i < 100 && !CACHE.contains(id, BLOCKS - 1); i++) Thread.sleep(50);
+    } finally {
+      raf.close();
+    }
+
+    assertFalse(CACHE.contains(id, 0));
+    assertFalse(CACHE.contains(id, 1));
+    for(final long b : blocks) {
+      assertTrue(CACHE.read(id, b, page));
+      assertEquals(b == 5 ? -1 : b, page[0]);
+    }
+    // remaining bytes of the incomplete block are zeros
+    assertEquals(0, page[IO.BLOCKSIZE - 1]);
+  }
+}
@@ -0,0 +1,114 @@
+package org.basex.query;
+
+import static org.junit.Assert.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.junit.*;
+
+/**
+ * This class tests the reuse of cached query plans.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /** Initializes the test. */
+  @Before
+  public void init() {
+    context.globalopts.set(GlobalOptions.QUERYCACHE, 10);
+  }
+
+  /** Resets the options. */
+  @After
+  public void reset() {
+    context.queries.close();
+    context.globalopts.set(GlobalOptions.QUERYCACHE, 0);
+  }
+
+  /**
+   * Evaluates a query with different bindings.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void bindings() throws BaseXException {
+    final String query = "declare variable $a external; $a || '!'";
+    for(int i = 0; i < 5; i++) {
+      assertEquals(i + "!", new XQuery(query).bind("a", Integer.toString(i)).execute(context));
+    }
+    assertTrue(context.queries.toString().startsWith("1 plans"));
+  }
+
+  /**
+   * Evaluates a query with different values of the {@link MainOptions#BINDINGS} option.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void bindingsOption() throws BaseXException {
+    final String query = "declare variable $a external; $a || '!'";
+    try {
+      for(int i = 0; i < 5; i++) {
+        new Set(MainOptions.BINDINGS, "a=" + i).execute(context);
+        assertEquals(i + "!", new XQuery(query).execute(context));
+      }
+    } finally {
+      new Set(MainOptions.BINDINGS, "").execute(context);
+    }
+    assertTrue(context.queries.toString().startsWith("1 plans"));
+  }
+
+  /**
+   * Evaluates a query on a database that is updated.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new CreateDB(NAME, "<x>1</x>").execute(context);
+    final String query = "count(db:open('" + NAME + "')//x)";
+    assertEquals("1", new XQuery(query).execute(context));
+    assertEquals("1", new XQuery(query).execute(context));
+    new XQuery("insert node <x/> into db:open('" + NAME + "')/x").execute(context);
+    assertEquals("2", new XQuery(query).execute(context));
+    assertEquals("2", new XQuery(query).execute(context));
+
+    // cached plans must not prevent databases from being dropped
+    new DropDB(NAME).execute(context);
+    assertFalse(context.queries.toString().startsWith("1 plans"));
+  }
+
+  /**
+   * Evaluates a read-only query on a database via the {@link XQuery} command.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void command() throws BaseXException {
+    new CreateDB(NAME, "<x>1</x>").execute(context);
+    final String query = "count(db:open('" + NAME + "')//x)";
+    final int hits = hits();
+    for(int i = 0; i < 3; i++) assertEquals("1", new XQuery(query).execute(context));
+    assertEquals(hits + 2, hits());
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Evaluates queries that must not be cached.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void uncached() throws BaseXException {
+    new XQuery("current-dateTime()").execute(context);
+    new XQuery("current-dateTime()").execute(context);
+    new XQuery("random:double()").execute(context);
+    new XQuery("random:double()").execute(context);
+    assertTrue(context.queries.toString().startsWith("0 plans"));
+  }
+
+  /**
+   * Returns the number of reused plans.
+   * @return number of hits
+   */
+  private static int hits() {
+    return Integer.parseInt(context.queries.toString().replaceAll(".* (\\d+) hits.*", "$1"));
+  }
+}
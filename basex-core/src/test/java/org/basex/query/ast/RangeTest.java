@@ -0,0 +1,103 @@
+package org.basex.query.ast;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.query.expr.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests if numeric and date range queries are correctly evaluated with(out)
+ * the index.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class RangeTest extends QueryPlanTest {
+  /**
+   * Initializes the tests.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void start() throws BaseXException {
+    // create initial document
+    final TokenBuilder tb = new TokenBuilder();
+    tb.add("<xml>");
+    for(int i = 100; i < 1000; i++) tb.add("<n>").addInt(i).add("</n>");
+    for(int y = 2000; y < 2009; y++) {
+      for(int m = 1; m <= 12; m++) {
+        final String date = y + (m < 10 ? "-0" : "-") + m + "-15";
+        tb.add("<d>").add(date).add("</d>");
+        tb.add("<t>").add(date).add("T12:00:00Z</t>");
+      }
+    }
+    tb.add("</xml>");
+    new CreateDB(NAME, tb.toString()).execute(context);
+  }
+
+  /**
+   * Finishes the tests.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /**
+   * Tests numeric ranges.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void numeric() throws BaseXException {
+    test("count(//n[text() > 990])", "9");
+    test("count(//n[text() >= 990])", "10");
+    test("count(//n[text() < 110])", "10");
+    test("count(//n[text() >= 100 and text() < 200])", "100");
+    test("count(//n[text() > 500 and text() <= 600])", "100");
+    test("count(//n[text() > 500.5 and text() < 501.5])", "1");
+    test("count(//n[text() > 2000])", "0");
+  }
+
+  /**
+   * Tests date ranges.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void date() throws BaseXException {
+    test("count(//d[text() >= xs:date('2004-01-01')])", "60");
+    test("count(//d[text() >= xs:date('2004-01-15')])", "60");
+    test("count(//d[text() > xs:date('2004-01-15')])", "59");
+    test("count(//d[text() > xs:date('2004-01-15') and text() < xs:date('2005-01-15')])",
+        "11");
+    test("count(//d[text() >= xs:date('2004-01-15') and text() <= xs:date('2005-01-15')])",
+        "13");
+    test("count(//d[text() < xs:date('1999-01-01')])", "0");
+  }
+
+  /**
+   * Tests ranges of dates with times.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void dateTime() throws BaseXException {
+    test("count(//t[text() < xs:dateTime('2001-01-15T12:00:00Z')])", "12");
+    test("count(//t[text() <= xs:dateTime('2001-01-15T13:00:00+01:00')])", "13");
+    test("count(//t[text() > xs:dateTime('2008-12-15T11:59:59.5Z')])", "1");
+  }
+
+  /**
+   * Tests a query with and without index.
+   * @param query query
+   * @param result expected result
+   * @throws BaseXException database exception
+   */
+  private static void test(final String query, final String result) throws BaseXException {
+    final String access = "//" + Util.className(RangeAccess.class);
+    new CreateIndex(CmdIndex.TEXT).execute(context);
+    check(query, result, result.equals("0") ? "true()" : "exists(" + access + ')');
+    new DropIndex(CmdIndex.TEXT).execute(context);
+    check(query, result, "empty(" + access + ')');
+  }
+}
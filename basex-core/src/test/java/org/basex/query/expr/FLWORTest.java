@@ -28,6 +28,75 @@ public final class FLWORTest extends AdvancedQueryTest {
     query("let $i := 1 group by $i, $i return $i", "1");
   }
 
+  /** Tests the top-k evaluation of order by clauses. */
+  @Test
+  public void orderByTopTest() {
+    // a count clause after the order by clause enforces a complete sort
+    final String[] queries = {
+      "(for $i in 1 to 1000 order by $i mod 10, -$i $COUNT return $i)[position() <= 15]",
+      "(for $i in 1 to 1000 stable order by $i mod 3 $COUNT return $i)[position() < 8]",
+      "head(for $i in 1 to 1000 order by $i mod 7 descending $COUNT return $i)",
+      "(for $i in (1 to 100, 5) order by $i $COUNT return $i)[1]",
+      "for $n in (0, 1, 3, 500) return " +
+        "(for $i in 1 to 200 order by $i mod 13 $COUNT return $i)[$n]",
+      "subsequence(for $i in 1 to 1000 order by $i mod 10 $COUNT return ($i, -$i), 3, 7)",
+      "subsequence(for $i in 1 to 1000 order by $i mod 10 $COUNT return $i, -5, 9)",
+      "subsequence(for $i in 1 to 10 order by $i mod 4 $COUNT return $i, 1, 100)",
+      "(for $i in 1 to 100 let $k := if($i mod 5 = 0) then () else $i mod 3 " +
+        "order by $k empty greatest $COUNT return $i)[position() <= 10]",
+      "(for $i in 1 to 100 let $k := if($i mod 5 = 0) then () else $i mod 3 " +
+        "order by $k empty least $COUNT return $i)[position() <= 10]",
+      "(for $i in 1 to 100 order by $i mod 3, $i mod 2 descending $COUNT " +
+        "return <a>{ $i }</a>)[position() <= 20]",
+    };
+    for(final String q : queries) {
+      final String full = q.replace("$COUNT", "count $c");
+      assertEquals(full, result(full), result(q.replace("$COUNT ", "")));
+    }
+  }
+
+  /** Tests the incremental aggregation of grouped values. */
+  @Test
+  public void groupByAggregateTest() {
+    // an additional reference enforces the caching of all values
+    final String[] queries = {
+      "for $i in 1 to 1000 group by $k := $i mod 7 order by $k return (count($i)$REF)",
+      "for $i in 1 to 1000 let $d := $i div 3, $e := $i, $f := $d, $g := $i " +
+        "group by $k := $i mod 7 return (sum($d), sum($e, 'none'), max($f), min($g)$REF)",
+      "for $i in (1 to 100, 1e3, xs:float('NaN'), 2.5) let $a := $i, $b := $i " +
+        "group by $k := $i mod 2 return (max($i), min($a), sum($b)$REF)",
+      "for $i in 1 to 100 let $s := if($i mod 3 = 0) then () else ('a' || $i, 'b'), " +
+        "$t := $s, $u := $s group by $k := $i mod 5 " +
+        "return (min($s), max($t), count($u), sum(for $j in $i return 1)$REF)",
+      "for $i in 1 to 20 let $d := xs:dayTimeDuration('PT' || $i || 'S') " +
+        "group by $k := $i mod 2 return (sum($d)$REF)",
+      "for $i in 1 to 20 let $j := $i group by $k := $i mod 4 let $c := count($i) " +
+        "where $c > 4 return (<a>{ $c, max($j) }</a>$REF)",
+    };
+    for(final String q : queries) {
+      final String full = q.replace("$REF", ", $i[0], $k[0]");
+      assertEquals(full, result(full), result(q.replace("$REF", "")));
+    }
+    // incompatible values
+    error("for $i in (1, 'a') group by $k := 1 return sum($i)", Err.FUNNUM);
+  }
+
+  /**
+   * Returns the serialized result of a query.
+   * @param query query
+   * @return result
+   */
+  private static String result(final String query) {
+    final QueryProcessor proc = new QueryProcessor(query, context);
+    try {
+      return proc.value().serialize().toString();
+    } catch(final Exception ex) {
+      throw (Error) new AssertionError(Util.message(ex)).initCause(ex);
+    } finally {
+      proc.close();
+    }
+  }
+
   /**
    * Runs an updating query and matches the result of the second query
    * against the expected output.
@@ -0,0 +1,101 @@
+package org.basex.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.util.*;
+import org.junit.*;
+
+/**
+ * Test cases for the parallel evaluation of FLWOR expressions, the map operator
+ * and the for-each function.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelTest extends AdvancedQueryTest {
+  /** Queries, the results of which must not depend on the number of threads. */
+  private static final String[] QUERIES = {
+    "for $i in 1 to 10000 return $i * 2",
+    "for $i at $p in (1 to 5000) ! string() let $s := $i || '-' || $p " +
+      "where $p mod 3 = 0 return $s",
+    "for $i in 1 to 3 return $i",
+    "(1 to 5000) ! (. * position())",
+    "(1 to 5000) ! (. to . + last() mod 3)",
+    "for-each(1 to 5000, function($i) { $i mod 7 })",
+    "for $i in 1 to 2000 return <a>{ $i }</a>",
+    "for $x in 1 to 10 return for $y in 1 to 1000 return $x * $y",
+    "declare variable $v := sum(1 to 10); for $i in 1 to 2000 return $i + $v",
+    "declare function local:f($i) { $i * $i }; for $i in 1 to 2000 return local:f($i)",
+    "for $i in 1 to 1000 return string($i) contains text '1'",
+    "for $i in 1 to 1000 return random:integer(2) < 2",
+    "for $a in //a return $a/@id/string()",
+    "//a ! string(@id)",
+    "count(for $a in //a let $b := $a/b where $b return $b)",
+  };
+
+  /**
+   * Creates a test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 3000; i++) {
+      sb.append("<a id='").append(i).append("'>").append(i % 3 == 0 ? "<b/>" : "");
+      sb.append("</a>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    context.options.set(MainOptions.QUERYTHREADS, 1);
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Compares the results of sequential and parallel evaluation. */
+  @Test
+  public void results() {
+    for(final String query : QUERIES) {
+      context.options.set(MainOptions.QUERYTHREADS, 1);
+      final String expected = query(query);
+      context.options.set(MainOptions.QUERYTHREADS, 4);
+      assertEquals(query, expected, query(query));
+    }
+  }
+
+  /** Checks that errors are passed on. */
+  @Test
+  public void errors() {
+    context.options.set(MainOptions.QUERYTHREADS, 4);
+    error("for $i in 1 to 10000 return if($i = 5000) then error() else $i", Err.FUNERR1);
+    error("(1 to 10000) ! (if(. = 9999) then error() else .)", Err.FUNERR1);
+    error("for-each(1 to 10000, function($i) { 1 div ($i - 700) })", Err.DIVZERO);
+  }
+
+  /**
+   * Closes a query whose results have not been completely requested.
+   * @throws QueryException query exception
+   */
+  @Test
+  public void cancel() throws QueryException {
+    context.options.set(MainOptions.QUERYTHREADS, 4);
+    final QueryProcessor qp = new QueryProcessor("for $i in 1 to 1000000 return $i * 2",
+        context);
+    final Iter iter = qp.iter();
+    assertNotNull(iter.next());
+    // remaining tasks are cancelled: only the results of the current task are returned
+    qp.close();
+    int c = 0;
+    while(iter.next() != null) c++;
+    assertTrue(Integer.toString(c), c < 1000);
+  }
+}
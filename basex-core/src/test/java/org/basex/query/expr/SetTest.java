@@ -0,0 +1,84 @@
+package org.basex.query.expr;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for set operations and node sequences, which are either represented as
+ * pre values or as nodes.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class SetTest extends AdvancedQueryTest {
+  /**
+   * Creates a test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME, "<x><a id='1'><b id='2'/></a><a id='3'/><c id='4'/></x>").
+      execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Database nodes of a single database. */
+  @Test
+  public void dbNodes() {
+    query("(//c | //a | //a/b) ! string(@id)", "1 2 3 4");
+    query("(//*[@id] intersect (//b, //a)) ! string(@id)", "1 2 3");
+    query("(//*[@id] except (//b, //a)) ! string(@id)", "4");
+    query("((//c, //a) union //a) ! string(@id)", "1 3 4");
+    query("count(//a/.. | //b/../..)", "1");
+    query("count(((//a, //b) except //b) intersect //a)", "2");
+    query("outermost(//*) ! name()", "x");
+    query("innermost(//*) ! string(@id)", "2 3 4");
+  }
+
+  /**
+   * Dense database nodes, which are combined via bitmaps.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void dense() throws BaseXException {
+    final String name = NAME + "2";
+    new CreateDB(name, "<x>" + new String(new char[30000]).replace("\0", "<e/>") + "</x>").
+      execute(context);
+    try {
+      final String e = "let $e := db:open('" + name + "')//e return ";
+      final String e2 = "$e[position() mod 2 = 0]", e3 = "$e[position() mod 3 = 0]";
+      query(e + "count(" + e2 + " intersect " + e3 + ')', "5000");
+      query(e + "count(" + e2 + " except " + e3 + ')', "10000");
+      query(e + "count(" + e2 + " union " + e3 + ')', "20000");
+      query(e + "deep-equal((" + e3 + ", " + e2 + ") | (), ($e[position() mod 2 = 0 or " +
+          "position() mod 3 = 0]))", "true");
+    } finally {
+      new DropDB(name).execute(context);
+      new Open(NAME).execute(context);
+    }
+  }
+
+  /** Database nodes and fragments. */
+  @Test
+  public void mixed() {
+    query("let $f := <f/> return count((//a, $f, //a, $f) | $f)", "3");
+    query("let $f := <f/> return count((//a, $f) intersect ($f, //b))", "1");
+    query("let $f := <f/> return count((//a, $f) except //a)", "1");
+    query("count((//a, <f/>) except (//a | //b))", "1");
+    query("count(//a | db:open('" + NAME + "')//a | <x><a/></x>//a)", "3");
+    query("for $n in outermost((<x><y/></x>, //a)) order by name($n) return name($n)",
+        "a a x");
+    query("for $n in innermost(let $x := <x><y/></x> return ($x, $x/y, //b)) " +
+        "order by name($n) return name($n)", "b y");
+  }
+}
@@ -0,0 +1,78 @@
+package org.basex.query.expr;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.*;
+import org.junit.*;
+
+/**
+ * Test cases for the set-at-a-time evaluation of location steps (staircase join).
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class StaircaseTest extends AdvancedQueryTest {
+  /** Axes. */
+  private static final String[] AXES = {
+    "descendant", "descendant-or-self", "ancestor", "ancestor-or-self",
+    "following", "preceding"
+  };
+  /** Node tests. */
+  private static final String[] TESTS = { "node()", "*", "a", "text()", "comment()" };
+  /** Context nodes. */
+  private static final String[] CONTEXTS = {
+    "//a", "//b", "//text()", "//*", "//node()", "//@id", "(//a, //@id)", "(//b, //c)",
+    "/*", "(/)", "reverse(//a)"
+  };
+
+  /**
+   * Creates a test database with two documents.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new CreateDB(NAME).execute(context);
+    new Add("1.xml", "<x><a id='1'>A<b><a id='2'><c/>C</a></b><!--X--></a><b/>" +
+        "<a id='3'><?p?><a id='4'>D</a></a></x>").execute(context);
+    new Add("2.xml", "<y><b><a id='5'/></b>E<a id='6'><c>F</c></a></y>").execute(context);
+  }
+
+  /**
+   * Drops the test database.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Compares the results with a node-by-node evaluation. */
+  @Test
+  public void axes() {
+    for(final String ctx : CONTEXTS) {
+      for(final String axis : AXES) {
+        for(final String test : TESTS) {
+          // steps with predicates are evaluated node by node
+          final String step = axis + "::" + test, pred = step + "[exists(.)]";
+          final String query = "let $n := " + ctx + " return ";
+          assertEquals(step, query(query + "$n/" + pred + " ! db:node-pre(.)"),
+              query(query + "$n/" + step + " ! db:node-pre(.)"));
+          assertEquals(step, query(query + "$n/" + pred + '/' + pred + " ! db:node-pre(.)"),
+              query(query + "$n/" + step + '/' + step + " ! db:node-pre(.)"));
+        }
+      }
+    }
+  }
+
+  /** Checks some specific results. */
+  @Test
+  public void results() {
+    query("let $n := //a return $n//c ! string()", " F");
+    query("let $n := //a return count($n/descendant::a)", "2");
+    query("let $n := //c return $n/ancestor::a/string(@id)", "1 2 6");
+    query("let $n := (//a[@id = 2], //a[@id = 4]) return $n/preceding::a/string(@id)", "1 2");
+    query("let $n := //c return $n/following::a/string(@id)", "3 4 5 6");
+  }
+}
@@ -67,4 +67,33 @@ public final class FNXQueryTest extends AdvancedQueryTest {
       System.setErr(ERR);
     }
   }
+
+  /** Test method. */
+  @Test
+  public void forkJoin() {
+    query(_XQUERY_FORK_JOIN.args("()"), "");
+    query(_XQUERY_FORK_JOIN.args("function() { 1 }"), "1");
+    query(_XQUERY_FORK_JOIN.args("(function() { 1 }, function() { (2, 3) })"), "1 2 3");
+    query(_XQUERY_FORK_JOIN.args(" for $i in 1 to 100 return function() { $i * 2 }") +
+        "[last()]", "200");
+    query(_XQUERY_FORK_JOIN.args(" for $i in 1 to 10 return function() { " +
+        "count(for $j in 1 to $i * 1000 where $j mod $i = 0 return $j) }"),
+        "1000 1000 1000 1000 1000 1000 1000 1000 1000 1000");
+    query("declare variable $v := 5; " + _XQUERY_FORK_JOIN.args(
+        " for $i in 1 to 10 return function() { $v * $i }") + "[last()]", "50");
+    query(_XQUERY_FORK_JOIN.args(
+        " for $i in 1 to 10 return function() { 'a b' contains text 'a' }") + " = false()",
+        "false");
+
+    error(_XQUERY_FORK_JOIN.args(1), Err.INVCAST);
+    error(_XQUERY_FORK_JOIN.args("function($a) { $a }"), Err.INVCAST);
+    error(_XQUERY_FORK_JOIN.args(
+        " for $i in 1 to 10 return function() { if($i = 5) then error() else $i }"),
+        Err.FUNERR1);
+
+    // nested calls
+    query("count(" + _XQUERY_FORK_JOIN.args(" for $i in 1 to 10 return function() { " +
+        _XQUERY_FORK_JOIN.args(" for $j in 1 to 10 return function() { $i * $j }") +
+        " }") + ')', "100");
+  }
 }
@@ -0,0 +1,104 @@
+package org.basex.server;
+
+import static org.basex.query.func.Function.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the client/server session API with sessions that are
+ * multiplexed by a pool of worker threads.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class ClientPoolTest extends ClientSessionTest {
+  /** Server reference. */
+  private static BaseXServer server;
+
+  /**
+   * Starts the server.
+   * @throws IOException I/O exception
+   */
+  @BeforeClass
+  public static void startServer() throws IOException {
+    final String name = GlobalOptions.SERVERTHREADS.name();
+    final String key = Prop.DBPREFIX + name.toLowerCase(Locale.ENGLISH);
+    System.setProperty(key, "4");
+    try {
+      server = createServer();
+    } finally {
+      System.clearProperty(key);
+    }
+  }
+
+  /**
+   * Stops the server.
+   * @throws IOException I/O exception
+   */
+  @AfterClass
+  public static void stop() throws IOException {
+    stopServer(server);
+  }
+
+  /**
+   * Runs requests of several idle sessions.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void sessions() throws IOException {
+    final ClientSession[] css = new ClientSession[8];
+    for(int c = 0; c < css.length; c++) css[c] = createClient();
+    try {
+      for(int r = 0; r < 3; r++) {
+        for(int c = 0; c < css.length; c++) {
+          assertEquals(Integer.toString(c + r), css[c].execute("xquery " + c + " + " + r));
+          final ClientQuery cq = css[c].query("declare variable $a external; $a");
+          cq.bind("a", Integer.toString(c));
+          assertEquals(Integer.toString(c), cq.execute());
+          cq.close();
+        }
+      }
+    } finally {
+      for(final ClientSession cs : css) cs.close();
+    }
+  }
+
+  /**
+   * Fetches the results of the cursors of several sessions in turn. The batches of a
+   * cursor will be processed by different worker threads.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void cursors() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b/><b/><b/><b/><b/></a>"));
+    final ClientSession[] css = new ClientSession[8];
+    final ClientQuery[] cqs = new ClientQuery[css.length];
+    for(int c = 0; c < css.length; c++) {
+      css[c] = createClient();
+      cqs[c] = css[c].query(_DB_OPEN.args(NAME) + "//b");
+      cqs[c].fetch(2);
+    }
+    try {
+      for(int r = 0; r < 5; r++) {
+        for(int c = 0; c < css.length; c++) {
+          assertTrue(cqs[c].more());
+          assertEquals("<b/>", cqs[c].next());
+          assertEquals(Integer.toString(c + r), css[c].execute("xquery " + c + " + " + r));
+        }
+      }
+      for(final ClientQuery cq : cqs) assertFalse(cq.more());
+    } finally {
+      for(final ClientSession cs : css) cs.close();
+    }
+    // locks must have been released
+    session.execute(new DropDB(NAME));
+  }
+}
@@ -304,6 +304,74 @@ public abstract class SessionTest extends SandboxTest {
     query.close();
   }
 
+  /** Runs a query and fetches the results in batches.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetch() throws IOException {
+    final Query query = session.query("1 to 10");
+    for(final int size : new int[] { 1, 3, 5, 10, 20 }) {
+      query.fetch(size);
+      int c = 0;
+      while(query.more()) assertEqual(++c, query.next());
+      assertEquals(10, c);
+    }
+    query.close();
+  }
+
+  /** Runs a query and closes an opened cursor.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetchClose() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b/><b/><b/></a>"));
+    final Query query = session.query(_DB_OPEN.args(NAME) + "//b");
+    query.fetch(1);
+    assertEqual("<b/>", query.next());
+    query.close();
+    // locks must have been released
+    session.execute(new DropDB(NAME));
+  }
+
+  /** Runs other commands and queries while a cursor is open.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetchInterleaved() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b/><b/><b/></a>"));
+    final Query query = session.query(_DB_OPEN.args(NAME) + "//b");
+    query.fetch(1);
+    int c = 0;
+    while(query.more()) {
+      assertEqual("<b/>", query.next());
+      assertEqual("3", session.execute("xquery count(" + _DB_OPEN.args(NAME) + "//b)"));
+      final Query q = session.query(_DB_OPEN.args(NAME) + "/a/name()");
+      assertEqual("a", q.execute());
+      q.close();
+      c++;
+    }
+    assertEquals(3, c);
+    query.close();
+    session.execute(new DropDB(NAME));
+  }
+
+  /** Updates a database while a cursor is open.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetchUpdated() throws IOException {
+    session.execute(new CreateDB(NAME, "<a><b/><b/><b/></a>"));
+    final Query query = session.query(_DB_OPEN.args(NAME) + "//b");
+    query.fetch(1);
+    assertTrue(query.more());
+    assertEqual("<b/>", query.next());
+    session.execute("xquery delete node " + _DB_OPEN.args(NAME) + "//b");
+    try {
+      while(query.more()) query.next();
+      fail("Cursor was not invalidated.");
+    } catch(final BaseXException ex) {
+      // expected: database was updated
+    }
+    query.close();
+    session.execute(new DropDB(NAME));
+  }
+
   /** Queries binary content.
    * @throws IOException I/O exception */
   @Test
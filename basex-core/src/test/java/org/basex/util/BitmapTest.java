@@ -0,0 +1,146 @@
+package org.basex.util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+/**
+ * Tests for {@link Bitmap}.
+ *
+ * @author BaseX Team 2005-13, BSD License
+ * @author Christian Gruen
+ */
+public final class BitmapTest {
+  /** Random number generator. */
+  private static final Random RND = new Random(1);
+  /** Value ranges (sparse and dense chunks). */
+  private static final int[] RANGES = { 100, 5000, 70000, 1 << 20 };
+  /** Numbers of values. */
+  private static final int[] SIZES = { 0, 1, 10, 3000, 5000, 100000 };
+
+  /** Test method for {@link Bitmap#toArray()} and {@link Bitmap#contains(int)}. */
+  @Test
+  public void create() {
+    for(final int r : RANGES) {
+      for(final int s : SIZES) {
+        final int[] values = values(r, s);
+        final TreeSet<Integer> set = set(values);
+        final Bitmap bm = new Bitmap(values, values.length);
+        check(set, bm);
+        for(int i = 0; i < 1000; i++) {
+          final int v = RND.nextInt(r);
+          assertEquals(set.contains(v), bm.contains(v));
+        }
+      }
+    }
+  }
+
+  /** Test method for {@link Bitmap#or(Bitmap)}. */
+  @Test
+  public void or() {
+    for(final int[][] vals : pairs()) {
+      final TreeSet<Integer> set = set(vals[0]);
+      set.addAll(set(vals[1]));
+      check(set, bitmap(vals[0]).or(bitmap(vals[1])));
+    }
+  }
+
+  /** Test method for {@link Bitmap#and(Bitmap)}. */
+  @Test
+  public void and() {
+    for(final int[][] vals : pairs()) {
+      final TreeSet<Integer> set = set(vals[0]);
+      set.retainAll(set(vals[1]));
+      check(set, bitmap(vals[0]).and(bitmap(vals[1])));
+    }
+  }
+
+  /** Test method for {@link Bitmap#andNot(Bitmap)}. */
+  @Test
+  public void andNot() {
+    for(final int[][] vals : pairs()) {
+      final TreeSet<Integer> set = set(vals[0]);
+      set.removeAll(set(vals[1]));
+      check(set, bitmap(vals[0]).andNot(bitmap(vals[1])));
+    }
+  }
+
+  /** Test method for {@link Bitmap#dense(int[], int)}. */
+  @Test
+  public void dense() {
+    final int[] values = new int[100000];
+    for(int i = 0; i < values.length; i++) values[i] = i * 8;
+    assertTrue(Bitmap.dense(values, values.length));
+    assertFalse(Bitmap.dense(values, 100));
+    for(int i = 0; i < values.length; i++) values[i] = i * 32;
+    assertFalse(Bitmap.dense(values, values.length));
+  }
+
+  /**
+   * Compares the bitmap with the expected values.
+   * @param set expected values
+   * @param bm bitmap
+   */
+  private static void check(final TreeSet<Integer> set, final Bitmap bm) {
+    final int[] res = bm.toArray();
+    assertEquals(set.size(), res.length);
+    assertEquals(set.size(), bm.cardinality());
+    int i = 0;
+    for(final int v : set) {
+      assertEquals(v, res[i++]);
+      assertTrue(bm.contains(v));
+    }
+  }
+
+  /**
+   * Returns pairs of value arrays with all combinations of ranges and sizes.
+   * @return value arrays
+   */
+  private static ArrayList<int[][]> pairs() {
+    final ArrayList<int[][]> list = new ArrayList<int[][]>();
+    for(final int r1 : RANGES) {
+      for(final int s1 : SIZES) {
+        for(final int r2 : RANGES) {
+          for(final int s2 : SIZES) {
+            list.add(new int[][] { values(r1, s1), values(r2, s2) });
+          }
+        }
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns random values, which may be unsorted and contain duplicates.
+   * @param range value range
+   * @param size number of values
+   * @return values
+   */
+  private static int[] values(final int range, final int size) {
+    final int[] values = new int[size];
+    for(int i = 0; i < size; i++) values[i] = RND.nextInt(range);
+    return values;
+  }
+
+  /**
+   * Creates a bitmap.
+   * @param values values
+   * @return bitmap
+   */
+  private static Bitmap bitmap(final int[] values) {
+    return new Bitmap(values, values.length);
+  }
+
+  /**
+   * Creates a set with the specified values.
+   * @param values values
+   * @return set
+   */
+  private static TreeSet<Integer> set(final int[] values) {
+    final TreeSet<Integer> set = new TreeSet<Integer>();
+    for(final int v : values) set.add(v);
+    return set;
+  }
+}
@@ -5,7 +5,10 @@ import static org.junit.Assert.*;
 
 import java.util.*;
 
+import org.basex.core.*;
+import org.basex.core.cmd.*;
 import org.basex.query.*;
+import org.basex.query.func.*;
 import org.basex.query.iter.*;
 import org.basex.query.value.item.*;
 import org.basex.*;
@@ -13,7 +16,7 @@ import org.basex.util.list.*;
 import org.junit.*;
 
 /**
- * Class for testing the {@link Compress} methods.
+ * Class for testing the {@link Compress} and {@link LZ4Compress} methods.
  *
  * @author BaseX Team 2005-13, BSD License
  * @author Christian Gruen
@@ -62,6 +65,16 @@ public final class CompressTest extends SandboxTest {
     run(b);
   }
 
+  /** Test. */
+  @Test
+  public void test6b() {
+    final byte[] b = new byte[70000];
+    for(int i = 0; i < b.length; i++) b[i] = (byte) (i * 31 >> 9);
+    run(b);
+    run(token("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa"));
+    run(token("abcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabc!"));
+  }
+
   /** Test.
    * @throws Exception exception */
   @Test
@@ -76,6 +89,28 @@ public final class CompressTest extends SandboxTest {
     texts("src/test/resources/factbook.zip");
   }
 
+  /**
+   * Creates databases with different codecs.
+   * @throws Exception exception
+   */
+  @Test
+  public void database() throws Exception {
+    final String query = "string-join(" + Function._DB_OPEN.args(NAME) + "//text(), ' ')";
+    try {
+      for(final Compression c : Compression.values()) {
+        context.options.set(MainOptions.COMPRESSION, c);
+        new CreateDB(NAME, "src/test/resources/xmark.xml").execute(context);
+        assertTrue(new InfoDB().execute(context).contains(c.toString()));
+        final String result = new XQuery(query).execute(context);
+        new Close().execute(context);
+        assertEquals(c.toString(), result, new XQuery(query).execute(context));
+        new DropDB(NAME).execute(context);
+      }
+    } finally {
+      context.options.set(MainOptions.COMPRESSION, Compression.HUFFMAN);
+    }
+  }
+
   /**
    * Test on all text nodes of a document.
    * @param file file to be parsed
@@ -105,7 +140,16 @@ public final class CompressTest extends SandboxTest {
    * @param tokens test tokens
    */
   private static void run(final byte[]... tokens) {
-    final Compress comp = new Compress();
+    run(new Compress(), tokens);
+    run(new LZ4Compress(), tokens);
+  }
+
+  /**
+   * Tests the correctness of the compressed tokens.
+   * @param comp codec
+   * @param tokens test tokens
+   */
+  private static void run(final TextCodec comp, final byte[]... tokens) {
     for(final byte[] token : tokens) {
       final byte[] cpr = comp.pack(token);
       if(token != cpr) {
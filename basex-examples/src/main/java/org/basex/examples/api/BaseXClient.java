@@ -328,6 +328,10 @@ public class BaseXClient {
     private ArrayList<byte[]> cache;
     /** Cache pointer. */
     private int pos;
+    /** Number of items to be fetched at a time (0: fetch all items at once). */
+    private int fetch;
+    /** Indicates if all results of an opened cursor have been fetched. */
+    private boolean fetched;
 
     /**
      * Standard constructor.
@@ -381,6 +385,16 @@ public class BaseXClient {
       exec(14, id + '\0' + value + '\0' + type);
     }
 
+    /**
+     * Specifies the number of items that will be fetched at a time.
+     * If a positive value is assigned, the results will be retrieved in batches.
+     * @param size number of items (0: fetch all items at once)
+     */
+    public void fetch(final int size) {
+      fetch = Math.max(0, size);
+      cache = null;
+    }
+
     /**
      * Checks for the next item.
      * @return result of check
@@ -388,23 +402,46 @@ public class BaseXClient {
      */
     public boolean more() throws IOException {
       if(cache == null) {
-        out.write(4);
-        send(id);
-        cache = new ArrayList<byte[]>();
-        final ByteArrayOutputStream os = new ByteArrayOutputStream();
-        while(in.read() > 0) {
-          receive(in, os);
-          cache.add(os.toByteArray());
-          os.reset();
+        if(fetch > 0) {
+          // open cursor
+          exec(15, id);
+          fetched = false;
+          cache();
+        } else {
+          out.write(4);
+          send(id);
+          cache();
         }
-        if(!ok()) throw new IOException(receive());
-        pos = 0;
       }
+      // fetch next results
+      while(pos == cache.size() && fetch > 0 && !fetched) cache();
       if(pos < cache.size()) return true;
       cache = null;
       return false;
     }
 
+    /**
+     * Caches the next results.
+     * @throws IOException I/O exception
+     */
+    private void cache() throws IOException {
+      if(fetch > 0) {
+        out.write(16);
+        send(id);
+        send(Integer.toString(fetch));
+      }
+      cache = new ArrayList<byte[]>();
+      final ByteArrayOutputStream os = new ByteArrayOutputStream();
+      while(in.read() > 0) {
+        receive(in, os);
+        cache.add(os.toByteArray());
+        os.reset();
+      }
+      if(!ok()) throw new IOException(receive());
+      pos = 0;
+      if(cache.size() < fetch) fetched = true;
+    }
+
     /**
      * Returns the next item.
      * @return item string